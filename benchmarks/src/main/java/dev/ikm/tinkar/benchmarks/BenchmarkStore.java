@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.common.service.CachingService;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.common.util.io.FileUtil;
+import dev.ikm.tinkar.provider.ephemeral.constants.EphemeralStoreControllerName;
+import dev.ikm.tinkar.provider.mvstore.constants.MvStoreControllerNames;
+import dev.ikm.tinkar.provider.spinedarray.constants.SpinedArrayControllerNames;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * The data stores a benchmark can run against. Each start opens a new, empty store; persistent stores are created
+ * in a temporary directory that {@link #stop()} deletes.
+ */
+public enum BenchmarkStore {
+    EPHEMERAL,
+    SPINED_ARRAY,
+    MV_STORE;
+
+    private static File dataStoreRoot;
+
+    public String controllerName() {
+        return switch (this) {
+            case EPHEMERAL -> EphemeralStoreControllerName.NEW_CONTROLLER_NAME;
+            case SPINED_ARRAY -> SpinedArrayControllerNames.NEW_CONTROLLER_NAME;
+            case MV_STORE -> MvStoreControllerNames.NEW_CONTROLLER_NAME;
+        };
+    }
+
+    /**
+     * Starts a new, empty store of this kind. Only one store runs at a time.
+     */
+    public void start() {
+        try {
+            dataStoreRoot = Files.createTempDirectory("tinkar-benchmark-" + name().toLowerCase()).toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CachingService.clearAll();
+        ServiceProperties.set(ServiceKeys.DATA_STORE_ROOT, dataStoreRoot);
+        PrimitiveData.selectControllerByName(controllerName());
+        PrimitiveData.start();
+    }
+
+    /**
+     * Stops the running store and deletes its directory.
+     */
+    public static void stop() {
+        PrimitiveData.stop();
+        if (dataStoreRoot != null) {
+            FileUtil.recursiveDelete(dataStoreRoot);
+            dataStoreRoot = null;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.common.util.io.FileUtil;
+import dev.ikm.tinkar.provider.spinedarray.ByteArrayFileStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static dev.ikm.tinkar.collection.SpineFileUtil.SPINE_PREFIX;
+
+/**
+ * Reads entity spines from a {@link ByteArrayFileStore} holding legacy {@code spine-N} files, which must be read
+ * and decoded whole, and from one holding mapped spine files, read whole or one element at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview"})
+public class ByteArrayFileStoreBenchmark {
+    private static final int SPINE_SIZE = 10240;
+
+    @Param({"8"})
+    public int spineCount;
+
+    private File root;
+    private ByteArrayFileStore legacyStore;
+    private ByteArrayFileStore mappedStore;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("byte-array-file-store-benchmark").toFile();
+        File legacyDirectory = new File(root, "legacy");
+        File mappedDirectory = new File(root, "mapped");
+        legacyDirectory.mkdirs();
+        mappedDirectory.mkdirs();
+        legacyStore = new ByteArrayFileStore(legacyDirectory);
+        mappedStore = new ByteArrayFileStore(mappedDirectory);
+        Random random = new Random(3);
+        for (int spineIndex = 0; spineIndex < spineCount; spineIndex++) {
+            AtomicReferenceArray<byte[]> spine = randomSpine(random);
+            writeLegacySpine(new File(legacyDirectory, SPINE_PREFIX + spineIndex), spine);
+            mappedStore.put(spineIndex, spine);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        legacyStore.close();
+        mappedStore.close();
+        FileUtil.recursiveDelete(root);
+    }
+
+    @Benchmark
+    public AtomicReferenceArray<byte[]> readLegacySpine() {
+        return legacyStore.get(ThreadLocalRandom.current().nextInt(spineCount)).orElseThrow();
+    }
+
+    @Benchmark
+    public AtomicReferenceArray<byte[]> readMappedSpine() {
+        return mappedStore.get(ThreadLocalRandom.current().nextInt(spineCount)).orElseThrow();
+    }
+
+    @Benchmark
+    public byte[] readMappedElement() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return mappedStore.getElement(random.nextInt(spineCount), random.nextInt(SPINE_SIZE));
+    }
+
+    private static AtomicReferenceArray<byte[]> randomSpine(Random random) {
+        AtomicReferenceArray<byte[]> spine = new AtomicReferenceArray<>(SPINE_SIZE);
+        for (int i = 0; i < SPINE_SIZE; i++) {
+            if (random.nextInt(10) != 0) {
+                byte[] value = new byte[16 + random.nextInt(256)];
+                random.nextBytes(value);
+                spine.set(i, value);
+            }
+        }
+        return spine;
+    }
+
+    /**
+     * Writes the format stores used before mapped spine files: a slot count followed by length-prefixed values.
+     */
+    private static void writeLegacySpine(File spineFile, AtomicReferenceArray<byte[]> spine) throws IOException {
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spineFile)))) {
+            dos.writeInt(spine.length());
+            for (int i = 0; i < spine.length(); i++) {
+                byte[] value = spine.get(i);
+                if (value == null) {
+                    dos.writeInt(0);
+                } else {
+                    dos.writeInt(value.length);
+                    dos.write(value);
+                }
+            }
+        }
+    }
+}
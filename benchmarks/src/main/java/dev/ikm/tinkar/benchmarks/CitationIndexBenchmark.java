@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.common.service.CitationIndex;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads and reads a synthetic hub: one component cited by {@code citationCount} semantics of
+ * {@code patternCount} patterns. {@code loadWithoutHub} loads a prefix of the same citations with hub promotion
+ * disabled, so every add copies the component's whole citation array, as every add did before hubs.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview"})
+public class CitationIndexBenchmark {
+    private static final int COMPONENT = PrimitiveDataService.FIRST_NID;
+    private static final int FIRST_PATTERN = PrimitiveDataService.FIRST_NID + 1;
+
+    @Param({"1000000"})
+    public int citationCount;
+
+    @Param({"20000"})
+    public int withoutHubCitationCount;
+
+    @Param({"16"})
+    public int patternCount;
+
+    private int[] citingNids;
+    private int[] patternNids;
+    private CitationIndex loadedIndex;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        citingNids = new int[citationCount];
+        patternNids = new int[citationCount];
+        Random random = new Random(17);
+        for (int i = 0; i < citationCount; i++) {
+            citingNids[i] = FIRST_PATTERN + patternCount + i;
+            patternNids[i] = FIRST_PATTERN + random.nextInt(patternCount);
+        }
+        loadedIndex = load(CitationIndex.DEFAULT_HUB_THRESHOLD, citationCount);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CitationIndex loadHub() {
+        return load(CitationIndex.DEFAULT_HUB_THRESHOLD, citationCount);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CitationIndex loadWithoutHub() {
+        return load(Integer.MAX_VALUE, withoutHubCitationCount);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long readPatternCitations() {
+        LongAdder citations = new LongAdder();
+        loadedIndex.forEachCitingOfPattern(COMPONENT, FIRST_PATTERN, citingNid -> citations.increment());
+        return citations.sum();
+    }
+
+    private CitationIndex load(int hubThreshold, int count) {
+        CitationIndex index = new CitationIndex(CitationIndex.Store.of(new ConcurrentHashMap<>()), hubThreshold);
+        for (int i = 0; i < count; i++) {
+            index.add(COMPONENT, citingNids[i], patternNids[i]);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A store holding a {@link SyntheticDataset}, shared by the threads of a benchmark trial. The store and dataset size
+ * are JMH parameters, so they can be changed from the command line, for example
+ * {@code -p store=SPINED_ARRAY -p conceptCount=100000}.
+ */
+@State(Scope.Benchmark)
+public class DatasetState {
+
+    @Param({"EPHEMERAL"})
+    public BenchmarkStore store;
+
+    @Param({"10000"})
+    public int conceptCount;
+
+    @Param({"8"})
+    public int fanout;
+
+    public SyntheticDataset dataset;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store.start();
+        dataset = SyntheticDataset.write(conceptCount, fanout);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkStore.stop();
+    }
+}
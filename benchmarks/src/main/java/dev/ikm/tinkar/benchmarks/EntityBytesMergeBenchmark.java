@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges entity bytes with {@link PrimitiveDataService#merge(byte[], byte[])}, the merge every entity write takes:
+ * a transaction appending a version to the stored versions, and a reload of bytes already stored.
+ * The entities are generated concepts with {@code versionCount} versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview"})
+public class EntityBytesMergeBenchmark {
+    private static final byte CONCEPT_CHRONOLOGY = 1;
+    private static final byte CONCEPT_VERSION = 4;
+    private static final byte ENTITY_FORMAT = 1;
+    private static final int STAMP_POOL = 24;
+
+    @Param({"10000"})
+    public int entityCount;
+
+    @Param({"4", "16"})
+    public int versionCount;
+
+    private byte[][] storedBytes;
+    private byte[][] appendedBytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // The merge checks for canceled stamps through the running data service.
+        BenchmarkStore.EPHEMERAL.start();
+        Random random = new Random(11);
+        storedBytes = new byte[entityCount][];
+        appendedBytes = new byte[entityCount][];
+        for (int i = 0; i < entityCount; i++) {
+            int nid = PrimitiveDataService.FIRST_NID + i;
+            long msb = random.nextLong();
+            long lsb = random.nextLong();
+            storedBytes[i] = conceptBytes(random, nid, msb, lsb, versionCount);
+            appendedBytes[i] = PrimitiveDataService.merge(storedBytes[i], conceptBytes(random, nid, msb, lsb, 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkStore.stop();
+    }
+
+    @Benchmark
+    public byte[] mergeAppendedVersion() {
+        int index = ThreadLocalRandom.current().nextInt(entityCount);
+        return PrimitiveDataService.merge(storedBytes[index], appendedBytes[index]);
+    }
+
+    @Benchmark
+    public byte[] mergeStoredBytes() {
+        int index = ThreadLocalRandom.current().nextInt(entityCount);
+        return PrimitiveDataService.merge(appendedBytes[index], storedBytes[index]);
+    }
+
+    /**
+     * Writes concept bytes in the entity layout described by {@code EntityBytesMerger}: a chronology array followed
+     * by version arrays, each version holding a token, a stamp nid, and a small payload.
+     */
+    private static byte[] conceptBytes(Random random, int nid, long msb, long lsb, int versions) {
+        try {
+            ByteArrayOutputStream entity = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(entity);
+            out.writeInt(versions + 1);
+            // token, nid, two uuid longs, additional uuid count, format token, version count
+            out.writeInt(1 + 4 + 16 + 1 + 5);
+            out.writeByte(ENTITY_FORMAT);
+            out.writeByte(CONCEPT_CHRONOLOGY);
+            out.writeInt(nid);
+            out.writeLong(msb);
+            out.writeLong(lsb);
+            out.writeByte(0);
+            out.writeInt(versions);
+            for (int i = 0; i < versions; i++) {
+                byte[] payload = new byte[random.nextInt(4) * 3];
+                random.nextBytes(payload);
+                out.writeInt(5 + payload.length);
+                out.writeByte(CONCEPT_VERSION);
+                out.writeInt(PrimitiveDataService.FIRST_NID + 1_000_000 + random.nextInt(STAMP_POOL));
+                out.write(payload);
+            }
+            return entity.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityRecordFactory;
+import dev.ikm.tinkar.entity.EntityVersion;
+import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserializes entities with {@link EntityRecordFactory#make(byte[])} and serializes them with
+ * {@link EntityRecordFactory#getBytes(Entity)}, for concepts and for the description and navigation semantics.
+ * {@code makeAndReadFields} also reads the field values, which lazy field decoding otherwise defers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class EntityRecordFactoryBenchmark {
+
+    @Param({"CONCEPT", "DESCRIPTION", "NAVIGATION"})
+    public String entityKind;
+
+    @Param({"true", "false"})
+    public boolean lazyFieldDecoding;
+
+    @Param({"10000"})
+    public int conceptCount;
+
+    @Param({"8"})
+    public int fanout;
+
+    private Entity<?>[] entities;
+    private byte[][] entityBytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Each parameter combination runs in its own fork, where nothing has yet initialized EntityRecordFactory,
+        // which reads the property once. The property name is a constant, so reading it does not initialize the class.
+        System.setProperty(EntityRecordFactory.LAZY_FIELD_DECODING_PROPERTY, Boolean.toString(lazyFieldDecoding));
+        if (EntityRecordFactory.lazyFieldDecoding() != lazyFieldDecoding) {
+            throw new IllegalStateException("EntityRecordFactory was initialized before lazyFieldDecoding was set");
+        }
+        BenchmarkStore.EPHEMERAL.start();
+        SyntheticDataset dataset = SyntheticDataset.write(conceptCount, fanout);
+        int[] nids = switch (entityKind) {
+            case "CONCEPT" -> dataset.conceptNids();
+            case "DESCRIPTION" -> dataset.descriptionNids();
+            case "NAVIGATION" -> dataset.navigationNids();
+            default -> throw new IllegalArgumentException("Unknown entity kind: " + entityKind);
+        };
+        entities = new Entity<?>[nids.length];
+        entityBytes = new byte[nids.length][];
+        for (int i = 0; i < nids.length; i++) {
+            entities[i] = Entity.getFast(nids[i]);
+            entityBytes[i] = entities[i].getBytes();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkStore.stop();
+    }
+
+    @Benchmark
+    public Entity<?> make() {
+        return EntityRecordFactory.make(entityBytes[ThreadLocalRandom.current().nextInt(entityBytes.length)]);
+    }
+
+    @Benchmark
+    public byte[] getBytes() {
+        return EntityRecordFactory.getBytes(entities[ThreadLocalRandom.current().nextInt(entities.length)]);
+    }
+
+    @Benchmark
+    public void makeAndReadFields(Blackhole blackhole) {
+        Entity<?> entity = EntityRecordFactory.make(entityBytes[ThreadLocalRandom.current().nextInt(entityBytes.length)]);
+        for (EntityVersion version : entity.versions()) {
+            if (version instanceof SemanticEntityVersion semanticVersion) {
+                for (Object fieldValue : semanticVersion.fieldValues()) {
+                    blackhole.consume(fieldValue);
+                }
+            } else {
+                blackhole.consume(version);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.coordinate.Coordinates;
+import dev.ikm.tinkar.coordinate.language.calculator.LanguageCalculatorWithCache;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gets the description text of generated concepts with the US English regular name coordinate. The text is cached
+ * by the calculator after the first call for a concept; {@code getDescriptionsForComponent} measures the uncached
+ * lookup of the description semantics beneath it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class LanguageCalculatorBenchmark {
+    private LanguageCalculatorWithCache calculator;
+    private int[] conceptNids;
+
+    @Setup(Level.Trial)
+    public void setup(DatasetState state) {
+        calculator = LanguageCalculatorWithCache.getCalculator(Coordinates.Stamp.DevelopmentLatest(),
+                Lists.immutable.of(Coordinates.Language.UsEnglishRegularName()));
+        conceptNids = state.dataset.conceptNids();
+    }
+
+    @Benchmark
+    public Optional<String> getDescriptionText() {
+        return calculator.getDescriptionText(conceptNids[ThreadLocalRandom.current().nextInt(conceptNids.length)]);
+    }
+
+    @Benchmark
+    public ImmutableList<SemanticEntity> getDescriptionsForComponent() {
+        return calculator.getDescriptionsForComponent(conceptNids[ThreadLocalRandom.current().nextInt(conceptNids.length)]);
+    }
+}
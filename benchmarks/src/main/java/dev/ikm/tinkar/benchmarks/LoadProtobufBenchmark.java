@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.common.service.EntityCountSummary;
+import dev.ikm.tinkar.entity.export.ExportEntitiesToProtobufFile;
+import dev.ikm.tinkar.entity.load.LoadEntitiesFromProtobufFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a protobuf export into a new, empty store for each invocation. Unless {@code file} names an export, such as
+ * tinkar-starter-data, the loaded file is an export of a {@link SyntheticDataset}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class LoadProtobufBenchmark {
+
+    @Param({"EPHEMERAL", "SPINED_ARRAY"})
+    public BenchmarkStore store;
+
+    @Param({"100000"})
+    public int conceptCount;
+
+    @Param({"8"})
+    public int fanout;
+
+    @Param({""})
+    public String file;
+
+    private File importFile;
+    private boolean exported;
+
+    @Setup(Level.Trial)
+    public void export() throws IOException {
+        if (!file.isBlank()) {
+            importFile = new File(file);
+            return;
+        }
+        importFile = Files.createTempFile("tinkar-benchmark-", ".zip").toFile();
+        exported = true;
+        BenchmarkStore.EPHEMERAL.start();
+        try {
+            SyntheticDataset.write(conceptCount, fanout);
+            new ExportEntitiesToProtobufFile(importFile).compute();
+        } finally {
+            BenchmarkStore.stop();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteExport() throws IOException {
+        if (exported) {
+            Files.deleteIfExists(importFile.toPath());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startStore() {
+        store.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopStore() {
+        BenchmarkStore.stop();
+    }
+
+    @Benchmark
+    public EntityCountSummary load() {
+        return new LoadEntitiesFromProtobufFile(importFile).compute();
+    }
+}
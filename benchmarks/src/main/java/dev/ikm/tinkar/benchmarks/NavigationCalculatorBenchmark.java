@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.common.id.IntIdList;
+import dev.ikm.tinkar.common.id.IntIdSet;
+import dev.ikm.tinkar.coordinate.Coordinates;
+import dev.ikm.tinkar.coordinate.navigation.calculator.NavigationCalculatorWithCache;
+import org.eclipse.collections.api.factory.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries the parents, children and descendants of generated concepts on the inferred navigation. Descendants are
+ * queried for interior concepts whose subtrees have at most {@code maxDescendants} concepts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class NavigationCalculatorBenchmark {
+
+    @Param({"1000"})
+    public int maxDescendants;
+
+    private NavigationCalculatorWithCache calculator;
+    private int[] conceptNids;
+    private int[] subtreeNids;
+
+    @Setup(Level.Trial)
+    public void setup(DatasetState state) {
+        calculator = NavigationCalculatorWithCache.getCalculator(Coordinates.Stamp.DevelopmentLatest(),
+                Lists.immutable.of(Coordinates.Language.UsEnglishRegularName()),
+                Coordinates.Navigation.inferred().toNavigationCoordinateRecord());
+        conceptNids = state.dataset.conceptNids();
+        subtreeNids = state.dataset.subtreeNids(maxDescendants);
+    }
+
+    @Benchmark
+    public IntIdList unsortedParentsOf() {
+        return calculator.unsortedParentsOf(conceptNids[ThreadLocalRandom.current().nextInt(conceptNids.length)]);
+    }
+
+    @Benchmark
+    public IntIdList unsortedChildrenOf() {
+        return calculator.unsortedChildrenOf(conceptNids[ThreadLocalRandom.current().nextInt(conceptNids.length)]);
+    }
+
+    @Benchmark
+    public IntIdSet descendentsOf() {
+        return calculator.descendentsOf(subtreeNids[ThreadLocalRandom.current().nextInt(subtreeNids.length)]);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
+import dev.ikm.tinkar.common.sets.ConcurrentNidSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Compares {@link ConcurrentNidSet} with the {@code ConcurrentHashSet<Integer>} previously used for the nid
+ * indexes: filling a set from parallel threads, and iterating a full set. Run with {@code -prof gc} to compare
+ * the allocation of the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview"})
+public class NidSetBenchmark {
+
+    @Param({"2000000"})
+    public int nidCount;
+
+    private ConcurrentHashSet<Integer> boxedSet;
+    private ConcurrentNidSet nidSet;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        boxedSet = fillBoxedSet();
+        nidSet = fillNidSet();
+        nidSet.trim();
+    }
+
+    @Benchmark
+    public ConcurrentHashSet<Integer> addBoxedSet() {
+        return fillBoxedSet();
+    }
+
+    @Benchmark
+    public ConcurrentNidSet addNidSet() {
+        return fillNidSet();
+    }
+
+    @Benchmark
+    public long iterateBoxedSet() {
+        LongAdder sum = new LongAdder();
+        boxedSet.forEach(nid -> sum.add(nid));
+        return sum.sum();
+    }
+
+    @Benchmark
+    public long iterateNidSet() {
+        LongAdder sum = new LongAdder();
+        nidSet.forEach(nid -> sum.add(nid));
+        return sum.sum();
+    }
+
+    private ConcurrentHashSet<Integer> fillBoxedSet() {
+        ConcurrentHashSet<Integer> set = new ConcurrentHashSet<>();
+        IntStream.range(0, nidCount).parallel().forEach(i -> set.add(PrimitiveDataService.FIRST_NID + i));
+        return set;
+    }
+
+    private ConcurrentNidSet fillNidSet() {
+        ConcurrentNidSet set = new ConcurrentNidSet();
+        IntStream.range(0, nidCount).parallel().forEach(i -> set.add(PrimitiveDataService.FIRST_NID + i));
+        return set;
+    }
+}
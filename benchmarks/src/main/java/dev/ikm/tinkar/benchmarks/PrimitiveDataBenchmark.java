@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.entity.Entity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and merges entity bytes through {@link dev.ikm.tinkar.common.service.PrimitiveDataService} on each store.
+ * The merge rewrites the stored bytes of a concept, the idempotent merge a reload of unchanged content takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class PrimitiveDataBenchmark {
+
+    @Param({"EPHEMERAL", "SPINED_ARRAY", "MV_STORE"})
+    public BenchmarkStore store;
+
+    @Param({"10000"})
+    public int conceptCount;
+
+    @Param({"8"})
+    public int fanout;
+
+    private int[] entityNids;
+    private Entity<?>[] concepts;
+    private byte[][] conceptBytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store.start();
+        SyntheticDataset dataset = SyntheticDataset.write(conceptCount, fanout);
+        entityNids = dataset.entityNids();
+        int[] conceptNids = dataset.conceptNids();
+        concepts = new Entity<?>[conceptNids.length];
+        conceptBytes = new byte[conceptNids.length][];
+        for (int i = 0; i < conceptNids.length; i++) {
+            concepts[i] = Entity.getFast(conceptNids[i]);
+            conceptBytes[i] = concepts[i].getBytes();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkStore.stop();
+    }
+
+    @Benchmark
+    public byte[] getBytes() {
+        return PrimitiveData.get().getBytes(entityNids[ThreadLocalRandom.current().nextInt(entityNids.length)]);
+    }
+
+    @Benchmark
+    public byte[] merge() {
+        int index = ThreadLocalRandom.current().nextInt(concepts.length);
+        return PrimitiveData.get().merge(concepts[index].nid(), Integer.MAX_VALUE, Integer.MAX_VALUE,
+                conceptBytes[index], concepts[index], DataActivity.LOADING_CHANGE_SET);
+    }
+}
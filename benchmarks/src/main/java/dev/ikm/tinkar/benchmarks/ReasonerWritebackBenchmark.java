@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.StampRecord;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes back a new version of every inferred navigation semantic, as a reasoner run does, one entity at a time
+ * and in batches. Each iteration writes the versions of a new stamp, so every write merges into stored bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class ReasonerWritebackBenchmark {
+
+    @Param({"EPHEMERAL", "SPINED_ARRAY"})
+    public BenchmarkStore store;
+
+    @Param({"500000"})
+    public int conceptCount;
+
+    @Param({"8"})
+    public int fanout;
+
+    @Param({"4096"})
+    public int batchSize;
+
+    private int[] navigationNids;
+    private List<SemanticRecord> writeback;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store.start();
+        navigationNids = SyntheticDataset.write(conceptCount, fanout).navigationNids();
+    }
+
+    @Setup(Level.Iteration)
+    public void newVersions() {
+        StampRecord stamp = StampRecord.make(UUID.randomUUID(), dev.ikm.tinkar.terms.State.ACTIVE,
+                System.currentTimeMillis(), TinkarTerm.USER, TinkarTerm.DEVELOPMENT_MODULE, TinkarTerm.DEVELOPMENT_PATH);
+        EntityService.get().putEntity(stamp, DataActivity.SYNCHRONIZABLE_EDIT);
+        writeback = new ArrayList<>(navigationNids.length);
+        for (int navigationNid : navigationNids) {
+            SemanticEntity<SemanticEntityVersion> navigation = Entity.getFast(navigationNid);
+            writeback.add(SemanticRecord.build(navigation.publicId().asUuidArray()[0], navigation.patternNid(),
+                    navigation.referencedComponentNid(), stamp.lastVersion(),
+                    navigation.versions().getLast().fieldValues()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkStore.stop();
+    }
+
+    @Benchmark
+    public int putEntityNoCache() {
+        for (SemanticRecord semantic : writeback) {
+            EntityService.get().putEntityNoCache(semantic, DataActivity.SYNCHRONIZABLE_EDIT);
+        }
+        return writeback.size();
+    }
+
+    @Benchmark
+    public int putEntitiesNoCache() {
+        for (int start = 0; start < writeback.size(); start += batchSize) {
+            EntityService.get().putEntitiesNoCache(writeback.subList(start, Math.min(start + batchSize, writeback.size())),
+                    DataActivity.SYNCHRONIZABLE_EDIT);
+        }
+        return writeback.size();
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.benchmarks;
+
+import dev.ikm.tinkar.common.id.IntIds;
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.entity.ConceptRecord;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.FieldDefinitionRecord;
+import dev.ikm.tinkar.entity.PatternRecord;
+import dev.ikm.tinkar.entity.PatternVersionRecord;
+import dev.ikm.tinkar.entity.RecordListBuilder;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.StampRecord;
+import dev.ikm.tinkar.terms.EntityProxy;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A generated terminology, so the benchmarks run without external data. It holds one stamp, the description and
+ * inferred navigation patterns, and a tree of {@code conceptCount} concepts in which concept {@code i} has the parent
+ * {@code (i - 1) / fanout}. Each concept has one English regular name built from {@link #WORDS}, and one inferred
+ * navigation semantic with its parents and children.
+ * <p>
+ * The generated entities use the public ids of {@link TinkarTerm#DESCRIPTION_PATTERN} and
+ * {@link TinkarTerm#INFERRED_NAVIGATION_PATTERN}, so the default language and navigation coordinates apply to them.
+ */
+public class SyntheticDataset {
+    /**
+     * The vocabulary of the generated descriptions. A search for one of these words matches about
+     * {@code 3 / WORDS.length} of the concepts.
+     */
+    public static final String[] WORDS = {
+            "abdominal", "acute", "anterior", "arterial", "benign", "bone", "cardiac", "cell",
+            "chronic", "congenital", "cranial", "cyst", "deficiency", "disorder", "dorsal", "duct",
+            "fever", "fracture", "gland", "heart", "hepatic", "infection", "joint", "lateral",
+            "lesion", "lobe", "lymph", "malignant", "membrane", "muscle", "nerve", "neoplasm",
+            "nodule", "oral", "pain", "pelvic", "posterior", "procedure", "pulmonary", "renal",
+            "retinal", "sinus", "spinal", "structure", "syndrome", "tendon", "thoracic", "tissue",
+            "ulcer", "valve", "vascular", "vein", "ventral", "vertebra"};
+
+    private static final int LOAD_BATCH_SIZE = 4096;
+
+    private final int conceptCount;
+    private final int fanout;
+    private final int[] conceptNids;
+    private final int[] descriptionNids;
+    private final int[] navigationNids;
+    private final int stampNid;
+
+    private SyntheticDataset(int conceptCount, int fanout, int[] conceptNids, int[] descriptionNids,
+                             int[] navigationNids, int stampNid) {
+        this.conceptCount = conceptCount;
+        this.fanout = fanout;
+        this.conceptNids = conceptNids;
+        this.descriptionNids = descriptionNids;
+        this.navigationNids = navigationNids;
+        this.stampNid = stampNid;
+    }
+
+    /**
+     * Generates the dataset and writes it to the running store.
+     *
+     * @param conceptCount the number of concepts
+     * @param fanout the number of children of each interior concept
+     * @return the nids of the written entities
+     */
+    public static SyntheticDataset write(int conceptCount, int fanout) {
+        if (conceptCount < 1 || fanout < 1) {
+            throw new IllegalArgumentException("conceptCount and fanout must be positive: " + conceptCount + ", " + fanout);
+        }
+        EntityService entityService = EntityService.get();
+        StampRecord stamp = StampRecord.make(uuid("stamp", 0), State.ACTIVE, System.currentTimeMillis(),
+                TinkarTerm.USER, TinkarTerm.DEVELOPMENT_MODULE, TinkarTerm.DEVELOPMENT_PATH);
+        entityService.putEntity(stamp, DataActivity.LOADING_CHANGE_SET);
+        PatternRecord descriptionPattern = pattern(TinkarTerm.DESCRIPTION_PATTERN, stamp.nid(),
+                TinkarTerm.DESCRIPTION_SEMANTIC,
+                new EntityProxy.Concept[]{TinkarTerm.COMPONENT_FIELD, TinkarTerm.STRING,
+                        TinkarTerm.COMPONENT_FIELD, TinkarTerm.COMPONENT_FIELD},
+                new EntityProxy.Concept[]{TinkarTerm.LANGUAGE_CONCEPT_NID_FOR_DESCRIPTION, TinkarTerm.TEXT_FOR_DESCRIPTION,
+                        TinkarTerm.DESCRIPTION_CASE_SIGNIFICANCE, TinkarTerm.DESCRIPTION_TYPE});
+        PatternRecord navigationPattern = pattern(TinkarTerm.INFERRED_NAVIGATION_PATTERN, stamp.nid(),
+                TinkarTerm.IS_A,
+                new EntityProxy.Concept[]{TinkarTerm.COMPONENT_ID_SET_FIELD, TinkarTerm.COMPONENT_ID_SET_FIELD},
+                new EntityProxy.Concept[]{TinkarTerm.RELATIONSHIP_DESTINATION, TinkarTerm.RELATIONSHIP_ORIGIN});
+        entityService.putEntities(List.of(descriptionPattern, navigationPattern), DataActivity.LOADING_CHANGE_SET);
+
+        int[] conceptNids = new int[conceptCount];
+        List<Entity<?>> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+        for (int i = 0; i < conceptCount; i++) {
+            ConceptRecord concept = ConceptRecord.build(uuid("concept", i), stamp.lastVersion());
+            conceptNids[i] = concept.nid();
+            batch.add(concept);
+            if (batch.size() == LOAD_BATCH_SIZE) {
+                entityService.putEntities(batch, DataActivity.LOADING_CHANGE_SET);
+                batch.clear();
+            }
+        }
+
+        Random random = new Random(conceptCount);
+        int[] descriptionNids = new int[conceptCount];
+        int[] navigationNids = new int[conceptCount];
+        for (int i = 0; i < conceptCount; i++) {
+            String text = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            SemanticRecord description = SemanticRecord.build(uuid("description", i), descriptionPattern.nid(),
+                    conceptNids[i], stamp.lastVersion(),
+                    Lists.immutable.of(TinkarTerm.ENGLISH_LANGUAGE, text, TinkarTerm.DESCRIPTION_NOT_CASE_SENSITIVE,
+                            TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE));
+            descriptionNids[i] = description.nid();
+            batch.add(description);
+
+            MutableIntList childNids = IntLists.mutable.empty();
+            for (long child = (long) i * fanout + 1; child <= (long) i * fanout + fanout && child < conceptCount; child++) {
+                childNids.add(conceptNids[(int) child]);
+            }
+            int[] parentNids = i == 0 ? new int[0] : new int[]{conceptNids[(i - 1) / fanout]};
+            SemanticRecord navigation = SemanticRecord.build(uuid("navigation", i), navigationPattern.nid(),
+                    conceptNids[i], stamp.lastVersion(),
+                    Lists.immutable.of(IntIds.set.of(childNids.toArray()), IntIds.set.of(parentNids)));
+            navigationNids[i] = navigation.nid();
+            batch.add(navigation);
+            if (batch.size() >= LOAD_BATCH_SIZE) {
+                entityService.putEntities(batch, DataActivity.LOADING_CHANGE_SET);
+                batch.clear();
+            }
+        }
+        entityService.putEntities(batch, DataActivity.LOADING_CHANGE_SET);
+        return new SyntheticDataset(conceptCount, fanout, conceptNids, descriptionNids, navigationNids, stamp.nid());
+    }
+
+    private static PatternRecord pattern(EntityProxy.Pattern patternProxy, int stampNid, EntityProxy.Concept meaning,
+                                         EntityProxy.Concept[] dataTypes, EntityProxy.Concept[] fieldMeanings) {
+        RecordListBuilder<PatternVersionRecord> versions = RecordListBuilder.make();
+        PatternRecord pattern = PatternRecord.makeNew(patternProxy.publicId(), versions);
+        List<FieldDefinitionRecord> fieldDefinitions = new ArrayList<>(dataTypes.length);
+        for (int i = 0; i < dataTypes.length; i++) {
+            fieldDefinitions.add(new FieldDefinitionRecord(dataTypes[i].nid(), fieldMeanings[i].nid(),
+                    fieldMeanings[i].nid(), stampNid, pattern.nid(), i));
+        }
+        ImmutableList<FieldDefinitionRecord> fields = Lists.immutable.ofAll(fieldDefinitions);
+        versions.addAndBuild(new PatternVersionRecord(pattern, stampNid, meaning.nid(), meaning.nid(), fields));
+        return pattern;
+    }
+
+    private static UUID uuid(String kind, int index) {
+        return UUID.nameUUIDFromBytes(("tinkar benchmark " + kind + " " + index).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int conceptCount() {
+        return conceptCount;
+    }
+
+    public int fanout() {
+        return fanout;
+    }
+
+    public int rootNid() {
+        return conceptNids[0];
+    }
+
+    public int stampNid() {
+        return stampNid;
+    }
+
+    /**
+     * @return the concept nids, in generation order; the parent of concept {@code i} is {@code (i - 1) / fanout}
+     */
+    public int[] conceptNids() {
+        return conceptNids;
+    }
+
+    /**
+     * @return the nids of the interior concepts whose subtrees have at most {@code maxDescendants} concepts
+     */
+    public int[] subtreeNids(int maxDescendants) {
+        MutableIntList subtreeNids = IntLists.mutable.empty();
+        for (int i = 0; i < conceptCount; i++) {
+            long first = (long) i * fanout + 1;
+            if (first >= conceptCount) {
+                break;
+            }
+            long last = first + fanout - 1;
+            long descendants = 0;
+            while (first < conceptCount && descendants <= maxDescendants) {
+                descendants += Math.min(last, conceptCount - 1) - first + 1;
+                first = first * fanout + 1;
+                last = last * fanout + fanout;
+            }
+            if (descendants <= maxDescendants) {
+                subtreeNids.add(conceptNids[i]);
+            }
+        }
+        return subtreeNids.toArray();
+    }
+
+    public int[] descriptionNids() {
+        return descriptionNids;
+    }
+
+    public int[] navigationNids() {
+        return navigationNids;
+    }
+
+    /**
+     * @return the nids of all generated entities, stamp and patterns excluded
+     */
+    public int[] entityNids() {
+        int[] entityNids = new int[conceptCount * 3];
+        System.arraycopy(conceptNids, 0, entityNids, 0, conceptCount);
+        System.arraycopy(descriptionNids, 0, entityNids, conceptCount, conceptCount);
+        System.arraycopy(navigationNids, 0, entityNids, conceptCount * 2, conceptCount);
+        return entityNids;
+    }
+}
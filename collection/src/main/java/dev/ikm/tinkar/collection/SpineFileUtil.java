@@ -22,6 +22,7 @@
 public class SpineFileUtil {
     public static final String SPINE_COUNT_PREFIX = "spineCount-";
     public static final String SPINE_PREFIX = "spine-";
+    public static final String MAPPED_SPINE_PREFIX = "mspine-";
 
     public static int readSpineCount(File directory) {
         if (directory.exists()) {
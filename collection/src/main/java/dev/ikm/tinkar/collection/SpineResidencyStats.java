@@ -0,0 +1,29 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.collection;
+
+/**
+ * Point-in-time residency counters for a spined map, for sizing its resident spine bound.
+ *
+ * @param residentSpines    spines currently held in memory
+ * @param maxResidentSpines the configured bound, or 0 when unbounded
+ * @param pageIns           spines read from the backing store since the map was opened
+ * @param evictions         spines dropped from memory since the map was opened
+ * @param writeBacks        changed spines written to the backing store in order to evict them
+ */
+public record SpineResidencyStats(int residentSpines, int maxResidentSpines,
+                                  long pageIns, long evictions, long writeBacks) {
+}
@@ -27,12 +27,30 @@ public class SpinedByteArrayMap extends SpinedIntObjectMap<byte[]> {
 
     private static final Logger LOG = LoggerFactory.getLogger(SpinedByteArrayMap.class);
     private final ByteArrayStore byteArrayStore;
+    private volatile Runnable beforeWriteBack = () -> {};
 
     public SpinedByteArrayMap(ByteArrayStore byteArrayStore) {
-        super(byteArrayStore.getSpineCount());
+        this(byteArrayStore, 0);
+    }
+
+    /**
+     * @param byteArrayStore    the store spines are read from and written to
+     * @param maxResidentSpines the maximum number of spines kept in memory, or 0 for no bound. When bounded,
+     *                          changed spines may be written to the store before {@link #write()} is called.
+     */
+    public SpinedByteArrayMap(ByteArrayStore byteArrayStore, int maxResidentSpines) {
+        super(byteArrayStore.getSpineCount(), maxResidentSpines);
         this.byteArrayStore = byteArrayStore;
     }
 
+    /**
+     * Sets an action run before a changed spine is written to the store in order to evict it, so owners
+     * that keep state derived from the spine files can invalidate it first.
+     */
+    public void setBeforeWriteBack(Runnable beforeWriteBack) {
+        this.beforeWriteBack = beforeWriteBack;
+    }
+
     public int sizeOnDisk() {
         return byteArrayStore.sizeOnDisk();
     }
@@ -40,10 +58,12 @@ public int sizeOnDisk() {
     public int memoryInUse() {
         AtomicInteger sizeInBytes = new AtomicInteger();
         sizeInBytes.addAndGet(((spineSize * 8) * getSpineCount()));
-        forEachSpine((AtomicReferenceArray<byte[]> spine, int spineIndex) -> {
+        forEachResidentSpine((AtomicReferenceArray<byte[]> spine, int spineIndex) -> {
             for (int i = 0; i < spine.length(); i++) {
                 byte[] value = spine.get(i);
-                sizeInBytes.addAndGet(value.length + 4); // 4 bytes = integer length of the array of array length.
+                if (value != null) {
+                    sizeInBytes.addAndGet(value.length + 4); // 4 bytes = integer length of the array of array length.
+                }
             }
         });
         return sizeInBytes.get();
@@ -58,6 +78,25 @@ protected AtomicReferenceArray<byte[]> readSpine(int spineIndex) {
         return new AtomicReferenceArray<>(spineSize);
     }
 
+    @Override
+    protected byte[] readElement(int spineIndex, int indexInSpine) {
+        if (byteArrayStore.supportsElementReads()) {
+            return byteArrayStore.getElement(spineIndex, indexInSpine);
+        }
+        return super.readElement(spineIndex, indexInSpine);
+    }
+
+    @Override
+    protected void writeSpine(int spineIndex, AtomicReferenceArray<byte[]> spine) {
+        this.beforeWriteBack.run();
+        this.byteArrayStore.put(spineIndex, spine);
+    }
+
+    @Override
+    public void close() {
+        this.byteArrayStore.close();
+    }
+
     public boolean write() {
 
         try {
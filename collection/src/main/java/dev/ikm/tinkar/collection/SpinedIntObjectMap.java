@@ -16,6 +16,7 @@
 package dev.ikm.tinkar.collection;
 
 import dev.ikm.tinkar.common.alert.AlertStreams;
+import dev.ikm.tinkar.common.jfr.SpinePageInEvent;
 import dev.ikm.tinkar.common.service.PrimitiveDataService;
 import dev.ikm.tinkar.common.service.TinkExecutor;
 import dev.ikm.tinkar.common.util.ArrayUtil;
@@ -32,7 +33,10 @@
 import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -43,7 +47,12 @@
 
 /**
  * @param <E> the generic type for the spined list.
- * 
+ * <p>
+ * Spines are read lazily from the backing store. A map constructed with a positive {@code maxResidentSpines}
+ * bounds how many spines stay in memory: once the bound is exceeded, spines not referenced since the last
+ * CLOCK sweep are evicted, writing changed spines back to the store first (see {@link #writeSpine}). While
+ * eviction is enabled, every access pins its spine with a per-spine read lock so a spine is never evicted
+ * while in use.
  */
 public class SpinedIntObjectMap<E> implements IntObjectMap<E> {
 
@@ -57,26 +66,63 @@
     // TODO: consider growth strategies instead of just a large array expected to be big enough to hold all the spines...
     private final AtomicReferenceArray<AtomicReferenceArray<E>> spines;
     private final AtomicInteger spineCount = new AtomicInteger();
-    private final boolean[] changedSpineIndexes;
+    /**
+     * 1 for spines changed since they were last written. A writer marks its spine after changing it, and a flush
+     * clears the mark before reading the spine, so a change that lands during the flush leaves the spine marked.
+     */
+    private final AtomicIntegerArray changedSpineIndexes;
     private final boolean ephemoral;
     private Function<E, String> elementStringConverter;
 
+    private final int maxResidentSpines;
+    private final StampedLock[] residencyLocks;
+    private final boolean[] referencedSpines;
+    private final Semaphore evictionSemaphore = new Semaphore(1);
+    private int clockHand = 0;
+    private final AtomicInteger residentSpineCount = new AtomicInteger();
+    private final LongAdder pageIns = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeBacks = new LongAdder();
+
     public SpinedIntObjectMap() {
         this.ephemoral = true;
         this.maxSpineCount = DEFAULT_MAX_SPINE_COUNT;
         this.spineSize = DEFAULT_SPINE_SIZE;
         this.spines = new AtomicReferenceArray(this.maxSpineCount);
-        this.changedSpineIndexes = new boolean[this.maxSpineCount * this.spineSize];
+        this.changedSpineIndexes = new AtomicIntegerArray(this.maxSpineCount);
         this.spineCount.set(0);
+        this.maxResidentSpines = 0;
+        this.residencyLocks = null;
+        this.referencedSpines = null;
     }
 
     public SpinedIntObjectMap(int spineCount) {
+        this(spineCount, 0);
+    }
+
+    /**
+     * @param spineCount        the number of spines in the backing store
+     * @param maxResidentSpines the maximum number of spines kept in memory, or 0 for no bound.
+     *                          Subclasses passing a positive value must implement {@link #writeSpine}.
+     */
+    public SpinedIntObjectMap(int spineCount, int maxResidentSpines) {
         this.ephemoral = false;
         this.maxSpineCount = DEFAULT_MAX_SPINE_COUNT;
         this.spineSize = DEFAULT_SPINE_SIZE;
         this.spines = new AtomicReferenceArray(this.maxSpineCount);
-        this.changedSpineIndexes = new boolean[this.maxSpineCount * this.spineSize];
+        this.changedSpineIndexes = new AtomicIntegerArray(this.maxSpineCount);
         this.spineCount.set(spineCount);
+        this.maxResidentSpines = Math.max(0, maxResidentSpines);
+        if (this.maxResidentSpines > 0) {
+            this.residencyLocks = new StampedLock[this.maxSpineCount];
+            for (int i = 0; i < this.maxSpineCount; i++) {
+                this.residencyLocks[i] = new StampedLock();
+            }
+            this.referencedSpines = new boolean[this.maxSpineCount];
+        } else {
+            this.residencyLocks = null;
+            this.referencedSpines = null;
+        }
     }
 
     public void close() {
@@ -90,25 +136,170 @@ public void setElementStringConverter(Function<E, String> elementStringConverter
     public void forEachSpine(ObjIntConsumer<AtomicReferenceArray<E>> consumer) {
         int spineCountNow = spineCount.get();
         for (int spineIndex = 0; spineIndex < spineCountNow; spineIndex++) {
-            consumer.accept(getSpine(spineIndex), spineIndex);
+            long stamp = pin(spineIndex);
+            try {
+                consumer.accept(getSpine(spineIndex), spineIndex);
+            } finally {
+                unpin(spineIndex, stamp);
+            }
         }
     }
 
+    /**
+     * Visits only the spines currently in memory, without reading any spine from the store.
+     */
+    public void forEachResidentSpine(ObjIntConsumer<AtomicReferenceArray<E>> consumer) {
+        int spineCountNow = spineCount.get();
+        for (int spineIndex = 0; spineIndex < spineCountNow; spineIndex++) {
+            long stamp = pin(spineIndex);
+            try {
+                AtomicReferenceArray<E> spine = this.spines.get(spineIndex);
+                if (spine != null) {
+                    consumer.accept(spine, spineIndex);
+                }
+            } finally {
+                unpin(spineIndex, stamp);
+            }
+        }
+    }
+
+    /**
+     * Prevents the spine from being evicted until {@link #unpin(int, long)} is called. Spine access must
+     * happen between the two calls when eviction is enabled.
+     */
+    private long pin(int spineIndex) {
+        if (residencyLocks == null) {
+            return 0L;
+        }
+        referencedSpines[spineIndex] = true;
+        return residencyLocks[spineIndex].readLock();
+    }
+
+    private void unpin(int spineIndex, long stamp) {
+        if (residencyLocks != null) {
+            residencyLocks[spineIndex].unlockRead(stamp);
+        }
+    }
+
+    private void spineInstalled() {
+        if (residentSpineCount.incrementAndGet() > maxResidentSpines && maxResidentSpines > 0) {
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * CLOCK sweep: spines referenced since the last pass get a second chance, the others are evicted until the
+     * resident count is back within bounds. Pinned spines are skipped. Only one thread sweeps at a time; other
+     * threads that exceed the bound continue without waiting.
+     */
+    private void evictIfNeeded() {
+        if (!evictionSemaphore.tryAcquire()) {
+            return;
+        }
+        try {
+            int spineCountNow = spineCount.get();
+            int scanned = 0;
+            while (residentSpineCount.get() > maxResidentSpines && scanned < spineCountNow * 2) {
+                if (clockHand >= spineCountNow) {
+                    clockHand = 0;
+                }
+                int spineIndex = clockHand++;
+                scanned++;
+                if (this.spines.get(spineIndex) == null) {
+                    continue;
+                }
+                if (referencedSpines[spineIndex]) {
+                    referencedSpines[spineIndex] = false;
+                    continue;
+                }
+                evict(spineIndex);
+            }
+        } finally {
+            evictionSemaphore.release();
+        }
+    }
+
+    private boolean evict(int spineIndex) {
+        StampedLock lock = residencyLocks[spineIndex];
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0L) {
+            return false;
+        }
+        try {
+            AtomicReferenceArray<E> spine = this.spines.get(spineIndex);
+            if (spine == null) {
+                return false;
+            }
+            if (changedSpineIndexes.get(spineIndex) != 0) {
+                // A save holding the file semaphore writes this spine itself, and may be the thread whose
+                // page-in triggered this sweep, so leave the spine to the save rather than block.
+                if (!fileSemaphore.tryAcquire()) {
+                    return false;
+                }
+                try {
+                    changedSpineIndexes.set(spineIndex, 0);
+                    try {
+                        writeSpine(spineIndex, spine);
+                    } catch (RuntimeException | Error e) {
+                        changedSpineIndexes.set(spineIndex, 1);
+                        throw e;
+                    }
+                } finally {
+                    fileSemaphore.release();
+                }
+                writeBacks.increment();
+            }
+            this.spines.set(spineIndex, null);
+            residentSpineCount.decrementAndGet();
+            evictions.increment();
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Writes a changed spine back to the backing store so it can be evicted. Called with the spine locked
+     * against all other access, and with the {@link #fileSemaphore} held.
+     */
+    protected void writeSpine(int spineIndex, AtomicReferenceArray<E> spine) {
+        throw new UnsupportedOperationException("Subclass must implement writeSpine to bound resident spines");
+    }
+
+    public SpineResidencyStats residencyStats() {
+        return new SpineResidencyStats(residentSpineCount.get(), maxResidentSpines,
+                pageIns.sum(), evictions.sum(), writeBacks.sum());
+    }
+
     private AtomicReferenceArray<E> getSpine(int spineIndex) {
         int startSpineCount = spineCount.get();
         if (spineIndex < startSpineCount) {
             AtomicReferenceArray<E> spine = this.spines.get(spineIndex);
             if (spine == null) {
+                boolean installed = false;
+                SpinePageInEvent event = new SpinePageInEvent();
+                event.begin();
                 try {
                     newSpineSemaphore.acquireUninterruptibly();
                     spine = this.spines.get(spineIndex);
                     if (spine == null) {
                         spine = readSpine(spineIndex);
-                        this.spines.compareAndSet(spineIndex, null, spine);
+                        installed = this.spines.compareAndSet(spineIndex, null, spine);
+                        if (!ephemoral) {
+                            pageIns.increment();
+                            if (event.shouldCommit()) {
+                                event.map = getClass().getSimpleName();
+                                event.spineIndex = spineIndex;
+                                event.commit();
+                            }
+                        }
                     }
                 } finally {
                     newSpineSemaphore.release();
                 }
+                if (installed) {
+                    spineInstalled();
+                }
             }
             if (spine == null) {
                 AlertStreams.dispatchToRoot(new IllegalStateException("(1) getSpine is returning null for index:" +
@@ -116,10 +307,13 @@ private AtomicReferenceArray<E> getSpine(int spineIndex) {
             }
             return spine;
         }
+        AtomicReferenceArray<E> spine;
+        boolean installed;
         try {
             newSpineSemaphore.acquireUninterruptibly();
+            installed = this.spines.get(spineIndex) == null;
             if (spineIndex < spineCount.get()) {
-                AtomicReferenceArray<E> spine = this.spines.updateAndGet(spineIndex, eAtomicReferenceArray -> {
+                spine = this.spines.updateAndGet(spineIndex, eAtomicReferenceArray -> {
                     if (eAtomicReferenceArray == null) {
                         eAtomicReferenceArray = readSpine(spineIndex);
                         spineCount.compareAndSet(startSpineCount, startSpineCount + 1);
@@ -130,23 +324,26 @@ private AtomicReferenceArray<E> getSpine(int spineIndex) {
                     AlertStreams.dispatchToRoot(new IllegalStateException("(2) getSpine is returning null for index:" +
                             spineIndex + "..."));
                 }
-                return spine;
-            }
-            AtomicReferenceArray<E> spine = this.spines.updateAndGet(spineIndex, eAtomicReferenceArray -> {
-                if (eAtomicReferenceArray == null) {
-                    eAtomicReferenceArray = newSpine(spineIndex);
-                    spineCount.compareAndSet(startSpineCount, startSpineCount + 1);
+            } else {
+                spine = this.spines.updateAndGet(spineIndex, eAtomicReferenceArray -> {
+                    if (eAtomicReferenceArray == null) {
+                        eAtomicReferenceArray = newSpine(spineIndex);
+                        spineCount.compareAndSet(startSpineCount, startSpineCount + 1);
+                    }
+                    return eAtomicReferenceArray;
+                });
+                if (spine == null) {
+                    AlertStreams.dispatchToRoot(new IllegalStateException("(3) getSpine is returning null for index:" +
+                            spineIndex + "..."));
                 }
-                return eAtomicReferenceArray;
-            });
-            if (spine == null) {
-                AlertStreams.dispatchToRoot(new IllegalStateException("(3) getSpine is returning null for index:" +
-                        spineIndex + "..."));
             }
-            return spine;
         } finally {
             newSpineSemaphore.release();
         }
+        if (installed && spine != null) {
+            spineInstalled();
+        }
+        return spine;
     }
 
     protected AtomicReferenceArray<E> readSpine(int spineIndex) {
@@ -170,10 +367,20 @@ public boolean forEachChangedSpine(ObjIntConsumer<AtomicReferenceArray<E>> consu
         boolean foundChange = false;
         int spineCountNow = spineCount.get();
         for (int spineIndex = 0; spineIndex < spineCountNow; spineIndex++) {
-            if (changedSpineIndexes[spineIndex]) {
+            if (changedSpineIndexes.get(spineIndex) != 0) {
                 foundChange = true;
-                consumer.accept(getSpine(spineIndex), spineIndex);
-                changedSpineIndexes[spineIndex] = false;
+                long stamp = pin(spineIndex);
+                try {
+                    changedSpineIndexes.set(spineIndex, 0);
+                    try {
+                        consumer.accept(getSpine(spineIndex), spineIndex);
+                    } catch (RuntimeException | Error e) {
+                        changedSpineIndexes.set(spineIndex, 1);
+                        throw e;
+                    }
+                } finally {
+                    unpin(spineIndex, stamp);
+                }
             }
         }
         return foundChange;
@@ -196,17 +403,22 @@ public void printToConsole() {
     }
 
     private int forEachOnSpine(ObjIntConsumer<E> consumer, int spineIndex) {
-        AtomicReferenceArray<E> spine = getSpine(spineIndex);
         int index = spineIndex * spineSize;
         int processed = 0;
-        for (int indexInSpine = 0; indexInSpine < spineSize; indexInSpine++) {
-            E element = spine.get(indexInSpine);
-            if (element != null) {
-                int nid = PrimitiveDataService.FIRST_NID + index;
-                consumer.accept(element, nid);
-                processed++;
+        long stamp = pin(spineIndex);
+        try {
+            AtomicReferenceArray<E> spine = getSpine(spineIndex);
+            for (int indexInSpine = 0; indexInSpine < spineSize; indexInSpine++) {
+                E element = spine.get(indexInSpine);
+                if (element != null) {
+                    int nid = PrimitiveDataService.FIRST_NID + index;
+                    consumer.accept(element, nid);
+                    processed++;
+                }
+                index++;
             }
-            index++;
+        } finally {
+            unpin(spineIndex, stamp);
         }
         //if (processed < spineSize) {
         // TODO where do the null values come from?
@@ -217,8 +429,16 @@ private int forEachOnSpine(ObjIntConsumer<E> consumer, int spineIndex) {
 
     public final boolean compareAndSet(int index, E expectedValue, E newValue) {
         int spineIndex = toSpineIndex(index);
-        this.changedSpineIndexes[spineIndex] = true;
-        return getSpine(spineIndex).compareAndSet(toIndexInSpine(index), expectedValue, newValue);
+        long stamp = pin(spineIndex);
+        try {
+            boolean set = getSpine(spineIndex).compareAndSet(toIndexInSpine(index), expectedValue, newValue);
+            if (set) {
+                this.changedSpineIndexes.set(spineIndex, 1);
+            }
+            return set;
+        } finally {
+            unpin(spineIndex, stamp);
+        }
     }
 
     /**
@@ -227,9 +447,14 @@ public final boolean compareAndSet(int index, E expectedValue, E newValue) {
     @Override
     public final boolean put(int index, E element) {
         int spineIndex = toSpineIndex(index);
-        this.changedSpineIndexes[spineIndex] = true;
-        return getSpine(spineIndex).getAndSet(toIndexInSpine(index), element) == null;
-
+        long stamp = pin(spineIndex);
+        try {
+            boolean added = getSpine(spineIndex).getAndSet(toIndexInSpine(index), element) == null;
+            this.changedSpineIndexes.set(spineIndex, 1);
+            return added;
+        } finally {
+            unpin(spineIndex, stamp);
+        }
     }
 
     /**
@@ -238,8 +463,14 @@ public final boolean put(int index, E element) {
     @Override
     public final E getAndSet(int index, E element) {
         int spineIndex = toSpineIndex(index);
-        this.changedSpineIndexes[spineIndex] = true;
-        return getSpine(spineIndex).getAndSet(toIndexInSpine(index), element);
+        long stamp = pin(spineIndex);
+        try {
+            E previous = getSpine(spineIndex).getAndSet(toIndexInSpine(index), element);
+            this.changedSpineIndexes.set(spineIndex, 1);
+            return previous;
+        } finally {
+            unpin(spineIndex, stamp);
+        }
     }
     private final int toSpineIndex(int index) {
         if (index == 0) {
@@ -265,7 +496,41 @@ private final int toIndexInSpine(int index) {
      */
     @Override
     public final E get(int index) {
-        return getSpine(toSpineIndex(index)).get(toIndexInSpine(index));
+        int spineIndex = toSpineIndex(index);
+        long stamp = pin(spineIndex);
+        try {
+            return getSpine(spineIndex).get(toIndexInSpine(index));
+        } finally {
+            unpin(spineIndex, stamp);
+        }
+    }
+
+    /**
+     * Gets an element without loading its spine. If the spine is resident the element is read from it,
+     * otherwise it is read from the backing store by {@link #readElement(int, int)}.
+     */
+    public final E getWithoutPageIn(int index) {
+        int spineIndex = toSpineIndex(index);
+        long stamp = pin(spineIndex);
+        try {
+            AtomicReferenceArray<E> spine = this.spines.get(spineIndex);
+            if (spine != null) {
+                return spine.get(toIndexInSpine(index));
+            }
+            if (ephemoral || spineIndex >= spineCount.get()) {
+                return null;
+            }
+            return readElement(spineIndex, toIndexInSpine(index));
+        } finally {
+            unpin(spineIndex, stamp);
+        }
+    }
+
+    /**
+     * Reads a single element of a spine that is not resident. The default loads the spine.
+     */
+    protected E readElement(int spineIndex, int indexInSpine) {
+        return getSpine(spineIndex).get(indexInSpine);
     }
 
     /**
@@ -292,12 +557,17 @@ public final int size() {
         int size = 0;
         int currentSpineCount = this.spineCount.get();
         for (int spineIndex = 0; spineIndex < currentSpineCount; spineIndex++) {
-            AtomicReferenceArray<E> spine = getSpine(spineIndex);
-            for (int indexInSpine = 0; indexInSpine < spineSize; indexInSpine++) {
-                E element = spine.get(indexInSpine);
-                if (element != null) {
-                    size++;
+            long stamp = pin(spineIndex);
+            try {
+                AtomicReferenceArray<E> spine = getSpine(spineIndex);
+                for (int indexInSpine = 0; indexInSpine < spineSize; indexInSpine++) {
+                    E element = spine.get(indexInSpine);
+                    if (element != null) {
+                        size++;
+                    }
                 }
+            } finally {
+                unpin(spineIndex, stamp);
             }
         }
         return size;
@@ -311,6 +581,7 @@ public void clear() {
         for (int i = 0; i < spines.length(); i++) {
             spines.set(i, null);
         }
+        residentSpineCount.set(0);
     }
 
     public final void forEach(ObjIntConsumer<E> consumer) {
@@ -326,9 +597,15 @@ public final void forEach(ObjIntConsumer<E> consumer) {
     @Override
     public final E accumulateAndGet(int index, E x, BinaryOperator<E> accumulatorFunction) {
         int spineIndex = toSpineIndex(index);
-        this.changedSpineIndexes[spineIndex] = true;
-        return getSpine(toSpineIndex(index))
-                .accumulateAndGet(toIndexInSpine(index), x, accumulatorFunction);
+        long stamp = pin(spineIndex);
+        try {
+            E accumulated = getSpine(spineIndex)
+                    .accumulateAndGet(toIndexInSpine(index), x, accumulatorFunction);
+            this.changedSpineIndexes.set(spineIndex, 1);
+            return accumulated;
+        } finally {
+            unpin(spineIndex, stamp);
+        }
 
     }
 
@@ -397,17 +674,22 @@ private void doParallelWork(ObjIntConsumer<E> consumer, int[][] nidLists) {
                         int nid = nidList[nidListIndex];
                         while (nid != Integer.MIN_VALUE) {
                             int spineIndex = (nid + Integer.MAX_VALUE) / spineSize;
-                            AtomicReferenceArray<E> spine = getSpine(spineIndex);
-                            while (nid != Integer.MIN_VALUE &&
-                                    (nid + Integer.MAX_VALUE) / spineSize == spineIndex) {
-                                int indexInSpine = (nid + Integer.MAX_VALUE) % spineSize;
-                                consumer.accept(spine.get(indexInSpine), nid);
-                                nidListIndex++;
-                                if (nidListIndex < nidList.length) {
-                                    nid = nidList[nidListIndex];
-                                } else {
-                                    nid = Integer.MIN_VALUE;
+                            long stamp = pin(spineIndex);
+                            try {
+                                AtomicReferenceArray<E> spine = getSpine(spineIndex);
+                                while (nid != Integer.MIN_VALUE &&
+                                        (nid + Integer.MAX_VALUE) / spineSize == spineIndex) {
+                                    int indexInSpine = (nid + Integer.MAX_VALUE) % spineSize;
+                                    consumer.accept(spine.get(indexInSpine), nid);
+                                    nidListIndex++;
+                                    if (nidListIndex < nidList.length) {
+                                        nid = nidList[nidListIndex];
+                                    } else {
+                                        nid = Integer.MIN_VALUE;
+                                    }
                                 }
+                            } finally {
+                                unpin(spineIndex, stamp);
                             }
                         }
                     } finally {
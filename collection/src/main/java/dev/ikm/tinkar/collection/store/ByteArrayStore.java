@@ -29,4 +29,24 @@ public interface ByteArrayStore {
         int getSpineCount();
 
         void writeSpineCount(int spineCount);
+
+        /**
+         * @return true if {@link #getElement(int, int)} can read a single element without reading its spine
+         */
+        default boolean supportsElementReads() {
+                return false;
+        }
+
+        /**
+         * @return the bytes stored at the index within the spine, or null if there are none
+         */
+        default byte[] getElement(int spineIndex, int indexInSpine) {
+                throw new UnsupportedOperationException("Element reads are not supported by " + getClass().getSimpleName());
+        }
+
+        /**
+         * Releases any resources, such as file mappings, held by the store.
+         */
+        default void close() {
+        }
 }
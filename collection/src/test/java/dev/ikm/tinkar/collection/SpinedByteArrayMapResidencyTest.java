@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.collection;
+
+import dev.ikm.tinkar.collection.store.ByteArrayStore;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpinedByteArrayMapResidencyTest {
+
+    private static final int SPINES = 6;
+
+    @Test
+    void evictedSpinesAreWrittenBackAndPagedIn() {
+        InMemoryByteArrayStore store = new InMemoryByteArrayStore();
+        SpinedByteArrayMap map = new SpinedByteArrayMap(store, 2);
+
+        for (int spineIndex = 0; spineIndex < SPINES; spineIndex++) {
+            map.put(nidOnSpine(spineIndex), new byte[]{(byte) spineIndex});
+        }
+        SpineResidencyStats afterWrite = map.residencyStats();
+        assertTrue(afterWrite.residentSpines() <= 2, "resident spines: " + afterWrite.residentSpines());
+        assertTrue(afterWrite.writeBacks() >= SPINES - 2, "write backs: " + afterWrite.writeBacks());
+
+        for (int spineIndex = 0; spineIndex < SPINES; spineIndex++) {
+            assertArrayEquals(new byte[]{(byte) spineIndex}, map.get(nidOnSpine(spineIndex)));
+        }
+        SpineResidencyStats afterRead = map.residencyStats();
+        assertTrue(afterRead.pageIns() > afterWrite.pageIns());
+        assertTrue(afterRead.residentSpines() <= 2);
+    }
+
+    @Test
+    void unboundedMapNeverEvicts() {
+        SpinedByteArrayMap map = new SpinedByteArrayMap(new InMemoryByteArrayStore());
+        for (int spineIndex = 0; spineIndex < SPINES; spineIndex++) {
+            map.put(nidOnSpine(spineIndex), new byte[]{(byte) spineIndex});
+        }
+        SpineResidencyStats stats = map.residencyStats();
+        assertEquals(SPINES, stats.residentSpines());
+        assertEquals(0, stats.evictions());
+    }
+
+    @Test
+    void putDuringWriteLeavesSpineChanged() throws Exception {
+        CountDownLatch putStarted = new CountDownLatch(1);
+        CountDownLatch releasePut = new CountDownLatch(1);
+        InMemoryByteArrayStore store = new InMemoryByteArrayStore() {
+            @Override
+            public void put(int spineIndex, AtomicReferenceArray<byte[]> spine) {
+                super.put(spineIndex, spine);
+                if (putStarted.getCount() > 0) {
+                    putStarted.countDown();
+                    try {
+                        releasePut.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        SpinedByteArrayMap map = new SpinedByteArrayMap(store);
+        map.put(nidOnSpine(0), new byte[]{1});
+
+        CompletableFuture<Boolean> firstWrite = CompletableFuture.supplyAsync(map::write);
+        assertTrue(putStarted.await(10, TimeUnit.SECONDS));
+        map.put(nidOnSpine(0) + 1, new byte[]{2});
+        releasePut.countDown();
+        assertTrue(firstWrite.get(10, TimeUnit.SECONDS));
+
+        assertTrue(map.write(), "a put made while the spine was being written must leave it changed");
+        assertArrayEquals(new byte[]{2}, store.spines.get(0)[1]);
+        assertFalse(map.write());
+    }
+
+    @Test
+    void failedWriteLeavesSpineChanged() {
+        InMemoryByteArrayStore store = new InMemoryByteArrayStore() {
+            boolean failed = false;
+
+            @Override
+            public void put(int spineIndex, AtomicReferenceArray<byte[]> spine) {
+                if (!failed) {
+                    failed = true;
+                    throw new IllegalStateException("disk full");
+                }
+                super.put(spineIndex, spine);
+            }
+        };
+        SpinedByteArrayMap map = new SpinedByteArrayMap(store);
+        map.put(nidOnSpine(0), new byte[]{1});
+
+        assertThrows(IllegalStateException.class, map::write);
+        assertTrue(map.write());
+        assertArrayEquals(new byte[]{1}, store.spines.get(0)[0]);
+    }
+
+    private static int nidOnSpine(int spineIndex) {
+        return PrimitiveDataService.FIRST_NID + (spineIndex * SpinedIntObjectMap.DEFAULT_SPINE_SIZE);
+    }
+
+    private static class InMemoryByteArrayStore implements ByteArrayStore {
+        final ConcurrentHashMap<Integer, byte[][]> spines = new ConcurrentHashMap<>();
+        int spineCount = 0;
+
+        @Override
+        public Optional<AtomicReferenceArray<byte[]>> get(int spineIndex) {
+            byte[][] spine = spines.get(spineIndex);
+            return spine == null ? Optional.empty() : Optional.of(new AtomicReferenceArray<>(spine.clone()));
+        }
+
+        @Override
+        public void put(int spineIndex, AtomicReferenceArray<byte[]> spine) {
+            byte[][] copy = new byte[spine.length()][];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = spine.get(i);
+            }
+            spines.put(spineIndex, copy);
+        }
+
+        @Override
+        public int sizeOnDisk() {
+            return 0;
+        }
+
+        @Override
+        public int getSpineCount() {
+            return spineCount;
+        }
+
+        @Override
+        public void writeSpineCount(int spineCount) {
+            this.spineCount = spineCount;
+        }
+    }
+}
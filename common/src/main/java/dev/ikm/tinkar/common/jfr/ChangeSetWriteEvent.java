@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Transforms an entity and writes it to the change set file. Disabled by default, see {@link dev.ikm.tinkar.common.jfr}.
+ */
+@Name("dev.ikm.tinkar.ChangeSetWrite")
+@Label("Change Set Write")
+@Category({"Tinkar", "Change Set"})
+@Description("Transforms an entity and writes it to the change set file.")
+@Enabled(false)
+@StackTrace(false)
+public class ChangeSetWriteEvent extends Event {
+    @Label("Nid")
+    @Description("The nid of the entity")
+    public int nid;
+
+    @Label("Size")
+    @Description("The size of the written message")
+    @DataAmount
+    public int size;
+}
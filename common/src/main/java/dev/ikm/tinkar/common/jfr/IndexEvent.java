@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Adds semantics to the Lucene index, replacing their prior documents. Disabled by default, see {@link dev.ikm.tinkar.common.jfr}.
+ */
+@Name("dev.ikm.tinkar.Index")
+@Label("Index")
+@Category({"Tinkar", "Search"})
+@Description("Adds semantics to the Lucene index, replacing their prior documents.")
+@Enabled(false)
+@StackTrace(false)
+public class IndexEvent extends Event {
+    @Label("Semantic Count")
+    @Description("The number of semantics indexed")
+    public int semanticCount;
+
+    @Label("Document Count")
+    @Description("The number of documents added")
+    public int documentCount;
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Computes the latest version of an entity that was not in the stamp calculator cache. Disabled by default, see {@link dev.ikm.tinkar.common.jfr}.
+ */
+@Name("dev.ikm.tinkar.LatestCacheMiss")
+@Label("Latest Cache Miss")
+@Category({"Tinkar", "Coordinate"})
+@Description("Computes the latest version of an entity that was not in the stamp calculator cache.")
+@Enabled(false)
+@StackTrace(false)
+public class LatestCacheMissEvent extends Event {
+    @Label("Nid")
+    @Description("The nid of the entity")
+    public int nid;
+
+    @Label("Version Count")
+    @Description("The number of versions of the entity")
+    public int versionCount;
+
+    @Label("Present")
+    @Description("Whether a latest version was found")
+    public boolean present;
+}
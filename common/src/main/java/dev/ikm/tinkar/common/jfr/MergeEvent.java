@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Merges entity bytes into the primitive data store. Disabled by default, see {@link dev.ikm.tinkar.common.jfr}.
+ */
+@Name("dev.ikm.tinkar.Merge")
+@Label("Merge")
+@Category({"Tinkar", "Data Store"})
+@Description("Merges entity bytes into the primitive data store.")
+@Enabled(false)
+@StackTrace(false)
+public class MergeEvent extends Event {
+    @Label("Provider")
+    @Description("The data store implementation")
+    public String provider;
+
+    @Label("Nid")
+    @Description("The nid of the entity")
+    public int nid;
+
+    @Label("Size")
+    @Description("The size of the merged entity bytes")
+    @DataAmount
+    public int size;
+
+    @Label("Activity")
+    @Description("The data activity of the write")
+    public String activity;
+}
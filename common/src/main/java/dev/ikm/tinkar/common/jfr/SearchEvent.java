@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Searches the Lucene index. Disabled by default, see {@link dev.ikm.tinkar.common.jfr}.
+ */
+@Name("dev.ikm.tinkar.Search")
+@Label("Search")
+@Category({"Tinkar", "Search"})
+@Description("Searches the Lucene index.")
+@Enabled(false)
+@StackTrace(false)
+public class SearchEvent extends Event {
+    @Label("Query")
+    @Description("The query string")
+    public String query;
+
+    @Label("Max Result Size")
+    @Description("The number of hits requested")
+    public int maxResultSize;
+
+    @Label("Result Count")
+    @Description("The number of hits returned")
+    public int resultCount;
+}
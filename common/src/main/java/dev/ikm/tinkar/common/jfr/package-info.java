@@ -0,0 +1,29 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * JDK Flight Recorder events at the hot paths of the data store, entity, coordinate, transaction, search and change
+ * set code. The events are disabled by default, so a recording with the JDK settings does not include them, and a
+ * disabled event costs no more than the check in {@code shouldCommit()}.
+ * <p>
+ * To record them in a running server, enable them by name when starting the recording:
+ * <pre>
+ * jcmd &lt;pid&gt; JFR.start name=tinkar +dev.ikm.tinkar.GetBytes#enabled=true +dev.ikm.tinkar.Merge#enabled=true \
+ *     +dev.ikm.tinkar.TransactionCommit#enabled=true +dev.ikm.tinkar.Search#enabled=true
+ * </pre>
+ * A threshold keeps the high-volume events to the slow cases, for example
+ * {@code +dev.ikm.tinkar.GetBytes#threshold=1ms}. The events are in the {@code Tinkar} category in JDK Mission Control.
+ */
+package dev.ikm.tinkar.common.jfr;
@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The registry used when metrics are enabled. Counters are {@link LongAdder}s, and histograms and timers count
+ * values in power of two buckets, so recording a value does not allocate or take a lock.
+ */
+final class DefaultMetricsRegistry implements MetricsRegistry {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final ConcurrentHashMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name) {
+        return existing(name, metrics.computeIfAbsent(name, key -> new AdderCounter()), AdderCounter.class, "counter");
+    }
+
+    @Override
+    public void gauge(String name, Gauge gauge) {
+        metrics.compute(name, (key, existing) -> {
+            if (existing != null && !(existing instanceof Gauge)) {
+                throw new IllegalArgumentException("Metric " + name + " is not a gauge");
+            }
+            return gauge;
+        });
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return existing(name, metrics.computeIfAbsent(name, key -> new BucketHistogram()), BucketHistogram.class,
+                "histogram");
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return existing(name, metrics.computeIfAbsent(name, key -> new BucketTimer()), BucketTimer.class, "timer");
+    }
+
+    private static <M> M existing(String name, Object metric, Class<M> metricClass, String kind) {
+        if (!metricClass.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + name + " is not a " + kind);
+        }
+        return metricClass.cast(metric);
+    }
+
+    @Override
+    public List<MetricValue> values() {
+        List<MetricValue> values = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : new TreeMap<>(metrics).entrySet()) {
+            String name = entry.getKey();
+            switch (entry.getValue()) {
+                case Gauge gauge -> values.add(new MetricValue(name, read(gauge)));
+                case AdderCounter counter -> values.add(new MetricValue(name, counter.count()));
+                case BucketHistogram histogram -> addDistribution(values, name, histogram.distribution(), 1);
+                case BucketTimer timer -> addDistribution(values, name, timer.distribution(), NANOS_PER_MILLI);
+                default -> throw new IllegalStateException("Unexpected metric: " + entry.getValue());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * A gauge that cannot be read, for example because the store it reads is closing, reads as NaN rather than
+     * failing the read of every other metric.
+     */
+    private static double read(Gauge gauge) {
+        try {
+            return gauge.value();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static void addDistribution(List<MetricValue> values, String name, Distribution distribution, double unit) {
+        values.add(new MetricValue(name + ".count", distribution.count()));
+        values.add(new MetricValue(name + ".mean", distribution.mean() / unit));
+        values.add(new MetricValue(name + ".max", distribution.max() / unit));
+        values.add(new MetricValue(name + ".p50", distribution.p50() / unit));
+        values.add(new MetricValue(name + ".p90", distribution.p90() / unit));
+        values.add(new MetricValue(name + ".p99", distribution.p99() / unit));
+    }
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    private static final class AdderCounter implements Counter {
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        @Override
+        public long count() {
+            return count.sum();
+        }
+    }
+
+    /**
+     * Bucket 0 counts zeros, and bucket {@code i} counts the values from {@code 2^(i-1)} to {@code 2^i - 1}.
+     * Negative values are counted as zeros.
+     */
+    private static final class BucketHistogram implements Histogram {
+        private static final int BUCKET_COUNT = Long.SIZE;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        @Override
+        public void record(long value) {
+            long recorded = Math.max(value, 0);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(recorded));
+            sum.add(recorded);
+            max.accumulate(recorded);
+        }
+
+        @Override
+        public Distribution distribution() {
+            long[] counts = new long[BUCKET_COUNT];
+            long count = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = buckets.get(i);
+                count += counts[i];
+            }
+            if (count == 0) {
+                return Distribution.EMPTY;
+            }
+            long largest = max.get();
+            return new Distribution(count, sum.sum(), largest, percentile(counts, count, 0.50, largest),
+                    percentile(counts, count, 0.90, largest), percentile(counts, count, 0.99, largest));
+        }
+
+        private static long percentile(long[] counts, long count, double fraction, long largest) {
+            long rank = (long) Math.ceil(count * fraction);
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank) {
+                    long upperBound = i == 0 ? 0 : (1L << i) - 1;
+                    return Math.min(upperBound, largest);
+                }
+            }
+            return largest;
+        }
+    }
+
+    private static final class BucketTimer implements Timer {
+        private final BucketHistogram nanos = new BucketHistogram();
+
+        @Override
+        public void recordNanos(long nanos) {
+            this.nanos.record(nanos);
+        }
+
+        @Override
+        public Distribution distribution() {
+            return nanos.distribution();
+        }
+    }
+}
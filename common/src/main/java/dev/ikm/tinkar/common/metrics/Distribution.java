@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.metrics;
+
+/**
+ * A snapshot of the values recorded by a {@link Histogram} or {@link Timer}. Percentiles are approximate: they are
+ * the upper bound of the power of two bucket that holds the percentile, limited to the largest value recorded.
+ *
+ * @param count the number of values recorded
+ * @param sum   the sum of the values
+ * @param max   the largest value, or 0 when none have been recorded
+ * @param p50   the approximate median
+ * @param p90   the approximate 90th percentile
+ * @param p99   the approximate 99th percentile
+ */
+public record Distribution(long count, long sum, long max, long p50, long p90, long p99) {
+
+    public static final Distribution EMPTY = new Distribution(0, 0, 0, 0, 0, 0);
+
+    /**
+     * @return the mean of the values, or 0 when none have been recorded
+     */
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.metrics;
+
+/**
+ * The value of one metric when the metrics were read. Histograms and timers read as several values, named with the
+ * suffixes {@code .count}, {@code .mean}, {@code .max}, {@code .p50}, {@code .p90} and {@code .p99}; timer values
+ * other than the count are in milliseconds.
+ *
+ * @param name  the name of the metric
+ * @param value the value of the metric
+ */
+public record MetricValue(String name, double value) {
+
+    @Override
+    public String toString() {
+        return name + ": " + value;
+    }
+}
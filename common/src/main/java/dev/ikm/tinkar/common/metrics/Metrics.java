@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.metrics;
+
+import dev.ikm.tinkar.common.service.PluggableService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Access to the metrics registry. Metrics are disabled by default, and the registry is then a no-op. They are
+ * enabled by starting the JVM with {@code -Ddev.ikm.tinkar.metrics=true}, or by calling {@link #enable()} before the
+ * data store is started, as {@code PrimitiveData.start()} initializes the registry. When metrics are enabled, every
+ * {@link MetricsSource} registers its metrics, and the registry is published to the platform MBean server as
+ * {@code dev.ikm.tinkar:type=Metrics} unless {@code -Ddev.ikm.tinkar.metrics.jmx=false} is set.
+ */
+public final class Metrics {
+    private static final Logger LOG = LoggerFactory.getLogger(Metrics.class);
+
+    public static final String ENABLED_PROPERTY = "dev.ikm.tinkar.metrics";
+    public static final String JMX_PROPERTY = "dev.ikm.tinkar.metrics.jmx";
+
+    private static volatile MetricsRegistry registry;
+
+    private Metrics() {
+    }
+
+    /**
+     * @return the registry, which is a no-op unless metrics are enabled
+     */
+    public static MetricsRegistry registry() {
+        MetricsRegistry current = registry;
+        return current != null ? current : initialize(Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    /**
+     * Enables metrics, if they are not already enabled. Components that obtained a counter, histogram or timer from
+     * the no-op registry keep it, so metrics should be enabled before the data store is started.
+     *
+     * @return the enabled registry
+     */
+    public static MetricsRegistry enable() {
+        return initialize(true);
+    }
+
+    /**
+     * @return the current value of every metric, sorted by name, or an empty list when metrics are disabled
+     */
+    public static List<MetricValue> values() {
+        return registry().values();
+    }
+
+    /**
+     * @param prefix the start of the metric names, for example {@code entity.cache}
+     * @return the current value of every metric whose name starts with the prefix, sorted by name
+     */
+    public static List<MetricValue> values(String prefix) {
+        return values().stream().filter(value -> value.name().startsWith(prefix)).toList();
+    }
+
+    private static synchronized MetricsRegistry initialize(boolean enable) {
+        if (registry == null || (enable && !registry.enabled())) {
+            registry = enable ? start() : NoOpMetricsRegistry.INSTANCE;
+        }
+        return registry;
+    }
+
+    private static MetricsRegistry start() {
+        DefaultMetricsRegistry enabled = new DefaultMetricsRegistry();
+        PluggableService.load(MetricsSource.class).forEach(source -> {
+            LOG.info("Registering metrics: " + source.getClass().getName());
+            source.registerMetrics(enabled);
+        });
+        if (Boolean.parseBoolean(System.getProperty(JMX_PROPERTY, "true"))) {
+            MetricsMBean.register(enabled);
+        }
+        return enabled;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Publishes a metrics registry over JMX. Each metric value is a read-only attribute of type double, named as in
+ * {@link MetricsRegistry#values()}. The attributes are read from the registry each time the MBean is queried, so
+ * metrics registered after the MBean still appear.
+ */
+final class MetricsMBean implements DynamicMBean {
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsMBean.class);
+
+    static final String OBJECT_NAME = "dev.ikm.tinkar:type=Metrics";
+
+    private final MetricsRegistry registry;
+
+    private MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    static void register(MetricsRegistry registry) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(new MetricsMBean(registry), objectName);
+            LOG.info("Metrics published over JMX as {}", OBJECT_NAME);
+        } catch (JMException e) {
+            LOG.warn("Unable to publish metrics over JMX: {}", e.getLocalizedMessage());
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        for (MetricValue value : registry.values()) {
+            if (value.name().equals(attribute)) {
+                return value.value();
+            }
+        }
+        throw new AttributeNotFoundException("No metric named " + attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        List<String> names = List.of(attributes);
+        AttributeList attributeList = new AttributeList();
+        for (MetricValue value : registry.values()) {
+            if (names.contains(value.name())) {
+                attributeList.add(new Attribute(value.name(), value.value()));
+            }
+        }
+        return attributeList;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        MBeanAttributeInfo[] attributes = registry.values().stream()
+                .map(value -> new MBeanAttributeInfo(value.name(), "double", value.name(), true, false, false))
+                .toArray(MBeanAttributeInfo[]::new);
+        return new MBeanInfo(getClass().getName(), "Tinkar metrics", attributes, null, null, null);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.metrics;
+
+import dev.ikm.tinkar.common.service.CacheStatistics;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Named counters, gauges, histograms and timers. Names are dot separated and lower camel case, for example
+ * {@code entity.cache.hitRate}. Asking for a counter, histogram or timer that already exists returns the existing
+ * one; registering a gauge under a name in use replaces the earlier gauge.
+ * <p>
+ * The registry returned by {@link Metrics#registry()} is a no-op unless metrics are enabled, so components may
+ * update their metrics without checking.
+ */
+public interface MetricsRegistry {
+
+    Counter counter(String name);
+
+    void gauge(String name, Gauge gauge);
+
+    Histogram histogram(String name);
+
+    Timer timer(String name);
+
+    /**
+     * Registers gauges for the size, capacity, hits, misses, evictions and hit rate of a cache.
+     *
+     * @param name       the prefix of the gauge names
+     * @param statistics reads the current statistics of the cache
+     */
+    default void cache(String name, Supplier<CacheStatistics> statistics) {
+        gauge(name + ".size", () -> statistics.get().size());
+        gauge(name + ".capacity", () -> statistics.get().capacity());
+        gauge(name + ".hits", () -> statistics.get().hitCount());
+        gauge(name + ".misses", () -> statistics.get().missCount());
+        gauge(name + ".evictions", () -> statistics.get().evictionCount());
+        gauge(name + ".hitRate", () -> statistics.get().hitRate());
+    }
+
+    /**
+     * @return the current value of every metric, sorted by name
+     */
+    List<MetricValue> values();
+
+    /**
+     * @return false for the no-op registry
+     */
+    boolean enabled();
+}
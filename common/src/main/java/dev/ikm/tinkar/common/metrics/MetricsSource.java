@@ -0,0 +1,28 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.metrics;
+
+/**
+ * A component that registers its metrics when metrics are enabled. Sources are found with
+ * {@link dev.ikm.tinkar.common.service.PluggableService}, in the same way as
+ * {@link dev.ikm.tinkar.common.service.CachingService} implementations, and are called once, when the registry is
+ * created. A source may be registered before the component it measures has started, so its gauges should read the
+ * component's current state each time they are read.
+ */
+public interface MetricsSource {
+
+    void registerMetrics(MetricsRegistry registry);
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.metrics;
+
+import java.util.List;
+
+/**
+ * The registry used when metrics are not enabled. Its metrics discard what is recorded.
+ */
+final class NoOpMetricsRegistry implements MetricsRegistry, Counter, Histogram, Timer {
+    static final NoOpMetricsRegistry INSTANCE = new NoOpMetricsRegistry();
+
+    private NoOpMetricsRegistry() {
+    }
+
+    @Override
+    public Counter counter(String name) {
+        return this;
+    }
+
+    @Override
+    public void gauge(String name, Gauge gauge) {
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return this;
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return this;
+    }
+
+    @Override
+    public List<MetricValue> values() {
+        return List.of();
+    }
+
+    @Override
+    public boolean enabled() {
+        return false;
+    }
+
+    @Override
+    public void add(long amount) {
+    }
+
+    @Override
+    public long count() {
+        return 0;
+    }
+
+    @Override
+    public void record(long value) {
+    }
+
+    @Override
+    public void recordNanos(long nanos) {
+    }
+
+    @Override
+    public Distribution distribution() {
+        return Distribution.EMPTY;
+    }
+}
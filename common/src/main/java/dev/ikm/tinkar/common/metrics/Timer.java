@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.metrics;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * The distribution of the durations of an operation. Durations are recorded in nanoseconds.
+ */
+public interface Timer {
+
+    void recordNanos(long nanos);
+
+    default void record(Duration duration) {
+        recordNanos(duration.toNanos());
+    }
+
+    default <T> T time(Supplier<T> operation) {
+        long start = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return the distribution of the recorded durations, in nanoseconds
+     */
+    Distribution distribution();
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * A small metrics SPI: counters, gauges, histograms and timers in a
+ * {@link dev.ikm.tinkar.common.metrics.MetricsRegistry}. Metrics are disabled by default and the registry is then a
+ * no-op; see {@link dev.ikm.tinkar.common.metrics.Metrics} for how to enable them. Components register their
+ * metrics through a {@link dev.ikm.tinkar.common.metrics.MetricsSource}. Caches register the gauges of
+ * {@link dev.ikm.tinkar.common.metrics.MetricsRegistry#cache}, which read the same
+ * {@link dev.ikm.tinkar.common.service.CacheStatistics} as
+ * {@link dev.ikm.tinkar.common.service.CachingService#statisticsForAll()}.
+ * <p>
+ * The metrics may be read in process with {@link dev.ikm.tinkar.common.metrics.Metrics#values()}, or over JMX from
+ * the {@code dev.ikm.tinkar:type=Metrics} MBean, for example with JConsole or JDK Mission Control.
+ */
+package dev.ikm.tinkar.common.metrics;
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+/**
+ * A snapshot of the statistics of one cache of a {@link CachingService}.
+ *
+ * @param name          the name of the cache
+ * @param size          the number of entries in the cache
+ * @param capacity      the maximum number of entries, or the maximum weight for caches bounded by weight, or
+ *                      {@link Long#MAX_VALUE} for caches that do not evict
+ * @param hitCount      the number of lookups that found an entry
+ * @param missCount     the number of lookups that did not find an entry
+ * @param evictionCount the number of entries evicted to stay within capacity
+ */
+public record CacheStatistics(String name, long size, long capacity, long hitCount, long missCount,
+                              long evictionCount) {
+
+    /**
+     * Sums the statistics of caches of the same kind, such as the latest version caches of every stamp calculator.
+     *
+     * @param name       the name of the total
+     * @param statistics the statistics to sum
+     * @return the total, with a capacity of {@link Long#MAX_VALUE} if any of the caches does not evict
+     */
+    public static CacheStatistics sum(String name, Iterable<CacheStatistics> statistics) {
+        long size = 0, capacity = 0, hitCount = 0, missCount = 0, evictionCount = 0;
+        for (CacheStatistics cacheStatistics : statistics) {
+            size += cacheStatistics.size;
+            capacity = cacheStatistics.capacity == Long.MAX_VALUE || capacity == Long.MAX_VALUE ?
+                    Long.MAX_VALUE : capacity + cacheStatistics.capacity;
+            hitCount += cacheStatistics.hitCount;
+            missCount += cacheStatistics.missCount;
+            evictionCount += cacheStatistics.evictionCount;
+        }
+        return new CacheStatistics(name, size, capacity, hitCount, missCount, evictionCount);
+    }
+
+    /**
+     * @return the fraction of lookups that found an entry, or 1.0 when there have been no lookups
+     */
+    public double hitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + size + " of " + (capacity == Long.MAX_VALUE ? "unbounded" : capacity) +
+                ", hits " + hitCount + ", misses " + missCount + String.format(" (%.1f%% hit rate)", hitRate() * 100) +
+                ", evictions " + evictionCount;
+    }
+}
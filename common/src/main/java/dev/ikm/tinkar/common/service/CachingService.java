@@ -18,6 +18,8 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ServiceLoader;
 
 /**
@@ -35,5 +37,22 @@ static void clearAll() {
         });
     }
 
+    /**
+     * @return the statistics of every cache of every caching service
+     */
+    static List<CacheStatistics> statisticsForAll() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        PluggableService.load(CachingService.class).forEach(cachingService ->
+                statistics.addAll(cachingService.statistics()));
+        return statistics;
+    }
+
     void reset();
+
+    /**
+     * @return the statistics of the caches of this service, or an empty list if it does not keep them
+     */
+    default List<CacheStatistics> statistics() {
+        return List.of();
+    }
 }
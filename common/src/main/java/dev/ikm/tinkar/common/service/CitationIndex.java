@@ -0,0 +1,411 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import dev.ikm.tinkar.common.util.ints2long.IntsInLong;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BinaryOperator;
+
+/**
+ * The semantics citing each component, kept as postings that adapt to the number of citations. A component with
+ * few citations keeps them in its {@link Store} as a sorted array of {@code IntsInLong.ints2Long(citingNid,
+ * patternNid)} longs, the form providers persist. Past a threshold the component becomes a hub, and its citations
+ * move to a bitmap of citing nids per pattern, so that adding or removing a citation no longer copies the array,
+ * and a pattern's citations are found without visiting the others. Hubs are written back to the store as sorted
+ * arrays by {@link #flush()}, and arrays over the threshold read from the store become hubs when next used.
+ */
+public final class CitationIndex {
+    public static final int DEFAULT_HUB_THRESHOLD = 1024;
+    private static final int LOCK_STRIPES = 256;
+    private static final byte SEMANTIC_CHRONOLOGY_TOKEN = 3;
+
+    /**
+     * Where the citation arrays of components that are not hubs are kept. The arrays are never modified in place.
+     */
+    public interface Store {
+        long[] get(int componentNid);
+
+        long[] accumulateAndGet(int componentNid, long[] citations, BinaryOperator<long[]> accumulator);
+
+        /**
+         * @param citations the citations of the component, or null to remove them
+         */
+        void put(int componentNid, long[] citations);
+
+        static Store of(ConcurrentMap<Integer, long[]> map) {
+            return new Store() {
+                @Override
+                public long[] get(int componentNid) {
+                    return map.get(componentNid);
+                }
+
+                @Override
+                public long[] accumulateAndGet(int componentNid, long[] citations, BinaryOperator<long[]> accumulator) {
+                    return map.merge(componentNid, citations, accumulator);
+                }
+
+                @Override
+                public void put(int componentNid, long[] citations) {
+                    if (citations == null) {
+                        map.remove(componentNid);
+                    } else {
+                        map.put(componentNid, citations);
+                    }
+                }
+            };
+        }
+    }
+
+    private final Store store;
+    private final int hubThreshold;
+    private final ConcurrentHashMap<Integer, Hub> hubs = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public CitationIndex(Store store) {
+        this(store, DEFAULT_HUB_THRESHOLD);
+    }
+
+    public CitationIndex(Store store, int hubThreshold) {
+        this.store = store;
+        this.hubThreshold = hubThreshold;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public void add(int componentNid, int citingNid, int patternNid) {
+        Hub hub = hubs.get(componentNid);
+        if (hub == null) {
+            synchronized (lockFor(componentNid)) {
+                hub = hubs.get(componentNid);
+                if (hub == null) {
+                    long[] citations = store.accumulateAndGet(componentNid,
+                            new long[]{IntsInLong.ints2Long(citingNid, patternNid)}, CitationIndex::merge);
+                    if (citations.length > hubThreshold) {
+                        hubs.put(componentNid, new Hub(citations));
+                    }
+                    return;
+                }
+            }
+        }
+        hub.add(citingNid, patternNid);
+    }
+
+    /**
+     * @return true if the component was cited by the semantic
+     */
+    public boolean remove(int componentNid, int citingNid, int patternNid) {
+        Hub hub = hubOrPromote(componentNid);
+        if (hub != null) {
+            return hub.remove(citingNid, patternNid);
+        }
+        synchronized (lockFor(componentNid)) {
+            hub = hubs.get(componentNid);
+            if (hub != null) {
+                return hub.remove(citingNid, patternNid);
+            }
+            long[] citations = store.get(componentNid);
+            if (citations == null) {
+                return false;
+            }
+            int index = Arrays.binarySearch(citations, IntsInLong.ints2Long(citingNid, patternNid));
+            if (index < 0) {
+                return false;
+            }
+            store.put(componentNid, citations.length == 1 ? null : removeAt(citations, index));
+            return true;
+        }
+    }
+
+    /**
+     * Removes every citation of the component, as when it is erased.
+     */
+    public void removeAll(int componentNid) {
+        synchronized (lockFor(componentNid)) {
+            hubs.remove(componentNid);
+            store.put(componentNid, null);
+        }
+    }
+
+    public void forEachCiting(int componentNid, IntProcedure procedure) {
+        Hub hub = hubs.get(componentNid);
+        if (hub != null) {
+            hub.forEachCiting(procedure);
+            return;
+        }
+        long[] citations = store.get(componentNid);
+        if (citations != null) {
+            for (long citation : citations) {
+                procedure.value(IntsInLong.int1FromLong(citation));
+            }
+        }
+    }
+
+    public void forEachCitingOfPattern(int componentNid, int patternNid, IntProcedure procedure) {
+        Hub hub = hubOrPromote(componentNid);
+        if (hub != null) {
+            hub.forEachCitingOfPattern(patternNid, procedure);
+            return;
+        }
+        long[] citations = store.get(componentNid);
+        if (citations != null) {
+            for (long citation : citations) {
+                if (IntsInLong.int2FromLong(citation) == patternNid) {
+                    procedure.value(IntsInLong.int1FromLong(citation));
+                }
+            }
+        }
+    }
+
+    public int citationCount(int componentNid) {
+        Hub hub = hubs.get(componentNid);
+        if (hub != null) {
+            return hub.size();
+        }
+        long[] citations = store.get(componentNid);
+        return citations == null ? 0 : citations.length;
+    }
+
+    public boolean isHub(int componentNid) {
+        return hubs.containsKey(componentNid);
+    }
+
+    /**
+     * Writes the citations of hubs changed since the last flush to the store, so the store can be persisted.
+     */
+    public void flush() {
+        hubs.forEach((componentNid, hub) -> {
+            synchronized (lockFor(componentNid)) {
+                if (hubs.get(componentNid) == hub) {
+                    long[] citations = hub.citationsIfChanged();
+                    if (citations != null) {
+                        store.put(componentNid, citations);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Merges sorted citation arrays. Adding one citation is a binary search and a copy.
+     */
+    public static long[] merge(long[] citations1, long[] citations2) {
+        if (citations1 == null) {
+            return citations2;
+        }
+        if (citations2 == null) {
+            return citations1;
+        }
+        if (citations2.length == 1) {
+            return insert(citations1, citations2[0]);
+        }
+        if (citations1.length == 1) {
+            return insert(citations2, citations1[0]);
+        }
+        long[] merged = new long[citations1.length + citations2.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < citations1.length && j < citations2.length) {
+            long next = citations1[i] <= citations2[j] ? citations1[i] : citations2[j];
+            if (citations1[i] == next) {
+                i++;
+            }
+            if (citations2[j] == next) {
+                j++;
+            }
+            merged[count++] = next;
+        }
+        while (i < citations1.length) {
+            merged[count++] = citations1[i++];
+        }
+        while (j < citations2.length) {
+            merged[count++] = citations2[j++];
+        }
+        if (count == citations1.length) {
+            return citations1;
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+
+    /**
+     * Reads the referenced component of a semantic from its entity bytes, without decoding the entity. See
+     * {@link EntityBytesMerger} for the layout.
+     *
+     * @return the referenced component nid, or {@link Integer#MAX_VALUE} if the bytes are not of a semantic
+     */
+    public static int semanticReferencedComponentNid(byte[] bytes) {
+        // Array count and chronology size, then the entity format token.
+        int position = 9;
+        if (bytes == null || bytes.length <= position || bytes[position] != SEMANTIC_CHRONOLOGY_TOKEN) {
+            return Integer.MAX_VALUE;
+        }
+        // Skip the token, nid and primordial UUID, then the additional UUID longs.
+        position += 21;
+        position += 1 + 8 * bytes[position];
+        return ((bytes[position] & 0xFF) << 24) | ((bytes[position + 1] & 0xFF) << 16)
+                | ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] & 0xFF);
+    }
+
+    private Hub hubOrPromote(int componentNid) {
+        Hub hub = hubs.get(componentNid);
+        if (hub != null) {
+            return hub;
+        }
+        long[] citations = store.get(componentNid);
+        if (citations == null || citations.length <= hubThreshold) {
+            return null;
+        }
+        synchronized (lockFor(componentNid)) {
+            return hubs.computeIfAbsent(componentNid, nid -> new Hub(store.get(nid)));
+        }
+    }
+
+    private Object lockFor(int componentNid) {
+        return locks[componentNid & (LOCK_STRIPES - 1)];
+    }
+
+    private static long[] insert(long[] sortedCitations, long citation) {
+        int index = Arrays.binarySearch(sortedCitations, citation);
+        if (index >= 0) {
+            return sortedCitations;
+        }
+        index = -index - 1;
+        long[] inserted = new long[sortedCitations.length + 1];
+        System.arraycopy(sortedCitations, 0, inserted, 0, index);
+        inserted[index] = citation;
+        System.arraycopy(sortedCitations, index, inserted, index + 1, sortedCitations.length - index);
+        return inserted;
+    }
+
+    private static long[] removeAt(long[] citations, int index) {
+        long[] removed = new long[citations.length - 1];
+        System.arraycopy(citations, 0, removed, 0, index);
+        System.arraycopy(citations, index + 1, removed, index, removed.length - index);
+        return removed;
+    }
+
+    /**
+     * The citing nids of a hub, in a bitmap per pattern. Pattern nids are kept sorted so a pattern is found by
+     * binary search. Reads take a copy of the bitmaps they visit, so procedures may change the index.
+     */
+    private static final class Hub {
+        private int[] patternNids = new int[0];
+        private RoaringBitmap[] citingNids = new RoaringBitmap[0];
+        private boolean changed;
+
+        Hub(long[] citations) {
+            for (long citation : citations) {
+                bitmapFor(IntsInLong.int2FromLong(citation)).add(IntsInLong.int1FromLong(citation));
+            }
+            for (RoaringBitmap bitmap : citingNids) {
+                bitmap.runOptimize();
+            }
+        }
+
+        synchronized void add(int citingNid, int patternNid) {
+            changed |= bitmapFor(patternNid).checkedAdd(citingNid);
+        }
+
+        synchronized boolean remove(int citingNid, int patternNid) {
+            int index = Arrays.binarySearch(patternNids, patternNid);
+            if (index < 0 || !citingNids[index].checkedRemove(citingNid)) {
+                return false;
+            }
+            changed = true;
+            return true;
+        }
+
+        void forEachCiting(IntProcedure procedure) {
+            RoaringBitmap[] snapshots;
+            synchronized (this) {
+                snapshots = new RoaringBitmap[citingNids.length];
+                for (int i = 0; i < snapshots.length; i++) {
+                    snapshots[i] = citingNids[i].clone();
+                }
+            }
+            for (RoaringBitmap snapshot : snapshots) {
+                snapshot.forEach((int citingNid) -> procedure.value(citingNid));
+            }
+        }
+
+        void forEachCitingOfPattern(int patternNid, IntProcedure procedure) {
+            RoaringBitmap snapshot;
+            synchronized (this) {
+                int index = Arrays.binarySearch(patternNids, patternNid);
+                if (index < 0) {
+                    return;
+                }
+                snapshot = citingNids[index].clone();
+            }
+            snapshot.forEach((int citingNid) -> procedure.value(citingNid));
+        }
+
+        synchronized int size() {
+            long size = 0;
+            for (RoaringBitmap bitmap : citingNids) {
+                size += bitmap.getLongCardinality();
+            }
+            return (int) size;
+        }
+
+        /**
+         * @return the citations as a sorted array if the hub changed since it was created or last written
+         */
+        synchronized long[] citationsIfChanged() {
+            if (!changed) {
+                return null;
+            }
+            changed = false;
+            long[] citations = new long[size()];
+            int count = 0;
+            for (int i = 0; i < patternNids.length; i++) {
+                int patternNid = patternNids[i];
+                PeekableIntIterator iterator = citingNids[i].getIntIterator();
+                while (iterator.hasNext()) {
+                    citations[count++] = IntsInLong.ints2Long(iterator.next(), patternNid);
+                }
+            }
+            Arrays.sort(citations);
+            return citations;
+        }
+
+        private RoaringBitmap bitmapFor(int patternNid) {
+            int index = Arrays.binarySearch(patternNids, patternNid);
+            if (index >= 0) {
+                return citingNids[index];
+            }
+            index = -index - 1;
+            int[] grownPatternNids = new int[patternNids.length + 1];
+            RoaringBitmap[] grownCitingNids = new RoaringBitmap[citingNids.length + 1];
+            System.arraycopy(patternNids, 0, grownPatternNids, 0, index);
+            System.arraycopy(citingNids, 0, grownCitingNids, 0, index);
+            grownPatternNids[index] = patternNid;
+            grownCitingNids[index] = new RoaringBitmap();
+            System.arraycopy(patternNids, index, grownPatternNids, index + 1, patternNids.length - index);
+            System.arraycopy(citingNids, index, grownCitingNids, index + 1, citingNids.length - index);
+            patternNids = grownPatternNids;
+            citingNids = grownCitingNids;
+            return grownCitingNids[index];
+        }
+    }
+}
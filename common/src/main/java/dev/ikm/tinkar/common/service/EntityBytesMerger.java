@@ -0,0 +1,446 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.set.MutableSet;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.STAMP_DATA_TYPE;
+
+/**
+ * Merges the serialized forms of two copies of an entity, working on offsets into the original arrays.
+ * <p>
+ * Entity bytes are an array count, then length-prefixed arrays: first the chronology (preceded by the entity
+ * format byte and followed by the version count), then one array per version. A merge collects the unique
+ * arrays of both copies, keeping only the newest version for each stamp, sorts them bytewise, drops versions
+ * on canceled stamps, and unions the UUIDs of differing chronologies. The only allocation on the common path
+ * is the result; when the result is identical to one of the inputs (for example when the new bytes only append
+ * versions to the old), that input is returned as is.
+ * <p>
+ * Instances hold per-thread scratch space and are reached through {@link #merge(byte[], byte[], IntPredicate)}.
+ */
+final class EntityBytesMerger {
+    private static final ThreadLocal<EntityBytesMerger> MERGER = ThreadLocal.withInitial(EntityBytesMerger::new);
+
+    private static final int NEW = 0;
+    private static final int OLD = 1;
+    private static final int MERGED = 2;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final byte[][] sources = new byte[3][];
+    private int[] entrySources = new int[16];
+    private int[] entryOffsets = new int[16];
+    // Where an entry's bytes appear in each input, or -1, for recognizing a result identical to an input.
+    private int[] newOffsets = new int[16];
+    private int[] oldOffsets = new int[16];
+    private int[] lengths = new int[16];
+    private int[] order = new int[16];
+    private int[] sortScratch = new int[16];
+    private int[] stampsInSet = new int[16];
+    private int entryCount;
+    private int stampCount;
+
+    private EntityBytesMerger() {
+    }
+
+    /**
+     * Merges entity bytes with the same result as the version set merge it replaces.
+     *
+     * @param oldBytes        the current bytes, or null
+     * @param newBytes        the bytes to merge in, or null
+     * @param canceledStamp   tests whether versions on a stamp should be removed
+     */
+    static byte[] merge(byte[] oldBytes, byte[] newBytes, IntPredicate canceledStamp) {
+        if (oldBytes == null) {
+            return newBytes;
+        }
+        if (newBytes == null) {
+            return oldBytes;
+        }
+        if (Arrays.equals(oldBytes, newBytes)) {
+            return oldBytes;
+        }
+        EntityBytesMerger merger = MERGER.get();
+        try {
+            return merger.doMerge(oldBytes, newBytes, canceledStamp);
+        } finally {
+            merger.sources[NEW] = null;
+            merger.sources[OLD] = null;
+            merger.sources[MERGED] = null;
+        }
+    }
+
+    private byte[] doMerge(byte[] oldBytes, byte[] newBytes, IntPredicate canceledStamp) {
+        sources[NEW] = newBytes;
+        sources[OLD] = oldBytes;
+        entryCount = 0;
+        stampCount = 0;
+        byte entityFormat = newBytes[8];
+        // Newest first, so the newest version on a stamp is the one kept.
+        int newArrayCount = collect(NEW, entityFormat);
+        int oldArrayCount = collect(OLD, entityFormat);
+
+        ensureCapacity(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            order[i] = i;
+        }
+        sort(0, entryCount);
+        int uniqueCount = removeDuplicates();
+
+        boolean modified = false;
+        if (uniqueCount > 2) {
+            int chronologyCount = 0;
+            int kept = 0;
+            for (int i = 0; i < uniqueCount; i++) {
+                int entry = order[i];
+                byte[] source = sourceOf(entry);
+                int offset = offsetOf(entry);
+                switch (source[offset]) {
+                    case 1, 2, 3, STAMP_DATA_TYPE -> {
+                        chronologyCount++;
+                        order[kept++] = entry;
+                    }
+                    case 4, 5, 6, 25 -> {
+                        if (canceledStamp.test(readInt(source, offset + 1))) {
+                            // Garbage collection for canceled versions...
+                            modified = true;
+                        } else {
+                            order[kept++] = entry;
+                        }
+                    }
+                    default -> order[kept++] = entry;
+                }
+            }
+            uniqueCount = kept;
+            if (chronologyCount > 1) {
+                uniqueCount = mergeChronologies(uniqueCount);
+                modified = true;
+            }
+        }
+
+        if (!modified) {
+            if (isLayoutOf(newOffsets, uniqueCount, newArrayCount)) {
+                return newBytes;
+            }
+            if (isLayoutOf(oldOffsets, uniqueCount, oldArrayCount)) {
+                return oldBytes;
+            }
+        }
+        return write(uniqueCount, entityFormat);
+    }
+
+    /**
+     * Adds the arrays of one source as entries, skipping versions whose stamp already has a newer version.
+     *
+     * @return the number of arrays in the source
+     */
+    private int collect(int sourceIndex, byte entityFormat) {
+        byte[] bytes = sources[sourceIndex];
+        boolean stampDataType = bytes[9] == STAMP_DATA_TYPE;
+        int arrayCount = readInt(bytes, 0);
+        int position = 4;
+        for (int i = 0; i < arrayCount; i++) {
+            int arraySize = readInt(bytes, position);
+            position += 4;
+            if (i == 0) {
+                byte localEntityFormat = bytes[position];
+                if (localEntityFormat != entityFormat) {
+                    throw new IllegalStateException("All entities should be the same format. Found: " + entityFormat + " != " + localEntityFormat);
+                }
+                // The chronology is stored without the format token and the version count, as the version count
+                // may change as a result of merge.
+                addEntry(sourceIndex, position + 1, arraySize - 5);
+                int versionCount = readInt(bytes, position + arraySize - 4);
+                if (versionCount != arrayCount - 1) {
+                    throw new IllegalStateException("Malformed data. versionCount: " +
+                            versionCount + " arrayCount: " + arrayCount);
+                }
+            } else if (stampDataType) {
+                addEntry(sourceIndex, position, arraySize);
+            } else {
+                int stampNid = readInt(bytes, position + 1);
+                if (!containsStamp(stampNid)) {
+                    addEntry(sourceIndex, position, arraySize);
+                    addStamp(stampNid);
+                }
+                // Otherwise a newer version already exists. There should be no concurrent editing on versions
+                // with the same stamp.
+            }
+            position += arraySize;
+        }
+        return arrayCount;
+    }
+
+    /**
+     * Removes adjacent equal entries from the sorted order, recording where the removed entry's bytes were in
+     * the other source.
+     *
+     * @return the number of unique entries
+     */
+    private int removeDuplicates() {
+        if (entryCount == 0) {
+            return 0;
+        }
+        int unique = 1;
+        for (int i = 1; i < entryCount; i++) {
+            int previous = order[unique - 1];
+            int entry = order[i];
+            if (compare(previous, entry) == 0) {
+                if (newOffsets[previous] < 0) {
+                    newOffsets[previous] = newOffsets[entry];
+                }
+                if (oldOffsets[previous] < 0) {
+                    oldOffsets[previous] = oldOffsets[entry];
+                }
+            } else {
+                order[unique++] = entry;
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Replaces the chronologies among the unique entries with one chronology holding the union of their UUIDs.
+     * Differing chronologies are rare, so this path uses the same set the version set merge used, and keeps its
+     * UUID order.
+     *
+     * @return the number of entries after the replacement
+     */
+    private int mergeChronologies(int uniqueCount) {
+        MutableSet<UUID> uuids = Sets.mutable.empty();
+        int firstChronology = -1;
+        int kept = 0;
+        for (int i = 0; i < uniqueCount; i++) {
+            int entry = order[i];
+            byte[] source = sourceOf(entry);
+            int offset = offsetOf(entry);
+            byte token = source[offset];
+            if (token == 1 || token == 2 || token == 3 || token == STAMP_DATA_TYPE) {
+                if (firstChronology < 0) {
+                    firstChronology = entry;
+                }
+                // Skip the entity type token and nid.
+                int position = offset + 5;
+                uuids.add(new UUID(readLong(source, position), readLong(source, position + 8)));
+                int additionalUuidLongs = source[position + 16];
+                position += 17;
+                for (int uuidLong = 0; uuidLong + 1 < additionalUuidLongs; uuidLong += 2) {
+                    uuids.add(new UUID(readLong(source, position), readLong(source, position + 8)));
+                    position += 16;
+                }
+            } else {
+                order[kept++] = entry;
+            }
+        }
+        MutableList<UUID> uuidList = uuids.toList();
+        byte[] firstSource = sourceOf(firstChronology);
+        int firstOffset = offsetOf(firstChronology);
+        int firstLength = lengths[firstChronology];
+        int firstAdditionalUuidLongs = firstSource[firstOffset + 21];
+        int restOffset = firstOffset + 22 + (firstAdditionalUuidLongs * 8);
+        int restLength = firstOffset + firstLength - restOffset;
+
+        byte[] merged = new byte[5 + 16 + 1 + ((uuidList.size() - 1) * 16) + restLength];
+        System.arraycopy(firstSource, firstOffset, merged, 0, 5); // EntityType token and nid
+        int position = 5;
+        for (int uuidIndex = 0; uuidIndex < uuidList.size(); uuidIndex++) {
+            UUID uuid = uuidList.get(uuidIndex);
+            writeLong(merged, position, uuid.getMostSignificantBits());
+            writeLong(merged, position + 8, uuid.getLeastSignificantBits());
+            position += 16;
+            if (uuidIndex == 0) {
+                merged[position++] = (byte) (uuidList.size() * 2 - 2);
+            }
+        }
+        System.arraycopy(firstSource, restOffset, merged, position, restLength);
+
+        sources[MERGED] = merged;
+        int mergedEntry = addEntry(MERGED, 0, merged.length);
+        ensureCapacity(kept + 1);
+        System.arraycopy(order, 0, order, 1, kept);
+        order[0] = mergedEntry;
+        return kept + 1;
+    }
+
+    /**
+     * @return true if the first {@code uniqueCount} entries are exactly the arrays of the source, in order, so
+     * the merged bytes would be identical to the source
+     */
+    private boolean isLayoutOf(int[] offsets, int uniqueCount, int arrayCount) {
+        if (uniqueCount != arrayCount) {
+            return false;
+        }
+        int previousOffset = -1;
+        for (int i = 0; i < uniqueCount; i++) {
+            int offset = offsets[order[i]];
+            if (offset <= previousOffset) {
+                return false;
+            }
+            previousOffset = offset;
+        }
+        return true;
+    }
+
+    private byte[] write(int uniqueCount, byte entityFormat) {
+        int size = 4 + 5;
+        for (int i = 0; i < uniqueCount; i++) {
+            size += 4 + lengths[order[i]];
+        }
+        byte[] merged = new byte[size];
+        writeInt(merged, 0, uniqueCount);
+        int position = 4;
+        for (int i = 0; i < uniqueCount; i++) {
+            int entry = order[i];
+            int length = lengths[entry];
+            if (i == 0) {
+                // Add 4 to have room for the number of versions.
+                // Add 1 for the entity format token
+                writeInt(merged, position, length + 5);
+                merged[position + 4] = entityFormat;
+                position += 5;
+                System.arraycopy(sourceOf(entry), offsetOf(entry), merged, position, length);
+                position += length;
+                // write the number of versions...
+                writeInt(merged, position, uniqueCount - 1);
+                position += 4;
+            } else {
+                writeInt(merged, position, length);
+                position += 4;
+                System.arraycopy(sourceOf(entry), offsetOf(entry), merged, position, length);
+                position += length;
+            }
+        }
+        return merged;
+    }
+
+    private void sort(int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int entry = order[i];
+                int j = i - 1;
+                while (j >= from && compare(order[j], entry) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = entry;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(from, middle);
+        sort(middle, to);
+        if (compare(order[middle - 1], order[middle]) <= 0) {
+            // Already in order, as when both inputs were sorted by a previous merge.
+            return;
+        }
+        System.arraycopy(order, from, sortScratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compare(sortScratch[left], sortScratch[right]) <= 0)) {
+                order[i] = sortScratch[left++];
+            } else {
+                order[i] = sortScratch[right++];
+            }
+        }
+    }
+
+    /**
+     * Compares entries bytewise as signed bytes, then by length.
+     */
+    private int compare(int entry1, int entry2) {
+        int offset1 = offsetOf(entry1);
+        int offset2 = offsetOf(entry2);
+        return Arrays.compare(sourceOf(entry1), offset1, offset1 + lengths[entry1],
+                sourceOf(entry2), offset2, offset2 + lengths[entry2]);
+    }
+
+    private int addEntry(int sourceIndex, int offset, int length) {
+        ensureCapacity(entryCount + 1);
+        int entry = entryCount++;
+        entrySources[entry] = sourceIndex;
+        entryOffsets[entry] = offset;
+        lengths[entry] = length;
+        newOffsets[entry] = sourceIndex == NEW ? offset : -1;
+        oldOffsets[entry] = sourceIndex == OLD ? offset : -1;
+        return entry;
+    }
+
+    private byte[] sourceOf(int entry) {
+        return sources[entrySources[entry]];
+    }
+
+    private int offsetOf(int entry) {
+        return entryOffsets[entry];
+    }
+
+    private boolean containsStamp(int stampNid) {
+        for (int i = 0; i < stampCount; i++) {
+            if (stampsInSet[i] == stampNid) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addStamp(int stampNid) {
+        if (stampCount == stampsInSet.length) {
+            stampsInSet = Arrays.copyOf(stampsInSet, stampCount * 2);
+        }
+        stampsInSet[stampCount++] = stampNid;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > lengths.length) {
+            int newCapacity = Math.max(capacity, lengths.length * 2);
+            entrySources = Arrays.copyOf(entrySources, newCapacity);
+            entryOffsets = Arrays.copyOf(entryOffsets, newCapacity);
+            newOffsets = Arrays.copyOf(newOffsets, newCapacity);
+            oldOffsets = Arrays.copyOf(oldOffsets, newCapacity);
+            lengths = Arrays.copyOf(lengths, newCapacity);
+            order = Arrays.copyOf(order, newCapacity);
+            sortScratch = new int[newCapacity];
+        }
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) |
+                ((bytes[offset + 1] & 0xFF) << 16) |
+                ((bytes[offset + 2] & 0xFF) << 8) |
+                (bytes[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        return ((long) readInt(bytes, offset) << 32) | (readInt(bytes, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        writeInt(bytes, offset, (int) (value >>> 32));
+        writeInt(bytes, offset + 4, (int) value);
+    }
+}
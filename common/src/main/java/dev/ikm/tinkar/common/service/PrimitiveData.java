@@ -21,6 +21,7 @@
 import dev.ikm.tinkar.common.id.IntIdCollection;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.id.impl.NidCodec6;
+import dev.ikm.tinkar.common.metrics.Metrics;
 import org.eclipse.collections.api.list.primitive.IntList;
 import org.eclipse.collections.api.set.primitive.IntSet;
 import org.slf4j.Logger;
@@ -85,6 +86,9 @@ private PrimitiveData() {
     }
 
     public static void start() {
+        // Initialize metrics before the services start, so the counters they obtain are live when enabled.
+        Metrics.registry();
+
         // Start the service lifecycle manager to initialize all services in proper order
         ServiceLifecycleManager lifecycleManager = ServiceLifecycleManager.get();
 
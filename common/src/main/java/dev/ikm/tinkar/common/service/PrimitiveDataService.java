@@ -18,33 +18,20 @@
 import dev.ikm.tinkar.common.id.EntityKey;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
-import dev.ikm.tinkar.common.util.uuid.UuidUtil;
-import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
 import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
 import org.eclipse.collections.api.factory.Lists;
-import org.eclipse.collections.api.factory.Sets;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.ListIterable;
-import org.eclipse.collections.api.list.MutableList;
-import org.eclipse.collections.api.list.primitive.ByteList;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
 import org.eclipse.collections.api.list.primitive.MutableIntList;
-import org.eclipse.collections.api.list.primitive.MutableLongList;
-import org.eclipse.collections.api.set.MutableSet;
-import org.eclipse.collections.api.set.primitive.MutableLongSet;
-import org.eclipse.collections.impl.factory.primitive.ByteLists;
 import org.eclipse.collections.impl.factory.primitive.IntLists;
-import org.eclipse.collections.impl.factory.primitive.LongLists;
-import org.eclipse.collections.impl.factory.primitive.LongSets;
 
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntPredicate;
 import java.util.function.ObjIntConsumer;
 
 public interface PrimitiveDataService {
@@ -134,216 +121,32 @@ static int nidForUuids(ConcurrentMap<UUID, Integer> uuidNidMap, NidGenerator nid
      * @return
      */
     static byte[] merge(byte[] oldBytes, byte[] newBytes) {
-        if (oldBytes == null) {
-            return newBytes;
-        }
-        if (newBytes == null) {
-            return oldBytes;
-        }
-        if (Arrays.equals(oldBytes, newBytes)) {
-            return oldBytes;
-        }
-        try {
-            MutableSet<ByteList> byteArraySet = Sets.mutable.empty();
-            MutableIntList stampList = IntLists.mutable.withInitialCapacity(16);
-            byte entityFormat = newBytes[8];
-            addToSet(newBytes, byteArraySet, stampList, entityFormat);
-            addToSet(oldBytes, byteArraySet, stampList, entityFormat);
-            MutableList<ByteList> byteArrayList = byteArraySet.toList();
-
-            byteArrayList.sort((o1, o2) -> {
-                int minSize = Math.min(o1.size(), o2.size());
-                for (int i = 0; i < minSize; i++) {
-                    if (o1.get(i) != o2.get(i)) {
-                        return Integer.compare(o1.get(i), o2.get(i));
-                    }
-                }
-                return Integer.compare(o1.size(), o2.size());
-            });
-            // Remove canceled versions here
-            if (byteArrayList.size() > 2) {
-                MutableList<ByteList> chronologyByteLists = Lists.mutable.empty();
-                MutableIntList indexesToRemove = IntLists.mutable.empty();
-                for (int i = 0; i < byteArrayList.size(); i++) {
-                    ByteList versionBytes = byteArrayList.get(i);
-                    byte versionToken = versionBytes.get(0);
-                    switch (versionToken) {
-                        /*
-                            CONCEPT_CHRONOLOGY((byte) 1, ConceptChronology.class),
-                            PATTERN_CHRONOLOGY((byte) 2, PatternChronology.class),
-                            SEMANTIC_CHRONOLOGY((byte) 3, SemanticChronology.class),
-                            STAMP(STAMP_DATA_TYPE, Stamp.class)
-                        */
-                        case 1, 2, 3, STAMP_DATA_TYPE-> chronologyByteLists.add(versionBytes);
-
-                        /*
-                            CONCEPT_VERSION((byte) 4, ConceptVersion.class),
-                            PATTERN_VERSION((byte) 5, PatternVersion.class),
-                            SEMANTIC_VERSION((byte) 6, SemanticVersion.class),
-                            STAMP_VERSION((byte) 25, Stamp.class)
-                         */
-                        case 4, 5, 6, 25 -> {
-                            int stampNid = ((versionBytes.get(1) & 0xFF) << 24) |
-                                    ((versionBytes.get(2) & 0xFF) << 16) |
-                                    ((versionBytes.get(3) & 0xFF) << 8) |
-                                    ((versionBytes.get(4) & 0xFF) << 0);
-                            if (PrimitiveData.get().isCanceledStampNid(stampNid)) {
-                                // Garbage collection for canceled versions...
-                                indexesToRemove.add(i);
-                            }
-                        }
-                        default -> {
-                            // Leave all versions. Need to retain canceled version if component is a stamp.
-                        }
-                    }
-                }
-                indexesToRemove.reverseThis().forEach(index -> byteArrayList.remove(index));
-
-                // UUIDs were added...
-                if (chronologyByteLists.size() > 1) {
-                    // need to merge into one record for the chronology...
-                    MutableSet<UUID> uuids = Sets.mutable.empty();
-                    for (ByteList chronologyByteList : chronologyByteLists) {
-                        MutableLongList longList = LongLists.mutable.empty();
-                        ByteBuf chronologyBytes = ByteBuf.wrapForReading(chronologyByteList.toArray());
-                        chronologyBytes.readByte(); // EntityType token
-                        chronologyBytes.readInt(); // Entity nid
-                        longList.add(chronologyBytes.readLong()); // Entity most significant bits
-                        longList.add(chronologyBytes.readLong()); // Entity least significant bits
-                        int additionalUuidLongs = chronologyBytes.readByte(); // Additional UUID longs...
-                        for (int i = 0; i < additionalUuidLongs; i++) {
-                            longList.add(chronologyBytes.readLong());
-                        }
-                        uuids.addAll(UuidUtil.toList(longList.toArray()).castToList());
-                    }
-                    ImmutableList<UUID> uuidList = uuids.toImmutableList();
-                    ByteBuf chronologyBytes = ByteBuf.wrapForReading(chronologyByteLists.get(0).toArray());
-                    ByteBuf writeBuf = ByteBufPool.allocate(16 * uuidList.size() + chronologyBytes.array().length);
-                    writeBuf.writeByte(chronologyBytes.readByte()); // EntityType token
-                    writeBuf.writeInt(chronologyBytes.readInt()); // Entity nid
-                    chronologyBytes.readLong(); // Discard msb
-                    chronologyBytes.readLong(); // Discard lsb
-                    int discardAdditionalUuidLongs = chronologyBytes.readByte();
-                    for (int i = 0; i < discardAdditionalUuidLongs; i++) {
-                        chronologyBytes.readLong();
-                    }
-
-                    // write the new UUIDs.
-                    writeBuf.writeLong(uuidList.get(0).getMostSignificantBits());
-                    writeBuf.writeLong(uuidList.get(0).getLeastSignificantBits());
-                    int additionalUuidLongs = uuidList.size() * 2 - 2;
-                    writeBuf.writeByte((byte) additionalUuidLongs);
-                    for (int uuidIndex = 1; uuidIndex < uuidList.size(); uuidIndex++) {
-                        writeBuf.writeLong(uuidList.get(uuidIndex).getMostSignificantBits());
-                        writeBuf.writeLong(uuidList.get(uuidIndex).getLeastSignificantBits());
-                    }
-                    while (chronologyBytes.canRead()) {
-                        writeBuf.writeByte(chronologyBytes.readByte());
-                    }
-                    byteArrayList.removeAll(chronologyByteLists);
-                    byteArrayList.add(0, ByteLists.immutable.of(writeBuf.asArray()));
-                }
-            }
-
-            ByteBuf byteBuf = ByteBufPool.allocate(oldBytes.length + newBytes.length);
-            byteBuf.writeInt(byteArrayList.size());
-            boolean first = true;
-            for (ByteList byteArray : byteArrayList) {
-                if (first) {
-                    // Add 4 to have room for the number of versions.
-                    // Add 1 for the entity format token
-                    byteBuf.writeInt(byteArray.size() + 5);
-                    byteBuf.writeByte(entityFormat);
-                    byteArray.forEach(b -> {
-                        byteBuf.put(b);
-                    });
-                    // write the number of versions...
-                    byteBuf.writeInt(byteArrayList.size() - 1);
-                    first = false;
-                } else {
-                    byteBuf.writeInt(byteArray.size());
-                    byteArray.forEach(b -> {
-                        byteBuf.put(b);
-                    });
-                }
-            }
-            return byteBuf.asArray();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        return merge(oldBytes, newBytes, stampNid -> PrimitiveData.get().isCanceledStampNid(stampNid));
     }
 
     /**
-     * @param bytes
-     * @param byteArraySet
-     * @param stampsInSet  represents the stamps already added to the set. If two versions with the same stamp are being merged,
-     *                     the newer version must be the merged version, as it represents a newer edit. There is an assumption that
-     *                     the edits of a single version under a single stamp value are sequential, not concurrent.
-     * @throws IOException
+     * Merges as {@link #merge(byte[], byte[])} does, testing for canceled stamps with {@code canceledStamp}
+     * rather than through {@link PrimitiveData#get()}. Providers use it for merges that may run before the
+     * provider is running, such as the replay of a write-ahead log.
+     *
+     * @param oldBytes      the current bytes, or null
+     * @param newBytes      the bytes to merge in, or null
+     * @param canceledStamp tests whether versions on a stamp should be removed
+     * @return the merged bytes
      */
-    private static void addToSet(byte[] bytes, MutableSet<ByteList> byteArraySet, MutableIntList stampsInSet,
-                                 byte entityFormat) throws IOException {
-        ByteBuf readBuf = ByteBuf.wrapForReading(bytes);
-        boolean stampDataType = bytes[9] == STAMP_DATA_TYPE;
-        int arrayCount = readBuf.readInt();
-        for (int i = 0; i < arrayCount; i++) {
-            int arraySize = readBuf.readInt();
-            if (i == 0) {
-                byte localEntityFormat = readBuf.readByte();
-                if (localEntityFormat != entityFormat) {
-                    throw new IllegalStateException("All entities should be the same format. Found: " + entityFormat + " != " + localEntityFormat);
-                }
-                // The first array is the chronicle, and has a field for the number of versions...
-                // Add one for the entityFormat token.
-                byte[] newArray = new byte[arraySize - 5];
-                readBuf.read(newArray);
-                byteArraySet.add(ByteLists.immutable.of(newArray));
-                int versionCount = readBuf.readInt();
-                if (versionCount != arrayCount - 1) {
-                    throw new IllegalStateException("Malformed data. versionCount: " +
-                            versionCount + " arrayCount: " + arrayCount);
-                }
-                // Version count is not included as the version count may change as a result of merge.
-                // It must be added back in after sorting unique versions.
-            } else {
-                byte[] newArray = new byte[arraySize];
-                readBuf.read(newArray);
-                if (stampDataType) {
-                    byteArraySet.add(ByteLists.immutable.of(newArray));
-                } else {
-                    int stampNid = ((newArray[1] & 0xFF) << 24) |
-                            ((newArray[2] & 0xFF) << 16) |
-                            ((newArray[3] & 0xFF) << 8) |
-                            ((newArray[4] & 0xFF) << 0);
-                    if (stampsInSet.contains(stampNid)) {
-                        // Don't add, a newer version already exists (assuming addToSet is called in order of newest to oldest bytearray)
-                        // There should be no concurrent editing on versions with the same stamp.
-                    } else {
-                        byteArraySet.add(ByteLists.immutable.of(newArray));
-                        stampsInSet.add(stampNid);
-                    }
-                }
-            }
-        }
+    static byte[] merge(byte[] oldBytes, byte[] newBytes, IntPredicate canceledStamp) {
+        return EntityBytesMerger.merge(oldBytes, newBytes, canceledStamp);
     }
 
     default boolean isCanceledStampNid(int stampNid) {
         return canceledStampNids.contains(stampNid);
     }
 
+    /**
+     * Merges sorted citation arrays. See {@link CitationIndex#merge(long[], long[])}.
+     */
     static long[] mergeCitations(long[] citation1, long[] citation2) {
-        if (citation1 == null) {
-            return citation2;
-        }
-        if (citation2 == null) {
-            return citation1;
-        }
-        if (Arrays.equals(citation1, citation2)) {
-            return citation1;
-        }
-        MutableLongSet citationSet = LongSets.mutable.of(citation1);
-        citationSet.addAll(citation2);
-        return citationSet.toSortedArray();
+        return CitationIndex.merge(citation1, citation2);
     }
 
     long writeSequence();
@@ -436,8 +239,63 @@ default byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
      */
     byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject, DataActivity activity);
 
+    /**
+     * Merges a batch of entities, as {@link #merge(int, int, int, byte[], Object, DataActivity)} does for each.
+     * Providers may merge the batch in parallel, and hand it to the change set writers and the search index as
+     * one batch. Callers sort the batch by nid, so that merges into the same spine are close together.
+     * <p>
+     * The default merges each entity in turn.
+     *
+     * @param nids                    native identifiers of the entities
+     * @param patternNids             pattern nid of each entity, or Integer.MAX_VALUE
+     * @param referencedComponentNids referenced component nid of each semantic, otherwise Integer.MAX_VALUE
+     * @param values                  the non-null bytes of each entity
+     * @param sourceObjects           the object that is the source of each entity's bytes
+     * @param activity                the data activity performed, for all the entities
+     * @return the new value associated with each nid, in the order of {@code nids}
+     */
+    default byte[][] mergeAll(int[] nids, int[] patternNids, int[] referencedComponentNids, byte[][] values,
+                              Object[] sourceObjects, DataActivity activity) {
+        byte[][] mergedValues = new byte[nids.length][];
+        for (int i = 0; i < nids.length; i++) {
+            mergedValues[i] = merge(nids[i], patternNids[i], referencedComponentNids[i], values[i], sourceObjects[i], activity);
+        }
+        return mergedValues;
+    }
+
     PrimitiveDataSearchResult[] search(String query, int maxResultSize) throws Exception;
 
+    /**
+     * Search restricted to semantics of given patterns and/or referencing given components. See
+     * {@link SearchService#search(String, int, SearchFilter)}.
+     *
+     * @param query the search query string
+     * @param maxResultSize maximum number of results to return
+     * @param filter the pattern and referenced component restrictions
+     * @return array of search results
+     * @throws Exception if an error occurs during search
+     */
+    default PrimitiveDataSearchResult[] search(String query, int maxResultSize, SearchFilter filter) throws Exception {
+        // The stamp restriction is only a pre-filter, so searching without it is a valid superset.
+        if (filter == null || !filter.restrictsComponents()) {
+            return search(query, maxResultSize);
+        }
+        throw new UnsupportedOperationException(name() + " does not support filtered search");
+    }
+
+    /**
+     * Type-ahead completion. See {@link SearchService#suggest(String, int, SearchFilter)}.
+     *
+     * @param prefix the text typed so far
+     * @param maxResultSize maximum number of results to return
+     * @param filter the pattern, referenced component, and stamp restrictions
+     * @return the completions, best first
+     * @throws Exception if an error occurs during search
+     */
+    default PrimitiveDataSearchResult[] suggest(String prefix, int maxResultSize, SearchFilter filter) throws Exception {
+        return search(prefix, maxResultSize, filter);
+    }
+
     /**
      * Highlight an arbitrary text against the same parsed query the index would
      * use. See {@link SearchService#highlight(String, String)} for matching
@@ -489,6 +347,16 @@ default int[] semanticNidsForComponentOfPattern(int componentNid, int patternNid
 
     void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure);
 
+    /**
+     * The postings of components by stamp and of stamps by time, for providers that maintain them as
+     * entities are merged. The index is complete when returned, so the first call may index the store.
+     *
+     * @return the index, or empty if this provider does not maintain one
+     */
+    default Optional<StampPostingsIndex> stampPostingsIndex() {
+        return Optional.empty();
+    }
+
     default void addCanceledStampNid(int stampNid) {
         canceledStampNids.add(stampNid);
     }
@@ -522,10 +390,89 @@ default Optional<EntityKey> getEntityKey(UUID uuid) {
         return Optional.empty();
     }
 
+    /**
+     * Operations of the remote data protocol, used over a websocket between a client provider and a server.
+     * <p>
+     * A request message is the operation token, an int correlation id chosen by the client, and then the
+     * operation's arguments. A response message is the correlation id, a response status, and then the results.
+     * Responses may arrive in any order, so one connection can carry many outstanding requests. Byte arrays are
+     * written as an int length (-1 for null) followed by the bytes, strings as UTF-8 byte arrays, and UUID lists
+     * as an int count of longs followed by the longs. A {@link SearchFilter} is written as its pattern nids, its
+     * referenced component nids, and the state, module and path nids of its stamp restriction, each as an int count
+     * followed by the nids, and then the restriction's max time as a long. Search results are written as an int count,
+     * then the nid, field index, score, and highlighted string of each.
+     * <p>
+     * Streaming operations answer with {@link #RESPONSE_CHUNK} messages followed by one {@link #RESPONSE_COMPLETE}.
+     * The server sends at most {@link #STREAM_WINDOW} chunks ahead of the {@link #STREAM_CREDIT} messages the
+     * client returns as it consumes them.
+     */
     enum RemoteOperations {
+        /** UUID list; answers the nid. */
         NID_FOR_UUIDS(1),
+        /** Nid; answers the byte array. */
         GET_BYTES(2),
-        MERGE(3);
+        /**
+         * Nid, pattern nid, referenced component nid, byte array, {@link DataActivity} ordinal as a byte; answers the
+         * merged byte array. The server decodes the entity from the byte array as the merge's source object.
+         */
+        MERGE(3),
+        /** Count, then that many nids; answers a byte array for each. */
+        GET_BYTES_MULTI(4),
+        /** Count, then that many UUID lists; answers a nid for each. */
+        NIDS_FOR_UUIDS_MULTI(5),
+        /** Most and least significant bits; answers a boolean byte. */
+        HAS_UUID(6),
+        /** UUID list; answers a boolean byte. */
+        HAS_PUBLIC_ID(7),
+        /** Answers the write sequence as a long. */
+        WRITE_SEQUENCE(8),
+        /** Query string, maximum result count; answers the search results. */
+        SEARCH(9),
+        /** Query string, text; answers the highlighted text. */
+        HIGHLIGHT(10),
+        /** Answers when the index has been rebuilt. */
+        RECREATE_LUCENE_INDEX(11),
+        /** Streams chunks of an entry count, then that many nid and byte array pairs. */
+        FOR_EACH_ENTITY(12),
+        /** Streams chunks of a nid count, then that many nids. */
+        FOR_EACH_CONCEPT_NID(13),
+        /** Streams chunks of nids. */
+        FOR_EACH_PATTERN_NID(14),
+        /** Streams chunks of nids. */
+        FOR_EACH_SEMANTIC_NID(15),
+        /** Streams chunks of nids. */
+        FOR_EACH_STAMP_NID(16),
+        /** Pattern nid; streams chunks of nids. */
+        FOR_EACH_SEMANTIC_NID_OF_PATTERN(17),
+        /** Component nid; streams chunks of nids. */
+        FOR_EACH_SEMANTIC_NID_FOR_COMPONENT(18),
+        /** Component nid, pattern nid; streams chunks of nids. */
+        FOR_EACH_SEMANTIC_NID_FOR_COMPONENT_OF_PATTERN(19),
+        /** Number of further chunks the client will accept for the stream with this correlation id; no response. */
+        STREAM_CREDIT(20),
+        /** Stops the stream with this correlation id; no response. */
+        STREAM_CANCEL(21),
+        /** Query string, maximum result count, search filter; answers the search results. */
+        SEARCH_FILTERED(22),
+        /** Prefix string, maximum result count, search filter; answers the search results. */
+        SUGGEST(23);
+
+        /** Status of the final response to a request. */
+        public static final byte RESPONSE_COMPLETE = 0;
+        /** Status of a response carrying one chunk of a stream. */
+        public static final byte RESPONSE_CHUNK = 1;
+        /** Status of a response carrying the message of an exception that ended the request. */
+        public static final byte RESPONSE_ERROR = 2;
+        /** Number of chunks a server may send on a stream before receiving credit. */
+        public static final int STREAM_WINDOW = 8;
+
+        private static final RemoteOperations[] BY_TOKEN = new RemoteOperations[SUGGEST.token + 1];
+
+        static {
+            for (RemoteOperations operation : values()) {
+                BY_TOKEN[operation.token] = operation;
+            }
+        }
 
         public final byte token;
 
@@ -534,16 +481,10 @@ enum RemoteOperations {
         }
 
         public static RemoteOperations fromToken(byte token) {
-            switch (token) {
-                case 1:
-                    return NID_FOR_UUIDS;
-                case 2:
-                    return GET_BYTES;
-                case 3:
-                    return MERGE;
-                default:
-                    throw new UnsupportedOperationException("Can't handle token: " + token);
+            if (token > 0 && token < BY_TOKEN.length) {
+                return BY_TOKEN[token];
             }
+            throw new UnsupportedOperationException("Can't handle token: " + token);
         }
     }
 
@@ -570,6 +511,14 @@ default void setLoadPhase(boolean loadPhase) {
         // Default no-op for providers that don't index inline.
     }
 
+    /**
+     * Makes every merge made so far durable, for providers that log merges between saves.
+     * Called when a transaction commits; concurrent callers may share one write to disk.
+     */
+    default void sync() {
+        // Default no-op for providers that are durable per write, or only at save.
+    }
+
     class CacheProvider implements CachingService {
 
         @Override
@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import io.activej.bytebuf.ByteBuf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Encoding of the messages of the remote data protocol described by {@link PrimitiveDataService.RemoteOperations}.
+ */
+public class RemoteMessages {
+
+    /**
+     * Writes the arguments or results of a message.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private RemoteMessages() {
+    }
+
+    public static ByteBuf request(PrimitiveDataService.RemoteOperations operation, int correlationId, Writer arguments) {
+        return message(out -> {
+            out.writeByte(operation.token);
+            out.writeInt(correlationId);
+            arguments.write(out);
+        });
+    }
+
+    public static ByteBuf response(int correlationId, byte status, Writer results) {
+        return message(out -> {
+            out.writeInt(correlationId);
+            out.writeByte(status);
+            results.write(out);
+        });
+    }
+
+    public static ByteBuf error(int correlationId, Throwable throwable) {
+        String message = throwable.getClass().getSimpleName() + ": " + throwable.getMessage();
+        return response(correlationId, PrimitiveDataService.RemoteOperations.RESPONSE_ERROR,
+                out -> writeString(out, message));
+    }
+
+    private static ByteBuf message(Writer writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writer.write(out);
+            out.flush();
+            return ByteBuf.wrapForReading(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    public static byte[] readBytes(ByteBuf buf) {
+        int length = buf.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.read(bytes);
+        return bytes;
+    }
+
+    public static void writeString(DataOutputStream out, String string) throws IOException {
+        writeBytes(out, string == null ? null : string.getBytes(UTF_8));
+    }
+
+    public static String readString(ByteBuf buf) {
+        byte[] bytes = readBytes(buf);
+        return bytes == null ? null : new String(bytes, UTF_8);
+    }
+
+    public static void writeUuidParts(DataOutputStream out, long[] uuidParts) throws IOException {
+        out.writeInt(uuidParts.length);
+        for (long part : uuidParts) {
+            out.writeLong(part);
+        }
+    }
+
+    public static long[] readUuidParts(ByteBuf buf) {
+        long[] uuidParts = new long[buf.readInt()];
+        for (int i = 0; i < uuidParts.length; i++) {
+            uuidParts[i] = buf.readLong();
+        }
+        return uuidParts;
+    }
+
+    public static void writeNids(DataOutputStream out, int[] nids) throws IOException {
+        out.writeInt(nids.length);
+        for (int nid : nids) {
+            out.writeInt(nid);
+        }
+    }
+
+    public static int[] readNids(ByteBuf buf) {
+        int[] nids = new int[buf.readInt()];
+        for (int i = 0; i < nids.length; i++) {
+            nids[i] = buf.readInt();
+        }
+        return nids;
+    }
+
+    public static void writeSearchFilter(DataOutputStream out, SearchFilter filter) throws IOException {
+        SearchFilter searchFilter = filter == null ? SearchFilter.NONE : filter;
+        writeNids(out, searchFilter.patternNids());
+        writeNids(out, searchFilter.referencedComponentNids());
+        SearchFilter.StampRestriction stampRestriction = searchFilter.stampRestriction();
+        writeNids(out, stampRestriction.stateNids());
+        writeNids(out, stampRestriction.moduleNids());
+        writeNids(out, stampRestriction.pathNids());
+        out.writeLong(stampRestriction.maxTime());
+    }
+
+    public static SearchFilter readSearchFilter(ByteBuf buf) {
+        int[] patternNids = readNids(buf);
+        int[] referencedComponentNids = readNids(buf);
+        int[] stateNids = readNids(buf);
+        int[] moduleNids = readNids(buf);
+        int[] pathNids = readNids(buf);
+        return new SearchFilter(patternNids, referencedComponentNids,
+                new SearchFilter.StampRestriction(stateNids, moduleNids, pathNids, buf.readLong()));
+    }
+
+    public static void writeSearchResults(DataOutputStream out, PrimitiveDataSearchResult[] results) throws IOException {
+        out.writeInt(results.length);
+        for (PrimitiveDataSearchResult result : results) {
+            out.writeInt(result.nid());
+            out.writeInt(result.fieldIndex());
+            out.writeFloat(result.score());
+            writeString(out, result.highlightedString());
+        }
+    }
+
+    public static PrimitiveDataSearchResult[] readSearchResults(ByteBuf buf) {
+        PrimitiveDataSearchResult[] results = new PrimitiveDataSearchResult[buf.readInt()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new PrimitiveDataSearchResult(buf.readInt(), buf.readInt(), buf.readFloat(), readString(buf));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import java.util.Arrays;
+
+/**
+ * Restricts a {@link SearchService} query to semantics of given patterns and/or semantics referencing given
+ * components. The restrictions are applied inside the index as non-scoring filter clauses, so a filtered search
+ * returns the top hits among the matching semantics rather than filtering a larger top-N afterwards.
+ * <p>
+ * An empty array leaves that dimension unrestricted; when both are non-empty, a hit must match both.
+ * <p>
+ * The optional {@link StampRestriction} is a pre-filter compiled from a stamp coordinate. Unlike the pattern and
+ * referenced component restrictions it is not exact: it removes hits that cannot have a version visible under the
+ * coordinate, but the hits it keeps must still be resolved with a stamp calculator.
+ *
+ * @param patternNids nids of the patterns the matched semantics must be of
+ * @param referencedComponentNids nids of the components the matched semantics must reference
+ * @param stampRestriction the stamp pre-filter; {@link StampRestriction#NONE} for none
+ */
+public record SearchFilter(int[] patternNids, int[] referencedComponentNids, StampRestriction stampRestriction) {
+
+    /** A filter that does not restrict the search. */
+    public static final SearchFilter NONE = new SearchFilter(new int[0], new int[0]);
+
+    public SearchFilter {
+        patternNids = patternNids == null ? new int[0] : patternNids.clone();
+        referencedComponentNids = referencedComponentNids == null ? new int[0] : referencedComponentNids.clone();
+        stampRestriction = stampRestriction == null ? StampRestriction.NONE : stampRestriction;
+    }
+
+    public SearchFilter(int[] patternNids, int[] referencedComponentNids) {
+        this(patternNids, referencedComponentNids, StampRestriction.NONE);
+    }
+
+    public static SearchFilter ofPatterns(int... patternNids) {
+        return new SearchFilter(patternNids, null);
+    }
+
+    public static SearchFilter ofReferencedComponents(int... referencedComponentNids) {
+        return new SearchFilter(null, referencedComponentNids);
+    }
+
+    public static SearchFilter of(StampRestriction stampRestriction) {
+        return new SearchFilter(null, null, stampRestriction);
+    }
+
+    public SearchFilter withPatterns(int... patternNids) {
+        return new SearchFilter(patternNids, referencedComponentNids, stampRestriction);
+    }
+
+    public SearchFilter withReferencedComponents(int... referencedComponentNids) {
+        return new SearchFilter(patternNids, referencedComponentNids, stampRestriction);
+    }
+
+    public SearchFilter withStampRestriction(StampRestriction stampRestriction) {
+        return new SearchFilter(patternNids, referencedComponentNids, stampRestriction);
+    }
+
+    /**
+     * @return true if this filter restricts neither patterns, referenced components, nor stamps
+     */
+    public boolean isEmpty() {
+        return !restrictsComponents() && stampRestriction.isEmpty();
+    }
+
+    /**
+     * @return true if this filter restricts patterns or referenced components, the exact part of the filter
+     */
+    public boolean restrictsComponents() {
+        return patternNids.length != 0 || referencedComponentNids.length != 0;
+    }
+
+    @Override
+    public int[] patternNids() {
+        return patternNids.clone();
+    }
+
+    @Override
+    public int[] referencedComponentNids() {
+        return referencedComponentNids.clone();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SearchFilter other
+                && Arrays.equals(patternNids, other.patternNids)
+                && Arrays.equals(referencedComponentNids, other.referencedComponentNids)
+                && stampRestriction.equals(other.stampRestriction);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(patternNids) + Arrays.hashCode(referencedComponentNids))
+                + stampRestriction.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchFilter{patternNids=" + Arrays.toString(patternNids)
+                + ", referencedComponentNids=" + Arrays.toString(referencedComponentNids)
+                + ", stampRestriction=" + stampRestriction + "}";
+    }
+
+    /**
+     * Stamp attributes a semantic must have on at least one of its versions to possibly have a latest version
+     * under a stamp coordinate. Each dimension is tested independently against all versions, so a semantic may
+     * pass with its allowed state on one version and its allowed module on another; such hits are resolved by the
+     * caller. An empty array leaves that dimension unrestricted.
+     *
+     * @param stateNids nids of the allowed states
+     * @param moduleNids nids of the allowed modules
+     * @param pathNids nids of the path of the coordinate's position and of all the paths it originates from
+     * @param maxTime the time of the coordinate's position; {@link Long#MAX_VALUE} for latest
+     */
+    public record StampRestriction(int[] stateNids, int[] moduleNids, int[] pathNids, long maxTime) {
+
+        /** A restriction that admits every version. */
+        public static final StampRestriction NONE = new StampRestriction(null, null, null, Long.MAX_VALUE);
+
+        public StampRestriction {
+            stateNids = stateNids == null ? new int[0] : stateNids.clone();
+            moduleNids = moduleNids == null ? new int[0] : moduleNids.clone();
+            pathNids = pathNids == null ? new int[0] : pathNids.clone();
+        }
+
+        /**
+         * @return true if this restriction admits every version
+         */
+        public boolean isEmpty() {
+            return stateNids.length == 0 && moduleNids.length == 0 && pathNids.length == 0
+                    && maxTime == Long.MAX_VALUE;
+        }
+
+        @Override
+        public int[] stateNids() {
+            return stateNids.clone();
+        }
+
+        @Override
+        public int[] moduleNids() {
+            return moduleNids.clone();
+        }
+
+        @Override
+        public int[] pathNids() {
+            return pathNids.clone();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof StampRestriction other
+                    && Arrays.equals(stateNids, other.stateNids)
+                    && Arrays.equals(moduleNids, other.moduleNids)
+                    && Arrays.equals(pathNids, other.pathNids)
+                    && maxTime == other.maxTime;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Arrays.hashCode(stateNids);
+            hash = 31 * hash + Arrays.hashCode(moduleNids);
+            hash = 31 * hash + Arrays.hashCode(pathNids);
+            return 31 * hash + Long.hashCode(maxTime);
+        }
+
+        @Override
+        public String toString() {
+            return "StampRestriction{stateNids=" + Arrays.toString(stateNids)
+                    + ", moduleNids=" + Arrays.toString(moduleNids)
+                    + ", pathNids=" + Arrays.toString(pathNids)
+                    + ", maxTime=" + maxTime + "}";
+        }
+    }
+}
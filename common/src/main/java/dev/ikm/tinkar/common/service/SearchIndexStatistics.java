@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import java.time.Duration;
+
+/**
+ * Refresh and commit state of a search index since it was opened. Generations are the tokens returned by
+ * {@link SearchService#indexGeneration()}: writes up to {@code searchableGeneration} are visible to searches, and
+ * writes after it are pending.
+ *
+ * @param latestGeneration     generation of the latest completed write
+ * @param searchableGeneration generation visible to searches
+ * @param refreshes            refreshes that opened a new searcher
+ * @param meanRefresh          mean duration of those refreshes
+ * @param maxRefresh           longest refresh
+ * @param uncommittedDocs      documents added since the last commit
+ * @param commits              commits of the index
+ * @param meanCommit           mean commit duration
+ * @param maxCommit            longest commit
+ */
+public record SearchIndexStatistics(long latestGeneration, long searchableGeneration,
+                                    long refreshes, Duration meanRefresh, Duration maxRefresh,
+                                    long uncommittedDocs, long commits, Duration meanCommit, Duration maxCommit) {
+}
@@ -16,6 +16,8 @@
 package dev.ikm.tinkar.common.service;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -29,18 +31,59 @@ public interface SearchService {
     /**
      * Indexes an object in the search index.
      * <p>     * Currently supports SemanticEntity objects. Other object types are ignored.
+     * <p>The write may not be searchable when this returns: searches see it within the index's
+     * configured staleness, or once {@link #waitForGeneration(long)} returns for a later
+     * {@link #indexGeneration()}. A transaction commit waits this way, so a committer's next search
+     * sees its writes; an uncommitted write is only read-your-writes for a caller that waits itself.
      *
      * @param object the object to index
      */
     void index(Object object);
 
     /**
-     * Commits any pending changes to the search index.
+     * Indexes a batch of objects, as {@link #index(Object)} does for each. Implementations may replace the
+     * prior documents of the whole batch in one index update.
+     *
+     * @param objects the objects to index
+     */
+    default void indexAll(Collection<?> objects) {
+        objects.forEach(this::index);
+    }
+
+    /**
+     * Commits any pending changes to the search index, and makes them visible to searches.
      *
      * @throws IOException if an error occurs during commit
      */
     void commit() throws IOException;
 
+    /**
+     * Returns a token for the writes indexed so far. A writer that needs a search to see its write reads the
+     * token after {@link #index(Object)} and passes it to {@link #waitForGeneration(long)}; other searches see
+     * writes after the index's configured staleness.
+     *
+     * @return the generation of the latest completed index write; 0 if the service does not track generations
+     */
+    default long indexGeneration() {
+        return 0;
+    }
+
+    /**
+     * Waits until searches see every write up to the given generation.
+     *
+     * @param generation a token from {@link #indexGeneration()}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    default void waitForGeneration(long generation) throws InterruptedException {
+    }
+
+    /**
+     * @return refresh and commit statistics, if this service keeps them
+     */
+    default Optional<SearchIndexStatistics> statistics() {
+        return Optional.empty();
+    }
+
     /**
      * Performs a search query against the index.
      *
@@ -51,6 +94,40 @@ public interface SearchService {
      */
     PrimitiveDataSearchResult[] search(String query, int maxResultSize) throws Exception;
 
+    /**
+     * Performs a search query restricted by a {@link SearchFilter}.
+     * <p>
+     * The pattern and referenced component restrictions are evaluated by the index as filter clauses, so the
+     * result holds the {@code maxResultSize} best hits among the semantics that pass the filter.
+     * A {@link SearchFilter.StampRestriction} is applied the same way, but only drops semantics that have no
+     * version that could be visible under the stamp coordinate it was compiled from; callers resolve the
+     * remaining hits against that coordinate.
+     *
+     * @param query the search query string
+     * @param maxResultSize maximum number of results to return
+     * @param filter the pattern and referenced component restrictions; {@link SearchFilter#NONE} for none
+     * @return array of search results
+     * @throws Exception if an error occurs during search
+     */
+    PrimitiveDataSearchResult[] search(String query, int maxResultSize, SearchFilter filter) throws Exception;
+
+    /**
+     * Type-ahead completion: the best {@code maxResultSize} description semantics whose text has words beginning
+     * with each word of {@code prefix}, the last of which may be partial. Intended to be called on every
+     * keystroke, so implementations answer from a dedicated completion structure rather than a parsed query.
+     * <p>
+     * The default falls back to {@link #search(String, int, SearchFilter)}, which treats a simple query as a prefix.
+     *
+     * @param prefix the text typed so far
+     * @param maxResultSize maximum number of results to return
+     * @param filter the pattern, referenced component, and stamp restrictions; {@link SearchFilter#NONE} for none
+     * @return the completions, best first, each with the matched text as its {@code highlightedString}
+     * @throws Exception if an error occurs during search
+     */
+    default PrimitiveDataSearchResult[] suggest(String prefix, int maxResultSize, SearchFilter filter) throws Exception {
+        return search(prefix, maxResultSize, filter);
+    }
+
     /**
      * Highlight an arbitrary text against the same parsed query the index would
      * use, returning the text with matched tokens wrapped in
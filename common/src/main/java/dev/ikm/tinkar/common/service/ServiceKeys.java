@@ -24,6 +24,71 @@ public enum ServiceKeys {
      * When true, providers should ensure the data store root is new/empty.
      */
     DATA_STORE_EXPECT_EMPTY,
+    /**
+     * Maximum number of entity spines a spined data store keeps in memory (an Integer). Spines beyond the
+     * bound are evicted, least recently used first, and changed spines are written back before eviction.
+     * Absent or 0 for no bound.
+     */
+    DATA_STORE_MAX_RESIDENT_SPINES,
+    /**
+     * Whether a data store that supports a write-ahead log keeps one (a Boolean), so that merges made since the
+     * last save survive a crash. Absent for true.
+     */
+    DATA_STORE_WRITE_AHEAD_LOG,
+    /**
+     * Longest time, in milliseconds, that merges outside a transaction commit may stay in the write-ahead log
+     * without being forced to disk (a Number). Absent for the default; 0 to force only on commit.
+     */
+    DATA_STORE_WAL_SYNC_INTERVAL_MILLIS,
+    /**
+     * Size, in bytes, of write-ahead log that triggers a save of the data store, after which the log is
+     * truncated (a Number). Absent for the default; 0 to truncate only on save.
+     */
+    DATA_STORE_WAL_CHECKPOINT_BYTES,
+    /**
+     * Maximum number of entities the entity service caches (a Number). Ignored when
+     * ENTITY_CACHE_MAX_BYTES is set. Absent for the default.
+     */
+    ENTITY_CACHE_MAX_ENTRIES,
+    /**
+     * Maximum serialized size, in bytes, of the entities the entity service caches (a Number). When set,
+     * entities are weighed by their serialized size rather than counted.
+     */
+    ENTITY_CACHE_MAX_BYTES,
+    /**
+     * Maximum number of description strings the entity service caches (a Number). Absent for the default.
+     */
+    STRING_CACHE_MAX_ENTRIES,
+    /**
+     * Milliseconds over which the entity service coalesces changed nids before delivering them to cache
+     * invalidation subscribers (a Number). Absent for the default; 0 to deliver each change as it is written.
+     */
+    INVALIDATION_BATCH_MILLIS,
+    /**
+     * Maximum bytes of messages a multi-pass import keeps in memory after its first pass, so the second pass
+     * need not read the file again (a Number). Absent for a quarter of the maximum heap; 0 to always re-read.
+     */
+    IMPORT_FRAME_CACHE_MAX_BYTES,
+    /**
+     * Longest time, in milliseconds, that index writes may stay invisible to search when no one waits for them
+     * (a Number). Absent for the default.
+     */
+    SEARCH_MAX_STALE_MILLIS,
+    /**
+     * Time, in milliseconds, within which the search index is refreshed when a writer waits for its write to be
+     * searchable (a Number). Absent for the default.
+     */
+    SEARCH_MIN_STALE_MILLIS,
+    /**
+     * Longest time, in milliseconds, that index writes may stay uncommitted (a Number). Absent for the default;
+     * 0 to commit only on request.
+     */
+    SEARCH_COMMIT_INTERVAL_MILLIS,
+    /**
+     * Number of uncommitted index documents that triggers a commit (a Number). Absent for the default; 0 for no
+     * limit.
+     */
+    SEARCH_COMMIT_MAX_DOCS,
     /**
      * Unique to each invocation of the JVM. Will persist across cache resets.
      */
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.STAMP_DATA_TYPE;
+
+/**
+ * Postings of the components that have a version on each stamp, and of stamps by the time of their versions,
+ * maintained by a data provider as entity bytes are merged. With them, a query for the components changed in a
+ * time window reads the stamps in the window and the components posted to them, rather than every entity.
+ * <p>
+ * Both indexes are read from entity bytes alone, so they can be rebuilt from the store with {@link #ensureBuilt}.
+ * They only grow: a component stays posted to a stamp whose version was later canceled, and a stamp stays under
+ * the time of an uncommitted version, so callers check the stamps they find.
+ */
+public final class StampPostingsIndex {
+    private final ConcurrentHashMap<Integer, RoaringBitmap> componentsByStamp = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, RoaringBitmap> stampsByTime = new ConcurrentSkipListMap<>();
+    private volatile boolean built;
+
+    /**
+     * Marks the index as complete, as when the store it indexes was created empty.
+     */
+    public void markBuilt() {
+        built = true;
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Indexes the entities of the store once, if that has not been done and the store was not created empty.
+     * Merges while the index is built are indexed as usual.
+     *
+     * @param forEachParallel visits the bytes and nid of each entity in the store
+     */
+    public void ensureBuilt(Consumer<ObjIntConsumer<byte[]>> forEachParallel) {
+        if (!built) {
+            synchronized (this) {
+                if (!built) {
+                    forEachParallel.accept((bytes, nid) -> index(nid, bytes));
+                    built = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Posts the component to the stamps of the versions in its bytes, or, for a stamp, indexes it by the times
+     * of its versions.
+     *
+     * @param nid the entity's nid
+     * @param bytes the entity bytes being merged
+     */
+    public void index(int nid, byte[] bytes) {
+        if (bytes == null || bytes.length < 10) {
+            return;
+        }
+        if (bytes[9] == STAMP_DATA_TYPE) {
+            forEachVersion(bytes, offset -> add(stampsByTime.computeIfAbsent(readLong(bytes, offset + 9),
+                    time -> new RoaringBitmap()), nid));
+        } else {
+            forEachVersion(bytes, offset -> add(componentsByStamp.computeIfAbsent(readInt(bytes, offset + 1),
+                    stampNid -> new RoaringBitmap()), nid));
+        }
+    }
+
+    /**
+     * @return the stamps with a version whose time is in the range, inclusive
+     */
+    public RoaringBitmap stampsInTimeRange(long fromEpochMillis, long toEpochMillis) {
+        if (fromEpochMillis > toEpochMillis) {
+            return new RoaringBitmap();
+        }
+        ConcurrentNavigableMap<Long, RoaringBitmap> range = stampsByTime.subMap(fromEpochMillis, true, toEpochMillis, true);
+        return or(new ArrayList<>(range.values()));
+    }
+
+    /**
+     * @return the components with a version on any of the stamps
+     */
+    public RoaringBitmap componentsWithAnyStamp(RoaringBitmap stampNids) {
+        List<RoaringBitmap> postings = new ArrayList<>(stampNids.getCardinality());
+        stampNids.forEach((int stampNid) -> {
+            RoaringBitmap components = componentsByStamp.get(stampNid);
+            if (components != null) {
+                postings.add(components);
+            }
+        });
+        return or(postings);
+    }
+
+    public void forEachComponentWithStamp(int stampNid, IntProcedure procedure) {
+        RoaringBitmap components = componentsByStamp.get(stampNid);
+        if (components != null) {
+            snapshot(components).forEach((int nid) -> procedure.value(nid));
+        }
+    }
+
+    public void clear() {
+        componentsByStamp.clear();
+        stampsByTime.clear();
+        built = false;
+    }
+
+    /**
+     * Visits the stamp nid of each version in entity bytes, without decoding the entity.
+     */
+    public static void forEachStampNid(byte[] bytes, IntProcedure procedure) {
+        forEachVersion(bytes, offset -> procedure.value(readInt(bytes, offset + 1)));
+    }
+
+    /**
+     * Visits the offset of each version array in entity bytes. See {@link EntityBytesMerger} for the layout.
+     */
+    private static void forEachVersion(byte[] bytes, IntProcedure versionOffset) {
+        int arrayCount = readInt(bytes, 0);
+        int position = 4;
+        for (int i = 0; i < arrayCount; i++) {
+            int arraySize = readInt(bytes, position);
+            position += 4;
+            if (i > 0) {
+                versionOffset.value(position);
+            }
+            position += arraySize;
+        }
+    }
+
+    private static void add(RoaringBitmap bitmap, int value) {
+        synchronized (bitmap) {
+            bitmap.add(value);
+        }
+    }
+
+    private static RoaringBitmap snapshot(RoaringBitmap bitmap) {
+        synchronized (bitmap) {
+            return bitmap.clone();
+        }
+    }
+
+    private static RoaringBitmap or(List<RoaringBitmap> bitmaps) {
+        RoaringBitmap[] snapshots = new RoaringBitmap[bitmaps.size()];
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = snapshot(bitmaps.get(i));
+        }
+        return FastAggregation.or(snapshots);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        return ((long) readInt(bytes, offset) << 32) | (readInt(bytes, offset + 4) & 0xFFFFFFFFL);
+    }
+}
@@ -259,6 +259,9 @@
  *   <dd>Interface for low-level data storage and retrieval. Implemented by providers like
  *       SpinedArrayProvider, MVStoreProvider.</dd>
  *
+ *   <dt>{@link dev.ikm.tinkar.common.service.StampPostingsIndex}</dt>
+ *   <dd>Postings of components by stamp and of stamps by time, read from merged entity bytes.</dd>
+ *
  *   <dt>{@link dev.ikm.tinkar.common.service.PrimitiveDataRepair}</dt>
  *   <dd>Interface for data repair operations (merge, erase) - extends PrimitiveDataService.</dd>
  *
@@ -292,6 +295,9 @@
  *   <dt>{@link dev.ikm.tinkar.common.service.CachingService}</dt>
  *   <dd>Interface for services that maintain caches that can be reset.</dd>
  *
+ *   <dt>{@link dev.ikm.tinkar.common.service.CacheStatistics}</dt>
+ *   <dd>Snapshot of the size, hits, misses, and evictions of a cache.</dd>
+ *
  *   <dt>{@link dev.ikm.tinkar.common.service.DefaultDescriptionForNidService}</dt>
  *   <dd>Service for obtaining default text descriptions for concepts.</dd>
  * </dl>
@@ -0,0 +1,312 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.sets;
+
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent set of nids held as primitive ints in striped {@link RoaringBitmap}s, replacing
+ * {@code ConcurrentHashSet<Integer>} where sets grow to millions of nids.
+ * <p>
+ * Nids are assigned to stripes in runs of 64 consecutive values, so threads adding freshly allocated nids
+ * rarely contend, while each stripe still holds dense runs that compress well. Stripes are created on first
+ * use, so small sets (such as the semantics of a rarely used pattern) stay small.
+ * <p>
+ * Iteration is in ascending unsigned order (which is ascending order for the negative nids assigned by the data
+ * services). It reads the stripes in place, one window of {@code stripes * 64} consecutive nids at a time: the
+ * window's runs are copied out of each stripe under the stripe's lock, and the procedure is called with no lock
+ * held. The procedure may therefore add to or remove from the set without deadlocking. Like the iterators of
+ * the concurrent collections, iteration is weakly consistent: it does not see changes to the window being
+ * visited, and may or may not see changes made ahead of it.
+ */
+public class ConcurrentNidSet {
+    public static final int DEFAULT_STRIPES = 64;
+    private static final int RUN_SHIFT = 6;
+
+    private final AtomicReferenceArray<RoaringBitmap> stripes;
+    private final int stripeMask;
+
+    public ConcurrentNidSet() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripeCount the number of independently locked stripes, rounded up to a power of two
+     */
+    public ConcurrentNidSet(int stripeCount) {
+        int stripesPowerOfTwo = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new AtomicReferenceArray<>(stripesPowerOfTwo);
+        this.stripeMask = stripesPowerOfTwo - 1;
+    }
+
+    public static ConcurrentNidSet of(RoaringBitmap nids) {
+        ConcurrentNidSet nidSet = new ConcurrentNidSet();
+        nidSet.addAll(nids);
+        return nidSet;
+    }
+
+    public boolean add(int nid) {
+        RoaringBitmap stripe = stripeFor(nid);
+        synchronized (stripe) {
+            return stripe.checkedAdd(nid);
+        }
+    }
+
+    public boolean remove(int nid) {
+        RoaringBitmap stripe = stripes.get(stripeIndex(nid));
+        if (stripe == null) {
+            return false;
+        }
+        synchronized (stripe) {
+            return stripe.checkedRemove(nid);
+        }
+    }
+
+    public boolean contains(int nid) {
+        RoaringBitmap stripe = stripes.get(stripeIndex(nid));
+        if (stripe == null) {
+            return false;
+        }
+        synchronized (stripe) {
+            return stripe.contains(nid);
+        }
+    }
+
+    /**
+     * Adds every nid in the bitmap.
+     */
+    public void addAll(RoaringBitmap nids) {
+        if (stripes.length() == 1) {
+            RoaringBitmap stripe = stripeFor(0);
+            synchronized (stripe) {
+                stripe.or(nids);
+            }
+            return;
+        }
+        RoaringBitmap[] partitions = new RoaringBitmap[stripes.length()];
+        nids.forEach((int nid) -> {
+            int stripeIndex = stripeIndex(nid);
+            if (partitions[stripeIndex] == null) {
+                partitions[stripeIndex] = new RoaringBitmap();
+            }
+            partitions[stripeIndex].add(nid);
+        });
+        for (int i = 0; i < partitions.length; i++) {
+            if (partitions[i] != null) {
+                RoaringBitmap stripe = stripe(i);
+                synchronized (stripe) {
+                    stripe.or(partitions[i]);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        long size = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            RoaringBitmap stripe = stripes.get(i);
+            if (stripe != null) {
+                synchronized (stripe) {
+                    size += stripe.getLongCardinality();
+                }
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < stripes.length(); i++) {
+            RoaringBitmap stripe = stripes.get(i);
+            if (stripe != null) {
+                synchronized (stripe) {
+                    if (!stripe.isEmpty()) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean notEmpty() {
+        return !isEmpty();
+    }
+
+    public void clear() {
+        for (int i = 0; i < stripes.length(); i++) {
+            RoaringBitmap stripe = stripes.get(i);
+            if (stripe != null) {
+                synchronized (stripe) {
+                    stripe.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the set that is independent of later changes
+     */
+    public RoaringBitmap toBitmap() {
+        RoaringBitmap snapshot = new RoaringBitmap();
+        for (int i = 0; i < stripes.length(); i++) {
+            RoaringBitmap stripe = stripes.get(i);
+            if (stripe != null) {
+                synchronized (stripe) {
+                    snapshot.or(stripe);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the nids in ascending unsigned order
+     */
+    public int[] toArray() {
+        IntCollector collector = new IntCollector(size());
+        forEach(collector);
+        return collector.toArray();
+    }
+
+    public void forEach(IntProcedure procedure) {
+        int stripeCount = stripes.length();
+        long windowSize = (long) stripeCount << RUN_SHIFT;
+        // The unsigned value of the next nid in each stripe, or -1 when the stripe has no more nids.
+        long[] nextNids = new long[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            RoaringBitmap stripe = stripes.get(i);
+            nextNids[i] = -1;
+            if (stripe != null) {
+                synchronized (stripe) {
+                    if (!stripe.isEmpty()) {
+                        nextNids[i] = Integer.toUnsignedLong(stripe.first());
+                    }
+                }
+            }
+        }
+        int[] window = new int[Math.toIntExact(windowSize)];
+        while (true) {
+            long firstNid = Long.MAX_VALUE;
+            for (long nextNid : nextNids) {
+                if (nextNid >= 0 && nextNid < firstNid) {
+                    firstNid = nextNid;
+                }
+            }
+            if (firstNid == Long.MAX_VALUE) {
+                return;
+            }
+            long windowEnd = (firstNid & -windowSize) + windowSize;
+            int count = 0;
+            // Within a window, stripe i holds the i-th run of 64 nids, so visiting stripes in order is nid order.
+            for (int i = 0; i < stripeCount; i++) {
+                if (nextNids[i] < 0 || nextNids[i] >= windowEnd) {
+                    continue;
+                }
+                RoaringBitmap stripe = stripes.get(i);
+                synchronized (stripe) {
+                    PeekableIntIterator iterator = stripe.getIntIterator();
+                    iterator.advanceIfNeeded((int) nextNids[i]);
+                    while (iterator.hasNext() && Integer.toUnsignedLong(iterator.peekNext()) < windowEnd) {
+                        window[count++] = iterator.next();
+                    }
+                    nextNids[i] = iterator.hasNext() ? Integer.toUnsignedLong(iterator.peekNext()) : -1;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                procedure.value(window[i]);
+            }
+        }
+    }
+
+    /**
+     * Converts stripes to their most compact container representation. Worthwhile after a bulk load.
+     */
+    public void trim() {
+        for (int i = 0; i < stripes.length(); i++) {
+            RoaringBitmap stripe = stripes.get(i);
+            if (stripe != null) {
+                synchronized (stripe) {
+                    stripe.runOptimize();
+                    stripe.trim();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the approximate heap used by the stripes
+     */
+    public long sizeInBytes() {
+        long sizeInBytes = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            RoaringBitmap stripe = stripes.get(i);
+            if (stripe != null) {
+                synchronized (stripe) {
+                    sizeInBytes += stripe.getLongSizeInBytes();
+                }
+            }
+        }
+        return sizeInBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentNidSet{size=" + size() + '}';
+    }
+
+    private static final class IntCollector implements IntProcedure {
+        private int[] values;
+        private int count;
+
+        IntCollector(int expectedSize) {
+            this.values = new int[expectedSize];
+        }
+
+        @Override
+        public void value(int value) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.max(16, count * 2));
+            }
+            values[count++] = value;
+        }
+
+        int[] toArray() {
+            return count == values.length ? values : Arrays.copyOf(values, count);
+        }
+    }
+
+    private int stripeIndex(int nid) {
+        return (nid >>> RUN_SHIFT) & stripeMask;
+    }
+
+    private RoaringBitmap stripeFor(int nid) {
+        return stripe(stripeIndex(nid));
+    }
+
+    private RoaringBitmap stripe(int stripeIndex) {
+        RoaringBitmap stripe = stripes.get(stripeIndex);
+        if (stripe == null) {
+            stripes.compareAndSet(stripeIndex, null, new RoaringBitmap());
+            stripe = stripes.get(stripeIndex);
+        }
+        return stripe;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.broadcast;
+
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Broadcasts changed nids in batches rather than one at a time. Dispatched nids accumulate in a bitmap, and are
+ * delivered once per time slice, or at once when the batch reaches its maximum size. A nid dispatched several
+ * times within a slice is delivered once. {@link NidBatchSubscriber}s receive each batch whole; other
+ * subscribers receive its nids one at a time.
+ * <p>
+ * {@link #flush()} is a barrier: when it returns, every nid dispatched before it was called has been delivered.
+ * Writers call it where changes must be visible to readers, such as a transaction commit.
+ * {@link Integer#MIN_VALUE}, the signal to invalidate everything, is delivered at once, after the pending batch.
+ * With a time slice of zero, every nid is delivered as it is dispatched.
+ */
+public class CoalescingNidBroadcaster extends SimpleBroadcaster<Integer> {
+    private static final Logger LOG = LoggerFactory.getLogger(CoalescingNidBroadcaster.class);
+    public static final Duration DEFAULT_TIME_SLICE = Duration.ofMillis(2);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 4096;
+
+    private final long timeSliceNanos;
+    private final int maxBatchSize;
+    private final Supplier<ScheduledExecutorService> scheduler;
+    /**
+     * Held while a batch is delivered, so a flush waits for a delivery in progress.
+     */
+    private final ReentrantLock deliveryLock = new ReentrantLock();
+    private RoaringBitmap pending = new RoaringBitmap();
+    private boolean flushScheduled;
+
+    public CoalescingNidBroadcaster(Duration timeSlice, int maxBatchSize) {
+        this(timeSlice, maxBatchSize, TinkExecutor::scheduled);
+    }
+
+    public CoalescingNidBroadcaster(Duration timeSlice, int maxBatchSize, Supplier<ScheduledExecutorService> scheduler) {
+        this.timeSliceNanos = timeSlice.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void dispatch(Integer nid) {
+        if (nid == Integer.MIN_VALUE || timeSliceNanos == 0) {
+            flush();
+            super.dispatch(nid);
+            return;
+        }
+        boolean flushNow;
+        boolean scheduleFlush = false;
+        synchronized (this) {
+            pending.add(nid);
+            flushNow = pending.getCardinality() >= maxBatchSize;
+            if (!flushNow && !flushScheduled) {
+                flushScheduled = true;
+                scheduleFlush = true;
+            }
+        }
+        flushOrSchedule(flushNow, scheduleFlush);
+    }
+
+    /**
+     * Dispatches the nids changed by a batch write. They join the pending batch, so each is delivered once, in
+     * a single batch when the write is larger than the maximum batch size.
+     *
+     * @param nids the changed nids; must not contain {@link Integer#MIN_VALUE}
+     */
+    public void dispatchAll(RoaringBitmap nids) {
+        if (nids.isEmpty()) {
+            return;
+        }
+        boolean flushNow;
+        boolean scheduleFlush = false;
+        synchronized (this) {
+            pending.or(nids);
+            flushNow = timeSliceNanos == 0 || pending.getCardinality() >= maxBatchSize;
+            if (!flushNow && !flushScheduled) {
+                flushScheduled = true;
+                scheduleFlush = true;
+            }
+        }
+        flushOrSchedule(flushNow, scheduleFlush);
+    }
+
+    private void flushOrSchedule(boolean flushNow, boolean scheduleFlush) {
+        if (flushNow) {
+            flush();
+        } else if (scheduleFlush) {
+            try {
+                scheduler.get().schedule(this::flushScheduled, timeSliceNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // The executor is shutting down; deliver on this thread instead.
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Delivers the pending batch, and waits for any delivery in progress.
+     */
+    public void flush() {
+        deliveryLock.lock();
+        try {
+            RoaringBitmap batch;
+            synchronized (this) {
+                flushScheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new RoaringBitmap();
+            }
+            batch.runOptimize();
+            forEachSubscriber(subscriber -> {
+                if (subscriber instanceof NidBatchSubscriber batchSubscriber) {
+                    batchSubscriber.onNextBatch(batch);
+                } else {
+                    batch.forEach((int nid) -> subscriber.onNext(nid));
+                }
+            });
+        } finally {
+            deliveryLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct nids dispatched but not yet delivered
+     */
+    public synchronized int pendingCount() {
+        return pending.getCardinality();
+    }
+
+    private void flushScheduled() {
+        try {
+            flush();
+        } catch (Throwable t) {
+            LOG.error("Delivering changed nids", t);
+        }
+    }
+}
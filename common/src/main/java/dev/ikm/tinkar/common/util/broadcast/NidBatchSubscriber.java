@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.broadcast;
+
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A subscriber to nid changes that can take a batch of changed nids at once, as delivered by a
+ * {@link CoalescingNidBroadcaster}. A subscriber that keeps caches can then invalidate them in one pass over the
+ * batch, or over the cache, whichever is smaller.
+ */
+public interface NidBatchSubscriber extends Subscriber<Integer> {
+
+    /**
+     * Receives nids that changed since the last batch, each once. The bitmap is shared by all subscribers and
+     * must not be modified.
+     *
+     * @param nids the changed nids
+     */
+    default void onNextBatch(RoaringBitmap nids) {
+        nids.forEach((int nid) -> onNext(nid));
+    }
+}
@@ -20,6 +20,7 @@
 
 import java.lang.ref.WeakReference;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class SimpleBroadcaster<T> implements Broadcaster<T>, Subscriber<T>{
 
@@ -27,13 +28,20 @@
     final CopyOnWriteArrayList<WeakReference<Subscriber<T>>> subscriberWeakReferenceList = new CopyOnWriteArrayList<>();
     // TODO-aks8m: Address the issue of a race condition based on spawning threads that aren't blocking
     public void dispatch(T item) {
+        forEachSubscriber(subscriber -> subscriber.onNext(item));
+    }
+
+    /**
+     * Delivers to each live subscriber. Subscribers that have been collected, or that throw, are removed.
+     */
+    protected void forEachSubscriber(Consumer<Subscriber<T>> delivery) {
         subscriberWeakReferenceList.forEach(subscriberWeakReference -> {
             try {
                 Subscriber<T> subscriber = subscriberWeakReference.get();
                 if (subscriber==null) {
                     subscriberWeakReferenceList.remove(subscriberWeakReference);
                 } else {
-                    subscriber.onNext(item);
+                    delivery.accept(subscriber);
                 }
             } catch (Throwable t) {
                 LOG.error(t.getMessage(), t);
@@ -20,6 +20,7 @@
  */
 
 import dev.ikm.tinkar.common.alert.AlertReportingService;
+import dev.ikm.tinkar.common.metrics.MetricsSource;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.DataServiceController;
 import dev.ikm.tinkar.common.service.DefaultDescriptionForNidService;
@@ -35,6 +36,8 @@
         // 7 in HL7 is not a version reference
 module dev.ikm.tinkar.common {
     requires transitive java.prefs;
+    requires transitive jdk.jfr;
+    requires java.management;
     requires dev.ikm.jpms.activej.bytebuf;
     requires dev.ikm.jpms.activej.common;
     requires org.eclipse.collections.api;
@@ -52,6 +55,8 @@
     exports dev.ikm.tinkar.common.bind.annotations.publicid;
     exports dev.ikm.tinkar.common.id;
     exports dev.ikm.tinkar.common.id.impl;
+    exports dev.ikm.tinkar.common.jfr;
+    exports dev.ikm.tinkar.common.metrics;
     exports dev.ikm.tinkar.common.service;
     exports dev.ikm.tinkar.common.service.llm;
     exports dev.ikm.tinkar.common.service.plugin;
@@ -80,6 +85,7 @@
     uses DataServiceController;
     uses DefaultDescriptionForNidService;
     uses ExecutorController;
+    uses MetricsSource;
     uses PluginServiceLoader;
     uses PublicIdService;
 }
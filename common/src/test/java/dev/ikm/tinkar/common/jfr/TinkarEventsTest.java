@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class TinkarEventsTest {
+    private static final List<Class<? extends Event>> EVENT_CLASSES = List.of(GetBytesEvent.class, MergeEvent.class,
+            SpinePageInEvent.class, EntityMakeEvent.class, LatestCacheMissEvent.class, TransactionCommitEvent.class,
+            IndexEvent.class, SearchEvent.class, ChangeSetWriteEvent.class);
+
+    @Test
+    public void eventsAreDisabledByDefault() {
+        for (Class<? extends Event> eventClass : EVENT_CLASSES) {
+            EventType eventType = EventType.getEventType(eventClass);
+            assertFalse(eventType.isEnabled(), eventType.getName());
+        }
+        assertFalse(new GetBytesEvent().shouldCommit());
+    }
+
+    @Test
+    public void enabledEventIsRecorded(@TempDir Path tempDir) throws IOException {
+        Path recordingFile = tempDir.resolve("tinkar.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("dev.ikm.tinkar.GetBytes").withoutThreshold();
+            recording.start();
+            GetBytesEvent event = new GetBytesEvent();
+            event.begin();
+            if (event.shouldCommit()) {
+                event.provider = "test";
+                event.nid = 42;
+                event.size = 128;
+                event.commit();
+            }
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+        List<RecordedEvent> recordedEvents = RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(recordedEvent -> recordedEvent.getEventType().getName().equals("dev.ikm.tinkar.GetBytes"))
+                .toList();
+        assertEquals(1, recordedEvents.size());
+        assertEquals("test", recordedEvents.getFirst().getString("provider"));
+        assertEquals(42, recordedEvents.getFirst().getInt("nid"));
+        assertEquals(128, recordedEvents.getFirst().getInt("size"));
+    }
+}
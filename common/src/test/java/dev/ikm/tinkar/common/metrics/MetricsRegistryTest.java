@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.metrics;
+
+import dev.ikm.tinkar.common.service.CacheStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void noOpRegistryDiscardsValues() {
+        MetricsRegistry registry = NoOpMetricsRegistry.INSTANCE;
+        Counter counter = registry.counter("test.counter");
+        counter.add(5);
+        registry.histogram("test.histogram").record(10);
+        registry.gauge("test.gauge", () -> 1);
+
+        assertFalse(registry.enabled());
+        assertEquals(0, counter.count());
+        assertEquals(Distribution.EMPTY, registry.timer("test.timer").distribution());
+        assertTrue(registry.values().isEmpty());
+    }
+
+    @Test
+    public void counterAndHistogramValues() {
+        MetricsRegistry registry = new DefaultMetricsRegistry();
+        registry.counter("test.counter").increment();
+        registry.counter("test.counter").add(2);
+        Histogram histogram = registry.histogram("test.histogram");
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        Distribution distribution = histogram.distribution();
+        assertEquals(100, distribution.count());
+        assertEquals(50.5, distribution.mean());
+        assertEquals(100, distribution.max());
+        // 50 is in the bucket from 32 to 63; 99 is in the bucket from 64 to 127, which is limited to the max
+        assertEquals(63, distribution.p50());
+        assertEquals(100, distribution.p99());
+
+        Map<String, Double> values = valuesByName(registry);
+        assertEquals(3.0, values.get("test.counter"));
+        assertEquals(100.0, values.get("test.histogram.count"));
+        assertEquals(100.0, values.get("test.histogram.max"));
+    }
+
+    @Test
+    public void timerValuesAreInMilliseconds() {
+        MetricsRegistry registry = new DefaultMetricsRegistry();
+        registry.timer("test.timer").record(Duration.ofMillis(3));
+
+        Map<String, Double> values = valuesByName(registry);
+        assertEquals(1.0, values.get("test.timer.count"));
+        assertEquals(3.0, values.get("test.timer.max"));
+    }
+
+    @Test
+    public void cacheGauges() {
+        MetricsRegistry registry = new DefaultMetricsRegistry();
+        registry.cache("test.cache", () -> new CacheStatistics("Test cache", 3, 10, 9, 1, 2));
+
+        Map<String, Double> values = valuesByName(registry);
+        assertEquals(3.0, values.get("test.cache.size"));
+        assertEquals(10.0, values.get("test.cache.capacity"));
+        assertEquals(0.9, values.get("test.cache.hitRate"));
+        assertEquals(2.0, values.get("test.cache.evictions"));
+    }
+
+    @Test
+    public void failingGaugeReadsAsNaN() {
+        MetricsRegistry registry = new DefaultMetricsRegistry();
+        registry.gauge("test.failing", () -> {
+            throw new IllegalStateException("closed");
+        });
+        registry.gauge("test.gauge", () -> 1);
+
+        Map<String, Double> values = valuesByName(registry);
+        assertTrue(values.get("test.failing").isNaN());
+        assertEquals(1.0, values.get("test.gauge"));
+    }
+
+    @Test
+    public void nameInUseByAnotherKindIsRejected() {
+        MetricsRegistry registry = new DefaultMetricsRegistry();
+        registry.counter("test.metric");
+        assertThrows(IllegalArgumentException.class, () -> registry.timer("test.metric"));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("test.metric", () -> 0));
+    }
+
+    private static Map<String, Double> valuesByName(MetricsRegistry registry) {
+        return registry.values().stream().collect(Collectors.toMap(MetricValue::name, MetricValue::value));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import dev.ikm.tinkar.common.util.ints2long.IntsInLong;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CitationIndexTest {
+    private static final int COMPONENT = PrimitiveDataService.FIRST_NID;
+    private static final int PATTERN_1 = PrimitiveDataService.FIRST_NID + 1;
+    private static final int PATTERN_2 = PrimitiveDataService.FIRST_NID + 2;
+
+    @Test
+    public void mergeMatchesSetUnion() {
+        Random random = new Random(3);
+        for (int iteration = 0; iteration < 10_000; iteration++) {
+            long[] citations1 = randomCitations(random);
+            long[] citations2 = randomCitations(random);
+            assertArrayEquals(setMerge(citations1, citations2), CitationIndex.merge(citations1, citations2),
+                    "iteration " + iteration);
+        }
+        long[] citations = {1, 5, 9};
+        assertSame(citations, CitationIndex.merge(citations, new long[]{5}));
+        assertSame(citations, CitationIndex.merge(citations, null));
+    }
+
+    @Test
+    public void citationsMoveToHubAndBackToStore() {
+        ConcurrentHashMap<Integer, long[]> map = new ConcurrentHashMap<>();
+        CitationIndex index = new CitationIndex(CitationIndex.Store.of(map), 8);
+        for (int i = 0; i < 8; i++) {
+            index.add(COMPONENT, semanticNid(i), i % 2 == 0 ? PATTERN_1 : PATTERN_2);
+        }
+        assertFalse(index.isHub(COMPONENT));
+        index.add(COMPONENT, semanticNid(8), PATTERN_1);
+        assertTrue(index.isHub(COMPONENT));
+        index.add(COMPONENT, semanticNid(9), PATTERN_2);
+        assertEquals(10, index.citationCount(COMPONENT));
+
+        assertArrayEquals(new int[]{semanticNid(0), semanticNid(2), semanticNid(4), semanticNid(6), semanticNid(8)},
+                citing(index, PATTERN_1));
+        assertTrue(index.remove(COMPONENT, semanticNid(2), PATTERN_1));
+        assertFalse(index.remove(COMPONENT, semanticNid(2), PATTERN_1));
+        assertFalse(index.remove(COMPONENT, semanticNid(3), PATTERN_1));
+        assertEquals(9, index.citationCount(COMPONENT));
+
+        // The store holds the citations as of the promotion until the hub is flushed.
+        assertEquals(9, map.get(COMPONENT).length);
+        index.flush();
+        long[] flushed = map.get(COMPONENT);
+        assertEquals(9, flushed.length);
+        long[] sorted = flushed.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, flushed);
+
+        // A new index over the same store promotes the large array when it is next used.
+        CitationIndex reopened = new CitationIndex(CitationIndex.Store.of(map), 8);
+        assertArrayEquals(citing(index, PATTERN_2), citing(reopened, PATTERN_2));
+        assertTrue(reopened.isHub(COMPONENT));
+
+        index.removeAll(COMPONENT);
+        assertNull(map.get(COMPONENT));
+        assertEquals(0, index.citationCount(COMPONENT));
+    }
+
+    @Test
+    public void smallComponentsStayInStore() {
+        ConcurrentHashMap<Integer, long[]> map = new ConcurrentHashMap<>();
+        CitationIndex index = new CitationIndex(CitationIndex.Store.of(map));
+        index.add(COMPONENT, semanticNid(2), PATTERN_1);
+        index.add(COMPONENT, semanticNid(1), PATTERN_2);
+        index.add(COMPONENT, semanticNid(2), PATTERN_1);
+        assertArrayEquals(new long[]{IntsInLong.ints2Long(semanticNid(1), PATTERN_2),
+                IntsInLong.ints2Long(semanticNid(2), PATTERN_1)}, map.get(COMPONENT));
+        assertArrayEquals(new int[]{semanticNid(1)}, citing(index, PATTERN_2));
+        assertTrue(index.remove(COMPONENT, semanticNid(1), PATTERN_2));
+        assertTrue(index.remove(COMPONENT, semanticNid(2), PATTERN_1));
+        assertNull(map.get(COMPONENT));
+    }
+
+    @Test
+    public void concurrentAddsAcrossPromotionAreNotLost() {
+        int citationCount = 200_000;
+        CitationIndex index = new CitationIndex(CitationIndex.Store.of(new ConcurrentHashMap<>()), 64);
+        IntStream.range(0, citationCount).parallel()
+                .forEach(i -> index.add(COMPONENT + (i % 4), semanticNid(i), i % 3 == 0 ? PATTERN_1 : PATTERN_2));
+        long total = 0;
+        for (int component = COMPONENT; component < COMPONENT + 4; component++) {
+            total += index.citationCount(component);
+        }
+        assertEquals(citationCount, total);
+    }
+
+    @Test
+    public void largeHubRemovalsAreFlushed() {
+        int citationCount = 50_000;
+        int patternCount = 16;
+        int[] patternNids = new int[citationCount];
+        Random random = new Random(17);
+        ConcurrentHashMap<Integer, long[]> map = new ConcurrentHashMap<>();
+        CitationIndex index = new CitationIndex(CitationIndex.Store.of(map));
+        int pattern1Count = 0;
+        for (int i = 0; i < citationCount; i++) {
+            patternNids[i] = PATTERN_1 + random.nextInt(patternCount);
+            if (patternNids[i] == PATTERN_1) {
+                pattern1Count++;
+            }
+            index.add(COMPONENT, semanticNid(i), patternNids[i]);
+        }
+        assertTrue(index.isHub(COMPONENT));
+        assertEquals(citationCount, index.citationCount(COMPONENT));
+        assertEquals(pattern1Count, citing(index, PATTERN_1).length);
+
+        int removalCount = 10_000;
+        for (int i = 0; i < removalCount; i++) {
+            assertTrue(index.remove(COMPONENT, semanticNid(i), patternNids[i]));
+        }
+        index.flush();
+        assertEquals(citationCount - removalCount, map.get(COMPONENT).length);
+    }
+
+    private static int[] citing(CitationIndex index, int patternNid) {
+        MutableIntList citing = IntLists.mutable.empty();
+        index.forEachCitingOfPattern(COMPONENT, patternNid, citing::add);
+        return citing.sortThis().toArray();
+    }
+
+    private static int semanticNid(int i) {
+        return PrimitiveDataService.FIRST_NID + 100 + i;
+    }
+
+    private static long[] randomCitations(Random random) {
+        if (random.nextInt(10) == 0) {
+            return null;
+        }
+        long[] citations = new long[random.nextInt(12)];
+        for (int i = 0; i < citations.length; i++) {
+            citations[i] = IntsInLong.ints2Long(semanticNid(random.nextInt(20)), PATTERN_1 + random.nextInt(3));
+        }
+        return LongSets.mutable.of(citations).toSortedArray();
+    }
+
+    /**
+     * The set union previously used to merge citation arrays, kept as the reference for equivalence.
+     */
+    private static long[] setMerge(long[] citations1, long[] citations2) {
+        if (citations1 == null) {
+            return citations2;
+        }
+        if (citations2 == null) {
+            return citations1;
+        }
+        MutableLongSet citationSet = LongSets.mutable.of(citations1);
+        citationSet.addAll(citations2);
+        return citationSet.toSortedArray();
+    }
+}
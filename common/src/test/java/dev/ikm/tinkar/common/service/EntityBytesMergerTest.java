@@ -0,0 +1,378 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import dev.ikm.tinkar.common.util.uuid.UuidUtil;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.ByteList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.list.primitive.MutableLongList;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.ByteLists;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.eclipse.collections.impl.factory.primitive.LongLists;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.STAMP_DATA_TYPE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class EntityBytesMergerTest {
+    private static final byte ENTITY_FORMAT = 1;
+    private static final int STAMP_POOL = 24;
+
+    @Test
+    public void randomMergesMatchVersionSetMerge() {
+        Random random = new Random(20240611);
+        for (int iteration = 0; iteration < 20_000; iteration++) {
+            MutableIntSet canceled = IntSets.mutable.empty();
+            for (int i = 0; i < STAMP_POOL; i++) {
+                if (random.nextInt(8) == 0) {
+                    canceled.add(stampNid(i));
+                }
+            }
+            IntPredicate canceledStamp = canceled::contains;
+            RandomEntity entity = new RandomEntity(random);
+            byte[] oldBytes = entity.bytes(random);
+            byte[] newBytes = switch (random.nextInt(4)) {
+                // A write of one new version.
+                case 0 -> entity.bytes(random, 1);
+                // The old versions with new ones appended, as written by a transaction.
+                case 1 -> VersionSetMerge.merge(oldBytes, entity.bytes(random, 1 + random.nextInt(3)), stamp -> false);
+                // A concurrently created copy with other UUIDs.
+                case 2 -> entity.withOtherUuids(random).bytes(random);
+                default -> entity.bytes(random);
+            };
+            byte[] expected = VersionSetMerge.merge(oldBytes, newBytes, canceledStamp);
+            byte[] actual = EntityBytesMerger.merge(oldBytes, newBytes, canceledStamp);
+            assertArrayEquals(expected, actual, "iteration " + iteration);
+            // Merging is idempotent.
+            assertArrayEquals(VersionSetMerge.merge(actual, newBytes, canceledStamp),
+                    EntityBytesMerger.merge(actual, newBytes, canceledStamp), "iteration " + iteration);
+        }
+    }
+
+    @Test
+    public void appendedVersionsReturnNewBytes() {
+        Random random = new Random(7);
+        RandomEntity entity = new RandomEntity(random);
+        byte[] oldBytes = entity.bytes(random, 3);
+        byte[] newBytes = VersionSetMerge.merge(oldBytes, entity.bytes(random, 1), stamp -> false);
+        assertSame(newBytes, EntityBytesMerger.merge(oldBytes, newBytes, stamp -> false));
+        assertSame(oldBytes, EntityBytesMerger.merge(oldBytes, null, stamp -> false));
+    }
+
+    private static int stampNid(int stampIndex) {
+        return PrimitiveDataService.FIRST_NID + 1000 + stampIndex;
+    }
+
+    private static class RandomEntity {
+        final byte token;
+        final int nid;
+        final long[] uuidLongs;
+        final byte[] fields;
+        final boolean stamp;
+
+        RandomEntity(Random random) {
+            this.stamp = random.nextInt(6) == 0;
+            this.token = stamp ? STAMP_DATA_TYPE : (byte) (1 + random.nextInt(3));
+            this.nid = PrimitiveDataService.FIRST_NID + random.nextInt(1000);
+            this.uuidLongs = new long[2 * (1 + random.nextInt(3))];
+            for (int i = 0; i < uuidLongs.length; i++) {
+                uuidLongs[i] = random.nextLong();
+            }
+            this.fields = new byte[random.nextInt(9)];
+            random.nextBytes(fields);
+        }
+
+        private RandomEntity(RandomEntity entity, long[] uuidLongs) {
+            this.stamp = entity.stamp;
+            this.token = entity.token;
+            this.nid = entity.nid;
+            this.uuidLongs = uuidLongs;
+            this.fields = entity.fields;
+        }
+
+        RandomEntity withOtherUuids(Random random) {
+            long[] otherUuidLongs = Arrays.copyOf(uuidLongs, uuidLongs.length + 2);
+            otherUuidLongs[otherUuidLongs.length - 2] = random.nextLong();
+            otherUuidLongs[otherUuidLongs.length - 1] = random.nextLong();
+            if (random.nextBoolean()) {
+                // Swap the primordial UUID with the added one.
+                otherUuidLongs[otherUuidLongs.length - 2] = uuidLongs[0];
+                otherUuidLongs[otherUuidLongs.length - 1] = uuidLongs[1];
+                otherUuidLongs[0] = random.nextLong();
+                otherUuidLongs[1] = random.nextLong();
+            }
+            return new RandomEntity(this, otherUuidLongs);
+        }
+
+        byte[] bytes(Random random) {
+            return bytes(random, random.nextInt(8));
+        }
+
+        byte[] bytes(Random random, int versionCount) {
+            try {
+                ByteArrayOutputStream chronology = new ByteArrayOutputStream();
+                DataOutputStream chronologyOut = new DataOutputStream(chronology);
+                chronologyOut.writeByte(token);
+                chronologyOut.writeInt(nid);
+                chronologyOut.writeLong(uuidLongs[0]);
+                chronologyOut.writeLong(uuidLongs[1]);
+                chronologyOut.writeByte(uuidLongs.length - 2);
+                for (int i = 2; i < uuidLongs.length; i++) {
+                    chronologyOut.writeLong(uuidLongs[i]);
+                }
+                chronologyOut.write(fields);
+
+                ByteArrayOutputStream entity = new ByteArrayOutputStream();
+                DataOutputStream entityOut = new DataOutputStream(entity);
+                entityOut.writeInt(versionCount + 1);
+                entityOut.writeInt(chronology.size() + 5);
+                entityOut.writeByte(ENTITY_FORMAT);
+                entityOut.write(chronology.toByteArray());
+                entityOut.writeInt(versionCount);
+                for (int i = 0; i < versionCount; i++) {
+                    byte[] payload = new byte[random.nextInt(4) * 3];
+                    random.nextBytes(payload);
+                    entityOut.writeInt(5 + payload.length);
+                    entityOut.writeByte(stamp ? 25 : token + 3);
+                    entityOut.writeInt(stampNid(random.nextInt(STAMP_POOL)));
+                    entityOut.write(payload);
+                }
+                return entity.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * The merge through sets of byte lists that {@link EntityBytesMerger} replaced, kept as the reference for
+     * equivalence.
+     */
+    private static class VersionSetMerge {
+        static byte[] merge(byte[] oldBytes, byte[] newBytes, IntPredicate canceledStamp) {
+            if (oldBytes == null) {
+                return newBytes;
+            }
+            if (newBytes == null) {
+                return oldBytes;
+            }
+            if (Arrays.equals(oldBytes, newBytes)) {
+                return oldBytes;
+            }
+            try {
+                MutableSet<ByteList> byteArraySet = Sets.mutable.empty();
+                MutableIntList stampList = IntLists.mutable.withInitialCapacity(16);
+                byte entityFormat = newBytes[8];
+                addToSet(newBytes, byteArraySet, stampList, entityFormat);
+                addToSet(oldBytes, byteArraySet, stampList, entityFormat);
+                MutableList<ByteList> byteArrayList = byteArraySet.toList();
+
+                byteArrayList.sort((o1, o2) -> {
+                    int minSize = Math.min(o1.size(), o2.size());
+                    for (int i = 0; i < minSize; i++) {
+                        if (o1.get(i) != o2.get(i)) {
+                            return Integer.compare(o1.get(i), o2.get(i));
+                        }
+                    }
+                    return Integer.compare(o1.size(), o2.size());
+                });
+                // Remove canceled versions here
+                if (byteArrayList.size() > 2) {
+                    MutableList<ByteList> chronologyByteLists = Lists.mutable.empty();
+                    MutableIntList indexesToRemove = IntLists.mutable.empty();
+                    for (int i = 0; i < byteArrayList.size(); i++) {
+                        ByteList versionBytes = byteArrayList.get(i);
+                        byte versionToken = versionBytes.get(0);
+                        switch (versionToken) {
+                            /*
+                                CONCEPT_CHRONOLOGY((byte) 1, ConceptChronology.class),
+                                PATTERN_CHRONOLOGY((byte) 2, PatternChronology.class),
+                                SEMANTIC_CHRONOLOGY((byte) 3, SemanticChronology.class),
+                                STAMP(STAMP_DATA_TYPE, Stamp.class)
+                            */
+                            case 1, 2, 3, STAMP_DATA_TYPE-> chronologyByteLists.add(versionBytes);
+
+                            /*
+                                CONCEPT_VERSION((byte) 4, ConceptVersion.class),
+                                PATTERN_VERSION((byte) 5, PatternVersion.class),
+                                SEMANTIC_VERSION((byte) 6, SemanticVersion.class),
+                                STAMP_VERSION((byte) 25, Stamp.class)
+                             */
+                            case 4, 5, 6, 25 -> {
+                                int stampNid = ((versionBytes.get(1) & 0xFF) << 24) |
+                                        ((versionBytes.get(2) & 0xFF) << 16) |
+                                        ((versionBytes.get(3) & 0xFF) << 8) |
+                                        ((versionBytes.get(4) & 0xFF) << 0);
+                                if (canceledStamp.test(stampNid)) {
+                                    // Garbage collection for canceled versions...
+                                    indexesToRemove.add(i);
+                                }
+                            }
+                            default -> {
+                                // Leave all versions. Need to retain canceled version if component is a stamp.
+                            }
+                        }
+                    }
+                    indexesToRemove.reverseThis().forEach(index -> byteArrayList.remove(index));
+
+                    // UUIDs were added...
+                    if (chronologyByteLists.size() > 1) {
+                        // need to merge into one record for the chronology...
+                        MutableSet<UUID> uuids = Sets.mutable.empty();
+                        for (ByteList chronologyByteList : chronologyByteLists) {
+                            MutableLongList longList = LongLists.mutable.empty();
+                            ByteBuf chronologyBytes = ByteBuf.wrapForReading(chronologyByteList.toArray());
+                            chronologyBytes.readByte(); // EntityType token
+                            chronologyBytes.readInt(); // Entity nid
+                            longList.add(chronologyBytes.readLong()); // Entity most significant bits
+                            longList.add(chronologyBytes.readLong()); // Entity least significant bits
+                            int additionalUuidLongs = chronologyBytes.readByte(); // Additional UUID longs...
+                            for (int i = 0; i < additionalUuidLongs; i++) {
+                                longList.add(chronologyBytes.readLong());
+                            }
+                            uuids.addAll(UuidUtil.toList(longList.toArray()).castToList());
+                        }
+                        ImmutableList<UUID> uuidList = uuids.toImmutableList();
+                        ByteBuf chronologyBytes = ByteBuf.wrapForReading(chronologyByteLists.get(0).toArray());
+                        ByteBuf writeBuf = ByteBufPool.allocate(16 * uuidList.size() + chronologyBytes.array().length);
+                        writeBuf.writeByte(chronologyBytes.readByte()); // EntityType token
+                        writeBuf.writeInt(chronologyBytes.readInt()); // Entity nid
+                        chronologyBytes.readLong(); // Discard msb
+                        chronologyBytes.readLong(); // Discard lsb
+                        int discardAdditionalUuidLongs = chronologyBytes.readByte();
+                        for (int i = 0; i < discardAdditionalUuidLongs; i++) {
+                            chronologyBytes.readLong();
+                        }
+
+                        // write the new UUIDs.
+                        writeBuf.writeLong(uuidList.get(0).getMostSignificantBits());
+                        writeBuf.writeLong(uuidList.get(0).getLeastSignificantBits());
+                        int additionalUuidLongs = uuidList.size() * 2 - 2;
+                        writeBuf.writeByte((byte) additionalUuidLongs);
+                        for (int uuidIndex = 1; uuidIndex < uuidList.size(); uuidIndex++) {
+                            writeBuf.writeLong(uuidList.get(uuidIndex).getMostSignificantBits());
+                            writeBuf.writeLong(uuidList.get(uuidIndex).getLeastSignificantBits());
+                        }
+                        while (chronologyBytes.canRead()) {
+                            writeBuf.writeByte(chronologyBytes.readByte());
+                        }
+                        byteArrayList.removeAll(chronologyByteLists);
+                        byteArrayList.add(0, ByteLists.immutable.of(writeBuf.asArray()));
+                    }
+                }
+
+                ByteBuf byteBuf = ByteBufPool.allocate(oldBytes.length + newBytes.length);
+                byteBuf.writeInt(byteArrayList.size());
+                boolean first = true;
+                for (ByteList byteArray : byteArrayList) {
+                    if (first) {
+                        // Add 4 to have room for the number of versions.
+                        // Add 1 for the entity format token
+                        byteBuf.writeInt(byteArray.size() + 5);
+                        byteBuf.writeByte(entityFormat);
+                        byteArray.forEach(b -> {
+                            byteBuf.put(b);
+                        });
+                        // write the number of versions...
+                        byteBuf.writeInt(byteArrayList.size() - 1);
+                        first = false;
+                    } else {
+                        byteBuf.writeInt(byteArray.size());
+                        byteArray.forEach(b -> {
+                            byteBuf.put(b);
+                        });
+                    }
+                }
+                return byteBuf.asArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * @param bytes
+         * @param byteArraySet
+         * @param stampsInSet  represents the stamps already added to the set. If two versions with the same stamp are being merged,
+         *                     the newer version must be the merged version, as it represents a newer edit. There is an assumption that
+         *                     the edits of a single version under a single stamp value are sequential, not concurrent.
+         * @throws IOException
+         */
+        private static void addToSet(byte[] bytes, MutableSet<ByteList> byteArraySet, MutableIntList stampsInSet,
+                                     byte entityFormat) throws IOException {
+            ByteBuf readBuf = ByteBuf.wrapForReading(bytes);
+            boolean stampDataType = bytes[9] == STAMP_DATA_TYPE;
+            int arrayCount = readBuf.readInt();
+            for (int i = 0; i < arrayCount; i++) {
+                int arraySize = readBuf.readInt();
+                if (i == 0) {
+                    byte localEntityFormat = readBuf.readByte();
+                    if (localEntityFormat != entityFormat) {
+                        throw new IllegalStateException("All entities should be the same format. Found: " + entityFormat + " != " + localEntityFormat);
+                    }
+                    // The first array is the chronicle, and has a field for the number of versions...
+                    // Add one for the entityFormat token.
+                    byte[] newArray = new byte[arraySize - 5];
+                    readBuf.read(newArray);
+                    byteArraySet.add(ByteLists.immutable.of(newArray));
+                    int versionCount = readBuf.readInt();
+                    if (versionCount != arrayCount - 1) {
+                        throw new IllegalStateException("Malformed data. versionCount: " +
+                                versionCount + " arrayCount: " + arrayCount);
+                    }
+                    // Version count is not included as the version count may change as a result of merge.
+                    // It must be added back in after sorting unique versions.
+                } else {
+                    byte[] newArray = new byte[arraySize];
+                    readBuf.read(newArray);
+                    if (stampDataType) {
+                        byteArraySet.add(ByteLists.immutable.of(newArray));
+                    } else {
+                        int stampNid = ((newArray[1] & 0xFF) << 24) |
+                                ((newArray[2] & 0xFF) << 16) |
+                                ((newArray[3] & 0xFF) << 8) |
+                                ((newArray[4] & 0xFF) << 0);
+                        if (stampsInSet.contains(stampNid)) {
+                            // Don't add, a newer version already exists (assuming addToSet is called in order of newest to oldest bytearray)
+                            // There should be no concurrent editing on versions with the same stamp.
+                        } else {
+                            byteArraySet.add(ByteLists.immutable.of(newArray));
+                            stampsInSet.add(stampNid);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.service;
+
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.FIRST_NID;
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.STAMP_DATA_TYPE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StampPostingsIndexTest {
+    private static final int STAMP_1 = FIRST_NID;
+    private static final int STAMP_2 = FIRST_NID + 1;
+    private static final int STAMP_3 = FIRST_NID + 2;
+    private static final int CONCEPT_1 = FIRST_NID + 10;
+    private static final int CONCEPT_2 = FIRST_NID + 11;
+
+    @Test
+    public void componentsArePostedToTheStampsOfTheirVersions() {
+        StampPostingsIndex index = new StampPostingsIndex();
+        index.index(STAMP_1, stampBytes(STAMP_1, 1_000L));
+        index.index(STAMP_2, stampBytes(STAMP_2, Long.MAX_VALUE, 2_000L));
+        index.index(STAMP_3, stampBytes(STAMP_3, 3_000L));
+        index.index(CONCEPT_1, conceptBytes(CONCEPT_1, STAMP_1));
+        // Merging a new version posts only its stamp, the earlier one stays posted.
+        index.index(CONCEPT_1, conceptBytes(CONCEPT_1, STAMP_2));
+        index.index(CONCEPT_2, conceptBytes(CONCEPT_2, STAMP_3));
+
+        assertEquals(RoaringBitmap.bitmapOf(STAMP_2), index.stampsInTimeRange(1_500L, 2_500L));
+        assertEquals(RoaringBitmap.bitmapOf(STAMP_1, STAMP_2, STAMP_3), index.stampsInTimeRange(0L, Long.MAX_VALUE));
+        assertTrue(index.stampsInTimeRange(3_001L, 3_000L).isEmpty());
+
+        assertEquals(RoaringBitmap.bitmapOf(CONCEPT_1), index.componentsWithAnyStamp(RoaringBitmap.bitmapOf(STAMP_1, STAMP_2)));
+        assertEquals(RoaringBitmap.bitmapOf(CONCEPT_1, CONCEPT_2),
+                index.componentsWithAnyStamp(index.stampsInTimeRange(0L, 5_000L)));
+        MutableIntList withStamp3 = IntLists.mutable.empty();
+        index.forEachComponentWithStamp(STAMP_3, withStamp3::add);
+        assertArrayEquals(new int[]{CONCEPT_2}, withStamp3.toArray());
+    }
+
+    @Test
+    public void buildsOnceFromStoredBytes() {
+        StampPostingsIndex index = new StampPostingsIndex();
+        assertFalse(index.isBuilt());
+        int[] builds = new int[1];
+        index.ensureBuilt(action -> {
+            builds[0]++;
+            action.accept(stampBytes(STAMP_1, 1_000L), STAMP_1);
+            action.accept(conceptBytes(CONCEPT_1, STAMP_1), CONCEPT_1);
+        });
+        index.ensureBuilt(action -> builds[0]++);
+        assertEquals(1, builds[0]);
+        assertTrue(index.isBuilt());
+        assertEquals(RoaringBitmap.bitmapOf(CONCEPT_1), index.componentsWithAnyStamp(index.stampsInTimeRange(0L, 1_000L)));
+
+        MutableIntList stampNids = IntLists.mutable.empty();
+        StampPostingsIndex.forEachStampNid(conceptBytes(CONCEPT_1, STAMP_1, STAMP_3), stampNids::add);
+        assertArrayEquals(new int[]{STAMP_1, STAMP_3}, stampNids.toArray());
+    }
+
+    private static byte[] conceptBytes(int nid, int... stampNids) {
+        return entityBytes((byte) 1, nid, stampNids.length, (out, i) -> {
+            out.writeByte(4);
+            out.writeInt(stampNids[i]);
+        });
+    }
+
+    private static byte[] stampBytes(int nid, long... times) {
+        return entityBytes(STAMP_DATA_TYPE, nid, times.length, (out, i) -> {
+            out.writeByte(25);
+            out.writeInt(nid);
+            out.writeInt(FIRST_NID + 100);
+            out.writeLong(times[i]);
+            out.writeInt(FIRST_NID + 101);
+            out.writeInt(FIRST_NID + 102);
+            out.writeInt(FIRST_NID + 103);
+        });
+    }
+
+    private interface VersionWriter {
+        void write(DataOutputStream out, int versionIndex) throws IOException;
+    }
+
+    private static byte[] entityBytes(byte token, int nid, int versionCount, VersionWriter versionWriter) {
+        try {
+            ByteArrayOutputStream entity = new ByteArrayOutputStream();
+            DataOutputStream entityOut = new DataOutputStream(entity);
+            entityOut.writeInt(versionCount + 1);
+            // Format, token, nid, uuid msb and lsb, additional uuid count, version count.
+            entityOut.writeInt(1 + 1 + 4 + 16 + 1 + 4);
+            entityOut.writeByte(1);
+            entityOut.writeByte(token);
+            entityOut.writeInt(nid);
+            entityOut.writeLong(nid);
+            entityOut.writeLong(nid);
+            entityOut.writeByte(0);
+            entityOut.writeInt(versionCount);
+            for (int i = 0; i < versionCount; i++) {
+                ByteArrayOutputStream version = new ByteArrayOutputStream();
+                versionWriter.write(new DataOutputStream(version), i);
+                entityOut.writeInt(version.size());
+                entityOut.write(version.toByteArray());
+            }
+            return entity.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.sets;
+
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentNidSetTest {
+
+    @Test
+    public void addRemoveAndIterateInNidOrder() {
+        ConcurrentNidSet nidSet = new ConcurrentNidSet();
+        assertTrue(nidSet.isEmpty());
+        int[] nids = {PrimitiveDataService.FIRST_NID + 500, PrimitiveDataService.FIRST_NID, -1, PrimitiveDataService.FIRST_NID + 64};
+        for (int nid : nids) {
+            assertTrue(nidSet.add(nid));
+        }
+        assertFalse(nidSet.add(PrimitiveDataService.FIRST_NID));
+        assertEquals(4, nidSet.size());
+        assertTrue(nidSet.contains(-1));
+        assertTrue(nidSet.remove(-1));
+        assertFalse(nidSet.remove(-1));
+        assertFalse(nidSet.contains(-1));
+
+        MutableIntList iterated = IntLists.mutable.empty();
+        nidSet.forEach(nid -> {
+            iterated.add(nid);
+            // Changes during iteration are allowed, and not seen by the iteration.
+            nidSet.add(nid + 1);
+        });
+        assertArrayEquals(new int[]{PrimitiveDataService.FIRST_NID, PrimitiveDataService.FIRST_NID + 64,
+                PrimitiveDataService.FIRST_NID + 500}, iterated.toArray());
+        assertEquals(6, nidSet.size());
+    }
+
+    @Test
+    public void concurrentAddsAreNotLost() {
+        int nidCount = 1_000_000;
+        ConcurrentNidSet nidSet = new ConcurrentNidSet();
+        IntStream.range(0, nidCount).parallel().forEach(i -> nidSet.add(PrimitiveDataService.FIRST_NID + i));
+        assertEquals(nidCount, nidSet.size());
+        AtomicInteger expected = new AtomicInteger(PrimitiveDataService.FIRST_NID);
+        nidSet.forEach(nid -> assertEquals(expected.getAndIncrement(), nid));
+    }
+
+    @Test
+    public void iterationSpansWindowsAndStripes() {
+        ConcurrentNidSet nidSet = new ConcurrentNidSet(4);
+        int[] nids = {PrimitiveDataService.FIRST_NID, PrimitiveDataService.FIRST_NID + 63,
+                PrimitiveDataService.FIRST_NID + 64, PrimitiveDataService.FIRST_NID + 255,
+                PrimitiveDataService.FIRST_NID + 256, PrimitiveDataService.FIRST_NID + 100_000, -1, 0, 1,
+                Integer.MAX_VALUE};
+        for (int i = nids.length - 1; i >= 0; i--) {
+            nidSet.add(nids[i]);
+        }
+        // Ascending unsigned order: zero and the positive values sort before the negative nids.
+        int[] expected = {0, 1, Integer.MAX_VALUE, PrimitiveDataService.FIRST_NID, PrimitiveDataService.FIRST_NID + 63,
+                PrimitiveDataService.FIRST_NID + 64, PrimitiveDataService.FIRST_NID + 255,
+                PrimitiveDataService.FIRST_NID + 256, PrimitiveDataService.FIRST_NID + 100_000, -1};
+        assertArrayEquals(expected, nidSet.toArray());
+        assertArrayEquals(expected, nidSet.toBitmap().toArray());
+        assertArrayEquals(new int[0], new ConcurrentNidSet().toArray());
+    }
+}
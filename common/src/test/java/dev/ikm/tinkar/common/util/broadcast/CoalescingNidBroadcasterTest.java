@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.common.util.broadcast;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CoalescingNidBroadcasterTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    public void stopScheduler() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void dispatchesAreCoalescedUntilFlushed() {
+        CoalescingNidBroadcaster broadcaster = new CoalescingNidBroadcaster(Duration.ofHours(1), 1000, () -> scheduler);
+        RecordingSubscriber batchSubscriber = new RecordingSubscriber();
+        List<Integer> single = new CopyOnWriteArrayList<>();
+        Subscriber<Integer> singleSubscriber = single::add;
+        broadcaster.addSubscriberWithWeakReference(batchSubscriber);
+        broadcaster.addSubscriberWithWeakReference(singleSubscriber);
+
+        broadcaster.dispatch(3);
+        broadcaster.dispatch(1);
+        broadcaster.dispatch(3);
+        assertEquals(2, broadcaster.pendingCount());
+        assertTrue(batchSubscriber.batches.isEmpty());
+
+        broadcaster.flush();
+        assertEquals(List.of(RoaringBitmap.bitmapOf(1, 3)), batchSubscriber.batches);
+        assertEquals(List.of(1, 3), single);
+        broadcaster.flush();
+        assertEquals(1, batchSubscriber.batches.size());
+    }
+
+    @Test
+    public void fullBatchIsDeliveredOnDispatch() {
+        CoalescingNidBroadcaster broadcaster = new CoalescingNidBroadcaster(Duration.ofHours(1), 4, () -> scheduler);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        for (int nid = 0; nid < 10; nid++) {
+            broadcaster.dispatch(nid);
+        }
+        assertEquals(List.of(RoaringBitmap.bitmapOf(0, 1, 2, 3), RoaringBitmap.bitmapOf(4, 5, 6, 7)),
+                subscriber.batches);
+        assertEquals(2, broadcaster.pendingCount());
+    }
+
+    @Test
+    public void batchWriteIsDeliveredWhole() {
+        CoalescingNidBroadcaster broadcaster = new CoalescingNidBroadcaster(Duration.ofHours(1), 4, () -> scheduler);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        broadcaster.dispatch(1);
+        broadcaster.dispatchAll(RoaringBitmap.bitmapOf(1, 2));
+        assertTrue(subscriber.batches.isEmpty());
+        broadcaster.dispatchAll(RoaringBitmap.bitmapOf(3, 4, 5, 6, 7, 8));
+        assertEquals(List.of(RoaringBitmap.bitmapOf(1, 2, 3, 4, 5, 6, 7, 8)), subscriber.batches);
+        assertEquals(0, broadcaster.pendingCount());
+    }
+
+    @Test
+    public void invalidateAllFollowsPendingBatch() {
+        CoalescingNidBroadcaster broadcaster = new CoalescingNidBroadcaster(Duration.ofHours(1), 1000, () -> scheduler);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        broadcaster.dispatch(5);
+        broadcaster.dispatch(Integer.MIN_VALUE);
+        assertEquals(List.of(RoaringBitmap.bitmapOf(5)), subscriber.batches);
+        assertEquals(List.of(Integer.MIN_VALUE), subscriber.singles);
+    }
+
+    @Test
+    public void timeSliceDeliversWithoutFlush() throws InterruptedException {
+        CoalescingNidBroadcaster broadcaster = new CoalescingNidBroadcaster(Duration.ofMillis(1), 1000, () -> scheduler);
+        CountDownLatch delivered = new CountDownLatch(1);
+        NidBatchSubscriber subscriber = new NidBatchSubscriber() {
+            @Override
+            public void onNext(Integer item) {
+            }
+
+            @Override
+            public void onNextBatch(RoaringBitmap nids) {
+                delivered.countDown();
+            }
+        };
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        broadcaster.dispatch(42);
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void zeroTimeSliceDeliversEachNid() {
+        CoalescingNidBroadcaster broadcaster = new CoalescingNidBroadcaster(Duration.ZERO, 1000, () -> scheduler);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.addSubscriberWithWeakReference(subscriber);
+        broadcaster.dispatch(7);
+        broadcaster.dispatch(7);
+        assertEquals(List.of(7, 7), subscriber.singles);
+        assertTrue(subscriber.batches.isEmpty());
+    }
+
+    private static class RecordingSubscriber implements NidBatchSubscriber {
+        final List<RoaringBitmap> batches = new CopyOnWriteArrayList<>();
+        final List<Integer> singles = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onNext(Integer nid) {
+            singles.add(nid);
+        }
+
+        @Override
+        public void onNextBatch(RoaringBitmap nids) {
+            batches.add(nids.clone());
+        }
+    }
+}
@@ -18,8 +18,13 @@
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import dev.ikm.tinkar.collection.ConcurrentReferenceHashMap;
 import dev.ikm.tinkar.common.id.IntIdList;
+import dev.ikm.tinkar.common.metrics.MetricsRegistry;
+import dev.ikm.tinkar.common.metrics.MetricsSource;
+import dev.ikm.tinkar.common.service.CacheStatistics;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.coordinate.language.LanguageCoordinate;
@@ -46,8 +51,12 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.function.Function;
 
 public class LanguageCalculatorWithCache implements LanguageCalculator {
     /**
@@ -60,15 +69,15 @@ public class LanguageCalculatorWithCache implements LanguageCalculator {
     final StampCalculator stampCalculator;
     final ImmutableList<LanguageCoordinateRecord> languageCoordinateList;
     private final Cache<Integer, String> preferredCache =
-            Caffeine.newBuilder().maximumSize(10240).build();
+            Caffeine.newBuilder().maximumSize(10240).recordStats().build();
     private final Cache<Integer, String> fqnCache =
-            Caffeine.newBuilder().maximumSize(10240).build();
+            Caffeine.newBuilder().maximumSize(10240).recordStats().build();
     private final Cache<Integer, String> descriptionCache =
-            Caffeine.newBuilder().maximumSize(10240).build();
+            Caffeine.newBuilder().maximumSize(10240).recordStats().build();
     private final Cache<Integer, String> definitionCache =
-            Caffeine.newBuilder().maximumSize(1024).build();
+            Caffeine.newBuilder().maximumSize(1024).recordStats().build();
     private final Cache<Integer, ImmutableList<SemanticEntity>> descriptionsForComponentCache =
-            Caffeine.newBuilder().maximumSize(1024).build();
+            Caffeine.newBuilder().maximumSize(1024).recordStats().build();
 
     private final CacheInvalidationSubscriber cacheInvalidationSubscriber = new CacheInvalidationSubscriber();
 
@@ -98,11 +107,66 @@ private static record StampLangRecord(StampCoordinateRecord stampFilter,
                                           ImmutableList<LanguageCoordinateRecord> languageCoordinateList) {
     }
 
-    public static class CacheProvider implements CachingService {
+    /**
+     * The caches each calculator keeps, with the names of their statistics and metrics.
+     */
+    private enum CalculatorCache {
+        PREFERRED("Language calculator preferred cache", "languageCalculator.preferred",
+                calculator -> calculator.preferredCache),
+        FQN("Language calculator fully qualified name cache", "languageCalculator.fqn",
+                calculator -> calculator.fqnCache),
+        DESCRIPTION("Language calculator description cache", "languageCalculator.description",
+                calculator -> calculator.descriptionCache),
+        DEFINITION("Language calculator definition cache", "languageCalculator.definition",
+                calculator -> calculator.definitionCache),
+        DESCRIPTIONS_FOR_COMPONENT("Language calculator descriptions for component cache",
+                "languageCalculator.descriptionsForComponent", calculator -> calculator.descriptionsForComponentCache);
+
+        private final String statisticsName;
+        private final String metricName;
+        private final Function<LanguageCalculatorWithCache, Cache<?, ?>> cacheOfCalculator;
+
+        CalculatorCache(String statisticsName, String metricName,
+                        Function<LanguageCalculatorWithCache, Cache<?, ?>> cacheOfCalculator) {
+            this.statisticsName = statisticsName;
+            this.metricName = metricName;
+            this.cacheOfCalculator = cacheOfCalculator;
+        }
+
+        /**
+         * Sums the statistics of this cache over the calculators currently held, so the totals drop when
+         * calculators are reset or collected.
+         */
+        CacheStatistics statistics() {
+            List<CacheStatistics> statistics = new ArrayList<>();
+            for (LanguageCalculatorWithCache calculator : SINGLETONS.values()) {
+                Cache<?, ?> cache = cacheOfCalculator.apply(calculator);
+                CacheStats stats = cache.stats();
+                statistics.add(new CacheStatistics(statisticsName, cache.estimatedSize(),
+                        cache.policy().eviction().map(Policy.Eviction::getMaximum).orElse(Long.MAX_VALUE),
+                        stats.hitCount(), stats.missCount(), stats.evictionCount()));
+            }
+            return CacheStatistics.sum(statisticsName, statistics);
+        }
+    }
+
+    public static class CacheProvider implements CachingService, MetricsSource {
         @Override
         public void reset() {
             SINGLETONS.clear();
         }
+
+        @Override
+        public List<CacheStatistics> statistics() {
+            return Arrays.stream(CalculatorCache.values()).map(CalculatorCache::statistics).toList();
+        }
+
+        @Override
+        public void registerMetrics(MetricsRegistry registry) {
+            for (CalculatorCache calculatorCache : CalculatorCache.values()) {
+                registry.cache(calculatorCache.metricName, calculatorCache::statistics);
+            }
+        }
     }
 
     @Override
@@ -70,6 +70,17 @@ default IntIdSet kindOf(ConceptFacade concept) {
 
     IntIdSet kindOf(int conceptNid);
 
+    default boolean isDescendentOf(ConceptFacade descendent, ConceptFacade ancestor) {
+        return isDescendentOf(descendent.nid(), ancestor.nid());
+    }
+
+    /**
+     * @return true if the ancestor is reachable from the descendent through one or more parents
+     */
+    default boolean isDescendentOf(int descendentNid, int ancestorNid) {
+        return ancestorsOf(descendentNid).contains(ancestorNid);
+    }
+
     default ImmutableList<Edge> parentEdges(ConceptFacade concept) {
         return childEdges(concept.nid());
     }
@@ -32,6 +32,7 @@
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculator;
 import dev.ikm.tinkar.coordinate.stamp.calculator.StampCalculatorWithCache;
 import dev.ikm.tinkar.coordinate.view.VertexSortNaturalOrder;
+import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.EntityHandle;
 import dev.ikm.tinkar.entity.PatternEntityVersion;
 import dev.ikm.tinkar.entity.SemanticEntityVersion;
@@ -45,6 +46,7 @@
 import org.eclipse.collections.impl.factory.primitive.IntLists;
 import org.eclipse.collections.impl.factory.primitive.IntObjectMaps;
 import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,7 +56,6 @@
 /**
  * TODO: Filter vertex concepts by status values.
  * TODO: Sort based on patterns in addition to natural order
- *  TODO: add cache of descendents, ancestors, and similar.
  */
 public class NavigationCalculatorWithCache implements NavigationCalculator {
     /**
@@ -68,6 +69,7 @@ public class NavigationCalculatorWithCache implements NavigationCalculator {
     private final StampCalculatorWithCache vertexStampCalculator;
     private final LanguageCalculatorWithCache languageCalculator;
     private final NavigationCoordinateRecord navigationCoordinate;
+    private final NavigationClosureCache closureCache;
 
     public NavigationCalculatorWithCache(StampCoordinateRecord stampFilter,
                                          ImmutableList<LanguageCoordinateRecord> languageCoordinateList,
@@ -76,6 +78,8 @@ public NavigationCalculatorWithCache(StampCoordinateRecord stampFilter,
         this.languageCalculator = LanguageCalculatorWithCache.getCalculator(stampFilter, languageCoordinateList);
         this.navigationCoordinate = navigationCoordinate;
         this.vertexStampCalculator = StampCalculatorWithCache.getCalculator(stampFilter.withAllowedStates(navigationCoordinate.vertexStates()));
+        this.closureCache = new NavigationClosureCache(this);
+        Entity.provider().addSubscriberWithWeakReference(this.closureCache);
     }
 
     /**
@@ -101,24 +105,6 @@ public LanguageCalculator languageCalculator() {
         return languageCalculator;
     }
 
-    private void addDescendents(int conceptNid, MutableIntSet nidSet) {
-        if (!nidSet.contains(conceptNid)) {
-            childrenOf(conceptNid).forEach(childNid -> {
-                addDescendents(childNid, nidSet);
-                nidSet.add(childNid);
-            });
-        }
-    }
-
-    private void addAncestors(int conceptNid, MutableIntSet nidSet) {
-        if (!nidSet.contains(conceptNid)) {
-            parentsOf(conceptNid).forEach(parentNid -> {
-                addAncestors(parentNid, nidSet);
-                nidSet.add(parentNid);
-            });
-        }
-    }
-
     @Override
     public StampCalculatorWithCache vertexStampCalculator() {
         return this.vertexStampCalculator;
@@ -146,23 +132,31 @@ public IntIdList unsortedParentsOf(int conceptNid) {
 
     @Override
     public IntIdSet descendentsOf(int conceptNid) {
-        MutableIntSet nidSet = IntSets.mutable.empty();
-        addDescendents(conceptNid, nidSet);
-        return IntIds.set.of(nidSet.toArray());
+        return IntIds.set.of(closureCache.descendents(conceptNid).toArray());
     }
 
     @Override
     public IntIdSet ancestorsOf(int conceptNid) {
-        MutableIntSet nidSet = IntSets.mutable.empty();
-        addAncestors(conceptNid, nidSet);
-        return IntIds.set.of(nidSet.toArray());
+        return IntIds.set.of(closureCache.ancestors(conceptNid).toArray());
     }
 
     @Override
     public IntIdSet kindOf(int conceptNid) {
-        MutableIntSet kindOfSet = IntSets.mutable.of(conceptNid);
-        kindOfSet.addAll(descendentsOf(conceptNid).toArray());
-        return IntIds.set.of(kindOfSet.toArray());
+        return IntIds.set.of(kindOfBitmap(conceptNid).toArray());
+    }
+
+    /**
+     * @return the concept and its descendents, as a bitmap that the caller may modify
+     */
+    public RoaringBitmap kindOfBitmap(int conceptNid) {
+        RoaringBitmap kindOf = closureCache.descendents(conceptNid).clone();
+        kindOf.add(conceptNid);
+        return kindOf;
+    }
+
+    @Override
+    public boolean isDescendentOf(int descendentNid, int ancestorNid) {
+        return closureCache.ancestors(descendentNid).contains(ancestorNid);
     }
 
     @Override
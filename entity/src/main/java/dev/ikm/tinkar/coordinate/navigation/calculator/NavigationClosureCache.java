@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.navigation.calculator;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.ikm.tinkar.common.id.IntIdList;
+import dev.ikm.tinkar.common.id.IntIdSet;
+import dev.ikm.tinkar.common.util.broadcast.NidBatchSubscriber;
+import dev.ikm.tinkar.entity.ConceptEntity;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.PatternEntity;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Memoized transitive closures of the navigation graph of one {@link NavigationCalculatorWithCache}.
+ * <p>
+ * The descendents and the ancestors of a concept are each kept as a bitmap, computed from the closures of its
+ * children or parents, which are memoized on the way. Repeated subsumption tests and kind-of queries are then a
+ * bitmap lookup rather than a walk of the navigation semantics.
+ * <p>
+ * Closures are patched rather than dropped when navigation changes: when the navigation semantic of a concept
+ * changes, the closures of the concept, and the cached closures that include the concept, which are the descendent
+ * closures of its ancestors and the ancestor closures of its descendents, are removed. Closures that do not reach the
+ * concept are kept. A change to a concept, which may change whether it is a vertex, is handled as a change to
+ * the navigation of its parents and children. A change to a navigation pattern removes all closures. A closure being
+ * computed while closures are removed is returned but not kept.
+ */
+final class NavigationClosureCache implements NidBatchSubscriber {
+    private static final Logger LOG = LoggerFactory.getLogger(NavigationClosureCache.class);
+    /**
+     * Maximum size of the closure bitmaps kept for each direction, in bytes.
+     */
+    public static final long MAX_CLOSURE_BYTES = 64L * 1024 * 1024;
+
+    private final NavigationCalculator calculator;
+    private final IntFunction<IntIdList> childrenOf;
+    private final IntFunction<IntIdList> parentsOf;
+    private final Cache<Integer, RoaringBitmap> descendentClosures = newClosureCache();
+    private final Cache<Integer, RoaringBitmap> ancestorClosures = newClosureCache();
+    private final AtomicLong generation = new AtomicLong();
+
+    NavigationClosureCache(NavigationCalculator calculator) {
+        this(calculator, calculator::unsortedChildrenOf, calculator::unsortedParentsOf);
+    }
+
+    NavigationClosureCache(NavigationCalculator calculator, IntFunction<IntIdList> childrenOf,
+                           IntFunction<IntIdList> parentsOf) {
+        this.calculator = calculator;
+        this.childrenOf = childrenOf;
+        this.parentsOf = parentsOf;
+    }
+
+    private static Cache<Integer, RoaringBitmap> newClosureCache() {
+        return Caffeine.newBuilder().maximumWeight(MAX_CLOSURE_BYTES)
+                .<Integer, RoaringBitmap>weigher((nid, closure) -> closure.getSizeInBytes()).build();
+    }
+
+    /**
+     * @return the descendents of the concept; not to be modified
+     */
+    RoaringBitmap descendents(int conceptNid) {
+        return closure(conceptNid, descendentClosures, childrenOf);
+    }
+
+    /**
+     * @return the ancestors of the concept; not to be modified
+     */
+    RoaringBitmap ancestors(int conceptNid) {
+        return closure(conceptNid, ancestorClosures, parentsOf);
+    }
+
+    private RoaringBitmap closure(int conceptNid, Cache<Integer, RoaringBitmap> closures, IntFunction<IntIdList> next) {
+        RoaringBitmap closure = closures.getIfPresent(conceptNid);
+        if (closure != null) {
+            return closure;
+        }
+        long startGeneration = generation.get();
+        try {
+            return closure(conceptNid, closures, next, IntSets.mutable.empty(), startGeneration);
+        } catch (NavigationCycleException e) {
+            LOG.warn("Navigation cycle through {}; closure of {} will not be cached", e.conceptNid, conceptNid);
+            return walk(conceptNid, next);
+        }
+    }
+
+    private RoaringBitmap closure(int conceptNid, Cache<Integer, RoaringBitmap> closures, IntFunction<IntIdList> next,
+                                  MutableIntSet inProgress, long startGeneration) {
+        RoaringBitmap closure = closures.getIfPresent(conceptNid);
+        if (closure != null) {
+            return closure;
+        }
+        if (!inProgress.add(conceptNid)) {
+            throw new NavigationCycleException(conceptNid);
+        }
+        closure = new RoaringBitmap();
+        for (int nextNid : next.apply(conceptNid).toArray()) {
+            closure.add(nextNid);
+            closure.or(closure(nextNid, closures, next, inProgress, startGeneration));
+        }
+        inProgress.remove(conceptNid);
+        closure.runOptimize();
+        // Put, then check: removals increment the generation before removing, so a removal that the check misses
+        // runs after the put and removes the closure itself.
+        closures.put(conceptNid, closure);
+        if (generation.get() != startGeneration) {
+            closures.asMap().remove(conceptNid, closure);
+        }
+        return closure;
+    }
+
+    private static RoaringBitmap walk(int conceptNid, IntFunction<IntIdList> next) {
+        RoaringBitmap closure = new RoaringBitmap();
+        MutableIntSet toVisit = IntSets.mutable.of(conceptNid);
+        while (toVisit.notEmpty()) {
+            MutableIntSet nextToVisit = IntSets.mutable.empty();
+            toVisit.forEach(nid -> next.apply(nid).forEach(nextNid -> {
+                if (closure.checkedAdd(nextNid)) {
+                    nextToVisit.add(nextNid);
+                }
+            }));
+            toVisit = nextToVisit;
+        }
+        return closure;
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        descendentClosures.invalidateAll();
+        ancestorClosures.invalidateAll();
+    }
+
+    /**
+     * Removes the closures that may include the navigation of the concept.
+     */
+    void invalidate(int conceptNid) {
+        generation.incrementAndGet();
+        invalidateReaching(descendentClosures, conceptNid);
+        invalidateReaching(ancestorClosures, conceptNid);
+    }
+
+    private static void invalidateReaching(Cache<Integer, RoaringBitmap> closures, int conceptNid) {
+        closures.asMap().entrySet().removeIf(entry ->
+                entry.getKey() == conceptNid || entry.getValue().contains(conceptNid));
+    }
+
+    /**
+     * @return true if the descendent closure of the concept is cached
+     */
+    boolean hasDescendents(int conceptNid) {
+        return descendentClosures.getIfPresent(conceptNid) != null;
+    }
+
+    /**
+     * @return true if the ancestor closure of the concept is cached
+     */
+    boolean hasAncestors(int conceptNid) {
+        return ancestorClosures.getIfPresent(conceptNid) != null;
+    }
+
+    @Override
+    public void onNextBatch(RoaringBitmap nids) {
+        if (descendentClosures.estimatedSize() == 0 && ancestorClosures.estimatedSize() == 0) {
+            return;
+        }
+        nids.forEach((int nid) -> onNext(nid));
+    }
+
+    @Override
+    public void onNext(Integer nid) {
+        if (nid == Integer.MIN_VALUE) {
+            invalidateAll();
+            return;
+        }
+        if (descendentClosures.estimatedSize() == 0 && ancestorClosures.estimatedSize() == 0) {
+            return;
+        }
+        IntIdSet navigationPatternNids = calculator.navigationCoordinate().navigationPatternNids();
+        switch (Entity.provider().getEntityFast(nid)) {
+            case SemanticEntity<?> semanticEntity when navigationPatternNids.contains(semanticEntity.patternNid()) ->
+                    invalidate(semanticEntity.referencedComponentNid());
+            case ConceptEntity<?> conceptEntity -> {
+                calculator.unsortedUnversionedParentsOf(conceptEntity.nid()).forEach(this::invalidate);
+                calculator.unsortedUnversionedChildrenOf(conceptEntity.nid()).forEach(this::invalidate);
+            }
+            case PatternEntity<?> patternEntity when navigationPatternNids.contains(patternEntity.nid()) ->
+                    invalidateAll();
+            case null, default -> {
+            }
+        }
+    }
+
+    private static final class NavigationCycleException extends RuntimeException {
+        private final int conceptNid;
+
+        NavigationCycleException(int conceptNid) {
+            super(null, null, false, false);
+            this.conceptNid = conceptNid;
+        }
+    }
+}
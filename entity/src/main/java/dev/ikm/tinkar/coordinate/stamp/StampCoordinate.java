@@ -19,6 +19,8 @@
 import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.IntIds;
 import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.SearchFilter;
+import dev.ikm.tinkar.coordinate.PathService;
 import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.terms.ConceptFacade;
 import dev.ikm.tinkar.terms.EntityFacade;
@@ -26,7 +28,10 @@
 import dev.ikm.tinkar.terms.State;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.set.ImmutableSet;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -231,4 +236,32 @@ default ImmutableSet<dev.ikm.tinkar.component.Concept> moduleSpecifications() {
     default ImmutableList<dev.ikm.tinkar.component.Concept> modulePriorityOrderSpecifications() {
         return modulePriorityNidList().map(nid -> Entity.getFast(nid));
     }
+
+    /**
+     * Compiles this coordinate into a search pre-filter: the allowed states,
+     * the allowed modules, the path of the position together with every path
+     * it originates from, and the position's time. Excluded modules and origin
+     * times are not represented, so the restriction admits a superset of the
+     * semantics visible under this coordinate.
+     *
+     * @return the stamp restriction for {@link dev.ikm.tinkar.common.service.SearchService} queries
+     */
+    default SearchFilter.StampRestriction toSearchRestriction() {
+        State[] states = allowedStates().toArray();
+        int[] stateNids = new int[states.length];
+        for (int i = 0; i < states.length; i++) {
+            stateNids[i] = states[i].nid();
+        }
+        MutableIntSet pathNids = IntSets.mutable.empty();
+        ArrayDeque<Integer> pathsToVisit = new ArrayDeque<>();
+        pathsToVisit.add(stampPosition().getPathForPositionNid());
+        while (!pathsToVisit.isEmpty()) {
+            int pathNid = pathsToVisit.poll();
+            if (pathNids.add(pathNid)) {
+                PathService.get().getPathOrigins(pathNid)
+                        .forEach(origin -> pathsToVisit.add(origin.getPathForPositionNid()));
+            }
+        }
+        return new SearchFilter.StampRestriction(stateNids, moduleNids().toArray(), pathNids.toArray(), time());
+    }
 }
@@ -16,13 +16,16 @@
 package dev.ikm.tinkar.coordinate.stamp.calculator;
 
 import com.github.benmanes.caffeine.cache.Cache;
-import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.util.broadcast.NidBatchSubscriber;
 import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.PatternEntity;
+import org.roaringbitmap.RoaringBitmap;
 
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class CacheInvalidationIfPatternSubscriber implements Subscriber<Integer> {
+public class CacheInvalidationIfPatternSubscriber implements NidBatchSubscriber {
 	CopyOnWriteArrayList<Cache<? extends Object, ? extends Object>> cachesToManage = new CopyOnWriteArrayList<>();
 
 
@@ -47,4 +50,27 @@ public void onNext(Integer nid) {
 		}
 	}
 
+	/**
+	 * Looks for a pattern among the batch by visiting the patterns, which are far fewer than the nids a large
+	 * batch holds, rather than reading the entity of each nid.
+	 */
+	@Override
+	public void onNextBatch(RoaringBitmap nids) {
+		if (nids.getLongCardinality() == 1) {
+			onNext(nids.first());
+			return;
+		}
+		AtomicBoolean patternChanged = new AtomicBoolean();
+		PrimitiveData.get().forEachPatternNid(patternNid -> {
+			if (nids.contains(patternNid)) {
+				patternChanged.set(true);
+			}
+		});
+		if (patternChanged.get()) {
+			for (Cache<?, ?> cache : cachesToManage) {
+				cache.invalidateAll();
+			}
+		}
+	}
+
 }
@@ -20,6 +20,7 @@
 import dev.ikm.tinkar.common.service.NonExistentValue;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.PrimitiveDataSearchResult;
+import dev.ikm.tinkar.common.service.SearchFilter;
 import dev.ikm.tinkar.common.util.functional.QuadConsumer;
 import dev.ikm.tinkar.common.util.functional.TriConsumer;
 import dev.ikm.tinkar.common.util.uuid.UuidT5Generator;
@@ -44,7 +45,9 @@
 import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
 import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
 import org.eclipse.collections.impl.factory.primitive.IntObjectMaps;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,7 +56,6 @@
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
@@ -595,37 +597,66 @@ default String highlight(String query, String text) throws Exception {
         return PrimitiveData.get().highlight(query, text);
     }
 
+    /**
+     * Full-text search resolved against this calculator's stamp coordinate. The coordinate is compiled into a
+     * {@link SearchFilter.StampRestriction} so the index skips semantics with no version that could be visible,
+     * and only the hits it returns are resolved to their latest version. When resolution drops hits, the search
+     * is repeated with a larger fetch size, up to eight times {@code maxResultSize}.
+     *
+     * @param query the search query string
+     * @param maxResultSize maximum number of semantics to return
+     * @return up to {@code maxResultSize} results with a latest version, best score first
+     * @throws Exception if an error occurs during search
+     */
     default ImmutableList<LatestVersionSearchResult> search(String query, int maxResultSize) throws Exception {
-        PrimitiveDataSearchResult[] primitiveResults = PrimitiveData.get().search(query, maxResultSize);
-        final MutableIntObjectMap<LatestVersionSearchResult> semanticNidSearchResultMap = IntObjectMaps.mutable.ofInitialCapacity(primitiveResults.length);
-        final AtomicInteger duplicates = new AtomicInteger();
-        final AtomicInteger missingLatest = new AtomicInteger();
-        for (PrimitiveDataSearchResult primitiveResult : primitiveResults) {
-            if (semanticNidSearchResultMap.containsKey(primitiveResult.nid())) {
-                duplicates.incrementAndGet();
-                LatestVersionSearchResult currentResult = semanticNidSearchResultMap.get(primitiveResult.nid());
-                if (currentResult.score() < primitiveResult.score()) {
-                    semanticNidSearchResultMap.put(primitiveResult.nid(),
-                            currentResult
-                                    .withScore(primitiveResult.score())
-                                    .withFieldIndex(primitiveResult.fieldIndex())
-                                    .withHighlightedString(primitiveResult.highlightedString())
-                    );
+        SearchFilter filter = SearchFilter.of(stampCoordinate().toSearchRestriction());
+        final MutableIntObjectMap<LatestVersionSearchResult> semanticNidSearchResultMap = IntObjectMaps.mutable.ofInitialCapacity(maxResultSize);
+        final MutableIntSet missingLatestNids = IntSets.mutable.empty();
+        final int maxFetchSize = (int) Math.min(8L * maxResultSize, Integer.MAX_VALUE);
+        int fetchSize = maxResultSize;
+        int duplicates;
+        PrimitiveDataSearchResult[] primitiveResults;
+        while (true) {
+            primitiveResults = PrimitiveData.get().search(query, fetchSize, filter);
+            duplicates = 0;
+            for (PrimitiveDataSearchResult primitiveResult : primitiveResults) {
+                if (missingLatestNids.contains(primitiveResult.nid())) {
+                    continue;
                 }
-            } else {
-                Latest<SemanticEntityVersion> latestVersion = latest(primitiveResult.nid());
-                if (latestVersion.isPresent()) {
-                    semanticNidSearchResultMap.put(primitiveResult.nid(),
-                            new LatestVersionSearchResult(latestVersion, primitiveResult.fieldIndex(), primitiveResult.score(),
-                                    primitiveResult.highlightedString()));
+                LatestVersionSearchResult currentResult = semanticNidSearchResultMap.get(primitiveResult.nid());
+                if (currentResult != null) {
+                    duplicates++;
+                    if (currentResult.score() < primitiveResult.score()) {
+                        semanticNidSearchResultMap.put(primitiveResult.nid(),
+                                currentResult
+                                        .withScore(primitiveResult.score())
+                                        .withFieldIndex(primitiveResult.fieldIndex())
+                                        .withHighlightedString(primitiveResult.highlightedString())
+                        );
+                    }
                 } else {
-                    missingLatest.incrementAndGet();
+                    Latest<SemanticEntityVersion> latestVersion = latest(primitiveResult.nid());
+                    if (latestVersion.isPresent()) {
+                        semanticNidSearchResultMap.put(primitiveResult.nid(),
+                                new LatestVersionSearchResult(latestVersion, primitiveResult.fieldIndex(), primitiveResult.score(),
+                                        primitiveResult.highlightedString()));
+                    } else {
+                        missingLatestNids.add(primitiveResult.nid());
+                    }
                 }
             }
+            if (semanticNidSearchResultMap.size() >= maxResultSize || primitiveResults.length < fetchSize
+                    || fetchSize >= maxFetchSize) {
+                break;
+            }
+            fetchSize = (int) Math.min(2L * fetchSize, maxFetchSize);
         }
-        ImmutableList<LatestVersionSearchResult> filteredResults = Lists.immutable.ofAll(semanticNidSearchResultMap.values());
+        ImmutableList<LatestVersionSearchResult> filteredResults = Lists.mutable.ofAll(semanticNidSearchResultMap.values())
+                .sortThis((a, b) -> Float.compare(b.score(), a.score()))
+                .take(maxResultSize)
+                .toImmutable();
         LOG.info("Search '{}': primitive hits={}, filtered duplicates={}, missing-latest={}, final results={}",
-                query, primitiveResults.length, duplicates.intValue(), missingLatest.intValue(), filteredResults.size());
+                query, primitiveResults.length, duplicates, missingLatestNids.size(), filteredResults.size());
         return filteredResults;
     }
 
@@ -53,8 +53,14 @@
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import dev.ikm.tinkar.collection.ConcurrentReferenceHashMap;
 import dev.ikm.tinkar.common.id.IntIdSet;
+import dev.ikm.tinkar.common.jfr.LatestCacheMissEvent;
+import dev.ikm.tinkar.common.metrics.MetricsRegistry;
+import dev.ikm.tinkar.common.metrics.MetricsSource;
+import dev.ikm.tinkar.common.service.CacheStatistics;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.util.functional.TriConsumer;
@@ -78,10 +84,12 @@
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
+import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
 import org.eclipse.collections.api.set.ImmutableSet;
 import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
 import org.eclipse.collections.api.set.primitive.MutableIntSet;
 import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.factory.primitive.IntObjectMaps;
 import org.eclipse.collections.impl.factory.primitive.IntSets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -101,6 +109,7 @@
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -123,18 +132,21 @@ public class StampCalculatorWithCache implements StampCalculator {
     private final StampCoordinateRecord filter;
     private final StateSet allowedStates;
     private final ConcurrentHashMap<Integer, ImmutableSet<StampBranchRecord>> branchMap = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Integer, Boolean> stampOnRoute = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Integer, Boolean> stampIsAllowedState = new ConcurrentHashMap<>();
+    /**
+     * On-route results by sequence in the shared {@link StampTable}; replaced when
+     * the table is reset.
+     */
+    private volatile StampRouteMemo routeMemo;
     /**
      * Mapping from pathNid to each segment for that pathNid. There is one entry
      * for each path reachable antecedent to the destination position of the
-     * computer.
+     * computer. Filled by the constructors and only read afterward.
      */
-    private final ConcurrentHashMap<Integer, Segment> pathNidSegmentMap = new ConcurrentHashMap<>();
-    private final Cache<Integer, Latest<PatternEntityVersion>> patternVersionCache = Caffeine.newBuilder().maximumSize(512).build();
-    private final Cache<Long, OptionalInt> indexForMeaningCache = Caffeine.newBuilder().maximumSize(1024).build();
-    private final Cache<Long, OptionalInt> indexForPurposeCache = Caffeine.newBuilder().maximumSize(1024).build();
-    private final Cache<Integer, Latest<EntityVersion>> latestCache = Caffeine.newBuilder().maximumSize(10_240).build();
+    private final MutableIntObjectMap<Segment> pathNidSegmentMap = IntObjectMaps.mutable.empty();
+    private final Cache<Integer, Latest<PatternEntityVersion>> patternVersionCache = Caffeine.newBuilder().maximumSize(512).recordStats().build();
+    private final Cache<Long, OptionalInt> indexForMeaningCache = Caffeine.newBuilder().maximumSize(1024).recordStats().build();
+    private final Cache<Long, OptionalInt> indexForPurposeCache = Caffeine.newBuilder().maximumSize(1024).recordStats().build();
+    private final Cache<Integer, Latest<EntityVersion>> latestCache = Caffeine.newBuilder().maximumSize(10_240).recordStats().build();
     private final CacheInvalidationSubscriber cacheInvalidationSubscriber = new CacheInvalidationSubscriber();
     private final CacheInvalidationIfPatternSubscriber cacheInvalidationIfPatternSubscriber = new CacheInvalidationIfPatternSubscriber();
     /**
@@ -330,8 +342,19 @@ public Stream<Latest<SemanticEntityVersion>> streamLatestVersionForPattern(int p
     public <V extends EntityVersion> Latest<V> latest(int nid) {
         EntityHandle entityHandle = EntityHandle.get(nid);
         if (entityHandle.isPresent()) {
-            return (Latest<V>) latestCache.get(nid, latestNid ->
-                     this.latest((Entity<EntityVersion>) entityHandle.expectEntity()));
+            return (Latest<V>) latestCache.get(nid, latestNid -> {
+                LatestCacheMissEvent event = new LatestCacheMissEvent();
+                event.begin();
+                Entity<EntityVersion> entity = (Entity<EntityVersion>) entityHandle.expectEntity();
+                Latest<EntityVersion> latest = this.latest(entity);
+                if (event.shouldCommit()) {
+                    event.nid = latestNid;
+                    event.versionCount = entity.versions().size();
+                    event.present = latest.isPresent();
+                    event.commit();
+                }
+                return latest;
+            });
         }
         return Latest.empty();
     }
@@ -410,13 +433,10 @@ private <V extends EntityVersion> Latest<V> latest(Entity<V> chronicle, boolean
         }
 
         final MutableList<EntityVersion> latestVersionList = Lists.mutable.ofInitialCapacity(Math.min(versions.size(), 4));
+        final StampTable table = StampTable.current();
 
         for (V newVersionToTest : versions) {
-            StampEntity stamp = newVersionToTest.stamp();
-            if (stamp != null && stamp.time() > Long.MIN_VALUE
-                    && !(excludeDefaultsAndTemplates
-                            && stamp.moduleNid() == DefaultsTemplateTerm.DEFAULTS_AND_TEMPLATES_MODULE.nid())
-                    && onRoute(stamp)) {
+            if (isLatestCandidate(table, newVersionToTest.stampNid(), excludeDefaultsAndTemplates)) {
                 if (latestVersionList.isEmpty()) {
                     latestVersionList.add(newVersionToTest);
                 } else {
@@ -425,7 +445,7 @@ && onRoute(stamp)) {
             }
         }
 
-        latestVersionList.removeIf(version -> !allowedStates.contains(version.state()));
+        latestVersionList.removeIf(version -> !isAllowedState(version.stampNid()));
 
         if (latestVersionList.isEmpty()) {
             return new Latest<>();
@@ -438,6 +458,27 @@ && onRoute(stamp)) {
         return (Latest<V>) new Latest<>(latestVersionList.get(0), latestVersionList.subList(1, latestVersionList.size()));
     }
 
+    /**
+     * Whether a version with the given stamp takes part in the latest computation:
+     * its stamp is not canceled, is on route, and — when requested — is not in the
+     * defaults/templates module. Committed stamps are read from the shared
+     * {@link StampTable}.
+     */
+    private boolean isLatestCandidate(StampTable table, int stampNid, boolean excludeDefaultsAndTemplates) {
+        int sequence = table.sequence(stampNid);
+        if (sequence == StampTable.NONE) {
+            StampEntity stamp = Entity.getStamp(stampNid);
+            return stamp != null && stamp.time() > Long.MIN_VALUE
+                    && !(excludeDefaultsAndTemplates
+                            && stamp.moduleNid() == DefaultsTemplateTerm.DEFAULTS_AND_TEMPLATES_MODULE.nid())
+                    && onRoute(stamp);
+        }
+        return table.time(sequence) > Long.MIN_VALUE
+                && !(excludeDefaultsAndTemplates
+                        && table.moduleNid(sequence) == DefaultsTemplateTerm.DEFAULTS_AND_TEMPLATES_MODULE.nid())
+                && onRoute(table, sequence);
+    }
+
     @Override
     public StateSet allowedStates() {
         return allowedStates;
@@ -630,11 +671,13 @@ public <T> Latest<Field<T>> getFieldForSemantic(int componentNid, int criterionN
      * @return true, if successful
      */
     public boolean onRoute(int stampNid) {
-        if (stampOnRoute.containsKey(stampNid)) {
-            return stampOnRoute.get(stampNid);
+        StampTable table = StampTable.current();
+        int sequence = table.sequence(stampNid);
+        if (sequence != StampTable.NONE) {
+            return onRoute(table, sequence);
         }
         StampEntity stamp = Entity.getStamp(stampNid);
-        return onRoute(stamp);
+        return containsPosition(stamp.pathNid(), stamp.moduleNid(), stamp.time());
     }
 
     /**
@@ -646,6 +689,14 @@ public boolean onRoute(int stampNid) {
      */
     public RelativePosition fastRelativePosition(int stampNid1,
                                                  int stampNid2) {
+        StampTable table = StampTable.current();
+        int sequence1 = table.sequence(stampNid1);
+        int sequence2 = table.sequence(stampNid2);
+        if (sequence1 != StampTable.NONE && sequence2 != StampTable.NONE) {
+            return getRelativePosition(
+                    table.pathNid(sequence1), table.moduleNid(sequence1), table.time(sequence1),
+                    table.pathNid(sequence2), table.moduleNid(sequence2), table.time(sequence2));
+        }
         StampEntity stamp1 = Entity.getStamp(stampNid1);
         StampEntity stamp2 = Entity.getStamp(stampNid2);
 
@@ -653,19 +704,41 @@ public RelativePosition fastRelativePosition(int stampNid1,
     }
 
     public boolean onRoute(StampEntity stamp) {
-        if (stampOnRoute.containsKey(stamp.nid())) {
-            return stampOnRoute.get(stamp.nid());
+        StampTable table = StampTable.current();
+        int sequence = table.sequence(stamp);
+        if (sequence != StampTable.NONE) {
+            return onRoute(table, sequence);
         }
-        final Segment seg = this.pathNidSegmentMap.get(stamp.pathNid());
-        boolean returnValue = false;
-        if (seg != null) {
-            returnValue = seg.containsPosition(
-                    stamp.pathNid(),
-                    stamp.moduleNid(),
-                    stamp.time());
+        // Uncommitted: not memoized, as the stamp changes when it commits.
+        return containsPosition(stamp.pathNid(), stamp.moduleNid(), stamp.time());
+    }
+
+    /**
+     * On route for a committed stamp, memoized per stamp sequence.
+     */
+    private boolean onRoute(StampTable table, int sequence) {
+        StampRouteMemo memo = routeMemo(table);
+        int known = memo.get(sequence);
+        if (known != StampRouteMemo.UNKNOWN) {
+            return known == 1;
         }
-        stampOnRoute.put(stamp.pathNid(), returnValue);
-        return returnValue;
+        boolean onRoute = containsPosition(table.pathNid(sequence), table.moduleNid(sequence), table.time(sequence));
+        memo.put(sequence, onRoute);
+        return onRoute;
+    }
+
+    private StampRouteMemo routeMemo(StampTable table) {
+        StampRouteMemo memo = this.routeMemo;
+        if (memo == null || memo.table() != table) {
+            memo = new StampRouteMemo(table);
+            this.routeMemo = memo;
+        }
+        return memo;
+    }
+
+    private boolean containsPosition(int pathNid, int moduleNid, long time) {
+        final Segment seg = this.pathNidSegmentMap.get(pathNid);
+        return seg != null && seg.containsPosition(pathNid, moduleNid, time);
     }
 
     /**
@@ -730,19 +803,16 @@ private void handlePart(List<EntityVersion> partsForPosition, EntityVersion part
      */
     public RelativePosition fastRelativePosition(EntityVersion v1,
                                                  EntityVersion v2) {
-        StampEntity v1Stamp = v1.stamp();
-        StampEntity v2Stamp = v2.stamp();
-        return getRelativePosition(v1Stamp, v2Stamp);
+        return fastRelativePosition(v1.stampNid(), v2.stampNid());
     }
 
     public RelativePosition getRelativePosition(StampEntity stamp1, StampEntity stamp2) {
-        final long ss1Time = stamp1.time();
-        final int ss1ModuleNid = stamp1.moduleNid();
-        final int ss1PathNid = stamp1.pathNid();
-        final long ss2Time = stamp2.time();
-        final int ss2ModuleNid = stamp2.moduleNid();
-        final int ss2PathNid = stamp2.pathNid();
+        return getRelativePosition(stamp1.pathNid(), stamp1.moduleNid(), stamp1.time(),
+                stamp2.pathNid(), stamp2.moduleNid(), stamp2.time());
+    }
 
+    private RelativePosition getRelativePosition(int ss1PathNid, int ss1ModuleNid, long ss1Time,
+                                                 int ss2PathNid, int ss2ModuleNid, long ss2Time) {
         if (ss1PathNid == ss2PathNid) {
             final Segment seg = this.pathNidSegmentMap.get(ss1PathNid);
 
@@ -1019,8 +1089,7 @@ private void setupPathNidSegmentMap(StampPositionRecord destination) {
      */
     public boolean isLatestActive(int[] stampNids) {
         for (int stampNid : getLatestStampNidsAsSet(stampNids)) {
-            StampEntity stamp = Entity.getStamp(stampNid);
-            if (State.fromConceptNid(stamp.stateNid()) == State.ACTIVE) {
+            if (State.fromConceptNid(stateNid(stampNid)) == State.ACTIVE) {
                 return true;
             }
         }
@@ -1134,13 +1203,16 @@ private int[] getResults(MutableIntSet stampsForPosition) {
     }
 
     private boolean isAllowedState(int stampNid) {
-        if (stampIsAllowedState.containsKey(stampNid)) {
-            return stampIsAllowedState.get(stampNid);
+        return this.allowedStates.contains(State.fromConceptNid(stateNid(stampNid)));
+    }
+
+    private static int stateNid(int stampNid) {
+        StampTable table = StampTable.current();
+        int sequence = table.sequence(stampNid);
+        if (sequence != StampTable.NONE) {
+            return table.stateNid(sequence);
         }
-        StampEntity stamp = Entity.getStamp(stampNid);
-        boolean allowed = this.allowedStates.contains(State.fromConceptNid(stamp.stateNid()));
-        stampIsAllowedState.put(stampNid, allowed);
-        return allowed;
+        return Entity.getStamp(stampNid).stateNid();
     }
 
     /**
@@ -1180,11 +1252,65 @@ private <V extends EntityVersion> Latest<V> latestIfSemanticOfPattern(int nid, i
         return Latest.empty();
     }
 
-    public static class CacheProvider implements CachingService {
+    /**
+     * The caches each calculator keeps, with the names of their statistics and metrics.
+     */
+    private enum CalculatorCache {
+        LATEST("Stamp calculator latest cache", "stampCalculator.latest", calculator -> calculator.latestCache),
+        PATTERN_VERSION("Stamp calculator pattern version cache", "stampCalculator.patternVersion",
+                calculator -> calculator.patternVersionCache),
+        INDEX_FOR_MEANING("Stamp calculator index for meaning cache", "stampCalculator.indexForMeaning",
+                calculator -> calculator.indexForMeaningCache),
+        INDEX_FOR_PURPOSE("Stamp calculator index for purpose cache", "stampCalculator.indexForPurpose",
+                calculator -> calculator.indexForPurposeCache);
+
+        private final String statisticsName;
+        private final String metricName;
+        private final Function<StampCalculatorWithCache, Cache<?, ?>> cacheOfCalculator;
+
+        CalculatorCache(String statisticsName, String metricName,
+                        Function<StampCalculatorWithCache, Cache<?, ?>> cacheOfCalculator) {
+            this.statisticsName = statisticsName;
+            this.metricName = metricName;
+            this.cacheOfCalculator = cacheOfCalculator;
+        }
+
+        /**
+         * Sums the statistics of this cache over the calculators currently held, so the totals drop when
+         * calculators are reset or collected.
+         */
+        CacheStatistics statistics() {
+            List<CacheStatistics> statistics = new ArrayList<>();
+            for (StampCalculatorWithCache calculator : SINGLETONS.values()) {
+                Cache<?, ?> cache = cacheOfCalculator.apply(calculator);
+                CacheStats stats = cache.stats();
+                statistics.add(new CacheStatistics(statisticsName, cache.estimatedSize(),
+                        cache.policy().eviction().map(Policy.Eviction::getMaximum).orElse(Long.MAX_VALUE),
+                        stats.hitCount(), stats.missCount(), stats.evictionCount()));
+            }
+            return CacheStatistics.sum(statisticsName, statistics);
+        }
+    }
+
+    public static class CacheProvider implements CachingService, MetricsSource {
         // TODO: this has implicit assumption that no one will hold on to a calculator... Should we be defensive?
         @Override
         public void reset() {
             SINGLETONS.clear();
+            StampTable.reset();
+        }
+
+        @Override
+        public List<CacheStatistics> statistics() {
+            return Arrays.stream(CalculatorCache.values()).map(CalculatorCache::statistics).toList();
+        }
+
+        @Override
+        public void registerMetrics(MetricsRegistry registry) {
+            // The stamp table is shared with the entity provider, which registers it as entity.stampTable.
+            for (CalculatorCache calculatorCache : CalculatorCache.values()) {
+                registry.cache(calculatorCache.metricName, calculatorCache::statistics);
+            }
         }
     }
 
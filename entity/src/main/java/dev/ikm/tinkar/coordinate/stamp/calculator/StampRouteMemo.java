@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.stamp.calculator;
+
+import dev.ikm.tinkar.entity.StampTable;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One calculator's on-route results for the stamps of a {@link StampTable}, two
+ * bits per stamp sequence: whether the result is known, and the result. Filled
+ * in as the calculator meets stamps, and grown as the table grows.
+ *
+ * <p>A result set while the bits are being grown may be lost; it is then
+ * recomputed on the next lookup.
+ */
+final class StampRouteMemo {
+    static final int UNKNOWN = -1;
+    private static final int SEQUENCES_PER_WORD = Long.SIZE / 2;
+    private static final long KNOWN = 0b01;
+    private static final long ON_ROUTE = 0b10;
+
+    private final StampTable table;
+    private volatile AtomicLongArray words;
+
+    StampRouteMemo(StampTable table) {
+        this.table = table;
+        this.words = new AtomicLongArray(wordCount(Math.max(table.size(), 1)));
+    }
+
+    /**
+     * @return the table whose sequences this memo holds results for
+     */
+    StampTable table() {
+        return table;
+    }
+
+    /**
+     * @param sequence a stamp sequence of {@link #table()}
+     * @return 1 if the stamp is on route, 0 if not, {@link #UNKNOWN} if not yet computed
+     */
+    int get(int sequence) {
+        AtomicLongArray current = words;
+        int word = sequence / SEQUENCES_PER_WORD;
+        if (word >= current.length()) {
+            return UNKNOWN;
+        }
+        long bits = current.get(word) >>> shift(sequence);
+        if ((bits & KNOWN) == 0) {
+            return UNKNOWN;
+        }
+        return (bits & ON_ROUTE) != 0 ? 1 : 0;
+    }
+
+    void put(int sequence, boolean onRoute) {
+        int word = sequence / SEQUENCES_PER_WORD;
+        AtomicLongArray current = words;
+        if (word >= current.length()) {
+            current = grow(word);
+        }
+        long bits = (onRoute ? KNOWN | ON_ROUTE : KNOWN) << shift(sequence);
+        current.accumulateAndGet(word, bits, (left, right) -> left | right);
+    }
+
+    private synchronized AtomicLongArray grow(int word) {
+        AtomicLongArray current = words;
+        if (word < current.length()) {
+            return current;
+        }
+        AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1, current.length() * 2));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        words = grown;
+        return grown;
+    }
+
+    private static int shift(int sequence) {
+        return (sequence % SEQUENCES_PER_WORD) * 2;
+    }
+
+    private static int wordCount(int sequences) {
+        return (sequences + SEQUENCES_PER_WORD - 1) / SEQUENCES_PER_WORD;
+    }
+}
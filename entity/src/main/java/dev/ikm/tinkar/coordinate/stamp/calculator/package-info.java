@@ -318,6 +318,12 @@
  * <p>The {@link dev.ikm.tinkar.coordinate.stamp.calculator.CacheInvalidationIfPatternSubscriber}
  * supports automatic cache invalidation when underlying data changes.</p>
  *
+ * <p>Changed nids reach the invalidation subscribers in batches, coalesced over
+ * {@code ServiceKeys.INVALIDATION_BATCH_MILLIS}. A transaction commit delivers its changes
+ * before it returns, so reads after a commit see its writes; writes outside a transaction
+ * may be seen by cached reads after the batch is delivered, or after
+ * {@code EntityService.flushInvalidations()}.</p>
+ *
  * <p><b>Integration with Other Calculators</b></p>
  *
  * <p>STAMP calculators are used by all other calculator types:</p>
@@ -16,7 +16,8 @@
 package dev.ikm.tinkar.entity;
 
 import com.github.benmanes.caffeine.cache.Cache;
-import dev.ikm.tinkar.common.util.broadcast.Subscriber;
+import dev.ikm.tinkar.common.util.broadcast.NidBatchSubscriber;
+import org.roaringbitmap.RoaringBitmap;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -24,7 +25,7 @@
 /**
  * Remove objects from a cache based on
  */
-public class CacheInvalidationSubscriber implements Subscriber<Integer> {
+public class CacheInvalidationSubscriber implements NidBatchSubscriber {
     CopyOnWriteArrayList<Cache<Integer, ? extends Object>> cachesToManage = new CopyOnWriteArrayList<>();
 
 
@@ -47,4 +48,19 @@ public void onNext(Integer nid) {
             }
         }
     }
+
+    /**
+     * Invalidates a batch of nids in one pass, over the batch or over the cache, whichever is smaller.
+     */
+    @Override
+    public void onNextBatch(RoaringBitmap nids) {
+        long batchSize = nids.getLongCardinality();
+        for (Cache<Integer, ?> cache : cachesToManage) {
+            if (batchSize > cache.estimatedSize()) {
+                cache.asMap().keySet().removeIf(nids::contains);
+            } else {
+                nids.forEach((int nid) -> cache.invalidate(nid));
+            }
+        }
+    }
 }
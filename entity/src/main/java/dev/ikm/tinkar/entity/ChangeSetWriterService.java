@@ -2,6 +2,8 @@
 
 import dev.ikm.tinkar.common.service.DataActivity;
 
+import java.util.Collection;
+
 /**
  * ChangeSetWriterService ensures durability and exchangeability every time a new entity version is written
  * and a later STAMP entity for that version is written.
@@ -18,6 +20,17 @@ public interface ChangeSetWriterService {
      */
     void writeToChangeSet(Entity entity, DataActivity dataActivity);
 
+    /**
+     * Writes a batch of entities to the change set, as {@link #writeToChangeSet(Entity, DataActivity)} does
+     * for each. Implementations may queue the batch at once.
+     *
+     * @param entities     The entities for which new versions are written.
+     * @param dataActivity The type of data activity being performed, for all the entities.
+     */
+    default void writeAllToChangeSet(Collection<? extends Entity> entities, DataActivity dataActivity) {
+        entities.forEach(entity -> writeToChangeSet(entity, dataActivity));
+    }
+
     /**
      * Shuts down the ChangeSetWriterService, ensuring any necessary cleanup
      * or finalization steps are performed.
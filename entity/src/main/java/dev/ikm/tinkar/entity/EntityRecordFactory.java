@@ -21,8 +21,9 @@
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.id.PublicIdList;
 import dev.ikm.tinkar.common.id.PublicIdSet;
+import dev.ikm.tinkar.common.jfr.EntityMakeEvent;
 import dev.ikm.tinkar.common.service.PrimitiveData;
-import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
+import dev.ikm.tinkar.common.sets.ConcurrentNidSet;
 import dev.ikm.tinkar.component.Chronology;
 import dev.ikm.tinkar.component.Component;
 import dev.ikm.tinkar.component.Concept;
@@ -75,6 +76,21 @@ public class EntityRecordFactory {
     public static final int DEFAULT_VERSION_SIZE = 16384;
     public static volatile int MAX_ENTITY_SIZE = DEFAULT_ENTITY_SIZE;
     public static volatile int MAX_VERSION_SIZE = DEFAULT_VERSION_SIZE;
+    /**
+     * System property that turns lazy field decoding off when {@code false}. It is read once, when this class is
+     * initialized, so all entities of a JVM decode their fields the same way.
+     */
+    public static final String LAZY_FIELD_DECODING_PROPERTY = "dev.ikm.tinkar.entity.lazyFieldDecoding";
+    private static final boolean LAZY_FIELD_DECODING =
+            Boolean.parseBoolean(System.getProperty(LAZY_FIELD_DECODING_PROPERTY, "true"));
+
+    /**
+     * @return true if entities made from a byte array defer decoding semantic field values until they are used.
+     * See {@link LazyFieldList} and {@link #LAZY_FIELD_DECODING_PROPERTY}.
+     */
+    public static boolean lazyFieldDecoding() {
+        return LAZY_FIELD_DECODING;
+    }
 
     public static byte[] getBytes(Entity<? extends EntityVersion> entity) {
         // TODO: write directly to a single ByteBuf, rather that the approach below.
@@ -370,7 +386,7 @@ private static long[] processAdditionalUuids(ImmutableList<UUID> componentUuids)
         return null;
     }
 
-    public static void collectUuids(byte[] data, ConcurrentHashMap<Integer, ConcurrentHashSet<Integer>> patternElementNidsMap,
+    public static void collectUuids(byte[] data, ConcurrentHashMap<Integer, ConcurrentNidSet> patternElementNidsMap,
                                     ConcurrentHashMap<UUID, Integer> uuidToNidMap) {
         ByteBuf buf = ByteBuf.wrapForReading(data);
         // bytes starts with number of arrays (int = 4 bytes), then size of first array (int = 4 bytes), then type token
@@ -402,7 +418,7 @@ public static void collectUuids(byte[] data, ConcurrentHashMap<Integer, Concurre
             int referencedComponentNid = buf.readInt();
             int patternNid = buf.readInt();
             int versionCount = buf.readInt();
-            patternElementNidsMap.getIfAbsentPut(patternNid, integer -> new ConcurrentHashSet())
+            patternElementNidsMap.getIfAbsentPut(patternNid, integer -> new ConcurrentNidSet())
                     .add(nid);
         }
     }
@@ -424,7 +440,17 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(byte[] data)
         int numberOfArrays = buf.readInt();
         int sizeOfFirstArray = buf.readInt();
         byte formatVersion = buf.readByte();
-        return make(buf, formatVersion);
+        FieldDataType fieldDataType = FieldDataType.fromToken(buf.readByte());
+        EntityMakeEvent event = new EntityMakeEvent();
+        event.begin();
+        // The bytes passed in are not reused, so field decoding can refer back to them.
+        T entity = make(buf, formatVersion, fieldDataType, LAZY_FIELD_DECODING ? data : null);
+        if (event.shouldCommit()) {
+            event.dataType = fieldDataType.name();
+            event.size = data.length;
+            event.commit();
+        }
+        return entity;
     }
 
     /**
@@ -454,7 +480,15 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
      * a fluent API that better manages type determination.
      */
     public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf readBuf, byte entityFormatVersion, FieldDataType fieldDataType) {
+        return make(readBuf, entityFormatVersion, fieldDataType, null);
+    }
 
+    /**
+     * @param lazyFieldData the array backing readBuf, with readBuf's head as the array index, if semantic field
+     *                      values may be decoded lazily from it, or null to decode them while reading.
+     */
+    private static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf readBuf, byte entityFormatVersion,
+                                                                         FieldDataType fieldDataType, byte[] lazyFieldData) {
         if (entityFormatVersion != ENTITY_FORMAT_VERSION) {
             throw new IllegalStateException("Unsupported entity format version: " + entityFormatVersion);
         }
@@ -479,7 +513,7 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
                 ConceptRecord conceptRecord = new ConceptRecord(mostSignificantBits, leastSignificantBits,
                         LongLists.immutable.of(additionalUuidLongs), nid, versions);
                 for (int i = 0; i < versionCount; i++) {
-                    ConceptVersionRecord version = (ConceptVersionRecord) makeVersion(readBuf, entityFormatVersion, conceptRecord);
+                    ConceptVersionRecord version = (ConceptVersionRecord) makeVersion(readBuf, entityFormatVersion, conceptRecord, lazyFieldData);
                     if (!PrimitiveData.get().isCanceledStampNid(version.stampNid())) {
                         versions.add(version);
                     }
@@ -496,7 +530,7 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
                         LongLists.immutable.of(additionalUuidLongs), nid, patternNid, referencedComponentNid,
                         versions);
                 for (int i = 0; i < versionCount; i++) {
-                    SemanticVersionRecord version = (SemanticVersionRecord) makeVersion(readBuf, entityFormatVersion, semanticRecord);
+                    SemanticVersionRecord version = (SemanticVersionRecord) makeVersion(readBuf, entityFormatVersion, semanticRecord, lazyFieldData);
                     if (!PrimitiveData.get().isCanceledStampNid(version.stampNid())) {
                         versions.add(version);
                     }
@@ -512,7 +546,7 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
                 PatternRecord patternRecord = new PatternRecord(mostSignificantBits, leastSignificantBits,
                         LongLists.immutable.of(additionalUuidLongs), nid, versions);
                 for (int i = 0; i < versionCount; i++) {
-                    PatternVersionRecord version = (PatternVersionRecord) makeVersion(readBuf, entityFormatVersion, patternRecord);
+                    PatternVersionRecord version = (PatternVersionRecord) makeVersion(readBuf, entityFormatVersion, patternRecord, lazyFieldData);
                     if (!PrimitiveData.get().isCanceledStampNid(version.stampNid())) {
                         versions.add(version);
                     }
@@ -528,7 +562,7 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
                 StampRecord stampRecord = new StampRecord(mostSignificantBits, leastSignificantBits,
                         LongLists.immutable.of(additionalUuidLongs), nid, versions);
                 for (int i = 0; i < versionCount; i++) {
-                    versions.add((StampVersionRecord) makeVersion(readBuf, entityFormatVersion, stampRecord));
+                    versions.add((StampVersionRecord) makeVersion(readBuf, entityFormatVersion, stampRecord, lazyFieldData));
                 }
                 versions.build();
                 yield (T) stampRecord;
@@ -538,10 +572,12 @@ public static <T extends Entity<V>, V extends EntityVersion> T make(ByteBuf read
         };
     }
 
-    private static EntityVersion makeVersion(ByteBuf readBuf, byte formatVersion, Entity<? extends EntityVersion> entity) {
-        // bytes used by this version. Not used by this way of reading the data,
-        // but is used for merge functions for concurrent write of versions using CAS...
+    private static EntityVersion makeVersion(ByteBuf readBuf, byte formatVersion, Entity<? extends EntityVersion> entity,
+                                             byte[] lazyFieldData) {
+        // bytes used by this version. Used to skip over the fields when they are decoded lazily,
+        // and by merge functions for concurrent write of versions using CAS...
         int bytesInVersion = readBuf.readInt();
+        int versionEnd = readBuf.head() + bytesInVersion;
         byte token = readBuf.readByte();
         int stampNid = readBuf.readInt();
         if (entity.versionDataType().token != token) {
@@ -581,6 +617,11 @@ private static EntityVersion makeVersion(ByteBuf readBuf, byte formatVersion, En
 
         return switch (entity) {
             case ConceptRecord conceptRecord -> new ConceptVersionRecord(conceptRecord, stampNid);
+            case SemanticRecord semanticRecord when lazyFieldData != null -> {
+                LazyFieldList<Object> fields = new LazyFieldList<>(lazyFieldData, readBuf.head(), versionEnd, formatVersion);
+                readBuf.head(versionEnd);
+                yield new SemanticVersionRecord(semanticRecord, stampNid, fields);
+            }
             case SemanticRecord semanticRecord -> {
                 int fieldCount = readBuf.readInt();
                 RecordListBuilder<Object> fields = RecordListBuilder.make();
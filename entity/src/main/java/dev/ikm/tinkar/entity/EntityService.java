@@ -39,6 +39,7 @@
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -445,6 +446,41 @@ default void putEntity(Entity entity) {
      */
     void putEntity(Entity entity, DataActivity activity);
 
+    /**
+     * Inserts or updates a batch of entities, with the same effect as {@link #putEntity(Entity, DataActivity)}
+     * for each. Implementations may merge the batch in parallel, and invalidate caches, write change sets,
+     * update the search index and notify subscribers once for the whole batch rather than once per entity.
+     * <p>
+     * Defaults to putting each entity in turn.
+     *
+     * @param entities The entities to be put into the system.
+     * @param activity The data activity associated with the entities.
+     */
+    default void putEntities(Collection<? extends Entity> entities, DataActivity activity) {
+        entities.forEach(entity -> putEntity(entity, activity));
+    }
+
+    /**
+     * Defaults to an activity of DataActivity.SYNCHRONIZABLE_EDIT.
+     *
+     * @param entities The entities to be put into the system.
+     * @see #putEntities(Collection, DataActivity)
+     */
+    default void putEntities(Collection<? extends Entity> entities) {
+        putEntities(entities, DataActivity.SYNCHRONIZABLE_EDIT);
+    }
+
+    /**
+     * As {@link #putEntities(Collection, DataActivity)}, without adding the entities to the entity cache.
+     * For bulk writers whose entities are unlikely to be read again soon.
+     *
+     * @param entities The entities to be put into the system.
+     * @param activity The data activity associated with the entities.
+     */
+    default void putEntitiesNoCache(Collection<? extends Entity> entities, DataActivity activity) {
+        entities.forEach(entity -> putEntityNoCache(entity, activity));
+    }
+
     default void putEntityNoCache(Entity entity) {
         putEntityNoCache(entity, DataActivity.SYNCHRONIZABLE_EDIT);
     }
@@ -524,8 +560,19 @@ default void addSortedUuids(List<UUID> uuidList, int... nids) throws NoSuchEleme
 
     int[] semanticNidsForComponentOfPattern(int componentNid, int patternNid);
 
+    /**
+     * Notifies subscribers of the components changed by a transaction. Changes dispatched before the call,
+     * including batched ones, have been delivered when it returns.
+     */
     void notifyRefreshRequired(Transaction transaction);
 
+    /**
+     * Delivers changed nids that are batched for delivery to subscribers, so caches reflect every write made
+     * before the call. Implementations that deliver changes as they are written may leave the default.
+     */
+    default void flushInvalidations() {
+    }
+
     boolean isLoadPhase();
 
     void endLoadPhase();
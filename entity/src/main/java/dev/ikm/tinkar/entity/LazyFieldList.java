@@ -0,0 +1,1271 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+import dev.ikm.tinkar.component.FieldDataType;
+import io.activej.bytebuf.ByteBuf;
+import org.eclipse.collections.api.BooleanIterable;
+import org.eclipse.collections.api.ByteIterable;
+import org.eclipse.collections.api.CharIterable;
+import org.eclipse.collections.api.DoubleIterable;
+import org.eclipse.collections.api.FloatIterable;
+import org.eclipse.collections.api.IntIterable;
+import org.eclipse.collections.api.LazyIterable;
+import org.eclipse.collections.api.LongIterable;
+import org.eclipse.collections.api.RichIterable;
+import org.eclipse.collections.api.ShortIterable;
+import org.eclipse.collections.api.annotation.Beta;
+import org.eclipse.collections.api.bag.ImmutableBag;
+import org.eclipse.collections.api.bag.MutableBag;
+import org.eclipse.collections.api.bag.MutableBagIterable;
+import org.eclipse.collections.api.bag.sorted.MutableSortedBag;
+import org.eclipse.collections.api.bimap.MutableBiMap;
+import org.eclipse.collections.api.block.HashingStrategy;
+import org.eclipse.collections.api.block.function.Function0;
+import org.eclipse.collections.api.block.function.Function2;
+import org.eclipse.collections.api.block.function.Function;
+import org.eclipse.collections.api.block.function.primitive.BooleanFunction;
+import org.eclipse.collections.api.block.function.primitive.ByteFunction;
+import org.eclipse.collections.api.block.function.primitive.CharFunction;
+import org.eclipse.collections.api.block.function.primitive.DoubleFunction;
+import org.eclipse.collections.api.block.function.primitive.DoubleObjectToDoubleFunction;
+import org.eclipse.collections.api.block.function.primitive.FloatFunction;
+import org.eclipse.collections.api.block.function.primitive.FloatObjectToFloatFunction;
+import org.eclipse.collections.api.block.function.primitive.IntFunction;
+import org.eclipse.collections.api.block.function.primitive.IntObjectToIntFunction;
+import org.eclipse.collections.api.block.function.primitive.LongFunction;
+import org.eclipse.collections.api.block.function.primitive.LongObjectToLongFunction;
+import org.eclipse.collections.api.block.function.primitive.ObjectIntToObjectFunction;
+import org.eclipse.collections.api.block.function.primitive.ShortFunction;
+import org.eclipse.collections.api.block.predicate.Predicate2;
+import org.eclipse.collections.api.block.predicate.Predicate;
+import org.eclipse.collections.api.block.procedure.Procedure2;
+import org.eclipse.collections.api.block.procedure.Procedure;
+import org.eclipse.collections.api.block.procedure.primitive.ObjectIntProcedure;
+import org.eclipse.collections.api.collection.primitive.MutableBooleanCollection;
+import org.eclipse.collections.api.collection.primitive.MutableByteCollection;
+import org.eclipse.collections.api.collection.primitive.MutableCharCollection;
+import org.eclipse.collections.api.collection.primitive.MutableDoubleCollection;
+import org.eclipse.collections.api.collection.primitive.MutableFloatCollection;
+import org.eclipse.collections.api.collection.primitive.MutableIntCollection;
+import org.eclipse.collections.api.collection.primitive.MutableLongCollection;
+import org.eclipse.collections.api.collection.primitive.MutableShortCollection;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.ParallelListIterable;
+import org.eclipse.collections.api.list.primitive.ImmutableBooleanList;
+import org.eclipse.collections.api.list.primitive.ImmutableByteList;
+import org.eclipse.collections.api.list.primitive.ImmutableCharList;
+import org.eclipse.collections.api.list.primitive.ImmutableDoubleList;
+import org.eclipse.collections.api.list.primitive.ImmutableFloatList;
+import org.eclipse.collections.api.list.primitive.ImmutableIntList;
+import org.eclipse.collections.api.list.primitive.ImmutableLongList;
+import org.eclipse.collections.api.list.primitive.ImmutableShortList;
+import org.eclipse.collections.api.map.ImmutableMap;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.map.MutableMapIterable;
+import org.eclipse.collections.api.map.primitive.ImmutableObjectDoubleMap;
+import org.eclipse.collections.api.map.primitive.ImmutableObjectLongMap;
+import org.eclipse.collections.api.map.sorted.MutableSortedMap;
+import org.eclipse.collections.api.multimap.MutableMultimap;
+import org.eclipse.collections.api.multimap.list.ImmutableListMultimap;
+import org.eclipse.collections.api.ordered.OrderedIterable;
+import org.eclipse.collections.api.partition.list.PartitionImmutableList;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.set.sorted.MutableSortedSet;
+import org.eclipse.collections.api.stack.MutableStack;
+import org.eclipse.collections.api.tuple.Pair;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
+import java.util.IntSummaryStatistics;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * The field values of a semantic version, decoded from the entity bytes on first use.
+ * <p>
+ * Reading an entity builds all of its versions, but most readers only look at the stamps of the versions, and
+ * then at the fields of the one or two versions that are on route for their coordinate. Holding the entity bytes and
+ * the offset of the version's fields defers the field decoding, which for graph valued fields is most of the cost of
+ * reading an entity, to the versions that are actually used. {@link #size()} is read from the bytes without decoding.
+ * <p>
+ * The bytes must not be modified after the list is created. Decoding may race between threads, in which case each
+ * thread decodes an equal list, and one of them is kept. Once the fields are decoded the list lets go of the bytes, so
+ * a version that has been read does not keep the whole entity's bytes reachable.
+ * <p>
+ * Like the eager immutable lists, the list is also a {@link java.util.List}, so it compares equal to an eager list
+ * with the same values from either side. The {@code java.util.List} mutators throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @param <T> the type of the field values
+ */
+public final class LazyFieldList<T> implements ImmutableList<T>, List<T>, RandomAccess {
+    private volatile byte[] data;
+    private final int fieldsOffset;
+    private final int fieldsEnd;
+    private final byte formatVersion;
+    private volatile ImmutableList<T> decoded;
+
+    LazyFieldList(byte[] data, int fieldsOffset, int fieldsEnd, byte formatVersion) {
+        this.data = data;
+        this.fieldsOffset = fieldsOffset;
+        this.fieldsEnd = fieldsEnd;
+        this.formatVersion = formatVersion;
+    }
+
+    private LazyFieldList(ImmutableList<T> decoded) {
+        this(null, 0, 0, (byte) 0);
+        this.decoded = decoded;
+    }
+
+    /**
+     * @return true if the field values have been decoded
+     */
+    public boolean isDecoded() {
+        return decoded != null;
+    }
+
+    private ImmutableList<T> decoded() {
+        ImmutableList<T> fields = this.decoded;
+        if (fields == null) {
+            byte[] bytes = this.data;
+            if (bytes == null) {
+                // Another thread decoded the fields and released the bytes after the read above.
+                return this.decoded;
+            }
+            ByteBuf readBuf = ByteBuf.wrap(bytes, fieldsOffset, fieldsEnd);
+            int fieldCount = readBuf.readInt();
+            MutableList<T> fieldList = Lists.mutable.withInitialCapacity(fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                FieldDataType dataType = FieldDataType.fromToken(readBuf.readByte());
+                fieldList.add((T) EntityRecordFactory.readFieldData(readBuf, dataType, formatVersion));
+            }
+            fields = fieldList.toImmutable();
+            // Publish the fields before releasing the bytes, so a reader that finds no bytes finds the fields.
+            this.decoded = fields;
+            this.data = null;
+        }
+        return fields;
+    }
+
+    @Override
+    public int size() {
+        ImmutableList<T> fields = this.decoded;
+        if (fields != null) {
+            return fields.size();
+        }
+        byte[] bytes = this.data;
+        if (bytes == null) {
+            return this.decoded.size();
+        }
+        return ((bytes[fieldsOffset] & 0xFF) << 24) | ((bytes[fieldsOffset + 1] & 0xFF) << 16)
+                | ((bytes[fieldsOffset + 2] & 0xFF) << 8) | (bytes[fieldsOffset + 3] & 0xFF);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean notEmpty() {
+        return size() != 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return decoded().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof LazyFieldList<?> other) {
+            return decoded().equals(other.decoded());
+        }
+        return decoded().equals(o);
+    }
+
+    @Override
+    public String toString() {
+        return decoded().toString();
+    }
+
+    @Override
+    public ImmutableList<T> newWith(T t) {
+        return decoded().newWith(t);
+    }
+
+    @Override
+    public ImmutableList<T> newWithout(T t) {
+        return decoded().newWithout(t);
+    }
+
+    @Override
+    public ImmutableList<T> newWithAll(Iterable<? extends T> iterable) {
+        return decoded().newWithAll(iterable);
+    }
+
+    @Override
+    public ImmutableList<T> newWithoutAll(Iterable<? extends T> iterable) {
+        return decoded().newWithoutAll(iterable);
+    }
+
+    @Override
+    public ImmutableList<T> tap(Procedure<? super T> procedure) {
+        return decoded().tap(procedure);
+    }
+
+    @Override
+    public ImmutableList<T> select(Predicate<? super T> predicate) {
+        return decoded().select(predicate);
+    }
+
+    @Override
+    public <P> ImmutableList<T> selectWith(Predicate2<? super T, ? super P> predicate2, P p) {
+        return decoded().selectWith(predicate2, p);
+    }
+
+    @Override
+    public ImmutableList<T> reject(Predicate<? super T> predicate) {
+        return decoded().reject(predicate);
+    }
+
+    @Override
+    public <P> ImmutableList<T> rejectWith(Predicate2<? super T, ? super P> predicate2, P p) {
+        return decoded().rejectWith(predicate2, p);
+    }
+
+    @Override
+    public PartitionImmutableList<T> partition(Predicate<? super T> predicate) {
+        return decoded().partition(predicate);
+    }
+
+    @Override
+    public <P> PartitionImmutableList<T> partitionWith(Predicate2<? super T, ? super P> predicate2, P p) {
+        return decoded().partitionWith(predicate2, p);
+    }
+
+    @Override
+    public <S> ImmutableList<S> selectInstancesOf(Class<S> aClass) {
+        return decoded().selectInstancesOf(aClass);
+    }
+
+    @Override
+    public <V> ImmutableList<V> collect(Function<? super T, ? extends V> function) {
+        return decoded().collect(function);
+    }
+
+    @Override
+    public <V> ImmutableList<V> collectWithIndex(ObjectIntToObjectFunction<? super T, ? extends V> function) {
+        return decoded().collectWithIndex(function);
+    }
+
+    @Override
+    public ImmutableBooleanList collectBoolean(BooleanFunction<? super T> booleanFunction) {
+        return decoded().collectBoolean(booleanFunction);
+    }
+
+    @Override
+    public ImmutableByteList collectByte(ByteFunction<? super T> byteFunction) {
+        return decoded().collectByte(byteFunction);
+    }
+
+    @Override
+    public ImmutableCharList collectChar(CharFunction<? super T> charFunction) {
+        return decoded().collectChar(charFunction);
+    }
+
+    @Override
+    public ImmutableDoubleList collectDouble(DoubleFunction<? super T> doubleFunction) {
+        return decoded().collectDouble(doubleFunction);
+    }
+
+    @Override
+    public ImmutableFloatList collectFloat(FloatFunction<? super T> floatFunction) {
+        return decoded().collectFloat(floatFunction);
+    }
+
+    @Override
+    public ImmutableIntList collectInt(IntFunction<? super T> intFunction) {
+        return decoded().collectInt(intFunction);
+    }
+
+    @Override
+    public ImmutableLongList collectLong(LongFunction<? super T> longFunction) {
+        return decoded().collectLong(longFunction);
+    }
+
+    @Override
+    public ImmutableShortList collectShort(ShortFunction<? super T> shortFunction) {
+        return decoded().collectShort(shortFunction);
+    }
+
+    @Override
+    public <P, V> ImmutableList<V> collectWith(Function2<? super T, ? super P, ? extends V> function2, P p) {
+        return decoded().collectWith(function2, p);
+    }
+
+    @Override
+    public <V> ImmutableList<V> collectIf(Predicate<? super T> predicate, Function<? super T, ? extends V> function) {
+        return decoded().collectIf(predicate, function);
+    }
+
+    @Override
+    public <V> ImmutableList<V> flatCollect(Function<? super T, ? extends Iterable<V>> function) {
+        return decoded().flatCollect(function);
+    }
+
+    @Override
+    public <P, V> ImmutableList<V> flatCollectWith(Function2<? super T, ? super P, ? extends Iterable<V>> function, P parameter) {
+        return decoded().flatCollectWith(function, parameter);
+    }
+
+    @Override
+    public <V> ImmutableListMultimap<V, T> groupBy(Function<? super T, ? extends V> function) {
+        return decoded().groupBy(function);
+    }
+
+    @Override
+    public <V> ImmutableListMultimap<V, T> groupByEach(Function<? super T, ? extends Iterable<V>> function) {
+        return decoded().groupByEach(function);
+    }
+
+    @Override
+    public ImmutableList<T> distinct() {
+        return decoded().distinct();
+    }
+
+    @Override
+    public ImmutableList<T> distinct(HashingStrategy<? super T> hashingStrategy) {
+        return decoded().distinct(hashingStrategy);
+    }
+
+    @Override
+    public <V> ImmutableList<T> distinctBy(Function<? super T, ? extends V> function) {
+        return decoded().distinctBy(function);
+    }
+
+    @Override
+    public <S> ImmutableList<Pair<T, S>> zip(Iterable<S> iterable) {
+        return decoded().zip(iterable);
+    }
+
+    @Override
+    public ImmutableList<Pair<T, Integer>> zipWithIndex() {
+        return decoded().zipWithIndex();
+    }
+
+    @Override
+    public ImmutableList<T> take(int i) {
+        return decoded().take(i);
+    }
+
+    @Override
+    public ImmutableList<T> takeWhile(Predicate<? super T> predicate) {
+        return decoded().takeWhile(predicate);
+    }
+
+    @Override
+    public ImmutableList<T> drop(int i) {
+        return decoded().drop(i);
+    }
+
+    @Override
+    public ImmutableList<T> dropWhile(Predicate<? super T> predicate) {
+        return decoded().dropWhile(predicate);
+    }
+
+    @Override
+    public PartitionImmutableList<T> partitionWhile(Predicate<? super T> predicate) {
+        return decoded().partitionWhile(predicate);
+    }
+
+    @Override
+    public List<T> castToList() {
+        return this;
+    }
+
+    @Override
+    public LazyFieldList<T> subList(int i, int i1) {
+        return new LazyFieldList<>(decoded().subList(i, i1));
+    }
+
+    @Override
+    public LazyFieldList<T> reversed() {
+        return new LazyFieldList<>(decoded().toReversed());
+    }
+
+    @Override
+    public boolean add(T t) {
+        throw new UnsupportedOperationException("Cannot add to an immutable list");
+    }
+
+    @Override
+    public void add(int index, T t) {
+        throw new UnsupportedOperationException("Cannot add to an immutable list");
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> collection) {
+        throw new UnsupportedOperationException("Cannot add to an immutable list");
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends T> collection) {
+        throw new UnsupportedOperationException("Cannot add to an immutable list");
+    }
+
+    @Override
+    public T set(int index, T t) {
+        throw new UnsupportedOperationException("Cannot set in an immutable list");
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("Cannot remove from an immutable list");
+    }
+
+    @Override
+    public T remove(int index) {
+        throw new UnsupportedOperationException("Cannot remove from an immutable list");
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> collection) {
+        throw new UnsupportedOperationException("Cannot remove from an immutable list");
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        throw new UnsupportedOperationException("Cannot remove from an immutable list");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Cannot clear an immutable list");
+    }
+
+    @Override
+    public ImmutableList<T> toReversed() {
+        return decoded().toReversed();
+    }
+
+    @Override
+    public <V> ImmutableObjectLongMap<V> sumByInt(Function<? super T, ? extends V> function, IntFunction<? super T> intFunction) {
+        return decoded().sumByInt(function, intFunction);
+    }
+
+    @Override
+    public <V> ImmutableObjectDoubleMap<V> sumByFloat(Function<? super T, ? extends V> function, FloatFunction<? super T> floatFunction) {
+        return decoded().sumByFloat(function, floatFunction);
+    }
+
+    @Override
+    public <V> ImmutableObjectLongMap<V> sumByLong(Function<? super T, ? extends V> function, LongFunction<? super T> longFunction) {
+        return decoded().sumByLong(function, longFunction);
+    }
+
+    @Override
+    public <V> ImmutableObjectDoubleMap<V> sumByDouble(Function<? super T, ? extends V> function, DoubleFunction<? super T> doubleFunction) {
+        return decoded().sumByDouble(function, doubleFunction);
+    }
+
+    @Override
+    public <V> ImmutableBag<V> countBy(Function<? super T, ? extends V> function) {
+        return decoded().countBy(function);
+    }
+
+    @Override
+    public <V, P> ImmutableBag<V> countByWith(Function2<? super T, ? super P, ? extends V> function, P parameter) {
+        return decoded().countByWith(function, parameter);
+    }
+
+    @Override
+    public <V> ImmutableBag<V> countByEach(Function<? super T, ? extends Iterable<V>> function) {
+        return decoded().countByEach(function);
+    }
+
+    @Override
+    public <V> ImmutableMap<V, T> groupByUniqueKey(Function<? super T, ? extends V> function) {
+        return decoded().groupByUniqueKey(function);
+    }
+
+    @Override
+    public <K, V> ImmutableMap<K, V> aggregateInPlaceBy(Function<? super T, ? extends K> groupBy, Function0<? extends V> zeroValueFactory, Procedure2<? super V, ? super T> mutatingAggregator) {
+        return decoded().aggregateInPlaceBy(groupBy, zeroValueFactory, mutatingAggregator);
+    }
+
+    @Override
+    public <K, V> ImmutableMap<K, V> aggregateBy(Function<? super T, ? extends K> groupBy, Function0<? extends V> zeroValueFactory, Function2<? super V, ? super T, ? extends V> nonMutatingAggregator) {
+        return decoded().aggregateBy(groupBy, zeroValueFactory, nonMutatingAggregator);
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return decoded().stream();
+    }
+
+    @Override
+    public Stream<T> parallelStream() {
+        return decoded().parallelStream();
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return decoded().spliterator();
+    }
+
+    @Override
+    public Collection<T> castToCollection() {
+        return decoded().castToCollection();
+    }
+
+    @Override
+    public void forEach(Procedure<? super T> procedure) {
+        decoded().forEach(procedure);
+    }
+
+    @Override
+    public T getAny() {
+        return decoded().getAny();
+    }
+
+    @Override
+    @Deprecated
+    public T getFirst() {
+        return decoded().getFirst();
+    }
+
+    @Override
+    @Deprecated
+    public T getLast() {
+        return decoded().getLast();
+    }
+
+    @Override
+    public T getOnly() {
+        return decoded().getOnly();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return decoded().contains(o);
+    }
+
+    @Override
+    public <V> boolean containsBy(Function<? super T, ? extends V> function, V value) {
+        return decoded().containsBy(function, value);
+    }
+
+    @Override
+    public boolean containsAllIterable(Iterable<?> iterable) {
+        return decoded().containsAllIterable(iterable);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> collection) {
+        return decoded().containsAll(collection);
+    }
+
+    @Override
+    public boolean containsAllArguments(Object... objects) {
+        return decoded().containsAllArguments(objects);
+    }
+
+    @Override
+    public void each(Procedure<? super T> procedure) {
+        decoded().each(procedure);
+    }
+
+    @Override
+    public <R extends Collection<T>> R select(Predicate<? super T> predicate, R ts) {
+        return decoded().select(predicate, ts);
+    }
+
+    @Override
+    public <P, R extends Collection<T>> R selectWith(Predicate2<? super T, ? super P> predicate2, P p, R ts) {
+        return decoded().selectWith(predicate2, p, ts);
+    }
+
+    @Override
+    public <R extends Collection<T>> R reject(Predicate<? super T> predicate, R ts) {
+        return decoded().reject(predicate, ts);
+    }
+
+    @Override
+    public <P, R extends Collection<T>> R rejectWith(Predicate2<? super T, ? super P> predicate2, P p, R ts) {
+        return decoded().rejectWith(predicate2, p, ts);
+    }
+
+    @Override
+    public <V, R extends Collection<V>> R collect(Function<? super T, ? extends V> function, R vs) {
+        return decoded().collect(function, vs);
+    }
+
+    @Override
+    public <R extends MutableBooleanCollection> R collectBoolean(BooleanFunction<? super T> booleanFunction, R r) {
+        return decoded().collectBoolean(booleanFunction, r);
+    }
+
+    @Override
+    public <R extends MutableByteCollection> R collectByte(ByteFunction<? super T> byteFunction, R r) {
+        return decoded().collectByte(byteFunction, r);
+    }
+
+    @Override
+    public <R extends MutableCharCollection> R collectChar(CharFunction<? super T> charFunction, R r) {
+        return decoded().collectChar(charFunction, r);
+    }
+
+    @Override
+    public <R extends MutableDoubleCollection> R collectDouble(DoubleFunction<? super T> doubleFunction, R r) {
+        return decoded().collectDouble(doubleFunction, r);
+    }
+
+    @Override
+    public <R extends MutableFloatCollection> R collectFloat(FloatFunction<? super T> floatFunction, R r) {
+        return decoded().collectFloat(floatFunction, r);
+    }
+
+    @Override
+    public <R extends MutableIntCollection> R collectInt(IntFunction<? super T> intFunction, R r) {
+        return decoded().collectInt(intFunction, r);
+    }
+
+    @Override
+    public <R extends MutableLongCollection> R collectLong(LongFunction<? super T> longFunction, R r) {
+        return decoded().collectLong(longFunction, r);
+    }
+
+    @Override
+    public <R extends MutableShortCollection> R collectShort(ShortFunction<? super T> shortFunction, R r) {
+        return decoded().collectShort(shortFunction, r);
+    }
+
+    @Override
+    public <P, V, R extends Collection<V>> R collectWith(Function2<? super T, ? super P, ? extends V> function2, P p, R vs) {
+        return decoded().collectWith(function2, p, vs);
+    }
+
+    @Override
+    public <V, R extends Collection<V>> R collectIf(Predicate<? super T> predicate, Function<? super T, ? extends V> function, R vs) {
+        return decoded().collectIf(predicate, function, vs);
+    }
+
+    @Override
+    public <R extends MutableByteCollection> R flatCollectByte(Function<? super T, ? extends ByteIterable> function, R target) {
+        return decoded().flatCollectByte(function, target);
+    }
+
+    @Override
+    public <R extends MutableCharCollection> R flatCollectChar(Function<? super T, ? extends CharIterable> function, R target) {
+        return decoded().flatCollectChar(function, target);
+    }
+
+    @Override
+    public <R extends MutableIntCollection> R flatCollectInt(Function<? super T, ? extends IntIterable> function, R target) {
+        return decoded().flatCollectInt(function, target);
+    }
+
+    @Override
+    public <R extends MutableShortCollection> R flatCollectShort(Function<? super T, ? extends ShortIterable> function, R target) {
+        return decoded().flatCollectShort(function, target);
+    }
+
+    @Override
+    public <R extends MutableDoubleCollection> R flatCollectDouble(Function<? super T, ? extends DoubleIterable> function, R target) {
+        return decoded().flatCollectDouble(function, target);
+    }
+
+    @Override
+    public <R extends MutableFloatCollection> R flatCollectFloat(Function<? super T, ? extends FloatIterable> function, R target) {
+        return decoded().flatCollectFloat(function, target);
+    }
+
+    @Override
+    public <R extends MutableLongCollection> R flatCollectLong(Function<? super T, ? extends LongIterable> function, R target) {
+        return decoded().flatCollectLong(function, target);
+    }
+
+    @Override
+    public <R extends MutableBooleanCollection> R flatCollectBoolean(Function<? super T, ? extends BooleanIterable> function, R target) {
+        return decoded().flatCollectBoolean(function, target);
+    }
+
+    @Override
+    public <V, R extends Collection<V>> R flatCollect(Function<? super T, ? extends Iterable<V>> function, R vs) {
+        return decoded().flatCollect(function, vs);
+    }
+
+    @Override
+    public <P, V, R extends Collection<V>> R flatCollectWith(Function2<? super T, ? super P, ? extends Iterable<V>> function, P parameter, R target) {
+        return decoded().flatCollectWith(function, parameter, target);
+    }
+
+    @Override
+    public T detect(Predicate<? super T> predicate) {
+        return decoded().detect(predicate);
+    }
+
+    @Override
+    public <P> T detectWith(Predicate2<? super T, ? super P> predicate2, P p) {
+        return decoded().detectWith(predicate2, p);
+    }
+
+    @Override
+    public Optional<T> detectOptional(Predicate<? super T> predicate) {
+        return decoded().detectOptional(predicate);
+    }
+
+    @Override
+    public <P> Optional<T> detectWithOptional(Predicate2<? super T, ? super P> predicate2, P p) {
+        return decoded().detectWithOptional(predicate2, p);
+    }
+
+    @Override
+    public T detectIfNone(Predicate<? super T> predicate, Function0<? extends T> function) {
+        return decoded().detectIfNone(predicate, function);
+    }
+
+    @Override
+    public <P> T detectWithIfNone(Predicate2<? super T, ? super P> predicate2, P p, Function0<? extends T> function0) {
+        return decoded().detectWithIfNone(predicate2, p, function0);
+    }
+
+    @Override
+    public int count(Predicate<? super T> predicate) {
+        return decoded().count(predicate);
+    }
+
+    @Override
+    public <P> int countWith(Predicate2<? super T, ? super P> predicate2, P p) {
+        return decoded().countWith(predicate2, p);
+    }
+
+    @Override
+    public boolean anySatisfy(Predicate<? super T> predicate) {
+        return decoded().anySatisfy(predicate);
+    }
+
+    @Override
+    public <P> boolean anySatisfyWith(Predicate2<? super T, ? super P> predicate2, P p) {
+        return decoded().anySatisfyWith(predicate2, p);
+    }
+
+    @Override
+    public boolean allSatisfy(Predicate<? super T> predicate) {
+        return decoded().allSatisfy(predicate);
+    }
+
+    @Override
+    public <P> boolean allSatisfyWith(Predicate2<? super T, ? super P> predicate2, P p) {
+        return decoded().allSatisfyWith(predicate2, p);
+    }
+
+    @Override
+    public boolean noneSatisfy(Predicate<? super T> predicate) {
+        return decoded().noneSatisfy(predicate);
+    }
+
+    @Override
+    public <P> boolean noneSatisfyWith(Predicate2<? super T, ? super P> predicate2, P p) {
+        return decoded().noneSatisfyWith(predicate2, p);
+    }
+
+    @Override
+    public <IV> IV injectInto(IV iv, Function2<? super IV, ? super T, ? extends IV> function2) {
+        return decoded().injectInto(iv, function2);
+    }
+
+    @Override
+    public int injectInto(int i, IntObjectToIntFunction<? super T> intObjectToIntFunction) {
+        return decoded().injectInto(i, intObjectToIntFunction);
+    }
+
+    @Override
+    public long injectInto(long l, LongObjectToLongFunction<? super T> longObjectToLongFunction) {
+        return decoded().injectInto(l, longObjectToLongFunction);
+    }
+
+    @Override
+    public float injectInto(float v, FloatObjectToFloatFunction<? super T> floatObjectToFloatFunction) {
+        return decoded().injectInto(v, floatObjectToFloatFunction);
+    }
+
+    @Override
+    public double injectInto(double v, DoubleObjectToDoubleFunction<? super T> doubleObjectToDoubleFunction) {
+        return decoded().injectInto(v, doubleObjectToDoubleFunction);
+    }
+
+    @Override
+    public <R extends Collection<T>> R into(R ts) {
+        return decoded().into(ts);
+    }
+
+    @Override
+    public MutableList<T> toList() {
+        return decoded().toList();
+    }
+
+    @Override
+    public MutableList<T> toSortedList() {
+        return decoded().toSortedList();
+    }
+
+    @Override
+    public MutableList<T> toSortedList(Comparator<? super T> comparator) {
+        return decoded().toSortedList(comparator);
+    }
+
+    @Override
+    public <V extends Comparable<? super V>> MutableList<T> toSortedListBy(Function<? super T, ? extends V> function) {
+        return decoded().toSortedListBy(function);
+    }
+
+    @Override
+    public MutableSet<T> toSet() {
+        return decoded().toSet();
+    }
+
+    @Override
+    public MutableSortedSet<T> toSortedSet() {
+        return decoded().toSortedSet();
+    }
+
+    @Override
+    public MutableSortedSet<T> toSortedSet(Comparator<? super T> comparator) {
+        return decoded().toSortedSet(comparator);
+    }
+
+    @Override
+    public <V extends Comparable<? super V>> MutableSortedSet<T> toSortedSetBy(Function<? super T, ? extends V> function) {
+        return decoded().toSortedSetBy(function);
+    }
+
+    @Override
+    public MutableBag<T> toBag() {
+        return decoded().toBag();
+    }
+
+    @Override
+    public MutableSortedBag<T> toSortedBag() {
+        return decoded().toSortedBag();
+    }
+
+    @Override
+    public MutableSortedBag<T> toSortedBag(Comparator<? super T> comparator) {
+        return decoded().toSortedBag(comparator);
+    }
+
+    @Override
+    public <V extends Comparable<? super V>> MutableSortedBag<T> toSortedBagBy(Function<? super T, ? extends V> function) {
+        return decoded().toSortedBagBy(function);
+    }
+
+    @Override
+    public <NK, NV> MutableMap<NK, NV> toMap(Function<? super T, ? extends NK> function, Function<? super T, ? extends NV> function1) {
+        return decoded().toMap(function, function1);
+    }
+
+    @Override
+    public <NK, NV, R extends Map<NK, NV>> R toMap(Function<? super T, ? extends NK> keyFunction, Function<? super T, ? extends NV> valueFunction, R target) {
+        return decoded().toMap(keyFunction, valueFunction, target);
+    }
+
+    @Override
+    public <NK, NV> MutableSortedMap<NK, NV> toSortedMap(Function<? super T, ? extends NK> function, Function<? super T, ? extends NV> function1) {
+        return decoded().toSortedMap(function, function1);
+    }
+
+    @Override
+    public <NK, NV> MutableSortedMap<NK, NV> toSortedMap(Comparator<? super NK> comparator, Function<? super T, ? extends NK> function, Function<? super T, ? extends NV> function1) {
+        return decoded().toSortedMap(comparator, function, function1);
+    }
+
+    @Override
+    public <KK extends Comparable<? super KK>, NK, NV> MutableSortedMap<NK, NV> toSortedMapBy(Function<? super NK, KK> sortBy, Function<? super T, ? extends NK> keyFunction, Function<? super T, ? extends NV> valueFunction) {
+        return decoded().toSortedMapBy(sortBy, keyFunction, valueFunction);
+    }
+
+    @Override
+    public <NK, NV> MutableBiMap<NK, NV> toBiMap(Function<? super T, ? extends NK> function, Function<? super T, ? extends NV> function1) {
+        return decoded().toBiMap(function, function1);
+    }
+
+    @Override
+    public LazyIterable<T> asLazy() {
+        return decoded().asLazy();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return decoded().toArray();
+    }
+
+    @Override
+    public <E> E[] toArray(E[] es) {
+        return decoded().toArray(es);
+    }
+
+    @Override
+    public T min(Comparator<? super T> comparator) {
+        return decoded().min(comparator);
+    }
+
+    @Override
+    public T max(Comparator<? super T> comparator) {
+        return decoded().max(comparator);
+    }
+
+    @Override
+    public Optional<T> minOptional(Comparator<? super T> comparator) {
+        return decoded().minOptional(comparator);
+    }
+
+    @Override
+    public Optional<T> maxOptional(Comparator<? super T> comparator) {
+        return decoded().maxOptional(comparator);
+    }
+
+    @Override
+    public T min() {
+        return decoded().min();
+    }
+
+    @Override
+    public T max() {
+        return decoded().max();
+    }
+
+    @Override
+    public Optional<T> minOptional() {
+        return decoded().minOptional();
+    }
+
+    @Override
+    public Optional<T> maxOptional() {
+        return decoded().maxOptional();
+    }
+
+    @Override
+    public <V extends Comparable<? super V>> T minBy(Function<? super T, ? extends V> function) {
+        return decoded().minBy(function);
+    }
+
+    @Override
+    public <V extends Comparable<? super V>> T maxBy(Function<? super T, ? extends V> function) {
+        return decoded().maxBy(function);
+    }
+
+    @Override
+    public <V extends Comparable<? super V>> Optional<T> minByOptional(Function<? super T, ? extends V> function) {
+        return decoded().minByOptional(function);
+    }
+
+    @Override
+    public <V extends Comparable<? super V>> Optional<T> maxByOptional(Function<? super T, ? extends V> function) {
+        return decoded().maxByOptional(function);
+    }
+
+    @Override
+    public long sumOfInt(IntFunction<? super T> intFunction) {
+        return decoded().sumOfInt(intFunction);
+    }
+
+    @Override
+    public double sumOfFloat(FloatFunction<? super T> floatFunction) {
+        return decoded().sumOfFloat(floatFunction);
+    }
+
+    @Override
+    public long sumOfLong(LongFunction<? super T> longFunction) {
+        return decoded().sumOfLong(longFunction);
+    }
+
+    @Override
+    public double sumOfDouble(DoubleFunction<? super T> doubleFunction) {
+        return decoded().sumOfDouble(doubleFunction);
+    }
+
+    @Override
+    public IntSummaryStatistics summarizeInt(IntFunction<? super T> function) {
+        return decoded().summarizeInt(function);
+    }
+
+    @Override
+    public DoubleSummaryStatistics summarizeFloat(FloatFunction<? super T> function) {
+        return decoded().summarizeFloat(function);
+    }
+
+    @Override
+    public LongSummaryStatistics summarizeLong(LongFunction<? super T> function) {
+        return decoded().summarizeLong(function);
+    }
+
+    @Override
+    public DoubleSummaryStatistics summarizeDouble(DoubleFunction<? super T> function) {
+        return decoded().summarizeDouble(function);
+    }
+
+    @Override
+    public <R, A> R reduceInPlace(Collector<? super T, A, R> collector) {
+        return decoded().reduceInPlace(collector);
+    }
+
+    @Override
+    public <R> R reduceInPlace(Supplier<R> supplier, BiConsumer<R, ? super T> accumulator) {
+        return decoded().reduceInPlace(supplier, accumulator);
+    }
+
+    @Override
+    public Optional<T> reduce(BinaryOperator<T> accumulator) {
+        return decoded().reduce(accumulator);
+    }
+
+    @Override
+    public String makeString() {
+        return decoded().makeString();
+    }
+
+    @Override
+    public String makeString(String separator) {
+        return decoded().makeString(separator);
+    }
+
+    @Override
+    public String makeString(String start, String separator, String end) {
+        return decoded().makeString(start, separator, end);
+    }
+
+    @Override
+    public void appendString(Appendable appendable) {
+        decoded().appendString(appendable);
+    }
+
+    @Override
+    public void appendString(Appendable appendable, String separator) {
+        decoded().appendString(appendable, separator);
+    }
+
+    @Override
+    public void appendString(Appendable appendable, String s, String s1, String s2) {
+        decoded().appendString(appendable, s, s1, s2);
+    }
+
+    @Override
+    public <V, R extends MutableBagIterable<V>> R countBy(Function<? super T, ? extends V> function, R target) {
+        return decoded().countBy(function, target);
+    }
+
+    @Override
+    public <V, P, R extends MutableBagIterable<V>> R countByWith(Function2<? super T, ? super P, ? extends V> function, P parameter, R target) {
+        return decoded().countByWith(function, parameter, target);
+    }
+
+    @Override
+    public <V, R extends MutableBagIterable<V>> R countByEach(Function<? super T, ? extends Iterable<V>> function, R target) {
+        return decoded().countByEach(function, target);
+    }
+
+    @Override
+    public <V, R extends MutableMultimap<V, T>> R groupBy(Function<? super T, ? extends V> function, R r) {
+        return decoded().groupBy(function, r);
+    }
+
+    @Override
+    public <V, R extends MutableMultimap<V, T>> R groupByEach(Function<? super T, ? extends Iterable<V>> function, R r) {
+        return decoded().groupByEach(function, r);
+    }
+
+    @Override
+    public <V, R extends MutableMapIterable<V, T>> R groupByUniqueKey(Function<? super T, ? extends V> function, R ts) {
+        return decoded().groupByUniqueKey(function, ts);
+    }
+
+    @Override
+    @Deprecated
+    public <S, R extends Collection<Pair<T, S>>> R zip(Iterable<S> iterable, R pairs) {
+        return decoded().zip(iterable, pairs);
+    }
+
+    @Override
+    @Deprecated
+    public <R extends Collection<Pair<T, Integer>>> R zipWithIndex(R pairs) {
+        return decoded().zipWithIndex(pairs);
+    }
+
+    @Override
+    public RichIterable<RichIterable<T>> chunk(int i) {
+        return decoded().chunk(i);
+    }
+
+    @Override
+    public <K, V, R extends MutableMapIterable<K, V>> R aggregateBy(Function<? super T, ? extends K> groupBy, Function0<? extends V> zeroValueFactory, Function2<? super V, ? super T, ? extends V> nonMutatingAggregator, R target) {
+        return decoded().aggregateBy(groupBy, zeroValueFactory, nonMutatingAggregator, target);
+    }
+
+    @Override
+    public <K, V, R extends MutableMultimap<K, V>> R groupByAndCollect(Function<? super T, ? extends K> groupByFunction, Function<? super T, ? extends V> collectFunction, R target) {
+        return decoded().groupByAndCollect(groupByFunction, collectFunction, target);
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> consumer) {
+        decoded().forEach(consumer);
+    }
+
+    @Override
+    @Deprecated
+    public void forEachWithIndex(ObjectIntProcedure<? super T> objectIntProcedure) {
+        decoded().forEachWithIndex(objectIntProcedure);
+    }
+
+    @Override
+    public <P> void forEachWith(Procedure2<? super T, ? super P> procedure2, P p) {
+        decoded().forEachWith(procedure2, p);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return decoded().iterator();
+    }
+
+    @Override
+    public T get(int i) {
+        return decoded().get(i);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return decoded().lastIndexOf(o);
+    }
+
+    @Override
+    public ListIterator<T> listIterator() {
+        return decoded().listIterator();
+    }
+
+    @Override
+    public ListIterator<T> listIterator(int i) {
+        return decoded().listIterator(i);
+    }
+
+    @Override
+    public ImmutableList<T> toImmutable() {
+        return decoded().toImmutable();
+    }
+
+    @Override
+    @Beta
+    public ParallelListIterable<T> asParallel(ExecutorService executorService, int i) {
+        return decoded().asParallel(executorService, i);
+    }
+
+    @Override
+    public int binarySearch(T key, Comparator<? super T> comparator) {
+        return decoded().binarySearch(key, comparator);
+    }
+
+    @Override
+    public int binarySearch(T key) {
+        return decoded().binarySearch(key);
+    }
+
+    @Override
+    public <T2> void forEachInBoth(ListIterable<T2> other, Procedure2<? super T, ? super T2> procedure) {
+        decoded().forEachInBoth(other, procedure);
+    }
+
+    @Override
+    public void reverseForEach(Procedure<? super T> procedure) {
+        decoded().reverseForEachWithIndex(procedure);
+    }
+
+    @Override
+    public LazyIterable<T> asReversed() {
+        return decoded().asReversed();
+    }
+
+    @Override
+    public int detectLastIndex(Predicate<? super T> predicate) {
+        return decoded().detectLastIndex(predicate);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return decoded().indexOf(o);
+    }
+
+    @Override
+    public Optional<T> getFirstOptional() {
+        return decoded().getFirstOptional();
+    }
+
+    @Override
+    public Optional<T> getLastOptional() {
+        return decoded().getLastOptional();
+    }
+
+    @Override
+    public <S> boolean corresponds(OrderedIterable<S> orderedIterable, Predicate2<? super T, ? super S> predicate2) {
+        return decoded().corresponds(orderedIterable, predicate2);
+    }
+
+    @Override
+    public void forEach(int i, int i1, Procedure<? super T> procedure) {
+        decoded().forEach(i, i1, procedure);
+    }
+
+    @Override
+    public void forEachWithIndex(int i, int i1, ObjectIntProcedure<? super T> objectIntProcedure) {
+        decoded().forEachWithIndex(i, i1, objectIntProcedure);
+    }
+
+    @Override
+    public MutableStack<T> toStack() {
+        return decoded().toStack();
+    }
+
+    @Override
+    public <V, R extends Collection<V>> R collectWithIndex(ObjectIntToObjectFunction<? super T, ? extends V> function, R target) {
+        return decoded().collectWithIndex(function, target);
+    }
+
+    @Override
+    public int detectIndex(Predicate<? super T> predicate) {
+        return decoded().detectIndex(predicate);
+    }
+}
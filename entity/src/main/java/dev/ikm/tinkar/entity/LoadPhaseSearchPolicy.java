@@ -94,10 +94,22 @@ public final class LoadPhaseSearchPolicy {
      *         {@code false} once the threshold has been crossed
      */
     public boolean shouldIndexLive() {
+        return shouldIndexLive(1);
+    }
+
+    /**
+     * Decides whether a batch of merges should be live-indexed, counting
+     * each merge of the batch. A batch that crosses the threshold is not
+     * indexed; the full recreate at endLoadPhase covers it.
+     *
+     * @param mergeCount the number of merges in the batch
+     * @return {@code true} if the caller should index the batch live
+     */
+    public boolean shouldIndexLive(int mergeCount) {
         if (overflowed) {
             return false;
         }
-        long n = indexedCount.incrementAndGet();
+        long n = indexedCount.addAndGet(mergeCount);
         if (n > LIVE_INDEX_THRESHOLD) {
             overflowed = true;
             return false;
@@ -0,0 +1,293 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+import dev.ikm.tinkar.common.service.CacheStatistics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Columnar table of committed stamps, shared by the {@link EntityService} stamp reads and the stamp calculators.
+ * Each stamp gets a dense sequence when it is added, and its entity, time, path, module, author and state are kept
+ * in arrays indexed by that sequence, so evaluating a version's route and position needs array reads instead of a
+ * stamp entity fetch. Stamps are few relative to other entities, but are read for every version evaluated, so they
+ * are kept without eviction.
+ *
+ * <p>Only committed (and canceled) stamps are added: their attributes never change. Uncommitted stamps are rewritten
+ * when their transaction commits, so lookups of them return {@link #NONE} and they are read through the loader, or
+ * the entity service, each time. The table is replaced on {@link #reset()}, when the data store changes.
+ *
+ * <p>Lookups are lock-free. Additions are serialized; an addition writes the columns before publishing the stamp nid
+ * in the index, so a reader that finds a sequence also sees its columns.
+ */
+public final class StampTable {
+    /**
+     * Sequence returned for a stamp that is not in the table.
+     */
+    public static final int NONE = -1;
+    private static final int EMPTY_KEY = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static volatile StampTable current = new StampTable();
+
+    private final Object addLock = new Object();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private volatile Index index = new Index(INITIAL_CAPACITY * 2);
+    private volatile AtomicReferenceArray<StampEntity<?>> stamps = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private volatile long[] times = new long[INITIAL_CAPACITY];
+    private volatile int[] pathNids = new int[INITIAL_CAPACITY];
+    private volatile int[] moduleNids = new int[INITIAL_CAPACITY];
+    private volatile int[] authorNids = new int[INITIAL_CAPACITY];
+    private volatile int[] stateNids = new int[INITIAL_CAPACITY];
+    private int size;
+
+    StampTable() {
+    }
+
+    /**
+     * @return the table for the current data store
+     */
+    public static StampTable current() {
+        return current;
+    }
+
+    /**
+     * Discards every stamp, for a new data store whose nids mean something else.
+     * Holders of sequences must check they hold them for {@link #current()}.
+     */
+    public static void reset() {
+        current = new StampTable();
+    }
+
+    /**
+     * Returns a stamp, reading it with the loader and adding it when it is committed and not yet in the table.
+     *
+     * @param stampNid the stamp nid
+     * @param loader   reads the stamp when it is not in the table; may return null, which is not kept
+     * @return the stamp, or null if the loader returned null
+     */
+    public StampEntity<?> get(int stampNid, IntFunction<? extends StampEntity<?>> loader) {
+        int sequence = index.get(stampNid);
+        if (sequence != NONE) {
+            StampEntity<?> stamp = stamps.get(sequence);
+            if (stamp != null) {
+                hitCount.increment();
+                return stamp;
+            }
+        }
+        missCount.increment();
+        StampEntity<?> stamp = loader.apply(stampNid);
+        if (stamp != null) {
+            if (sequence == NONE) {
+                add(stamp);
+            } else {
+                // Invalidated; the columns are unchanged, since a committed stamp's attributes never change.
+                stamps.compareAndSet(sequence, null, stamp);
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * Returns the sequence of a stamp, adding it when it is committed and not yet in the table.
+     *
+     * @param stampNid the stamp nid
+     * @return the stamp's sequence, or {@link #NONE} when the stamp is uncommitted or absent
+     */
+    public int sequence(int stampNid) {
+        int sequence = index.get(stampNid);
+        if (sequence != NONE) {
+            return sequence;
+        }
+        return add(Entity.getStamp(stampNid));
+    }
+
+    /**
+     * Returns the sequence of a stamp, adding it from the given entity when it is
+     * committed and not yet in the table.
+     *
+     * @param stamp the stamp entity
+     * @return the stamp's sequence, or {@link #NONE} when the stamp is uncommitted
+     */
+    public int sequence(StampEntity<?> stamp) {
+        int sequence = index.get(stamp.nid());
+        if (sequence != NONE) {
+            return sequence;
+        }
+        return add(stamp);
+    }
+
+    private int add(StampEntity<?> stamp) {
+        if (stamp == null) {
+            return NONE;
+        }
+        long time = stamp.time();
+        if (time == Long.MAX_VALUE) {
+            return NONE;
+        }
+        synchronized (addLock) {
+            int sequence = index.get(stamp.nid());
+            if (sequence != NONE) {
+                return sequence;
+            }
+            sequence = size;
+            if (sequence == times.length) {
+                int capacity = sequence * 2;
+                AtomicReferenceArray<StampEntity<?>> grownStamps = new AtomicReferenceArray<>(capacity);
+                for (int i = 0; i < sequence; i++) {
+                    grownStamps.set(i, stamps.get(i));
+                }
+                stamps = grownStamps;
+                times = Arrays.copyOf(times, capacity);
+                pathNids = Arrays.copyOf(pathNids, capacity);
+                moduleNids = Arrays.copyOf(moduleNids, capacity);
+                authorNids = Arrays.copyOf(authorNids, capacity);
+                stateNids = Arrays.copyOf(stateNids, capacity);
+            }
+            stamps.set(sequence, stamp);
+            times[sequence] = time;
+            pathNids[sequence] = stamp.pathNid();
+            moduleNids[sequence] = stamp.moduleNid();
+            authorNids[sequence] = stamp.authorNid();
+            stateNids[sequence] = stamp.stateNid();
+            size = sequence + 1;
+            if (size * 2 > index.capacity()) {
+                index = index.grow();
+            }
+            index.put(stamp.nid(), sequence);
+            return sequence;
+        }
+    }
+
+    /**
+     * Drops the entity of a stamp, so the next {@link #get(int, IntFunction)} reads it again. The stamp keeps its
+     * sequence and columns.
+     *
+     * @param stampNid the stamp nid
+     */
+    public void invalidate(int stampNid) {
+        int sequence = index.get(stampNid);
+        if (sequence == NONE) {
+            return;
+        }
+        // Serialized with growth, so the copy to a grown column cannot bring the entity back.
+        synchronized (addLock) {
+            stamps.set(sequence, null);
+        }
+    }
+
+    public long time(int sequence) {
+        return times[sequence];
+    }
+
+    public int pathNid(int sequence) {
+        return pathNids[sequence];
+    }
+
+    public int moduleNid(int sequence) {
+        return moduleNids[sequence];
+    }
+
+    public int authorNid(int sequence) {
+        return authorNids[sequence];
+    }
+
+    public int stateNid(int sequence) {
+        return stateNids[sequence];
+    }
+
+    /**
+     * @return the number of stamps in the table
+     */
+    public int size() {
+        synchronized (addLock) {
+            return size;
+        }
+    }
+
+    /**
+     * @param name the name of the statistics
+     * @return the size and the hits and misses of {@link #get(int, IntFunction)}; the table does not evict
+     */
+    public CacheStatistics statistics(String name) {
+        return new CacheStatistics(name, size(), Long.MAX_VALUE, hitCount.sum(), missCount.sum(), 0);
+    }
+
+    /**
+     * Open-addressing stamp nid to sequence index with a single writer. A value
+     * is written before its key, so a reader that sees the key sees the value.
+     */
+    private static final class Index {
+        private final AtomicIntegerArray keys;
+        private final AtomicIntegerArray values;
+        private final int mask;
+
+        private Index(int capacity) {
+            int[] emptyKeys = new int[capacity];
+            Arrays.fill(emptyKeys, EMPTY_KEY);
+            this.keys = new AtomicIntegerArray(emptyKeys);
+            this.values = new AtomicIntegerArray(capacity);
+            this.mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        int get(int nid) {
+            for (int slot = slot(nid); ; slot = (slot + 1) & mask) {
+                int key = keys.get(slot);
+                if (key == nid) {
+                    return values.get(slot);
+                }
+                if (key == EMPTY_KEY) {
+                    return NONE;
+                }
+            }
+        }
+
+        void put(int nid, int sequence) {
+            int slot = slot(nid);
+            while (keys.get(slot) != EMPTY_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            values.set(slot, sequence);
+            keys.set(slot, nid);
+        }
+
+        Index grow() {
+            Index grown = new Index(capacity() * 2);
+            for (int slot = 0; slot < capacity(); slot++) {
+                int key = keys.get(slot);
+                if (key != EMPTY_KEY) {
+                    grown.put(key, values.get(slot));
+                }
+            }
+            return grown;
+        }
+
+        private int slot(int nid) {
+            // Nids are sequential; spread them so neighbouring stamps do not cluster.
+            int hash = nid * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+}
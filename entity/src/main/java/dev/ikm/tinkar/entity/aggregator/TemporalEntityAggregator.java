@@ -17,8 +17,12 @@
 
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.EntityCountSummary;
+import dev.ikm.tinkar.common.service.StampPostingsIndex;
 import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.EntityService;
+import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,14 +30,29 @@
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
+/**
+ * Aggregates the components with a version on a stamp in a time window, optionally limited to some modules and
+ * paths, together with every stamp of those components.
+ * <p>
+ * When the data provider maintains a {@link StampPostingsIndex}, only the stamps in the window and the components
+ * posted to them are read, in parallel and without decoding the components. Otherwise every component is decoded.
+ */
 public class TemporalEntityAggregator extends EntityAggregator {
     private static final Logger LOG = LoggerFactory.getLogger(TemporalEntityAggregator.class);
+    // Chronology tokens of FieldDataType, as found in entity bytes.
+    private static final byte CONCEPT_TYPE = 1;
+    private static final byte PATTERN_TYPE = 2;
+    private static final byte SEMANTIC_TYPE = 3;
 
     private final long fromEpochMillis;
     private final long toEpochMillis;
+    private final ImmutableIntSet moduleNids;
+    private final ImmutableIntSet pathNids;
 
     /** Orphan nids seen by the last {@link #aggregate(IntConsumer)} run — sequences
      * allocated by the store but with no committed entity bytes (typically canceled
@@ -43,21 +62,99 @@ public class TemporalEntityAggregator extends EntityAggregator {
     private long lastOrphanCount;
 
     public TemporalEntityAggregator(long fromEpochMillis, long toEpochMillis) {
+        this(fromEpochMillis, toEpochMillis, IntSets.immutable.empty(), IntSets.immutable.empty());
+    }
+
+    /**
+     * @param moduleNids the modules a stamp must be on, or empty for any module
+     * @param pathNids the paths a stamp must be on, or empty for any path
+     */
+    public TemporalEntityAggregator(long fromEpochMillis, long toEpochMillis,
+                                    ImmutableIntSet moduleNids, ImmutableIntSet pathNids) {
         this.fromEpochMillis = fromEpochMillis;
         this.toEpochMillis = toEpochMillis;
+        this.moduleNids = moduleNids;
+        this.pathNids = pathNids;
     }
 
     @Override
     public EntityCountSummary aggregate(IntConsumer nidConsumer) {
         initCounts();
+        lastOrphanCount = 0;
+        Optional<StampPostingsIndex> stampPostingsIndex = PrimitiveData.get().stampPostingsIndex();
+        EntityCountSummary summary = stampPostingsIndex.isPresent()
+                ? aggregateByPostings(stampPostingsIndex.get(), nidConsumer)
+                : aggregateByScan(nidConsumer);
+        if (lastOrphanCount > 0) {
+            LOG.warn("Temporal aggregation skipped {} orphan nid(s) (allocated, no entity"
+                    + " bytes) — excluded from counts and emission alike", lastOrphanCount);
+        }
+        return summary;
+    }
+
+    private EntityCountSummary aggregateByPostings(StampPostingsIndex stampPostingsIndex, IntConsumer nidConsumer) {
+        RoaringBitmap filteredStampNids = new RoaringBitmap();
+        stampPostingsIndex.stampsInTimeRange(fromEpochMillis, toEpochMillis).forEach((int stampNid) -> {
+            if (matches(stampNid)) {
+                filteredStampNids.add(stampNid);
+            }
+        });
+        int[] componentNids = stampPostingsIndex.componentsWithAnyStamp(filteredStampNids).toArray();
+
+        // Read the type and stamps of each component from its bytes. A nid without bytes is an orphan
+        // (IKE-Network/ike-issues#933), and is neither counted nor emitted.
+        byte[] componentTypes = new byte[componentNids.length];
+        RoaringBitmap stampsToExport = IntStream.range(0, componentNids.length).parallel().collect(RoaringBitmap::new,
+                (stamps, i) -> {
+                    byte[] bytes = PrimitiveData.get().getBytes(componentNids[i]);
+                    if (bytes != null) {
+                        componentTypes[i] = bytes[9];
+                        StampPostingsIndex.forEachStampNid(bytes, stamps::add);
+                    }
+                }, (left, right) -> left.or(right));
+
+        // Emit concepts, then semantics, then patterns, in nid order.
+        for (byte type : new byte[]{CONCEPT_TYPE, SEMANTIC_TYPE, PATTERN_TYPE}) {
+            for (int i = 0; i < componentNids.length; i++) {
+                if (componentTypes[i] == type) {
+                    switch (type) {
+                        case CONCEPT_TYPE -> conceptsAggregatedCount.incrementAndGet();
+                        case SEMANTIC_TYPE -> semanticsAggregatedCount.incrementAndGet();
+                        default -> patternsAggregatedCount.incrementAndGet();
+                    }
+                    nidConsumer.accept(componentNids[i]);
+                }
+            }
+        }
+        for (byte componentType : componentTypes) {
+            if (componentType == 0) {
+                lastOrphanCount++;
+            }
+        }
+
+        // Export the stamps of the aggregated components, resolution-checked like the components.
+        stampsToExport.forEach((int stampNid) -> {
+            if (PrimitiveData.get().getBytes(stampNid) != null) {
+                stampsAggregatedCount.incrementAndGet();
+                nidConsumer.accept(stampNid);
+            } else {
+                lastOrphanCount++;
+            }
+        });
+        return summarize();
+    }
+
+    /**
+     * Decodes every component to find those with a matching stamp, for providers without a
+     * {@link StampPostingsIndex}.
+     */
+    private EntityCountSummary aggregateByScan(IntConsumer nidConsumer) {
         // Filter Stamp Nids based on the supplied time span
         Set<Integer> filteredStampNids = new HashSet<>();
         PrimitiveData.get().forEachStampNid((stampNid) -> {
-            EntityService.get().getStamp(stampNid).ifPresent((stampEntity) -> {
-                if (fromEpochMillis <= stampEntity.time() && stampEntity.time() <= toEpochMillis) {
-                    filteredStampNids.add(stampEntity.nid());
-                }
-            });
+            if (matches(stampNid)) {
+                filteredStampNids.add(stampNid);
+            }
         });
 
         List<Integer> stampsToExport = new ArrayList<>();
@@ -68,7 +165,6 @@ public EntityCountSummary aggregate(IntConsumer nidConsumer) {
         // (allocated, no committed bytes; the entity cache may still answer for it)
         // is excluded from the count, the emission, and the stamp collection alike
         // (IKE-Network/ike-issues#933).
-        lastOrphanCount = 0;
         PrimitiveData.get().forEachConceptNid((conceptNid) -> {
             Entity<?> conceptEntity = EntityService.get().getEntityFast(conceptNid);
             if (conceptEntity == null) {
@@ -129,11 +225,13 @@ public EntityCountSummary aggregate(IntConsumer nidConsumer) {
         }
         stampsAggregatedCount.set(deliverableStampNids.size());
         deliverableStampNids.forEach(nidConsumer::accept);
-
-        if (lastOrphanCount > 0) {
-            LOG.warn("Temporal aggregation skipped {} orphan nid(s) (allocated, no entity"
-                    + " bytes) — excluded from counts and emission alike", lastOrphanCount);
-        }
         return summarize();
     }
+
+    private boolean matches(int stampNid) {
+        return EntityService.get().getStamp(stampNid).map(stampEntity ->
+                fromEpochMillis <= stampEntity.time() && stampEntity.time() <= toEpochMillis
+                        && (moduleNids.isEmpty() || moduleNids.contains(stampEntity.moduleNid()))
+                        && (pathNids.isEmpty() || pathNids.contains(stampEntity.pathNid()))).orElse(false);
+    }
 }
@@ -23,7 +23,9 @@
 import dev.ikm.tinkar.common.service.DataActivity;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.SearchService;
+import dev.ikm.tinkar.common.service.ServiceKeys;
 import dev.ikm.tinkar.common.service.ServiceLifecycleManager;
+import dev.ikm.tinkar.common.service.ServiceProperties;
 import dev.ikm.tinkar.common.service.TrackingCallable;
 import dev.ikm.tinkar.common.util.io.CountingInputStream;
 import dev.ikm.tinkar.coordinate.Coordinates;
@@ -46,8 +48,6 @@
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
@@ -145,128 +145,98 @@ private EntityCountSummary computeMultiPass(long expectedImports, Map<PublicId,
         // Pass 1: generate identifiers for all entities
         EntityService.get().beginLoadPhase();
         CopyOnWriteArrayList<UUID> patternUuids = new CopyOnWriteArrayList<>();
+        int parserCount = Runtime.getRuntime().availableProcessors();
+        int workerCount = parserCount * 8;
+        ProtobufMessagePipeline.FrameCache frameCache = new ProtobufMessagePipeline.FrameCache(frameCacheMaxBytes());
 
         try (FileInputStream fileIn = new FileInputStream(importFile);
              BufferedInputStream buffIn = new BufferedInputStream(fileIn, InputStreamBufferSize);
-             CountingInputStream countingIn = new CountingInputStream(buffIn);
-             ZipInputStream zis = new ZipInputStream(countingIn)) {
-            ZipEntry zipEntry;
-            int messageIndex = 0;
-            while ((zipEntry = zis.getNextEntry()) != null) {
-                if (!zipEntry.getName().equals(MANIFEST_RELPATH)) {
-                    Semaphore permits = new Semaphore(Runtime.getRuntime().availableProcessors() * 8);
-
-                    try (StructuredTaskScope scope = StructuredTaskScope.open()) {
-                        while (zis.available() > 0) {
-                            // zis.available returns 1 until AFTER EOF has been reached
-                            TinkarMsg pbTinkarMsg = TinkarMsg.parseDelimitedFrom(zis);
-                            permits.acquire();
-                            scope.fork(() -> {
-                                try {
-                                    ScopedValue.where(SCOPED_TINKAR_MSG, pbTinkarMsg)
-                                            .where(SCOPED_WATCH_LIST, watchList).call(() -> {
-                                                if (pbTinkarMsg != null) {
-                                                    // Batch progress updates to prevent hanging the UI thread
-                                                    if (identifierCount.incrementAndGet() % 1000 == 0) {
-                                                        updateProgress(countingIn.getBytesRead(), this.importFile.length() * 2);
-                                                    }
-                                                    int nid = switch (pbTinkarMsg.getValueCase()) {
-                                                        case CONCEPT_CHRONOLOGY ->
-                                                                makeNid(EntityBinding.Concept.pattern(), pbTinkarMsg.getConceptChronology().getPublicId());
-                                                        case SEMANTIC_CHRONOLOGY ->
-                                                                makeNid(pbTinkarMsg.getSemanticChronology());
-                                                        case PATTERN_CHRONOLOGY ->
-                                                                makeNid(EntityBinding.Pattern.pattern(), pbTinkarMsg.getPatternChronology().getPublicId());
-                                                        case STAMP_CHRONOLOGY ->
-                                                                makeNid(EntityBinding.Stamp.pattern(), pbTinkarMsg.getStampChronology().getPublicId());
-                                                        case VALUE_NOT_SET ->
-                                                                throw new IllegalStateException("Tinkar message value not set");
-                                                    };
-                                                    if (pbTinkarMsg.getValueCase().getNumber() == TinkarMsg.ValueCase.PATTERN_CHRONOLOGY.getNumber()) {
-                                                        PatternChronology patternChronology = pbTinkarMsg.getPatternChronology();
-                                                        String uuidStr = patternChronology.getPublicId().getUuidsList().get(0);
-                                                        UUID uuid = UUID.fromString(uuidStr);
-                                                        patternUuids.add(uuid);
-                                                    }
-                                                }
-                                                return null;
-
-                                            });
-                                } catch (Throwable t) {
-                                    LOG.error("Unhandled exception in identifier subtask for msg: {}", pbTinkarMsg, t);
-                                    throw t; // preserve failure semantics
-                                } finally {
-                                    permits.release();
+             ZipInputStream zis = new ZipInputStream(buffIn)) {
+            ProtobufMessagePipeline identifierPipeline =
+                    new ProtobufMessagePipeline("Identifier pass", parserCount, workerCount);
+            identifierPipeline.run(zis, LoadEntitiesFromProtobufFile::isMessageEntry, frameCache, pbTinkarMsg -> {
+                try {
+                    ScopedValue.where(SCOPED_TINKAR_MSG, pbTinkarMsg)
+                            .where(SCOPED_WATCH_LIST, watchList).call(() -> {
+                                // Batch progress updates to prevent hanging the UI thread
+                                if (identifierCount.incrementAndGet() % 1000 == 0) {
+                                    updateProgress(identifierCount.get(), expectedImports * 2);
                                 }
+                                int nid = switch (pbTinkarMsg.getValueCase()) {
+                                    case CONCEPT_CHRONOLOGY ->
+                                            makeNid(EntityBinding.Concept.pattern(), pbTinkarMsg.getConceptChronology().getPublicId());
+                                    case SEMANTIC_CHRONOLOGY ->
+                                            makeNid(pbTinkarMsg.getSemanticChronology());
+                                    case PATTERN_CHRONOLOGY ->
+                                            makeNid(EntityBinding.Pattern.pattern(), pbTinkarMsg.getPatternChronology().getPublicId());
+                                    case STAMP_CHRONOLOGY ->
+                                            makeNid(EntityBinding.Stamp.pattern(), pbTinkarMsg.getStampChronology().getPublicId());
+                                    case VALUE_NOT_SET ->
+                                            throw new IllegalStateException("Tinkar message value not set");
+                                };
+                                if (pbTinkarMsg.getValueCase().getNumber() == TinkarMsg.ValueCase.PATTERN_CHRONOLOGY.getNumber()) {
+                                    PatternChronology patternChronology = pbTinkarMsg.getPatternChronology();
+                                    String uuidStr = patternChronology.getPublicId().getUuidsList().get(0);
+                                    UUID uuid = UUID.fromString(uuidStr);
+                                    patternUuids.add(uuid);
+                                }
+                                return null;
                             });
-                        }
-                        scope.join();
-                    }
+                } catch (Throwable t) {
+                    LOG.error("Unhandled exception in identifier subtask for msg: {}", pbTinkarMsg, t);
+                    throw t; // preserve failure semantics
                 }
-            }
+            });
+            identifierPipeline.logStatistics();
             updateMessage("Imported identifiers...");
             LOG.info("Imported {} identifiers", String.format("%,d",identifierCount.get()));
         }
 
-        // Pass 2: load entities into RocksDB
-        try (FileInputStream fileIn = new FileInputStream(importFile);
-             BufferedInputStream buffIn = new BufferedInputStream(fileIn, InputStreamBufferSize); // Increased buffer size
-             CountingInputStream countingIn = new CountingInputStream(buffIn);
-             ZipInputStream zis = new ZipInputStream(countingIn)) {
+        // Pass 2: load entities into the data store
+        try {
             // Consumer to be run for each transformed Entity
             Consumer<Entity<? extends EntityVersion>> entityConsumer = entity -> {
                 EntityService.get().putEntityNoCache(entity, DataActivity.LOADING_CHANGE_SET);
                 updateCounts(entity);
             };
 
-            ZipEntry zipEntry;
             final AtomicInteger errorCount = new AtomicInteger();
-            while ((zipEntry = zis.getNextEntry()) != null) {
-                if (zipEntry.getName().equals(MANIFEST_RELPATH)) {
-                    continue;
-                }
-                try (StructuredTaskScope scope = StructuredTaskScope.open()) {
-                    Semaphore permits = new Semaphore(Runtime.getRuntime().availableProcessors() * 8);
-                    while (zis.available() > 0) {
-                        // zis.available returns 1 until AFTER EOF has been reached
-                        // Protobuf parser reads the data UP TO EOF, so zis.available
-                        // will return 1 when the only thing left is EOF
-                        // pbTinkarMsg should be null for this last entry
-                        TinkarMsg pbTinkarMsg = TinkarMsg.parseDelimitedFrom(zis);
-                        if (pbTinkarMsg == null) {
-                            continue;
-                        }
-                        permits.acquire();
-                        scope.fork(() -> ScopedValue.where(SCOPED_TINKAR_MSG, pbTinkarMsg).call(() -> {
-                            // TODO: Remove need for Stamp Consumer since Stamps are now consumed by Entity Consumer
-                            try {
-                                entityTransformer.transform(pbTinkarMsg, entityConsumer, (stampEntity) -> {
-                                });
-                                // Batch progress updates to prevent hanging the UI thread
-                                if (importCount.incrementAndGet() % 1000 == 0) {
-                                    updateProgress(this.importFile.length() + countingIn.getBytesRead(), this.importFile.length() * 2);
-                                }
-                            } catch (RuntimeException e) {
-                                if (e instanceof IllegalStateException && e.getMessage().contains("No entity key found for UUIDs")) {
-                                    LOG.error("{}. Error transforming Protobuf message: {} \n  {}", errorCount.getAndIncrement(), e.getMessage(), pbTinkarMsg);
-                                }
-                                if (e instanceof IllegalStateException && e.getMessage().contains("Entity byte[] not found")) {
-                                    LOG.error("{}. Error transforming Protobuf message: {} \n  {}", errorCount.getAndIncrement(), e.getMessage(), pbTinkarMsg);
-                                } else {
-                                    LOG.error("{}. Error transforming Protobuf message: {}  \n  {}", errorCount.getAndIncrement(), e.getMessage(), pbTinkarMsg, e);
-                                }
-                            } finally {
-                                permits.release();
-                            }
-                            return null;
-                        }));
+            ProtobufMessagePipeline.MessageAction transformAction = pbTinkarMsg -> ScopedValue.where(SCOPED_TINKAR_MSG, pbTinkarMsg).call(() -> {
+                // TODO: Remove need for Stamp Consumer since Stamps are now consumed by Entity Consumer
+                try {
+                    entityTransformer.transform(pbTinkarMsg, entityConsumer, (stampEntity) -> {
+                    });
+                    // Batch progress updates to prevent hanging the UI thread
+                    if (importCount.incrementAndGet() % 1000 == 0) {
+                        updateProgress(expectedImports + importCount.get(), expectedImports * 2);
                     }
-                    LOG.info("Starting scope.join");
-                    scope.join();
-                    LOG.info("Finished scope.join");
-
+                } catch (RuntimeException e) {
+                    if (e instanceof IllegalStateException && e.getMessage().contains("No entity key found for UUIDs")) {
+                        LOG.error("{}. Error transforming Protobuf message: {} \n  {}", errorCount.getAndIncrement(), e.getMessage(), pbTinkarMsg);
+                    }
+                    if (e instanceof IllegalStateException && e.getMessage().contains("Entity byte[] not found")) {
+                        LOG.error("{}. Error transforming Protobuf message: {} \n  {}", errorCount.getAndIncrement(), e.getMessage(), pbTinkarMsg);
+                    } else {
+                        LOG.error("{}. Error transforming Protobuf message: {}  \n  {}", errorCount.getAndIncrement(), e.getMessage(), pbTinkarMsg, e);
+                    }
+                }
+                return null;
+            });
+            ProtobufMessagePipeline entityPipeline = new ProtobufMessagePipeline("Entity pass", parserCount, workerCount);
+            if (frameCache.usable()) {
+                // The frames of pass 1 are in memory, so the archive need not be inflated again.
+                LOG.info("Loading entities from {} bytes of cached messages", String.format("%,d", frameCache.bytes()));
+                entityPipeline.run(frameCache, transformAction);
+                frameCache.clear();
+            } else {
+                try (FileInputStream fileIn = new FileInputStream(importFile);
+                     BufferedInputStream buffIn = new BufferedInputStream(fileIn, InputStreamBufferSize); // Increased buffer size
+                     ZipInputStream zis = new ZipInputStream(buffIn)) {
+                    entityPipeline.run(zis, LoadEntitiesFromProtobufFile::isMessageEntry, null, transformAction);
                 }
             }
+            entityPipeline.logStatistics();
+
             StringBuilder stringBuilder = new StringBuilder();
 
             patternUuids.forEach(patternUuid -> {
@@ -323,6 +293,19 @@ private EntityCountSummary computeMultiPass(long expectedImports, Map<PublicId,
         return summarize();
     }
 
+    private static boolean isMessageEntry(ZipEntry zipEntry) {
+        return !zipEntry.getName().equals(MANIFEST_RELPATH);
+    }
+
+    /**
+     * The most bytes of pass 1 messages to keep in memory for pass 2, from
+     * {@link ServiceKeys#IMPORT_FRAME_CACHE_MAX_BYTES}, defaulting to a quarter of the maximum heap.
+     */
+    private static long frameCacheMaxBytes() {
+        Number maxBytes = ServiceProperties.get(ServiceKeys.IMPORT_FRAME_CACHE_MAX_BYTES, Runtime.getRuntime().maxMemory() / 4);
+        return maxBytes.longValue();
+    }
+
     private static void verifyManifest(Map<PublicId, String> manifestEntryData) {
         manifestEntryData.keySet().forEach((publicId) -> {
             if (!PrimitiveData.get().hasPublicId(publicId)) {
@@ -470,11 +453,18 @@ private static void commitSearchIndexIfAvailable() {
                 dev.ikm.tinkar.entity.EntityService.get().loadPhaseSearchPolicy();
         if (!policy.recreateRequired()) {
             // The change-set fit under the live-index threshold; the index
-            // was kept current by per-merge calls during loadPhase. No
-            // post-load search work needed.
+            // was kept current by per-merge calls during loadPhase. Commit so
+            // the load is durable and searchable when the import returns.
             LOG.info("Change-set indexed live during load phase ({} entities, threshold {}) — no recreate needed",
                     policy.liveIndexedCount(),
                     dev.ikm.tinkar.entity.LoadPhaseSearchPolicy.threshold());
+            ServiceLifecycleManager.get().getRunningService(SearchService.class).ifPresent(service -> {
+                try {
+                    service.commit();
+                } catch (Exception e) {
+                    LOG.warn("Failed to commit Lucene index after import", e);
+                }
+            });
             return;
         }
         // Change-set exceeded the live-index threshold — fall back to a full
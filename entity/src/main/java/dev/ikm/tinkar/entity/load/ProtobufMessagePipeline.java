@@ -0,0 +1,415 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity.load;
+
+import com.google.protobuf.CodedInputStream;
+import dev.ikm.tinkar.schema.TinkarMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads the length-delimited {@link TinkarMsg} messages of a change set in three stages, connected by bounded queues:
+ * <ol>
+ *     <li>a reader that inflates the archive and slices it into frames, packed into pooled buffers;</li>
+ *     <li>parsers that turn batches of frames into messages;</li>
+ *     <li>workers that apply an action to each message.</li>
+ * </ol>
+ * The frames read by one run may be kept in a {@link FrameCache}, so a later run over the same archive need not
+ * inflate it again. Each stage counts its messages and the time it spends working, rather than waiting on its
+ * queues, so {@link #logStatistics()} shows which stage limits the throughput.
+ */
+final class ProtobufMessagePipeline {
+    private static final Logger LOG = LoggerFactory.getLogger(ProtobufMessagePipeline.class);
+    static final int FRAME_BUFFER_SIZE = 1024 * 1024;
+    static final int MAX_FRAMES_PER_BATCH = 1024;
+    private static final FrameBatch END_OF_FRAMES = new FrameBatch(new byte[0], false);
+    private static final List<TinkarMsg> END_OF_MESSAGES = List.of();
+
+    private final String name;
+    private final int parserCount;
+    private final int workerCount;
+    private final BlockingQueue<byte[]> bufferPool;
+    private final Stage reader;
+    private final Stage parsers;
+    private final Stage workers;
+    private long wallNanos;
+
+    /**
+     * An action applied to each message by the worker stage.
+     */
+    @FunctionalInterface
+    interface MessageAction {
+        void accept(TinkarMsg message) throws Exception;
+    }
+
+    ProtobufMessagePipeline(String name, int parserCount, int workerCount) {
+        this.name = name;
+        this.parserCount = parserCount;
+        this.workerCount = workerCount;
+        this.bufferPool = new ArrayBlockingQueue<>(parserCount * 3 + 2);
+        this.reader = new Stage("read", 1);
+        this.parsers = new Stage("parse", parserCount);
+        this.workers = new Stage("apply", workerCount);
+    }
+
+    /**
+     * Reads the messages of each entry of the archive that the filter accepts, and applies the action to them.
+     *
+     * @param zis the archive
+     * @param entryFilter accepts the entries that hold messages
+     * @param frameCache keeps the frames that are read, or null
+     * @param action applied to each message, concurrently
+     * @throws Exception the first exception thrown by a stage, after all stages have stopped
+     */
+    void run(ZipInputStream zis, Predicate<ZipEntry> entryFilter, FrameCache frameCache, MessageAction action) throws Exception {
+        run(frames -> {
+            ZipEntry zipEntry;
+            while ((zipEntry = zis.getNextEntry()) != null) {
+                if (entryFilter.test(zipEntry)) {
+                    // The entry ends at end of stream, so buffering does not read past it.
+                    readFrames(new BufferedInputStream(zis, FRAME_BUFFER_SIZE), frames, frameCache);
+                }
+            }
+            if (frameCache != null) {
+                frameCache.complete = true;
+            }
+        }, action);
+    }
+
+    /**
+     * Applies the action to the messages of frames kept by an earlier run.
+     *
+     * @param frameCache a complete cache
+     * @param action applied to each message, concurrently
+     * @throws Exception the first exception thrown by a stage, after all stages have stopped
+     */
+    void run(FrameCache frameCache, MessageAction action) throws Exception {
+        if (!frameCache.usable()) {
+            throw new IllegalStateException("Frame cache is incomplete");
+        }
+        run(frames -> {
+            long start = System.nanoTime();
+            long blockedNanos = 0;
+            for (FrameBatch batch : frameCache.batches) {
+                reader.messages.add(batch.count);
+                long putStart = System.nanoTime();
+                frames.put(batch);
+                blockedNanos += System.nanoTime() - putStart;
+            }
+            reader.busyNanos.add(System.nanoTime() - start - blockedNanos);
+        }, action);
+    }
+
+    private void run(FrameSource source, MessageAction action) throws Exception {
+        BlockingQueue<FrameBatch> frames = new ArrayBlockingQueue<>(parserCount * 2);
+        BlockingQueue<List<TinkarMsg>> messages = new ArrayBlockingQueue<>(workerCount * 2);
+        AtomicInteger runningParsers = new AtomicInteger(parserCount);
+        long start = System.nanoTime();
+        try (StructuredTaskScope<Object, Void> scope = StructuredTaskScope.open()) {
+            // A failed stage cancels the scope, interrupting the others, so end markers are only sent on success.
+            scope.fork(() -> {
+                source.readInto(frames);
+                for (int i = 0; i < parserCount; i++) {
+                    frames.put(END_OF_FRAMES);
+                }
+                return null;
+            });
+            for (int i = 0; i < parserCount; i++) {
+                scope.fork(() -> {
+                    parse(frames, messages);
+                    if (runningParsers.decrementAndGet() == 0) {
+                        for (int j = 0; j < workerCount; j++) {
+                            messages.put(END_OF_MESSAGES);
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (int i = 0; i < workerCount; i++) {
+                scope.fork(() -> {
+                    apply(messages, action);
+                    return null;
+                });
+            }
+            scope.join();
+        } catch (StructuredTaskScope.FailedException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            wallNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void readFrames(InputStream in, BlockingQueue<FrameBatch> frames, FrameCache frameCache)
+            throws IOException, InterruptedException {
+        long busyStart = System.nanoTime();
+        FrameBatch batch = new FrameBatch(buffer(), true);
+        int length;
+        while ((length = readFrameLength(in)) >= 0) {
+            if (!batch.fits(length)) {
+                if (batch.count > 0) {
+                    busyStart = emit(batch, frames, frameCache, busyStart);
+                } else {
+                    recycle(batch);
+                }
+                batch = length > FRAME_BUFFER_SIZE ? new FrameBatch(new byte[length], false) : new FrameBatch(buffer(), true);
+            }
+            int offset = batch.used;
+            if (in.readNBytes(batch.buffer, offset, length) != length) {
+                throw new EOFException("Truncated message of " + length + " bytes");
+            }
+            batch.add(offset, length);
+        }
+        if (batch.count > 0) {
+            busyStart = emit(batch, frames, frameCache, busyStart);
+        } else {
+            recycle(batch);
+        }
+        reader.busyNanos.add(System.nanoTime() - busyStart);
+    }
+
+    /**
+     * Queues a batch, not counting the time blocked on the queue as busy time.
+     *
+     * @return when work resumed
+     */
+    private long emit(FrameBatch batch, BlockingQueue<FrameBatch> frames, FrameCache frameCache, long busyStart)
+            throws InterruptedException {
+        if (frameCache != null) {
+            frameCache.add(batch);
+        }
+        reader.messages.add(batch.count);
+        reader.busyNanos.add(System.nanoTime() - busyStart);
+        frames.put(batch);
+        return System.nanoTime();
+    }
+
+    private void parse(BlockingQueue<FrameBatch> frames, BlockingQueue<List<TinkarMsg>> messages)
+            throws IOException, InterruptedException {
+        FrameBatch batch;
+        while ((batch = frames.take()) != END_OF_FRAMES) {
+            long busyStart = System.nanoTime();
+            List<TinkarMsg> parsed = new ArrayList<>(batch.count);
+            for (int i = 0; i < batch.count; i++) {
+                parsed.add(TinkarMsg.parseFrom(
+                        CodedInputStream.newInstance(batch.buffer, batch.offsets[i], batch.lengths[i])));
+            }
+            recycle(batch);
+            parsers.messages.add(parsed.size());
+            parsers.busyNanos.add(System.nanoTime() - busyStart);
+            messages.put(parsed);
+        }
+    }
+
+    private void apply(BlockingQueue<List<TinkarMsg>> messages, MessageAction action) throws Exception {
+        List<TinkarMsg> batch;
+        while ((batch = messages.take()) != END_OF_MESSAGES) {
+            long busyStart = System.nanoTime();
+            for (TinkarMsg message : batch) {
+                action.accept(message);
+            }
+            workers.messages.add(batch.size());
+            workers.busyNanos.add(System.nanoTime() - busyStart);
+        }
+    }
+
+    private byte[] buffer() {
+        byte[] buffer = bufferPool.poll();
+        return buffer != null ? buffer : new byte[FRAME_BUFFER_SIZE];
+    }
+
+    private void recycle(FrameBatch batch) {
+        if (batch.pooled) {
+            bufferPool.offer(batch.buffer);
+        }
+    }
+
+    /**
+     * Reads the varint32 length that precedes each message.
+     *
+     * @return the length, or -1 at end of stream
+     */
+    static int readFrameLength(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            return -1;
+        }
+        int length = b & 0x7f;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            if (shift > 28) {
+                throw new IOException("Malformed message length");
+            }
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated message length");
+            }
+            length |= (b & 0x7f) << shift;
+        }
+        return length;
+    }
+
+    /**
+     * Logs, for each stage, the messages it handled and its throughput per busy second, and the overall rate.
+     */
+    void logStatistics() {
+        double wallSeconds = wallNanos / 1e9;
+        LOG.info("{}: {} messages in {} s ({} messages/s)", name, String.format("%,d", workers.messages.sum()),
+                String.format("%.2f", wallSeconds), String.format("%,.0f", workers.messages.sum() / Math.max(wallSeconds, 1e-9)));
+        for (Stage stage : List.of(reader, parsers, workers)) {
+            LOG.info("{}:   {}", name, stage);
+        }
+    }
+
+    private interface FrameSource {
+        void readInto(BlockingQueue<FrameBatch> frames) throws Exception;
+    }
+
+    private static final class Stage {
+        final String name;
+        final int threads;
+        final LongAdder messages = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+
+        Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        /**
+         * Messages per second that one thread of this stage handles while busy.
+         */
+        double messagesPerBusySecond() {
+            long busy = busyNanos.sum();
+            return busy == 0 ? 0 : messages.sum() * 1e9 / busy;
+        }
+
+        @Override
+        public String toString() {
+            double perThread = messagesPerBusySecond();
+            return String.format("%s: %,d messages, %,.0f messages/s per thread, %,.0f messages/s with %d threads",
+                    name, messages.sum(), perThread, perThread * threads, threads);
+        }
+    }
+
+    /**
+     * A buffer holding consecutive frames, each the bytes of one message.
+     */
+    static final class FrameBatch {
+        final byte[] buffer;
+        final boolean pooled;
+        final int[] offsets;
+        final int[] lengths;
+        int count;
+        int used;
+
+        FrameBatch(byte[] buffer, boolean pooled) {
+            this(buffer, pooled, new int[MAX_FRAMES_PER_BATCH], new int[MAX_FRAMES_PER_BATCH]);
+        }
+
+        private FrameBatch(byte[] buffer, boolean pooled, int[] offsets, int[] lengths) {
+            this.buffer = buffer;
+            this.pooled = pooled;
+            this.offsets = offsets;
+            this.lengths = lengths;
+        }
+
+        boolean fits(int length) {
+            return count < offsets.length && buffer.length - used >= length;
+        }
+
+        void add(int offset, int length) {
+            offsets[count] = offset;
+            lengths[count] = length;
+            count++;
+            used += length;
+        }
+
+        /**
+         * A copy no larger than its frames, which is never returned to the buffer pool.
+         */
+        FrameBatch trimmedCopy() {
+            FrameBatch copy = new FrameBatch(Arrays.copyOf(buffer, used), false,
+                    Arrays.copyOf(offsets, count), Arrays.copyOf(lengths, count));
+            copy.count = count;
+            copy.used = used;
+            return copy;
+        }
+    }
+
+    /**
+     * Keeps the frames of a run, up to a maximum number of bytes. If the frames don't fit, the cache gives up and
+     * releases what it holds.
+     */
+    static final class FrameCache {
+        private final long maxBytes;
+        private final List<FrameBatch> batches = new ArrayList<>();
+        private long bytes;
+        private boolean overflowed;
+        private volatile boolean complete;
+
+        FrameCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private void add(FrameBatch batch) {
+            if (overflowed) {
+                return;
+            }
+            bytes += batch.used;
+            if (bytes > maxBytes) {
+                overflowed = true;
+                batches.clear();
+                LOG.info("Frames exceed the frame cache limit of {} bytes; they will be read again", String.format("%,d", maxBytes));
+                return;
+            }
+            batches.add(batch.trimmedCopy());
+        }
+
+        /**
+         * @return true if the cache holds every frame of a completed run
+         */
+        boolean usable() {
+            return complete && !overflowed;
+        }
+
+        long bytes() {
+            return overflowed ? 0 : bytes;
+        }
+
+        void clear() {
+            batches.clear();
+            overflowed = true;
+        }
+    }
+}
@@ -21,8 +21,11 @@
 import dev.ikm.tinkar.common.binary.Encoder;
 import dev.ikm.tinkar.common.binary.EncoderOutput;
 import dev.ikm.tinkar.common.id.PublicId;
+import dev.ikm.tinkar.common.jfr.TransactionCommitEvent;
 import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.SearchService;
 import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceLifecycleManager;
 import dev.ikm.tinkar.common.service.ServiceProperties;
 import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
 import dev.ikm.tinkar.common.util.broadcast.CommitBroadcaster;
@@ -413,11 +416,13 @@ public long commitTime() {
      * <p>     * This method processes each stamp in the transaction by invoking the `commitStamp` method
      * with the appropriate commit time. It also updates the list of active transactions by
      * removing the committed transaction and triggers a notification to indicate that a refresh
-     * is required.
+     * is required. Once it returns, searches see the semantics written in the transaction.
      *
      * @return the total number of stamps that were finalized and committed.
      */
     public int commit() {
+        TransactionCommitEvent event = new TransactionCommitEvent();
+        event.begin();
         AtomicInteger stampCount = new AtomicInteger();
         this.commitTime = System.currentTimeMillis();
         activeTransactions.remove(this);
@@ -426,15 +431,33 @@ public int commit() {
             finalizedStampNids.add(commitStamp(stampUuid, this.commitTime));
             stampCount.incrementAndGet();
         });
+        // Durable before it is announced.
+        PrimitiveData.get().sync();
+        // Searchable before it is announced, so a committer that searches next finds its own writes.
+        ServiceLifecycleManager.get().getRunningService(SearchService.class).ifPresent(Transaction::awaitSearchable);
         Entity.provider().notifyRefreshRequired(this);
         MutableIntList changedComponentNids = IntLists.mutable.empty();
         forEachComponentInTransaction(componentNid -> changedComponentNids.add(componentNid));
         CommitBroadcaster.publish(new CommitBroadcaster.CommitNotification(
                 this.transactionUuid, this.transactionName, this.commitTime,
                 finalizedStampNids.toArray(), changedComponentNids.toArray(), stampCount.get()));
+        if (event.shouldCommit()) {
+            event.transactionName = this.transactionName;
+            event.stampCount = stampCount.get();
+            event.componentCount = changedComponentNids.size();
+            event.commit();
+        }
         return stampCount.get();
     }
 
+    private static void awaitSearchable(SearchService searchService) {
+        try {
+            searchService.waitForGeneration(searchService.indexGeneration());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void forEachStampInTransaction(Consumer<? super UUID> action) {
         stampsInTransaction.forEach(action);
     }
@@ -19,6 +19,7 @@
  * and open the template in the editor.
  */
 
+import dev.ikm.tinkar.common.metrics.MetricsSource;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.LoadDataFromFileController;
 import dev.ikm.tinkar.common.service.ServiceLifecycle;
@@ -48,6 +49,7 @@
     requires java.xml;
     requires org.jgrapht.core;
     requires org.slf4j;
+    requires roaringbitmap;
     requires static dev.ikm.jpms.recordbuilder.core;
     requires static java.compiler;
     requires transitive dev.ikm.tinkar.common;
@@ -96,6 +98,10 @@
             EditCoordinateRecord.CacheProvider,
             StampPathImmutable.CachingProvider;
 
+    provides MetricsSource with
+            LanguageCalculatorWithCache.CacheProvider,
+            StampCalculatorWithCache.CacheProvider;
+
     provides LoadDataFromFileController
              with LoadEntitiesFromFileController;
 
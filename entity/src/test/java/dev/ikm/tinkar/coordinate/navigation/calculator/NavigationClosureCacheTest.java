@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.navigation.calculator;
+
+import dev.ikm.tinkar.common.id.IntIdList;
+import dev.ikm.tinkar.common.id.IntIds;
+import org.eclipse.collections.api.factory.primitive.IntObjectMaps;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Invalidation of the {@link NavigationClosureCache} when navigation changes. Hermetic: the cache walks an in-memory
+ * graph, and the tests call {@link NavigationClosureCache#invalidate(int)} for each concept whose navigation semantic
+ * a write would change.
+ */
+class NavigationClosureCacheTest {
+    private static final int ROOT = -1;
+    private static final int CHILD = -2;
+    private static final int GRANDCHILD = -3;
+    private static final int LEAF = -4;
+    private static final int OTHER_ROOT = -20;
+    private static final int OTHER_CHILD = -21;
+
+    private final MutableIntObjectMap<MutableIntList> children = IntObjectMaps.mutable.empty();
+    private final MutableIntObjectMap<MutableIntList> parents = IntObjectMaps.mutable.empty();
+    private final NavigationClosureCache cache = new NavigationClosureCache(null,
+            nid -> list(children, nid), nid -> list(parents, nid));
+
+    NavigationClosureCacheTest() {
+        addEdge(ROOT, CHILD);
+        addEdge(CHILD, GRANDCHILD);
+        addEdge(GRANDCHILD, LEAF);
+        addEdge(OTHER_ROOT, OTHER_CHILD);
+    }
+
+    private static IntIdList list(MutableIntObjectMap<MutableIntList> edges, int nid) {
+        MutableIntList nids = edges.get(nid);
+        return nids == null ? IntIds.list.empty() : IntIds.list.of(nids.toArray());
+    }
+
+    private void addEdge(int parentNid, int childNid) {
+        children.getIfAbsentPut(parentNid, IntLists.mutable::empty).add(childNid);
+        parents.getIfAbsentPut(childNid, IntLists.mutable::empty).add(parentNid);
+    }
+
+    private void removeEdge(int parentNid, int childNid) {
+        children.get(parentNid).remove(childNid);
+        parents.get(childNid).remove(parentNid);
+    }
+
+    private void cacheAllClosures() {
+        for (int nid : new int[]{ROOT, CHILD, GRANDCHILD, LEAF, OTHER_ROOT, OTHER_CHILD}) {
+            cache.descendents(nid);
+            cache.ancestors(nid);
+        }
+    }
+
+    @Test
+    void edgeEditInvalidatesAffectedClosures() {
+        cacheAllClosures();
+        assertEquals(RoaringBitmap.bitmapOf(CHILD, GRANDCHILD, LEAF), cache.descendents(ROOT));
+        assertEquals(RoaringBitmap.bitmapOf(ROOT, CHILD, GRANDCHILD), cache.ancestors(LEAF));
+
+        // Move the leaf from the grandchild to the other root; the navigation of both ends of each edge changes.
+        removeEdge(GRANDCHILD, LEAF);
+        addEdge(OTHER_ROOT, LEAF);
+        cache.invalidate(LEAF);
+        cache.invalidate(GRANDCHILD);
+        cache.invalidate(OTHER_ROOT);
+
+        assertFalse(cache.hasDescendents(ROOT));
+        assertFalse(cache.hasDescendents(CHILD));
+        assertFalse(cache.hasDescendents(GRANDCHILD));
+        assertFalse(cache.hasDescendents(OTHER_ROOT));
+        assertFalse(cache.hasAncestors(LEAF));
+        assertFalse(cache.hasAncestors(GRANDCHILD));
+        assertFalse(cache.hasAncestors(OTHER_ROOT));
+
+        assertEquals(RoaringBitmap.bitmapOf(CHILD, GRANDCHILD), cache.descendents(ROOT));
+        assertEquals(RoaringBitmap.bitmapOf(GRANDCHILD), cache.descendents(CHILD));
+        assertEquals(RoaringBitmap.bitmapOf(OTHER_CHILD, LEAF), cache.descendents(OTHER_ROOT));
+        assertEquals(RoaringBitmap.bitmapOf(OTHER_ROOT), cache.ancestors(LEAF));
+        assertEquals(RoaringBitmap.bitmapOf(ROOT, CHILD), cache.ancestors(GRANDCHILD));
+    }
+
+    @Test
+    void unrelatedWriteKeepsClosures() {
+        cacheAllClosures();
+        RoaringBitmap rootDescendents = cache.descendents(ROOT);
+        RoaringBitmap leafAncestors = cache.ancestors(LEAF);
+
+        // A new concept under the other root does not reach the first tree.
+        addEdge(OTHER_CHILD, -22);
+        cache.invalidate(-22);
+        cache.invalidate(OTHER_CHILD);
+
+        for (int nid : new int[]{ROOT, CHILD, GRANDCHILD, LEAF}) {
+            assertTrue(cache.hasDescendents(nid), "descendents of " + nid);
+            assertTrue(cache.hasAncestors(nid), "ancestors of " + nid);
+        }
+        assertSame(rootDescendents, cache.descendents(ROOT));
+        assertSame(leafAncestors, cache.ancestors(LEAF));
+        assertFalse(cache.hasDescendents(OTHER_ROOT));
+        assertTrue(cache.hasAncestors(OTHER_ROOT));
+        assertEquals(RoaringBitmap.bitmapOf(OTHER_CHILD, -22), cache.descendents(OTHER_ROOT));
+    }
+
+    @Test
+    void closureComputedDuringInvalidationIsNotKept() {
+        NavigationClosureCache[] racing = new NavigationClosureCache[1];
+        racing[0] = new NavigationClosureCache(null, nid -> {
+            if (nid == GRANDCHILD) {
+                // A write lands while the walk is below the root.
+                racing[0].invalidate(LEAF);
+            }
+            return list(children, nid);
+        }, nid -> list(parents, nid));
+
+        assertEquals(RoaringBitmap.bitmapOf(CHILD, GRANDCHILD, LEAF), racing[0].descendents(ROOT));
+        assertFalse(racing[0].hasDescendents(ROOT));
+        assertFalse(racing[0].hasDescendents(CHILD));
+        assertFalse(racing[0].hasDescendents(GRANDCHILD));
+    }
+
+    @Test
+    void writeToAnUncachedConceptKeepsClosures() {
+        cache.descendents(ROOT);
+        cache.ancestors(LEAF);
+        cache.invalidate(-100);
+        assertTrue(cache.hasDescendents(ROOT));
+        assertTrue(cache.hasAncestors(LEAF));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.coordinate.stamp.calculator;
+
+import dev.ikm.tinkar.entity.StampTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Bit layout and growth of {@link StampRouteMemo}. Hermetic: the memo only holds its table
+ * as an identity, so no stamps are read.
+ */
+class StampRouteMemoTest {
+
+    @Test
+    void storesResultsPerSequenceAndGrows() {
+        StampTable table = StampTable.current();
+        StampRouteMemo memo = new StampRouteMemo(table);
+        assertSame(table, memo.table());
+        assertEquals(StampRouteMemo.UNKNOWN, memo.get(0));
+        assertEquals(StampRouteMemo.UNKNOWN, memo.get(10_000));
+        for (int sequence = 0; sequence < 10_000; sequence += 3) {
+            memo.put(sequence, sequence % 2 == 0);
+        }
+        for (int sequence = 0; sequence < 10_000; sequence++) {
+            int expected = sequence % 3 != 0 ? StampRouteMemo.UNKNOWN : (sequence % 2 == 0 ? 1 : 0);
+            assertEquals(expected, memo.get(sequence), "sequence " + sequence);
+        }
+    }
+
+    @Test
+    void concurrentPutsInOneWordAreKept() {
+        StampRouteMemo memo = new StampRouteMemo(StampTable.current());
+        // Grow first: results set while the bits grow may be lost by design.
+        memo.put(4_095, true);
+        IntStream.range(0, 4_096).parallel().forEach(sequence -> memo.put(sequence, sequence % 5 == 0));
+        for (int sequence = 0; sequence < 4_096; sequence++) {
+            assertEquals(sequence % 5 == 0 ? 1 : 0, memo.get(sequence), "sequence " + sequence);
+        }
+    }
+}
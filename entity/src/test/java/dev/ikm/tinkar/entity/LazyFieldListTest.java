@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+import dev.ikm.tinkar.common.id.IntIds;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazyFieldListTest {
+    private static final byte[] PREFIX = {1, 2, 3};
+
+    private static final ImmutableList<Object> VALUES = Lists.immutable.of("A description", 42, 7L, true,
+            Instant.ofEpochSecond(1_700_000_000L, 5), IntIds.list.of(-5, -6, -7));
+
+    private static byte[] encode(ImmutableList<Object> values) {
+        ByteBuf writeBuf = ByteBufPool.allocate(4096);
+        writeBuf.write(PREFIX);
+        writeBuf.writeInt(values.size());
+        for (Object value : values) {
+            EntityRecordFactory.writeField(writeBuf, value);
+        }
+        return writeBuf.asArray();
+    }
+
+    private static LazyFieldList<Object> lazy(byte[] data) {
+        return new LazyFieldList<>(data, PREFIX.length, data.length, EntityRecordFactory.ENTITY_FORMAT_VERSION);
+    }
+
+    @Test
+    void decodesOnFirstUse() {
+        ImmutableList<Object> values = VALUES;
+        byte[] data = encode(values);
+
+        LazyFieldList<Object> fields = lazy(data);
+        assertEquals(values.size(), fields.size());
+        assertTrue(fields.notEmpty());
+        assertFalse(fields.isDecoded());
+
+        assertEquals("A description", fields.get(0));
+        assertTrue(fields.isDecoded());
+        assertEquals(fields, values);
+        assertEquals(fields, lazy(data));
+        assertEquals(values.hashCode(), fields.hashCode());
+    }
+
+    @Test
+    void sizeAndValuesSurviveReleasingTheBytes() {
+        LazyFieldList<Object> fields = lazy(encode(VALUES));
+        fields.get(0);
+        assertTrue(fields.isDecoded());
+        // The bytes are released once decoded, so these read the decoded list.
+        assertEquals(VALUES.size(), fields.size());
+        assertTrue(fields.notEmpty());
+        assertEquals(VALUES, Lists.immutable.withAll(fields));
+    }
+
+    @Test
+    void concurrentFirstDecodeGivesEqualLists() throws Exception {
+        int threads = 16;
+        for (int round = 0; round < 50; round++) {
+            LazyFieldList<Object> fields = lazy(encode(VALUES));
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<List<Object>>> results = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        List<Object> seen = new ArrayList<>();
+                        seen.add(fields.size());
+                        for (Object value : fields) {
+                            seen.add(value);
+                        }
+                        seen.add(fields.size());
+                        return seen;
+                    }));
+                }
+                start.countDown();
+                for (Future<List<Object>> result : results) {
+                    List<Object> seen = result.get();
+                    assertEquals(VALUES.size(), seen.getFirst());
+                    assertEquals(VALUES.castToList(), seen.subList(1, seen.size() - 1));
+                    assertEquals(VALUES.size(), seen.getLast());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertTrue(fields.isDecoded());
+            assertEquals(VALUES, fields);
+        }
+    }
+
+    @Test
+    void equalsAndHashMatchEagerLists() {
+        LazyFieldList<Object> undecoded = lazy(encode(VALUES));
+        assertTrue(VALUES.equals(undecoded));
+        LazyFieldList<Object> fields = lazy(encode(VALUES));
+        assertEquals(VALUES.hashCode(), fields.hashCode());
+        assertTrue(fields.equals(VALUES));
+        assertTrue(VALUES.equals(fields));
+        assertTrue(VALUES.castToList().equals(fields));
+        assertTrue(fields.equals(lazy(encode(VALUES))));
+
+        ImmutableList<Object> other = VALUES.newWith("another");
+        LazyFieldList<Object> otherFields = lazy(encode(other));
+        assertNotEquals(VALUES.hashCode(), otherFields.hashCode());
+        assertFalse(otherFields.equals(VALUES));
+        assertFalse(VALUES.equals(otherFields));
+        assertFalse(fields.equals(otherFields));
+        assertTrue(other.equals(otherFields));
+    }
+
+    @Test
+    void viewsAreListsAndMutatorsThrow() {
+        LazyFieldList<Object> fields = lazy(encode(VALUES));
+        assertEquals(VALUES.subList(1, 3), fields.subList(1, 3));
+        assertEquals(VALUES.subList(1, 3), List.copyOf(fields.subList(1, 3)));
+        assertEquals(VALUES.toReversed(), fields.reversed());
+        assertSame(fields, fields.castToList());
+        assertThrows(UnsupportedOperationException.class, () -> fields.add("another"));
+        assertThrows(UnsupportedOperationException.class, () -> fields.remove(0));
+        assertThrows(UnsupportedOperationException.class, fields::clear);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity;
+
+import dev.ikm.tinkar.common.service.CacheStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Sequences, columns and caching of the {@link StampTable}. Hermetic: stamps are built as records and
+ * handed to the table, so no data store is read.
+ */
+class StampTableTest {
+
+    private static StampRecord stamp(int nid, long time) {
+        RecordListBuilder<StampVersionRecord> versions = RecordListBuilder.make();
+        StampRecord stamp = new StampRecord(nid, 1L, null, nid, versions);
+        versions.add(new StampVersionRecord(stamp, nid - 1, time, nid - 2, nid - 3, nid - 4));
+        versions.build();
+        return stamp;
+    }
+
+    @Test
+    void assignsDenseSequencesOnce() {
+        StampTable table = new StampTable();
+        StampRecord first = stamp(-1_000, 10L);
+        StampRecord second = stamp(-2_000, 20L);
+        assertEquals(0, table.sequence(first));
+        assertEquals(1, table.sequence(second));
+        assertEquals(0, table.sequence(first));
+        assertEquals(0, table.sequence(first.nid()));
+        assertEquals(2, table.size());
+
+        assertEquals(20L, table.time(1));
+        assertEquals(second.stateNid(), table.stateNid(1));
+        assertEquals(second.authorNid(), table.authorNid(1));
+        assertEquals(second.moduleNid(), table.moduleNid(1));
+        assertEquals(second.pathNid(), table.pathNid(1));
+    }
+
+    @Test
+    void uncommittedStampsAreNotAdded() {
+        StampTable table = new StampTable();
+        StampRecord uncommitted = stamp(-1_000, Long.MAX_VALUE);
+        assertEquals(StampTable.NONE, table.sequence(uncommitted));
+        assertEquals(0, table.size());
+
+        AtomicInteger loads = new AtomicInteger();
+        assertSame(uncommitted, table.get(uncommitted.nid(), nid -> {
+            loads.incrementAndGet();
+            return uncommitted;
+        }));
+        table.get(uncommitted.nid(), nid -> {
+            loads.incrementAndGet();
+            return uncommitted;
+        });
+        assertEquals(2, loads.get());
+        assertEquals(0, table.size());
+
+        StampRecord canceled = stamp(-2_000, Long.MIN_VALUE);
+        assertEquals(0, table.sequence(canceled));
+        assertEquals(Long.MIN_VALUE, table.time(0));
+    }
+
+    @Test
+    void getLoadsCommittedStampsOnce() {
+        StampTable table = new StampTable();
+        StampRecord stamp = stamp(-1_000, 10L);
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertSame(stamp, table.get(stamp.nid(), nid -> {
+                loads.incrementAndGet();
+                return stamp;
+            }));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, table.sequence(stamp.nid()));
+        assertNull(table.get(-5_000, nid -> null));
+
+        CacheStatistics statistics = table.statistics("Stamp table");
+        assertEquals(1, statistics.size());
+        assertEquals(2, statistics.hitCount());
+        assertEquals(2, statistics.missCount());
+    }
+
+    @Test
+    void invalidateReloadsTheEntityAndKeepsTheSequence() {
+        StampTable table = new StampTable();
+        StampRecord stamp = stamp(-1_000, 10L);
+        StampRecord reread = stamp(-1_000, 10L);
+        table.get(stamp.nid(), nid -> stamp);
+        table.invalidate(stamp.nid());
+        table.invalidate(-5_000);
+        assertSame(reread, table.get(stamp.nid(), nid -> reread));
+        assertSame(reread, table.get(stamp.nid(), nid -> stamp));
+        assertEquals(0, table.sequence(stamp.nid()));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void columnsAndIndexGrow() {
+        StampTable table = new StampTable();
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            // Sequential nids, as the data store assigns them.
+            assertEquals(i, table.sequence(stamp(Integer.MIN_VALUE + 1 + i, 1_000L + i)));
+        }
+        assertEquals(count, table.size());
+        for (int i = 0; i < count; i++) {
+            int nid = Integer.MIN_VALUE + 1 + i;
+            assertEquals(i, table.sequence(nid), "nid " + nid);
+            assertEquals(1_000L + i, table.time(i));
+            assertEquals(nid - 4, table.pathNid(i));
+        }
+    }
+
+    @Test
+    void resetReplacesTheCurrentTable() {
+        StampTable before = StampTable.current();
+        before.sequence(stamp(-1_000, 10L));
+        StampTable.reset();
+        StampTable after = StampTable.current();
+        assertNotSame(before, after);
+        assertEquals(0, after.size());
+        assertEquals(1, before.size());
+    }
+}
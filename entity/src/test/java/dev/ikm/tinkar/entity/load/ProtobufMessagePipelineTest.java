@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.entity.load;
+
+import dev.ikm.tinkar.schema.ConceptChronology;
+import dev.ikm.tinkar.schema.PublicId;
+import dev.ikm.tinkar.schema.TinkarMsg;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProtobufMessagePipelineTest {
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+    private static final int MESSAGE_COUNT = 20_000;
+
+    @Test
+    public void everyMessageIsAppliedOnceAndCachedForAnotherRun() throws Exception {
+        Set<String> expected = new HashSet<>();
+        byte[] archive = archive(expected);
+
+        ProtobufMessagePipeline.FrameCache frameCache = new ProtobufMessagePipeline.FrameCache(Long.MAX_VALUE);
+        Set<String> applied = ConcurrentHashMap.newKeySet();
+        ProtobufMessagePipeline pipeline = new ProtobufMessagePipeline("test", 4, 16);
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            pipeline.run(zis, entry -> !entry.getName().equals(MANIFEST), frameCache,
+                    message -> assertTrue(applied.add(firstUuid(message))));
+        }
+        pipeline.logStatistics();
+        assertEquals(expected, applied);
+        assertTrue(frameCache.usable());
+
+        Set<String> appliedFromCache = ConcurrentHashMap.newKeySet();
+        new ProtobufMessagePipeline("test from cache", 4, 16).run(frameCache,
+                message -> assertTrue(appliedFromCache.add(firstUuid(message))));
+        assertEquals(expected, appliedFromCache);
+    }
+
+    @Test
+    public void cacheGivesUpWhenFramesExceedItsLimit() throws Exception {
+        byte[] archive = archive(new HashSet<>());
+        ProtobufMessagePipeline.FrameCache frameCache = new ProtobufMessagePipeline.FrameCache(64 * 1024);
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            new ProtobufMessagePipeline("test", 2, 2).run(zis, entry -> !entry.getName().equals(MANIFEST),
+                    frameCache, message -> {
+                    });
+        }
+        assertFalse(frameCache.usable());
+        assertThrows(IllegalStateException.class,
+                () -> new ProtobufMessagePipeline("test", 2, 2).run(frameCache, message -> {
+                }));
+    }
+
+    @Test
+    public void failureOfAnActionStopsThePipeline() throws Exception {
+        byte[] archive = archive(new HashSet<>());
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                    () -> new ProtobufMessagePipeline("test", 2, 4).run(zis, entry -> !entry.getName().equals(MANIFEST),
+                            null, message -> {
+                                throw new IllegalStateException("failed");
+                            }));
+            assertEquals("failed", thrown.getMessage());
+        }
+    }
+
+    /**
+     * Writes an archive of concept messages, one of them larger than a frame buffer.
+     */
+    private static byte[] archive(Set<String> firstUuids) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(bytes)) {
+            zos.putNextEntry(new ZipEntry(MANIFEST));
+            zos.write("Manifest-Version: 1.0\n".getBytes());
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("export.pb"));
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                PublicId.Builder publicId = PublicId.newBuilder();
+                int uuidCount = i == MESSAGE_COUNT / 2 ? 40_000 : 1;
+                for (int j = 0; j < uuidCount; j++) {
+                    publicId.addUuids(UUID.randomUUID().toString());
+                }
+                firstUuids.add(publicId.getUuids(0));
+                TinkarMsg.newBuilder()
+                        .setConceptChronology(ConceptChronology.newBuilder().setPublicId(publicId))
+                        .build()
+                        .writeDelimitedTo(zos);
+            }
+            zos.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String firstUuid(TinkarMsg message) {
+        return message.getConceptChronology().getPublicId().getUuids(0);
+    }
+}
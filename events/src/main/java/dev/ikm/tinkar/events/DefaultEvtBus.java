@@ -18,23 +18,47 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Default implementation of an Event Bus
+ * <p>
+ * Subscribers are kept in copy-on-write arrays keyed by topic and event class, so publishing reads an array
+ * without locking or copying. Synchronous subscribers are called on the publishing thread; asynchronous ones
+ * (see {@link Delivery}) have a bounded queue drained by a virtual thread. Events are queued under a lock per
+ * topic, so every asynchronous subscriber of a topic sees its events in the same order. A subscriber that throws
+ * is logged and counted, and does not affect the publisher or other subscribers.
  */
 @EvtBusName("DefaultEvtBus")
 public class DefaultEvtBus implements EvtBus {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultEvtBus.class);
+    private static final Registration[] NO_REGISTRATIONS = new Registration[0];
 
     public DefaultEvtBus() {}
 
+    private record Key(Object topic, Class<?> eventClass) {}
+
     // keep track of the subscribers
-    private Map<Object, Map<String, List<Subscriber>>> subscribersMap = new HashMap<>();
+    private final ConcurrentHashMap<Key, Registration[]> subscribersMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Object, Object> topicLocks = new ConcurrentHashMap<>();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder publishNanos = new LongAdder();
+    private final LongAdder deliveryNanos = new LongAdder();
+    private final AtomicLong maxPublishNanos = new AtomicLong();
+    private final AtomicLong maxDeliveryNanos = new AtomicLong();
 
     /**
      * publish an event to a topic
@@ -44,17 +68,41 @@ public DefaultEvtBus() {}
      */
     @Override
     public <T extends Evt> void publish(Object topic, T evt) {
-        // if there is no topic then create one as a String
-        LOG.info(evt.getSource().toString());
-        // event class name is the key -> List<Subscriber>
-        String eventClassName = evt.getClass().getName();
-        subscribersMap.putIfAbsent(topic, new HashMap<>());
-        Map<String, List<Subscriber>> eventNameAndSubscribers = subscribersMap.get(topic);
-        eventNameAndSubscribers.putIfAbsent(eventClassName, new ArrayList<>());
-        List<Subscriber> subscribers = eventNameAndSubscribers.get(eventClassName).stream().toList();
-        if (null != subscribers && !subscribers.isEmpty()) {
-            subscribers.forEach(s -> s.handle(evt));
+        long start = System.nanoTime();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Publishing {} to {} from {}", evt.getClass().getSimpleName(), topic, evt.getSource());
+        }
+        Registration[] registrations = subscribersMap.getOrDefault(new Key(topic, evt.getClass()), NO_REGISTRATIONS);
+        boolean queued = false;
+        for (Registration registration : registrations) {
+            if (registration.mailbox == null) {
+                registration.deliver(evt, start);
+            } else {
+                queued = true;
+            }
+        }
+        if (queued) {
+            // Queue under the topic lock so every mailbox sees the same order, but wait for a full mailbox outside
+            // it: a subscriber that publishes to this topic while we wait for it to drain would otherwise deadlock.
+            Mailbox[] full = null;
+            int fullCount = 0;
+            synchronized (topicLocks.computeIfAbsent(topic, t -> new Object())) {
+                registrations = subscribersMap.getOrDefault(new Key(topic, evt.getClass()), NO_REGISTRATIONS);
+                for (Registration registration : registrations) {
+                    if (registration.mailbox != null && registration.mailbox.offer(new Envelope(evt, start))) {
+                        if (full == null) {
+                            full = new Mailbox[registrations.length];
+                        }
+                        full[fullCount++] = registration.mailbox;
+                    }
+                }
+            }
+            for (int i = 0; i < fullCount; i++) {
+                full[i].awaitCapacity();
+            }
         }
+        published.increment();
+        record(publishNanos, maxPublishNanos, System.nanoTime() - start);
     }
 
     /**
@@ -64,15 +112,17 @@ public <T extends Evt> void publish(Object topic, T evt) {
      */
     @Override
     public <T extends Evt> void subscribe(Object topic, Class<T> eventClass, Subscriber<T> subscriber) {
-        subscribersMap.putIfAbsent(topic, new HashMap<>());
-        List<Subscriber> subscribers = subscribersMap.get(topic).get(eventClass.getName());
-        if (null == subscribers) {
-            subscribers = new ArrayList<>();
-            subscribers.add(subscriber);
-            subscribersMap.get(topic).putIfAbsent(eventClass.getName(), subscribers);
-        } else {
-            subscribers.add(subscriber);
-        }
+        subscribe(topic, eventClass, subscriber, Delivery.SYNCHRONOUS);
+    }
+
+    @Override
+    public <T extends Evt> void subscribe(Object topic, Class<T> eventClass, Subscriber<T> subscriber, Delivery delivery) {
+        Registration registration = new Registration(subscriber, delivery);
+        subscribersMap.merge(new Key(topic, eventClass), new Registration[]{registration}, (current, added) -> {
+            Registration[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = registration;
+            return grown;
+        });
     }
 
     /**
@@ -82,21 +132,17 @@ public <T extends Evt> void subscribe(Object topic, Class<T> eventClass, Subscri
      */
     @Override
     public <T extends Evt> void unsubscribe(Object topic, Class<T> eventClass, Subscriber<T> subscriber) {
-        Map<String, List<Subscriber>> eventNameAndSubscribers = subscribersMap.get(topic);
-        if (null == eventNameAndSubscribers) {
+        Key key = new Key(topic, eventClass);
+        if (!subscribersMap.containsKey(key)) {
             LOG.warn("Unsubscribing Topic: %s, eventClass: %s, subscriber: %s. contains no subscriber ".formatted(topic, eventClass.getName(), String.valueOf(subscriber)));
             return;
         }
-
-        List<Subscriber> subscribers = eventNameAndSubscribers.get(eventClass.getName());
-        if (null != subscribers && !subscribers.isEmpty()) {
-            subscribers.removeIf(subscriber::equals);
-        }
+        remove(key, subscriber);
     }
 
     @Override
     public <T extends Evt> void unsubscribe(Subscriber<T> subscriber) {
-        subscribersMap.forEach((k, v) -> v.remove(subscriber));
+        subscribersMap.keySet().forEach(key -> remove(key, subscriber));
     }
 
     @Override
@@ -108,4 +154,151 @@ public void unsubscribe(Subscriber<?> ...subscriber) {
         }
     }
 
+    @Override
+    public Optional<EvtBusStatistics> statistics() {
+        long publishedCount = published.sum();
+        long deliveredCount = delivered.sum() + failed.sum();
+        return Optional.of(new EvtBusStatistics(publishedCount, delivered.sum(), dropped.sum(), failed.sum(),
+                mean(publishNanos.sum(), publishedCount), Duration.ofNanos(maxPublishNanos.get()),
+                mean(deliveryNanos.sum(), deliveredCount), Duration.ofNanos(maxDeliveryNanos.get())));
+    }
+
+    private void remove(Key key, Subscriber<?> subscriber) {
+        subscribersMap.computeIfPresent(key, (k, current) -> {
+            Registration[] kept = Arrays.stream(current)
+                    .filter(registration -> {
+                        if (subscriber.equals(registration.subscriber)) {
+                            registration.active = false;
+                            return false;
+                        }
+                        return true;
+                    })
+                    .toArray(Registration[]::new);
+            return kept.length == 0 ? null : kept;
+        });
+    }
+
+    private static Duration mean(long totalNanos, long count) {
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(totalNanos / count);
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    private record Envelope(Evt evt, long publishNanos) {}
+
+    /**
+     * A subscriber and how it receives events. Once unsubscribed, queued events are no longer delivered to it.
+     */
+    private final class Registration {
+        private final Subscriber subscriber;
+        private final Mailbox mailbox;
+        private volatile boolean active = true;
+
+        Registration(Subscriber<?> subscriber, Delivery delivery) {
+            this.subscriber = subscriber;
+            this.mailbox = delivery.async() ? new Mailbox(this, delivery) : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        void deliver(Evt evt, long publishNanos) {
+            if (!active) {
+                return;
+            }
+            try {
+                subscriber.handle(evt);
+                delivered.increment();
+            } catch (Throwable t) {
+                failed.increment();
+                LOG.error("Subscriber " + subscriber + " failed handling " + evt.getClass().getName(), t);
+            }
+            record(deliveryNanos, maxDeliveryNanos, System.nanoTime() - publishNanos);
+        }
+    }
+
+    /**
+     * The bounded queue of an asynchronous subscriber. At most one virtual thread drains it at a time, so events
+     * are handled in the order they were queued.
+     */
+    private final class Mailbox {
+        private final Registration registration;
+        private final int capacity;
+        private final Delivery.Backpressure backpressure;
+        private final ArrayDeque<Envelope> queue = new ArrayDeque<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private Thread drainer;
+
+        Mailbox(Registration registration, Delivery delivery) {
+            this.registration = registration;
+            this.capacity = delivery.queueCapacity();
+            this.backpressure = delivery.backpressure();
+        }
+
+        /**
+         * Queues an envelope without waiting. A {@link Delivery.Backpressure#BLOCK} mailbox takes the envelope even
+         * when full, and the publisher then waits in {@link #awaitCapacity()} once it has released the topic lock.
+         *
+         * @return true if the publisher must call {@link #awaitCapacity()}
+         */
+        boolean offer(Envelope envelope) {
+            lock.lock();
+            try {
+                if (queue.size() >= capacity) {
+                    switch (backpressure) {
+                        case DROP_NEWEST -> {
+                            dropped.increment();
+                            return false;
+                        }
+                        case DROP_OLDEST -> {
+                            queue.poll();
+                            dropped.increment();
+                        }
+                        case BLOCK -> {
+                        }
+                    }
+                }
+                queue.add(envelope);
+                if (drainer == null) {
+                    drainer = Thread.ofVirtual().name("evt-bus-subscriber").unstarted(this::drain);
+                    drainer.start();
+                }
+                return queue.size() > capacity;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void awaitCapacity() {
+            lock.lock();
+            try {
+                // Waiting on our own drain, or on a subscriber that is gone, would never end.
+                while (queue.size() > capacity && drainer != Thread.currentThread() && registration.active) {
+                    notFull.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Envelope envelope;
+                lock.lock();
+                try {
+                    envelope = queue.poll();
+                    if (envelope == null) {
+                        drainer = null;
+                        return;
+                    }
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                registration.deliver(envelope.evt(), envelope.publishNanos());
+            }
+        }
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.events;
+
+/**
+ * How an event bus delivers events to a subscriber. Synchronous delivery calls the subscriber on the publishing
+ * thread. Asynchronous delivery queues events for the subscriber, and a virtual thread hands them to it in the
+ * order they were published to the topic, so a slow subscriber does not hold up the publisher.
+ *
+ * @param async         true to deliver on a virtual thread
+ * @param queueCapacity the most events queued for the subscriber
+ * @param backpressure  what a publisher does when the queue is full
+ */
+public record Delivery(boolean async, int queueCapacity, Backpressure backpressure) {
+
+    /**
+     * What a publisher does when a subscriber's queue is full.
+     */
+    public enum Backpressure {
+        /**
+         * Wait for the subscriber to take an event. A subscriber publishing to its own full queue does not wait.
+         */
+        BLOCK,
+        /**
+         * Discard the oldest queued event.
+         */
+        DROP_OLDEST,
+        /**
+         * Discard the event being published.
+         */
+        DROP_NEWEST
+    }
+
+    public static final Delivery SYNCHRONOUS = new Delivery(false, 0, Backpressure.BLOCK);
+
+    public Delivery {
+        if (async && queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        }
+    }
+
+    public static Delivery async(int queueCapacity, Backpressure backpressure) {
+        return new Delivery(true, queueCapacity, backpressure);
+    }
+}
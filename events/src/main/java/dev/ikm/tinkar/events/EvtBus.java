@@ -15,6 +15,7 @@
  */
 package dev.ikm.tinkar.events;
 
+import java.util.Optional;
 
 /**
  * Event Bus. Allow components in the Komet Application to communicate
@@ -38,6 +39,17 @@ public interface EvtBus {
      */
     <T extends Evt> void subscribe(Object topic, Class<T> eventClass, Subscriber<T> subscriber);
 
+    /**
+     * subscribe to a topic, choosing how events are delivered. Buses that only deliver synchronously may leave
+     * the default, which ignores the delivery.
+     * @param topic the topic name
+     * @param subscriber subscriber to the topic
+     * @param delivery synchronous, or asynchronous with a bounded queue
+     */
+    default <T extends Evt> void subscribe(Object topic, Class<T> eventClass, Subscriber<T> subscriber, Delivery delivery) {
+        subscribe(topic, eventClass, subscriber);
+    }
+
     /**
      * unsubscribe to the topic
      * @param topic the topic name
@@ -58,5 +70,12 @@ public interface EvtBus {
      */
     void unsubscribe(Subscriber<?> ...subscriber);
 
+    /**
+     * @return counts and latencies of published and delivered events, if the bus keeps them
+     */
+    default Optional<EvtBusStatistics> statistics() {
+        return Optional.empty();
+    }
+
 
 }
@@ -17,10 +17,10 @@
 
 import dev.ikm.tinkar.common.service.PluggableService;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Factory class to create and return an Event Bus implementation
@@ -28,7 +28,7 @@
 public class EvtBusFactory {
 
     // collection of EvtBus implementations
-    private static final Map<String, EvtBus> evtBusMap = new HashMap<>();
+    private static final Map<String, EvtBus> evtBusMap = new ConcurrentHashMap<>();
 
     private EvtBusFactory() {}
 
@@ -38,6 +38,14 @@ private EvtBusFactory() {}
      * @return the EvtBus implementation
      */
     public static EvtBus getInstance(Class clazz) {
+        EvtBus existing = evtBusMap.get(clazz.getSimpleName());
+        if (existing != null) {
+            return existing;
+        }
+        return loadInstance(clazz);
+    }
+
+    private static synchronized EvtBus loadInstance(Class clazz) {
         if (null == evtBusMap.get(clazz.getSimpleName())) {
             EvtBus bus = (EvtBus) ServiceLoader.load(clazz).findFirst().get();
             if (clazz == EvtBus.class) {
@@ -54,6 +62,14 @@ public static EvtBus getInstance(Class clazz) {
      * @return the EvtBus implementation
      */
     public static EvtBus getInstance(String name) {
+        EvtBus existing = evtBusMap.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        return loadInstance(name);
+    }
+
+    private static synchronized EvtBus loadInstance(String name) {
         if (null == evtBusMap.get(name)) {
             Optional<EvtBus> optBus = PluggableService.load(EvtBus.class)
                     .stream()
@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.events;
+
+import java.time.Duration;
+
+/**
+ * Counts and latencies of an event bus since it was created. Publish latency is the time a publisher spends in
+ * {@link EvtBus#publish}; delivery latency is the time from publication until a subscriber has handled the event,
+ * including any time queued.
+ *
+ * @param published       events published
+ * @param delivered       events handled by subscribers
+ * @param dropped         events discarded from full subscriber queues
+ * @param failed          deliveries in which the subscriber threw
+ * @param meanPublish     mean publish latency
+ * @param maxPublish      longest publish latency
+ * @param meanDelivery    mean delivery latency
+ * @param maxDelivery     longest delivery latency
+ */
+public record EvtBusStatistics(long published, long delivered, long dropped, long failed,
+                               Duration meanPublish, Duration maxPublish,
+                               Duration meanDelivery, Duration maxDelivery) {
+}
@@ -1,17 +1,24 @@
 package dev.ikm.tinkar.events.test;
 
+import dev.ikm.tinkar.events.DefaultEvtBus;
+import dev.ikm.tinkar.events.Delivery;
 import dev.ikm.tinkar.events.Evt;
 import dev.ikm.tinkar.events.EvtBusFactory;
+import dev.ikm.tinkar.events.EvtBusStatistics;
 import dev.ikm.tinkar.events.EvtType;
 import dev.ikm.tinkar.events.Subscriber;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class EvtBusTest {
 
@@ -33,6 +40,115 @@ public void testPubSub() throws Exception {
         assertEquals(0, latch.getCount());
     }
 
+    @Test
+    public void asyncSubscriberSeesTopicOrderAndDoesNotBlockPublisher() throws Exception {
+        DefaultEvtBus bus = new DefaultEvtBus();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch allReceived = new CountDownLatch(100);
+        Subscriber<NumberedEvent> slow = evt -> {
+            awaitQuietly(release);
+            received.add(evt.number);
+            allReceived.countDown();
+        };
+        bus.subscribe("topic", NumberedEvent.class, slow, Delivery.async(1000, Delivery.Backpressure.BLOCK));
+        for (int i = 0; i < 100; i++) {
+            bus.publish("topic", new NumberedEvent(this, i));
+        }
+        // Every publish returned while the subscriber was held.
+        assertTrue(received.isEmpty());
+        release.countDown();
+        assertTrue(allReceived.await(5, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, 100).boxed().toList(), received);
+        EvtBusStatistics statistics = bus.statistics().orElseThrow();
+        assertEquals(100, statistics.published());
+        assertEquals(100, statistics.delivered());
+    }
+
+    @Test
+    public void fullQueueDropsByPolicy() throws Exception {
+        DefaultEvtBus bus = new DefaultEvtBus();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch handled = new CountDownLatch(1);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        Subscriber<NumberedEvent> held = evt -> {
+            started.countDown();
+            awaitQuietly(release);
+            received.add(evt.number);
+            handled.countDown();
+        };
+        bus.subscribe("topic", NumberedEvent.class, held, Delivery.async(2, Delivery.Backpressure.DROP_OLDEST));
+        bus.publish("topic", new NumberedEvent(this, 0));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) {
+            bus.publish("topic", new NumberedEvent(this, i));
+        }
+        bus.unsubscribe(held);
+        release.countDown();
+        assertTrue(handled.await(5, TimeUnit.SECONDS));
+        assertEquals(2, bus.statistics().orElseThrow().dropped());
+        assertEquals(List.of(0), received);
+    }
+
+    @Test
+    public void blockedPublisherDoesNotHoldTheTopic() throws Exception {
+        DefaultEvtBus bus = new DefaultEvtBus();
+        CountDownLatch allHandled = new CountDownLatch(100);
+        // The subscriber publishes to the topic it is draining, while the publisher waits for it to make room.
+        Subscriber<NumberedEvent> republishing = evt -> {
+            if (evt.number > 0) {
+                bus.publish("topic", new NumberedEvent(this, -evt.number));
+            }
+            allHandled.countDown();
+        };
+        bus.subscribe("topic", NumberedEvent.class, republishing, Delivery.async(1, Delivery.Backpressure.BLOCK));
+        Thread publisher = Thread.ofVirtual().start(() -> {
+            for (int i = 1; i <= 50; i++) {
+                bus.publish("topic", new NumberedEvent(this, i));
+            }
+        });
+        assertTrue(allHandled.await(10, TimeUnit.SECONDS));
+        publisher.join();
+        assertEquals(100, bus.statistics().orElseThrow().published());
+    }
+
+    @Test
+    public void failingSubscriberDoesNotReachPublisher() {
+        DefaultEvtBus bus = new DefaultEvtBus();
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        Subscriber<NumberedEvent> failing = evt -> {
+            throw new IllegalStateException("failing subscriber");
+        };
+        Subscriber<NumberedEvent> recording = evt -> received.add(evt.number);
+        bus.subscribe("topic", NumberedEvent.class, failing);
+        bus.subscribe("topic", NumberedEvent.class, recording);
+        bus.publish("topic", new NumberedEvent(this, 7));
+        assertEquals(List.of(7), received);
+        assertEquals(1, bus.statistics().orElseThrow().failed());
+
+        bus.unsubscribe(failing, recording);
+        bus.publish("topic", new NumberedEvent(this, 8));
+        assertEquals(List.of(7), received);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class NumberedEvent extends Evt {
+        final int number;
+
+        NumberedEvent(Object source, int number) {
+            super(source, Evt.ANY);
+            this.number = number;
+        }
+    }
+
     static class MyEvent extends Evt {
         MyEvent(Object source, EvtType<?> eventType) {
             super(source, eventType);
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.helper;
+
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.entity.ChangeSetWriterService;
+import dev.ikm.tinkar.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records the entities written to the change sets as synchronizable edits, between {@link #record()} and
+ * {@link #stop()}, so tests can compare what the change sets receive.
+ */
+public class RecordingChangeSetWriter implements ChangeSetWriterService {
+    private static final Queue<Entity<?>> RECORDED = new ConcurrentLinkedQueue<>();
+    private static volatile boolean recording;
+
+    /**
+     * Discards earlier recordings and starts recording.
+     */
+    public static void record() {
+        RECORDED.clear();
+        recording = true;
+    }
+
+    /**
+     * @return the entities written since {@link #record()}, in the order they were written
+     */
+    public static List<Entity<?>> stop() {
+        recording = false;
+        List<Entity<?>> recorded = new ArrayList<>(RECORDED);
+        RECORDED.clear();
+        return recorded;
+    }
+
+    @Override
+    public void writeToChangeSet(Entity entity, DataActivity dataActivity) {
+        if (recording && dataActivity == DataActivity.SYNCHRONIZABLE_EDIT) {
+            RECORDED.add(entity);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
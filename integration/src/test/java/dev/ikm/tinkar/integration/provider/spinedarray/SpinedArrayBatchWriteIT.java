@@ -0,0 +1,278 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.provider.spinedarray;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.PrimitiveDataSearchResult;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.common.service.SearchService;
+import dev.ikm.tinkar.common.service.ServiceLifecycleManager;
+import dev.ikm.tinkar.common.util.io.FileUtil;
+import dev.ikm.tinkar.entity.ConceptRecord;
+import dev.ikm.tinkar.entity.Entity;
+import dev.ikm.tinkar.entity.EntityRecordFactory;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.StampRecord;
+import dev.ikm.tinkar.fixtures.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.RecordingChangeSetWriter;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.factory.primitive.IntSets;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the batch write path — {@code EntityProvider.putEntities}, {@code SpinedArrayProvider.mergeAll}
+ * and {@code Indexer.indexAll} — leaves the store, the nid sets, the citation index, the entity cache, the change
+ * sets and the search index as putting the same entities one at a time does, including when a nid occurs twice in
+ * a batch.
+ * The datastore is started once, as the search provider is opened once per JVM.
+ */
+class SpinedArrayBatchWriteIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            SpinedArrayBatchWriteIT.class);
+
+    @BeforeAll
+    static void beforeAll() {
+        FileUtil.recursiveDelete(DATASTORE_ROOT);
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    @Test
+    void batchMatchesSequentialPuts() {
+        EntityGroup sequential = new EntityGroup("sequential");
+        RecordingChangeSetWriter.record();
+        sequential.entities.forEach(entity -> EntityService.get().putEntity(entity));
+        sequential.assertChangeSet(RecordingChangeSetWriter.stop());
+        sequential.assertStored();
+
+        EntityGroup batch = new EntityGroup("batch");
+        RecordingChangeSetWriter.record();
+        EntityService.get().putEntities(batch.entities, DataActivity.SYNCHRONIZABLE_EDIT);
+        batch.assertChangeSet(RecordingChangeSetWriter.stop());
+        batch.assertStored();
+    }
+
+    @Test
+    void batchWithoutCacheMatchesSequentialPuts() {
+        EntityGroup batch = new EntityGroup("batchnocache");
+        RecordingChangeSetWriter.record();
+        EntityService.get().putEntitiesNoCache(batch.entities, DataActivity.SYNCHRONIZABLE_EDIT);
+        batch.assertChangeSet(RecordingChangeSetWriter.stop());
+        batch.assertStored();
+    }
+
+    @Test
+    void mergeAllMergesADuplicateNid() {
+        EntityGroup group = new EntityGroup("mergeall");
+        List<Entity<?>> semantics = new ArrayList<>();
+        for (Entity<?> entity : group.entities) {
+            if (entity instanceof SemanticEntity<?>) {
+                semantics.add(entity);
+            } else {
+                EntityService.get().putEntity(entity);
+            }
+        }
+        int count = semantics.size();
+        int[] nids = new int[count];
+        int[] patternNids = new int[count];
+        int[] referencedComponentNids = new int[count];
+        byte[][] values = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            SemanticEntity<?> semantic = (SemanticEntity<?>) semantics.get(i);
+            nids[i] = semantic.nid();
+            patternNids[i] = semantic.patternNid();
+            referencedComponentNids[i] = semantic.referencedComponentNid();
+            values[i] = semantic.getBytes();
+        }
+        byte[][] mergedValues = PrimitiveData.get().mergeAll(nids, patternNids, referencedComponentNids, values,
+                semantics.toArray(), DataActivity.SYNCHRONIZABLE_EDIT);
+
+        // The merges of a duplicate nid run in parallel; the last one to store its bytes returns the final bytes.
+        byte[] storedBytes = PrimitiveData.get().getBytes(group.firstDescriptionNid);
+        assertTrue(Arrays.stream(mergedValues).anyMatch(merged -> Arrays.equals(storedBytes, merged)));
+        group.assertStored();
+    }
+
+    @Test
+    void indexAllReplacesPriorDocs() throws Exception {
+        EntityGroup group = new EntityGroup("indexall");
+        EntityService.get().putEntities(group.entities, DataActivity.SYNCHRONIZABLE_EDIT);
+        SearchService searchService = ServiceLifecycleManager.get().getRunningService(SearchService.class)
+                .orElseThrow();
+        awaitSearchable(searchService);
+        assertEquals(List.of(group.firstDescriptionNid), searchNids(group.secondText));
+
+        SemanticRecord replacement = description(group.firstDescriptionUuid, group.conceptNid, group.secondStamp,
+                "Zyzzogeton replacement " + group.label);
+        searchService.indexAll(List.of(replacement, replacement));
+        awaitSearchable(searchService);
+
+        assertEquals(List.of(), searchNids(group.secondText));
+        assertEquals(List.of(group.firstDescriptionNid), searchNids("Zyzzogeton replacement " + group.label));
+    }
+
+    private static void awaitSearchable(SearchService searchService) throws InterruptedException {
+        searchService.waitForGeneration(searchService.indexGeneration());
+    }
+
+    private static List<Integer> searchNids(String text) throws Exception {
+        List<Integer> nids = new ArrayList<>();
+        for (PrimitiveDataSearchResult result : PrimitiveData.get().search("\"" + text + "\"", 10)) {
+            nids.add(result.nid());
+        }
+        return nids;
+    }
+
+    private static SemanticRecord description(UUID uuid, int conceptNid, StampRecord stamp, String text) {
+        return SemanticRecord.build(uuid, TinkarTerm.DESCRIPTION_PATTERN.nid(), conceptNid, stamp.lastVersion(),
+                Lists.immutable.of(TinkarTerm.ENGLISH_LANGUAGE, text, TinkarTerm.DESCRIPTION_NOT_CASE_SENSITIVE,
+                        TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE));
+    }
+
+    /**
+     * A concept with versions on two stamps and two descriptions, the first of which also has a version on each
+     * stamp, so the concept and the first description each occur twice.
+     */
+    private static final class EntityGroup {
+        final String label;
+        final StampRecord secondStamp;
+        final int conceptNid;
+        final UUID firstDescriptionUuid = UUID.randomUUID();
+        final int firstDescriptionNid;
+        final int secondDescriptionNid;
+        final String secondText;
+        final List<Entity<?>> entities = new ArrayList<>();
+
+        EntityGroup(String label) {
+            this.label = label;
+            StampRecord firstStamp = stamp();
+            this.secondStamp = stamp();
+            UUID conceptUuid = UUID.randomUUID();
+            ConceptRecord firstConcept = ConceptRecord.build(PublicIds.of(conceptUuid), firstStamp.lastVersion());
+            ConceptRecord secondConcept = ConceptRecord.build(PublicIds.of(conceptUuid), secondStamp.lastVersion());
+            this.conceptNid = firstConcept.nid();
+            this.secondText = "Zyzzogeton second " + label;
+            SemanticRecord firstDescription = description(firstDescriptionUuid, conceptNid, firstStamp,
+                    "Zyzzogeton first " + label);
+            SemanticRecord secondDescription = description(UUID.randomUUID(), conceptNid, firstStamp,
+                    "Zyzzogeton other " + label);
+            SemanticRecord firstDescriptionRevised = description(firstDescriptionUuid, conceptNid, secondStamp,
+                    secondText);
+            this.firstDescriptionNid = firstDescription.nid();
+            this.secondDescriptionNid = secondDescription.nid();
+            entities.addAll(List.of(firstStamp, secondStamp, firstConcept, firstDescription, secondConcept,
+                    secondDescription, firstDescriptionRevised));
+        }
+
+        private static StampRecord stamp() {
+            return StampRecord.make(UUID.randomUUID(), State.ACTIVE, System.currentTimeMillis(),
+                    TinkarTerm.USER.publicId(), TinkarTerm.DEVELOPMENT_MODULE.publicId(),
+                    TinkarTerm.DEVELOPMENT_PATH.publicId());
+        }
+
+        /**
+         * Asserts the change sets received every version of the group, as they do when its entities are put one
+         * at a time.
+         */
+        void assertChangeSet(List<Entity<?>> written) {
+            Map<Integer, MutableIntSet> expectedStampNids = new LinkedHashMap<>();
+            for (Entity<?> entity : entities) {
+                expectedStampNids.computeIfAbsent(entity.nid(), nid -> IntSets.mutable.empty())
+                        .addAll(entity.stampNids().toArray());
+            }
+            Map<Integer, MutableIntSet> writtenStampNids = new LinkedHashMap<>();
+            for (Entity<?> entity : written) {
+                if (expectedStampNids.containsKey(entity.nid())) {
+                    writtenStampNids.computeIfAbsent(entity.nid(), nid -> IntSets.mutable.empty())
+                            .addAll(entity.stampNids().toArray());
+                }
+            }
+            assertEquals(expectedStampNids, writtenStampNids, "change set versions of " + label);
+        }
+
+        /**
+         * Asserts the group is stored as putting its entities one at a time in order stores it.
+         */
+        void assertStored() {
+            Map<Integer, byte[]> expectedBytes = new LinkedHashMap<>();
+            for (Entity<?> entity : entities) {
+                expectedBytes.merge(entity.nid(), entity.getBytes(), PrimitiveDataService::merge);
+            }
+            expectedBytes.forEach((nid, bytes) -> {
+                byte[] storedBytes = PrimitiveData.get().getBytes(nid);
+                assertArrayEquals(bytes, storedBytes, "stored bytes of " + label + " nid " + nid);
+                // The cache holds the merged entity, not the part of it that was merged last.
+                Entity<?> stored = EntityRecordFactory.make(storedBytes);
+                assertArrayEquals(sortedStampNids(stored), sortedStampNids(EntityService.get().getEntityFast(nid)),
+                        "cached versions of " + label + " nid " + nid);
+            });
+
+            MutableIntSet conceptNids = IntSets.mutable.empty().asSynchronized();
+            PrimitiveData.get().forEachConceptNid(conceptNids::add);
+            assertTrue(conceptNids.contains(conceptNid));
+
+            MutableIntSet stampNids = IntSets.mutable.empty().asSynchronized();
+            PrimitiveData.get().forEachStampNid(stampNids::add);
+            assertTrue(stampNids.contains(secondStamp.nid()));
+
+            MutableIntSet descriptionNids = IntSets.mutable.empty().asSynchronized();
+            PrimitiveData.get().forEachSemanticNidOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid(), descriptionNids::add);
+            assertTrue(descriptionNids.contains(firstDescriptionNid));
+            assertTrue(descriptionNids.contains(secondDescriptionNid));
+
+            MutableIntList citingNids = IntLists.mutable.empty().asSynchronized();
+            PrimitiveData.get().forEachSemanticNidForComponent(conceptNid, citingNids::add);
+            assertEquals(IntLists.mutable.of(firstDescriptionNid, secondDescriptionNid).sortThis(),
+                    citingNids.sortThis());
+        }
+
+        private static int[] sortedStampNids(Entity<?> entity) {
+            int[] stampNids = entity.stampNids().toArray();
+            Arrays.sort(stampNids);
+            return stampNids;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.provider.spinedarray;
+
+import dev.ikm.tinkar.common.metrics.MetricValue;
+import dev.ikm.tinkar.common.metrics.Metrics;
+import dev.ikm.tinkar.common.util.io.FileUtil;
+import dev.ikm.tinkar.fixtures.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that enabling metrics before the datastore starts registers the metrics of every source, and that the
+ * spined array gauges read the running store.
+ */
+class SpinedArrayMetricsIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            SpinedArrayMetricsIT.class);
+
+    @BeforeAll
+    static void beforeAll() {
+        FileUtil.recursiveDelete(DATASTORE_ROOT);
+        Metrics.enable();
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    @Test
+    void sourcesAreRegistered() {
+        assertFalse(Metrics.values("entity.cache").isEmpty());
+        assertFalse(Metrics.values("entity.stampTable").isEmpty());
+        assertFalse(Metrics.values("stampCalculator.latest").isEmpty());
+        assertFalse(Metrics.values("spinedArray.entity").isEmpty());
+    }
+
+    @Test
+    void spinedArrayGaugesReadTheRunningStore() {
+        List<MetricValue> spines = Metrics.values("spinedArray.entity.spines");
+        assertEquals(1, spines.size());
+        assertTrue(spines.getFirst().value() > 0, "the loaded store has entity spines");
+    }
+}
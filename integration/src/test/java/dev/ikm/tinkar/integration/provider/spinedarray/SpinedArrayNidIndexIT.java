@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.provider.spinedarray;
+
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.util.io.FileUtil;
+import dev.ikm.tinkar.fixtures.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.provider.spinedarray.NidIndexFile;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the persisted nid index restores the same indexes as the full entity scan, and that a damaged
+ * index is discarded in favor of the scan.
+ */
+class SpinedArrayNidIndexIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            SpinedArrayNidIndexIT.class);
+
+    @BeforeEach
+    void beforeEach() {
+        FileUtil.recursiveDelete(DATASTORE_ROOT);
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+    }
+
+    @AfterEach
+    void afterEach() {
+        if (PrimitiveData.running()) {
+            TestHelper.stopDatabase();
+        }
+    }
+
+    @Test
+    void reopenRestoresIndexesFromFile() {
+        IndexSnapshot expected = IndexSnapshot.capture();
+        TestHelper.stopDatabase();
+        assertTrue(new File(DATASTORE_ROOT, NidIndexFile.FILE_NAME).exists());
+
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        assertEquals(expected, IndexSnapshot.capture());
+    }
+
+    @Test
+    void corruptIndexFallsBackToFullScan() throws IOException {
+        IndexSnapshot expected = IndexSnapshot.capture();
+        TestHelper.stopDatabase();
+        File indexFile = new File(DATASTORE_ROOT, NidIndexFile.FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+            long position = raf.length() / 2;
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        }
+
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        assertEquals(expected, IndexSnapshot.capture());
+        // The rebuilt indexes are persisted again at the next save, and load on the following open.
+        TestHelper.stopDatabase();
+        assertTrue(indexFile.exists());
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        assertEquals(expected, IndexSnapshot.capture());
+    }
+
+    private record IndexSnapshot(int userNid, int[] conceptNids, int[] semanticNids, int[] patternNids,
+                                 int[] descriptionSemanticNids) {
+        static IndexSnapshot capture() {
+            return new IndexSnapshot(PrimitiveData.nid(TinkarTerm.USER.publicId()),
+                    sorted(PrimitiveData.get()::forEachConceptNid),
+                    sorted(PrimitiveData.get()::forEachSemanticNid),
+                    sorted(PrimitiveData.get()::forEachPatternNid),
+                    sorted(procedure -> PrimitiveData.get().forEachSemanticNidOfPattern(
+                            TinkarTerm.DESCRIPTION_PATTERN.nid(), procedure)));
+        }
+
+        private static int[] sorted(Consumer<IntProcedure> forEach) {
+            MutableIntList nids = IntLists.mutable.empty().asSynchronized();
+            forEach.accept(nids::add);
+            return nids.sortThis().toArray();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IndexSnapshot other && userNid == other.userNid &&
+                    Arrays.equals(conceptNids, other.conceptNids) &&
+                    Arrays.equals(semanticNids, other.semanticNids) &&
+                    Arrays.equals(patternNids, other.patternNids) &&
+                    Arrays.equals(descriptionSemanticNids, other.descriptionSemanticNids);
+        }
+
+        @Override
+        public int hashCode() {
+            return userNid;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.provider.spinedarray;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import dev.ikm.tinkar.common.util.io.FileUtil;
+import dev.ikm.tinkar.entity.ConceptRecord;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.SemanticRecord;
+import dev.ikm.tinkar.entity.StampRecord;
+import dev.ikm.tinkar.fixtures.TestConstants;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.terms.State;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.factory.Lists;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes a concept and its description after the starter data is loaded and saved, adds a version to a saved
+ * starter concept, and copies the datastore as a crash would leave it: the writes are in the synced write-ahead log but not in the saved spines, and the search index
+ * has not committed the description. {@link SpinedArrayUncleanCloseReplayIT} opens the copy in a fresh JVM, as
+ * the search provider is opened once per JVM.
+ */
+class SpinedArrayUncleanCloseGenerateIT {
+    private static final File DATASTORE_ROOT = TestConstants.createFilePathInTargetFromClassName.apply(
+            SpinedArrayUncleanCloseGenerateIT.class);
+    static final File CRASHED_ROOT = TestConstants.createFilePathInTarget.apply(
+            "generated-datastores/SpinedArrayUncleanCloseCrashed");
+    static final UUID STAMP_UUID = UUID.nameUUIDFromBytes("unclean-close-stamp".getBytes());
+    static final UUID CONCEPT_UUID = UUID.nameUUIDFromBytes("unclean-close-concept".getBytes());
+    static final UUID SEMANTIC_UUID = UUID.nameUUIDFromBytes("unclean-close-semantic".getBytes());
+    static final String DESCRIPTION = "Quixotic replayed description";
+
+    @Test
+    void copyDatastoreWithUnsavedWrites() throws IOException {
+        FileUtil.recursiveDelete(DATASTORE_ROOT);
+        FileUtil.recursiveDelete(CRASHED_ROOT);
+        // Keep the description out of the committed search index until the copy is taken.
+        ServiceProperties.set(ServiceKeys.SEARCH_COMMIT_INTERVAL_MILLIS, Duration.ofHours(1).toMillis());
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, DATASTORE_ROOT);
+        try {
+            TestHelper.loadDataFile(TestConstants.PB_STARTER_DATA_REASONED);
+            // Save the starter data, so the edit of a starter concept below replays as a merge into saved bytes.
+            PrimitiveData.save();
+
+            StampRecord stamp = StampRecord.make(STAMP_UUID, State.ACTIVE, System.currentTimeMillis(),
+                    TinkarTerm.USER.publicId(), TinkarTerm.DEVELOPMENT_MODULE.publicId(),
+                    TinkarTerm.DEVELOPMENT_PATH.publicId());
+            EntityService.get().putEntity(stamp);
+            ConceptRecord concept = ConceptRecord.build(PublicIds.of(CONCEPT_UUID), stamp.lastVersion());
+            EntityService.get().putEntity(concept);
+            EntityService.get().putEntity(SemanticRecord.build(SEMANTIC_UUID, TinkarTerm.DESCRIPTION_PATTERN.nid(),
+                    concept.nid(), stamp.lastVersion(), Lists.immutable.of(TinkarTerm.ENGLISH_LANGUAGE, DESCRIPTION,
+                            TinkarTerm.DESCRIPTION_NOT_CASE_SENSITIVE, TinkarTerm.REGULAR_NAME_DESCRIPTION_TYPE)));
+            EntityService.get().putEntity(ConceptRecord.build(TinkarTerm.USER.publicId(), stamp.lastVersion()));
+            PrimitiveData.get().sync();
+
+            copy(DATASTORE_ROOT.toPath(), CRASHED_ROOT.toPath());
+            try (Stream<Path> segments = Files.list(CRASHED_ROOT.toPath().resolve("writeAheadLog"))) {
+                assertTrue(segments.anyMatch(segment -> segment.toFile().length() > 0),
+                        "the copied write-ahead log holds the unsaved writes");
+            }
+        } finally {
+            TestHelper.stopDatabase();
+        }
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            paths.forEach(path -> {
+                Path copied = target.resolve(source.relativize(path));
+                try {
+                    if (Files.isDirectory(path)) {
+                        Files.createDirectories(copied);
+                    } else {
+                        Files.copy(path, copied, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
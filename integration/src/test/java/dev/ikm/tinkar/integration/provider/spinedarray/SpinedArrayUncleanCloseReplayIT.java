@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.integration.provider.spinedarray;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.PrimitiveData;
+import dev.ikm.tinkar.common.service.PrimitiveDataSearchResult;
+import dev.ikm.tinkar.entity.ConceptEntity;
+import dev.ikm.tinkar.entity.EntityHandle;
+import dev.ikm.tinkar.entity.SemanticEntity;
+import dev.ikm.tinkar.integration.helper.DataStore;
+import dev.ikm.tinkar.integration.helper.TestHelper;
+import dev.ikm.tinkar.terms.TinkarTerm;
+import org.eclipse.collections.api.factory.primitive.IntSets;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static dev.ikm.tinkar.integration.provider.spinedarray.SpinedArrayUncleanCloseGenerateIT.CONCEPT_UUID;
+import static dev.ikm.tinkar.integration.provider.spinedarray.SpinedArrayUncleanCloseGenerateIT.CRASHED_ROOT;
+import static dev.ikm.tinkar.integration.provider.spinedarray.SpinedArrayUncleanCloseGenerateIT.DESCRIPTION;
+import static dev.ikm.tinkar.integration.provider.spinedarray.SpinedArrayUncleanCloseGenerateIT.SEMANTIC_UUID;
+import static dev.ikm.tinkar.integration.provider.spinedarray.SpinedArrayUncleanCloseGenerateIT.STAMP_UUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Opens the datastore copied by {@link SpinedArrayUncleanCloseGenerateIT} without a clean close, and verifies
+ * that the writes replayed from the write-ahead log are readable, in the nid sets, and searchable.
+ */
+class SpinedArrayUncleanCloseReplayIT {
+
+    @BeforeAll
+    static void beforeAll() {
+        assertTrue(CRASHED_ROOT.exists(), "Run SpinedArrayUncleanCloseGenerateIT first");
+        TestHelper.startDataBase(DataStore.SPINED_ARRAY_STORE, CRASHED_ROOT);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        TestHelper.stopDatabase();
+    }
+
+    @Test
+    void replayedEntitiesAreReadable() {
+        ConceptEntity concept = EntityHandle.get(PublicIds.of(CONCEPT_UUID)).expectConcept();
+        SemanticEntity<?> semantic = EntityHandle.get(PublicIds.of(SEMANTIC_UUID)).expectSemantic();
+        assertEquals(concept.nid(), semantic.referencedComponentNid());
+        assertEquals(TinkarTerm.DESCRIPTION_PATTERN.nid(), semantic.patternNid());
+        assertEquals(DESCRIPTION, semantic.versions().getFirst().fieldValues().get(1));
+    }
+
+    @Test
+    void replayedVersionMergesIntoSavedEntity() {
+        ConceptEntity user = EntityHandle.get(TinkarTerm.USER.publicId()).expectConcept();
+        assertTrue(user.stampNids().contains(PrimitiveData.nid(PublicIds.of(STAMP_UUID))),
+                "the replayed version is merged into the saved concept");
+        assertTrue(user.versions().size() > 1, "the saved versions are kept");
+    }
+
+    @Test
+    void replayedEntitiesAreInTheNidSets() {
+        int conceptNid = PrimitiveData.nid(PublicIds.of(CONCEPT_UUID));
+        int semanticNid = PrimitiveData.nid(PublicIds.of(SEMANTIC_UUID));
+
+        MutableIntSet conceptNids = IntSets.mutable.empty().asSynchronized();
+        PrimitiveData.get().forEachConceptNid(conceptNids::add);
+        assertTrue(conceptNids.contains(conceptNid));
+
+        MutableIntSet descriptionNids = IntSets.mutable.empty().asSynchronized();
+        PrimitiveData.get().forEachSemanticNidOfPattern(TinkarTerm.DESCRIPTION_PATTERN.nid(), descriptionNids::add);
+        assertTrue(descriptionNids.contains(semanticNid));
+
+        MutableIntSet conceptSemanticNids = IntSets.mutable.empty().asSynchronized();
+        PrimitiveData.get().forEachSemanticNidForComponent(conceptNid, conceptSemanticNids::add);
+        assertTrue(conceptSemanticNids.contains(semanticNid));
+    }
+
+    @Test
+    void replayedSemanticsAreSearchable() throws Exception {
+        int semanticNid = PrimitiveData.nid(PublicIds.of(SEMANTIC_UUID));
+        // The replayed entities are indexed again once search is running, and become searchable within its staleness.
+        long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        boolean found = false;
+        while (!found && System.nanoTime() < deadline) {
+            PrimitiveDataSearchResult[] results = PrimitiveData.get().search("Quixotic", 10);
+            found = Arrays.stream(results).anyMatch(result -> result.nid() == semanticNid);
+            if (!found) {
+                Thread.sleep(250);
+            }
+        }
+        assertTrue(found, "the replayed description is in the search index");
+    }
+}
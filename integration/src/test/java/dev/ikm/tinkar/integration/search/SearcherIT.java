@@ -17,12 +17,15 @@
 
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.SearchFilter;
 import dev.ikm.tinkar.common.service.SearchService;
 import dev.ikm.tinkar.common.service.ServiceLifecycleManager;
 import dev.ikm.tinkar.common.util.io.FileUtil;
 import dev.ikm.tinkar.composer.Composer;
 import dev.ikm.tinkar.coordinate.Coordinates;
 import dev.ikm.tinkar.coordinate.navigation.calculator.NavigationCalculatorWithCache;
+import dev.ikm.tinkar.entity.EntityService;
+import dev.ikm.tinkar.entity.SemanticEntity;
 import dev.ikm.tinkar.fixtures.TestConstants;
 import dev.ikm.tinkar.integration.helper.DataStore;
 import dev.ikm.tinkar.integration.helper.TestHelper;
@@ -78,6 +81,18 @@ public void searchAfterNewEntitiesAreWrittenToDatabaseViaStampCoordinateIT() thr
         assertTrue(searchResults.notEmpty(), "Missing search results");
     }
 
+    @Test
+    public void searchViaStampCoordinateReturnsTopKActiveIT() throws Exception {
+        var stampCoordinate = Coordinates.Stamp.DevelopmentLatestActiveOnly();
+        var searchResults = stampCoordinate.stampCalculator().search("user", 5);
+
+        assertEquals(5, searchResults.size(), "Expected exactly the requested number of results");
+        searchResults.forEach(result -> assertTrue(result.latestVersion().get().active()));
+        for (int i = 1; i < searchResults.size(); i++) {
+            assertTrue(searchResults.get(i - 1).score() >= searchResults.get(i).score(), "Results not ordered by score");
+        }
+    }
+
     @Test
     public void searchAfterNewEntitiesAreWrittenToDatabaseViaSearcherIT() throws Exception {
         //Given an empty database
@@ -94,6 +109,46 @@ public void searchAfterNewEntitiesAreWrittenToDatabaseViaSearcherIT() throws Exc
         assertTrue(searchResults.length > 0, "Missing search results");
     }
 
+    @Test
+    public void searchFilteredByPatternAndReferencedComponentIT() throws Exception {
+        var searchService = ServiceLifecycleManager.get()
+                .getRunningService(SearchService.class)
+                .orElseThrow(() -> new IllegalStateException("SearchService not available - ensure services are started"));
+        int descriptionPatternNid = TinkarTerm.DESCRIPTION_PATTERN.nid();
+        var patternResults = searchService.search("user", 10, SearchFilter.ofPatterns(descriptionPatternNid));
+
+        assertTrue(patternResults.length > 0, "Missing filtered search results");
+        for (var result : patternResults) {
+            SemanticEntity<?> semantic = EntityService.get().getEntityFast(result.nid());
+            assertEquals(descriptionPatternNid, semantic.patternNid());
+        }
+
+        SemanticEntity<?> firstHit = EntityService.get().getEntityFast(patternResults[0].nid());
+        int referencedComponentNid = firstHit.referencedComponentNid();
+        var componentResults = searchService.search("user", 10,
+                SearchFilter.ofPatterns(descriptionPatternNid).withReferencedComponents(referencedComponentNid));
+
+        assertTrue(componentResults.length > 0, "Missing filtered search results");
+        for (var result : componentResults) {
+            SemanticEntity<?> semantic = EntityService.get().getEntityFast(result.nid());
+            assertEquals(referencedComponentNid, semantic.referencedComponentNid());
+        }
+    }
+
+    @Test
+    public void suggestCompletesPartialWordsIT() throws Exception {
+        var searchService = ServiceLifecycleManager.get()
+                .getRunningService(SearchService.class)
+                .orElseThrow(() -> new IllegalStateException("SearchService not available - ensure services are started"));
+        var results = searchService.suggest("us", 10, SearchFilter.NONE);
+
+        assertTrue(results.length > 0, "Missing suggestions");
+        for (var result : results) {
+            assertTrue(result.highlightedString().toLowerCase().matches("(?s)(.*\\W)?us.*"),
+                    "Suggestion without a word starting with 'us': " + result.highlightedString());
+        }
+    }
+
     @Test
     public void searchFromDescendantsOfConceptWithDefaultCalculatorIT() throws Exception {
         //Role: [46ae9325-dd24-5008-8fda-80cf1f0977c7]
@@ -1,6 +1,7 @@
 package dev.ikm.tinkar.provider.changeset;
 
 import dev.ikm.tinkar.common.id.PublicId;
+import dev.ikm.tinkar.common.jfr.ChangeSetWriteEvent;
 import dev.ikm.tinkar.common.service.DataActivity;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.SaveState;
@@ -31,6 +32,7 @@
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -144,6 +146,15 @@ public void writeToChangeSet(Entity entity, DataActivity activity) {
         }
     }
 
+    @Override
+    public void writeAllToChangeSet(Collection<? extends Entity> entities, DataActivity activity) {
+        if (activity == DataActivity.SYNCHRONIZABLE_EDIT) {
+            // The queue is unbounded, so the batch is queued without waiting.
+            this.entitiesToWrite.addAll((Collection<? extends Entity<EntityVersion>>) entities);
+            LOG.trace("ChangeSetWriterProvider queued {} entities for changeset write", entities.size());
+        }
+    }
+
     /**
      * Generates a random alphanumeric string of the specified length.
      *
@@ -371,6 +382,8 @@ private static void writeEntity(LongAdder entityCount,
                                     Set<PublicId> authorList,
                                     EntityToTinkarSchemaTransformer entityTransformer,
                                     ZipOutputStream zos) {
+        ChangeSetWriteEvent event = new ChangeSetWriteEvent();
+        event.begin();
         entityCount.increment();
         switch (entityToWrite) {
             case ConceptEntity _ -> conceptsCount.increment();
@@ -391,6 +404,11 @@ private static void writeEntity(LongAdder entityCount,
             TinkarMsg tinkarMsg = entityTransformer.transform(entityToWrite);
             tinkarMsg.writeDelimitedTo(zos);
             LOG.debug("ChangeSetWriterProvider wrote Entity:\n{}", entityToWrite);
+            if (event.shouldCommit()) {
+                event.nid = entityToWrite.nid();
+                event.size = tinkarMsg.getSerializedSize();
+                event.commit();
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
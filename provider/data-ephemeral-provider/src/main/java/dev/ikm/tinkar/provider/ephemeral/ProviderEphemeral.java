@@ -19,9 +19,10 @@
 import dev.ikm.tinkar.collection.SpinedIntIntMapAtomic;
 import dev.ikm.tinkar.common.id.PublicId;
 import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.jfr.GetBytesEvent;
+import dev.ikm.tinkar.common.jfr.MergeEvent;
 import dev.ikm.tinkar.common.service.*;
 import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
-import dev.ikm.tinkar.common.util.ints2long.IntsInLong;
 import dev.ikm.tinkar.entity.*;
 import dev.ikm.tinkar.common.service.SearchService;
 import org.eclipse.collections.api.block.procedure.Procedure2;
@@ -57,12 +58,14 @@ public class ProviderEphemeral implements PrimitiveDataService, NidGenerator {
      * Using "citing" instead of "referencing" to make the field names more distinct.
      */
     final ConcurrentHashMap<Integer, long[]> nidToCitingComponentsNidMap = ConcurrentHashMap.newMap();
+    final CitationIndex citationIndex = new CitationIndex(CitationIndex.Store.of(nidToCitingComponentsNidMap));
     final ConcurrentHashMap<Integer, ConcurrentSkipListSet<Integer>> patternToElementNidsMap = ConcurrentHashMap.newMap();
     final ConcurrentHashSet<Integer> patternNids = new ConcurrentHashSet();
     final ConcurrentHashSet<Integer> conceptNids = new ConcurrentHashSet();
     final ConcurrentHashSet<Integer> semanticNids = new ConcurrentHashSet();
     final ConcurrentHashSet<Integer> stampNids = new ConcurrentHashSet();
     private final ConcurrentHashMap<Integer, byte[]> nidComponentMap = ConcurrentHashMap.newMap();
+    private final StampPostingsIndex stampPostingsIndex = new StampPostingsIndex();
     private final ConcurrentHashMap<UUID, Integer> uuidNidMap = new ConcurrentHashMap<>();
     private final AtomicInteger nextNid = new AtomicInteger(PrimitiveDataService.FIRST_NID);
     final StableValue<SearchService> searchService = StableValue.of();
@@ -70,6 +73,8 @@ public class ProviderEphemeral implements PrimitiveDataService, NidGenerator {
 
     private ProviderEphemeral() {
         LOG.info("Constructing ProviderEphemeral");
+        // Every entity is merged after construction, so the index is complete from the start.
+        stampPostingsIndex.markBuilt();
     }
 
     public static PrimitiveDataService provider() {
@@ -158,20 +163,29 @@ public void forEach(ImmutableIntList nids, ObjIntConsumer<byte[]> action) {
 
     @Override
     public byte[] getBytes(int nid) {
-        return nidComponentMap.get(nid);
+        GetBytesEvent event = new GetBytesEvent();
+        event.begin();
+        byte[] bytes = nidComponentMap.get(nid);
+        if (event.shouldCommit()) {
+            event.provider = name();
+            event.nid = nid;
+            event.size = bytes == null ? -1 : bytes.length;
+            event.commit();
+        }
+        return bytes;
     }
 
     @Override
     public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject, DataActivity activity) {
+        MergeEvent event = new MergeEvent();
+        event.begin();
         if (!nidToPatternNidMap.containsKey(nid)) {
             this.nidToPatternNidMap.put(nid, patternNid);
             if (patternNid != Integer.MAX_VALUE) {
 
                 this.nidToPatternNidMap.put(nid, patternNid);
                 if (patternNid != Integer.MAX_VALUE) {
-                    long citationLong = IntsInLong.ints2Long(nid, patternNid);
-                    this.nidToCitingComponentsNidMap.merge(referencedComponentNid, new long[]{citationLong},
-                            PrimitiveDataService::mergeCitations);
+                    this.citationIndex.add(referencedComponentNid, nid, patternNid);
                     this.patternToElementNidsMap.getIfAbsentPut(nid, () -> new ConcurrentSkipListSet<>()).add(nid);
                 }
             }
@@ -186,6 +200,7 @@ public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
             this.stampNids.add(stampEntity.nid());
         }
         byte[] mergedBytes = nidComponentMap.merge(nid, value, PrimitiveDataService::merge);
+        stampPostingsIndex.index(nid, value);
         writeSequence.increment();
 
         // Delegate indexing to SearchProvider.
@@ -204,7 +219,13 @@ public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
                 LOG.debug("SearchService not available for indexing", e);
             }
         }
-
+        if (event.shouldCommit()) {
+            event.provider = name();
+            event.nid = nid;
+            event.size = mergedBytes.length;
+            event.activity = activity.name();
+            event.commit();
+        }
         return mergedBytes;
     }
 
@@ -221,6 +242,16 @@ public PrimitiveDataSearchResult[] search(String query, int maxResultSize) throw
         return getSearchService().search(query, maxResultSize);
     }
 
+    @Override
+    public PrimitiveDataSearchResult[] search(String query, int maxResultSize, SearchFilter filter) throws Exception {
+        return getSearchService().search(query, maxResultSize, filter);
+    }
+
+    @Override
+    public PrimitiveDataSearchResult[] suggest(String prefix, int maxResultSize, SearchFilter filter) throws Exception {
+        return getSearchService().suggest(prefix, maxResultSize, filter);
+    }
+
     @Override
     public String highlight(String query, String text) throws Exception {
         return getSearchService().highlight(query, text);
@@ -267,27 +298,17 @@ public void forEachSemanticNid(IntProcedure procedure) {
 
     @Override
     public void forEachSemanticNidForComponent(int componentNid, IntProcedure procedure) {
-        long[] citationLongs = this.nidToCitingComponentsNidMap.get(componentNid);
-        if (citationLongs != null) {
-            for (long citationLong : citationLongs) {
-                int citingComponentNid = (int) (citationLong >> 32);
-                procedure.accept(citingComponentNid);
-            }
-        }
+        this.citationIndex.forEachCiting(componentNid, procedure);
     }
 
     @Override
     public void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure) {
-        long[] citationLongs = this.nidToCitingComponentsNidMap.get(componentNid);
-        if (citationLongs != null) {
-            for (long citationLong : citationLongs) {
-                int citingComponentNid = (int) (citationLong >> 32);
-                int citingComponentPatternNid = (int) citationLong;
-                if (patternNid == citingComponentPatternNid) {
-                    procedure.accept(citingComponentNid);
-                }
-            }
-        }
+        this.citationIndex.forEachCitingOfPattern(componentNid, patternNid, procedure);
+    }
+
+    @Override
+    public Optional<StampPostingsIndex> stampPostingsIndex() {
+        return Optional.of(stampPostingsIndex);
     }
 
     @Override
@@ -16,9 +16,10 @@
 package dev.ikm.tinkar.provider.mvstore;
 
 import dev.ikm.tinkar.common.id.PublicId;
+import dev.ikm.tinkar.common.jfr.GetBytesEvent;
+import dev.ikm.tinkar.common.jfr.MergeEvent;
 import dev.ikm.tinkar.common.service.*;
 import dev.ikm.tinkar.provider.search.DataStoreLockProbe;
-import dev.ikm.tinkar.common.util.ints2long.IntsInLong;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
 import dev.ikm.tinkar.common.validation.ValidationRecord;
 import dev.ikm.tinkar.common.validation.ValidationSeverity;
@@ -70,7 +71,15 @@ public class MVStoreProvider implements PrimitiveDataService, NidGenerator {
      * Using "citing" instead of "referencing" to make the field names more distinct.
      */
     final MVMap<Integer, long[]> nidToCitingComponentsNidMap;
+    /**
+     * Citation postings over {@link #nidToCitingComponentsNidMap}; hubs are flushed back to it on save.
+     */
+    final CitationIndex citationIndex;
     final MVMap<Integer, int[]> patternToElementNidsMap;
+    /**
+     * Not persisted; built from the entity bytes when first used.
+     */
+    final StampPostingsIndex stampPostingsIndex = new StampPostingsIndex();
     final String name;
     protected LongAdder writeSequence = new LongAdder();
     ConcurrentHashMap<Integer, ConcurrentHashMap<Integer, Integer>> patternElementNidsMap = ConcurrentHashMap.newMap();
@@ -100,6 +109,7 @@ public MVStoreProvider() throws IOException {
         this.stampUuidToNidMap = store.openMap("stampUuidToNidMap");
         this.nidToPatternNidMap = store.openMap("nidToPatternNidMap");
         this.nidToCitingComponentsNidMap = store.openMap("nidToCitingComponentsNidMap");
+        this.citationIndex = new CitationIndex(CitationIndex.Store.of(nidToCitingComponentsNidMap));
         this.patternToElementNidsMap = store.openMap("patternToElementNidsMap");
         for (int patternNid : patternToElementNidsMap.keySet()) {
             int[] elementNids = patternToElementNidsMap.get(patternNid);
@@ -169,6 +179,7 @@ public void save() {
             patternToElementNidsMap.put(keyValue.getOne(), keyValue.getTwo().keySet()
                     .stream().mapToInt(value -> (int) value).toArray());
         }
+        this.citationIndex.flush();
         this.store.commit();
         this.offHeap.sync();
         stopwatch.stop();
@@ -217,26 +228,35 @@ public void forEach(ImmutableIntList nids, ObjIntConsumer<byte[]> action) {
 
     @Override
     public byte[] getBytes(int nid) {
-        return this.nidToComponentMap.get(nid);
+        GetBytesEvent event = new GetBytesEvent();
+        event.begin();
+        byte[] bytes = this.nidToComponentMap.get(nid);
+        if (event.shouldCommit()) {
+            event.provider = name();
+            event.nid = nid;
+            event.size = bytes == null ? -1 : bytes.length;
+            event.commit();
+        }
+        return bytes;
     }
 
     @Override
     public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject, DataActivity dataActivity) {
+        MergeEvent event = new MergeEvent();
+        event.begin();
         if (!nidToPatternNidMap.containsKey(nid)) {
             this.nidToPatternNidMap.put(nid, patternNid);
             if (patternNid != Integer.MAX_VALUE) {
 
                 this.nidToPatternNidMap.put(nid, patternNid);
                 if (patternNid != Integer.MAX_VALUE) {
-                    long citationLong = IntsInLong.ints2Long(nid, patternNid);
-                    this.nidToCitingComponentsNidMap.merge(referencedComponentNid, new long[]{citationLong},
-                            PrimitiveDataService::mergeCitations);
-                    // TODO this will be slow merge for large sets. Consider alternatives.
+                    this.citationIndex.add(referencedComponentNid, nid, patternNid);
                     this.addToElementSet(patternNid, nid);
                 }
             }
         }
         byte[] mergedBytes = nidToComponentMap.merge(nid, value, PrimitiveDataService::merge);
+        stampPostingsIndex.index(nid, value);
         writeSequence.increment();
 
         // Delegate indexing to SearchProvider.
@@ -255,7 +275,13 @@ public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
                 LOG.debug("SearchService not available for indexing", e);
             }
         }
-
+        if (event.shouldCommit()) {
+            event.provider = name();
+            event.nid = nid;
+            event.size = mergedBytes.length;
+            event.activity = dataActivity.name();
+            event.commit();
+        }
         return mergedBytes;
     }
 
@@ -272,6 +298,16 @@ public PrimitiveDataSearchResult[] search(String query, int maxResultSize) throw
         return getSearchService().search(query, maxResultSize);
     }
 
+    @Override
+    public PrimitiveDataSearchResult[] search(String query, int maxResultSize, SearchFilter filter) throws Exception {
+        return getSearchService().search(query, maxResultSize, filter);
+    }
+
+    @Override
+    public PrimitiveDataSearchResult[] suggest(String prefix, int maxResultSize, SearchFilter filter) throws Exception {
+        return getSearchService().suggest(prefix, maxResultSize, filter);
+    }
+
     @Override
     public String highlight(String query, String text) throws Exception {
         return getSearchService().highlight(query, text);
@@ -332,27 +368,18 @@ public void forEachSemanticNid(IntProcedure procedure) {
 
     @Override
     public void forEachSemanticNidForComponent(int componentNid, IntProcedure procedure) {
-        long[] citationLongs = this.nidToCitingComponentsNidMap.get(componentNid);
-        if (citationLongs != null) {
-            for (long citationLong : citationLongs) {
-                int citingComponentNid = (int) (citationLong >> 32);
-                procedure.accept(citingComponentNid);
-            }
-        }
+        this.citationIndex.forEachCiting(componentNid, procedure);
     }
 
     @Override
     public void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure) {
-        long[] citationLongs = this.nidToCitingComponentsNidMap.get(componentNid);
-        if (citationLongs != null) {
-            for (long citationLong : citationLongs) {
-                int citingComponentNid = (int) (citationLong >> 32);
-                int citingComponentPatternNid = (int) citationLong;
-                if (patternNid == citingComponentPatternNid) {
-                    procedure.accept(citingComponentNid);
-                }
-            }
-        }
+        this.citationIndex.forEachCitingOfPattern(componentNid, patternNid, procedure);
+    }
+
+    @Override
+    public Optional<StampPostingsIndex> stampPostingsIndex() {
+        stampPostingsIndex.ensureBuilt(this::forEachParallel);
+        return Optional.of(stampPostingsIndex);
     }
 
     @Override
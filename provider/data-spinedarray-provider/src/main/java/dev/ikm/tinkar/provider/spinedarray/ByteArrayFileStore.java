@@ -27,15 +27,28 @@
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import static dev.ikm.tinkar.collection.SpineFileUtil.MAPPED_SPINE_PREFIX;
 import static dev.ikm.tinkar.collection.SpineFileUtil.SPINE_PREFIX;
 
+/**
+ * Stores byte array spines as {@link MappedSpineFile}s ({@code mspine-N}), so single entities can be read without
+ * reading their spine, and writes append only changed entities.
+ * <p>
+ * Stores written before the mapped format hold {@code spine-N} files: a count followed by length-prefixed values.
+ * These are still read, and each is migrated to the mapped format the first time it is written or read by
+ * element; {@link #migrateLegacySpines()} converts all of them at once.
+ */
 public class ByteArrayFileStore extends SpinedArrayFileStore implements ByteArrayStore {
     private static final Logger LOG = LoggerFactory.getLogger(ByteArrayFileStore.class);
 
+    private final ConcurrentHashMap<Integer, MappedSpineFile> mappedSpines = new ConcurrentHashMap<>();
+
     public ByteArrayFileStore(File directory) {
         super(directory);
     }
@@ -46,26 +59,25 @@ public ByteArrayFileStore(File directory, Semaphore diskSemaphore) {
 
     @Override
     public Optional<AtomicReferenceArray<byte[]>> get(int spineIndex) {
-        String spineKey = SPINE_PREFIX + spineIndex;
-        File spineFile = new File(directory, spineKey);
-        if (spineFile.exists()) {
+        try {
+            MappedSpineFile mappedSpine = mappedSpine(spineIndex, false);
+            if (mappedSpine != null) {
+                return Optional.of(mappedSpine.getAll());
+            }
+        } catch (IOException ex) {
+            LOG.error(ex.getLocalizedMessage(), ex);
+            return Optional.empty();
+        }
+        File legacySpineFile = new File(directory, SPINE_PREFIX + spineIndex);
+        if (legacySpineFile.exists()) {
             diskSemaphore.acquireUninterruptibly();
-            try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(spineFile)))) {
-                int arraySize = dis.readInt();
-                byte[][] spineArray = new byte[arraySize][];
-                for (int i = 0; i < arraySize; i++) {
-                    int valueSize = dis.readInt();
-                    if (valueSize != 0) {
-                        byte[] value = new byte[valueSize];
-                        dis.readFully(value);
-                        spineArray[i] = value;
-                    } else {
-                        spineArray[i] = null;
-                    }
+            try {
+                // The spine may have been migrated while waiting for the semaphore.
+                MappedSpineFile mappedSpine = mappedSpine(spineIndex, false);
+                if (mappedSpine != null) {
+                    return Optional.of(mappedSpine.getAll());
                 }
-                AtomicReferenceArray<byte[]> spine = new AtomicReferenceArray<>(spineArray);
-                return Optional.of(spine);
-
+                return Optional.of(readLegacySpine(legacySpineFile));
             } catch (IOException ex) {
                 LOG.error(ex.getLocalizedMessage(), ex);
             } finally {
@@ -75,11 +87,146 @@ public Optional<AtomicReferenceArray<byte[]>> get(int spineIndex) {
         return Optional.empty();
     }
 
+    @Override
+    public boolean supportsElementReads() {
+        return true;
+    }
+
+    @Override
+    public byte[] getElement(int spineIndex, int indexInSpine) {
+        try {
+            MappedSpineFile mappedSpine = mappedSpine(spineIndex, false);
+            if (mappedSpine == null && new File(directory, SPINE_PREFIX + spineIndex).exists()) {
+                mappedSpine = migrateLegacySpine(spineIndex);
+            }
+            return mappedSpine == null ? null : mappedSpine.get(indexInSpine);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     @Override
     public void put(int spineIndex, AtomicReferenceArray<byte[]> spine) {
-        String spineKey = SPINE_PREFIX + spineIndex;
-        File spineFile = new File(directory, spineKey);
         diskSemaphore.acquireUninterruptibly();
+        try {
+            MappedSpineFile mappedSpine = mappedSpine(spineIndex, false);
+            if (mappedSpine != null) {
+                mappedSpine.put(spine);
+            } else {
+                File mappedSpineFile = new File(directory, MAPPED_SPINE_PREFIX + spineIndex);
+                mappedSpines.put(spineIndex, MappedSpineFile.create(mappedSpineFile, spine));
+                // The mapped file now holds the whole spine, so any legacy file is superseded.
+                new File(directory, SPINE_PREFIX + spineIndex).delete();
+            }
+        } catch (IOException ex) {
+            LOG.error(ex.getLocalizedMessage(), ex);
+        } finally {
+            diskSemaphore.release();
+        }
+    }
+
+    /**
+     * Converts every legacy {@code spine-N} file in the store to the mapped format.
+     *
+     * @return the number of spines converted
+     */
+    public int migrateLegacySpines() throws IOException {
+        File[] legacyFiles = directory.listFiles((pathname) -> pathname.getName().startsWith(SPINE_PREFIX));
+        int migrated = 0;
+        if (legacyFiles != null) {
+            for (File legacyFile : legacyFiles) {
+                int spineIndex = Integer.parseInt(legacyFile.getName().substring(SPINE_PREFIX.length()));
+                if (migrateLegacySpine(spineIndex) != null) {
+                    migrated++;
+                }
+            }
+        }
+        LOG.info("Migrated {} legacy spines in {}", migrated, directory);
+        return migrated;
+    }
+
+    /**
+     * Unmaps all open spine files.
+     */
+    @Override
+    public void close() {
+        mappedSpines.values().forEach(mappedSpine -> {
+            try {
+                mappedSpine.close();
+            } catch (IOException ex) {
+                LOG.error(ex.getLocalizedMessage(), ex);
+            }
+        });
+        mappedSpines.clear();
+    }
+
+    /**
+     * Converts a legacy spine file to the mapped format under the disk semaphore, so the conversion, and the
+     * deletion of the legacy file, cannot interleave with {@link #put} or a legacy read of the same spine.
+     *
+     * @return the open mapped spine, or null if the spine has neither a mapped nor a legacy file
+     */
+    private MappedSpineFile migrateLegacySpine(int spineIndex) throws IOException {
+        diskSemaphore.acquireUninterruptibly();
+        try {
+            return mappedSpine(spineIndex, true);
+        } finally {
+            diskSemaphore.release();
+        }
+    }
+
+    /**
+     * @param migrate if true, a legacy spine file is converted to the mapped format; callers must hold the
+     *                disk semaphore
+     * @return the open mapped spine, or null if the spine has no mapped file (and was not migrated)
+     */
+    private MappedSpineFile mappedSpine(int spineIndex, boolean migrate) throws IOException {
+        MappedSpineFile mappedSpine = mappedSpines.get(spineIndex);
+        if (mappedSpine != null) {
+            return mappedSpine;
+        }
+        try {
+            return mappedSpines.computeIfAbsent(spineIndex, key -> {
+                try {
+                    File mappedSpineFile = new File(directory, MAPPED_SPINE_PREFIX + key);
+                    if (mappedSpineFile.exists()) {
+                        return MappedSpineFile.open(mappedSpineFile);
+                    }
+                    File legacySpineFile = new File(directory, SPINE_PREFIX + key);
+                    if (migrate && legacySpineFile.exists()) {
+                        MappedSpineFile migrated = MappedSpineFile.create(mappedSpineFile, readLegacySpine(legacySpineFile));
+                        legacySpineFile.delete();
+                        return migrated;
+                    }
+                    return null;
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    static AtomicReferenceArray<byte[]> readLegacySpine(File spineFile) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(spineFile)))) {
+            int arraySize = dis.readInt();
+            byte[][] spineArray = new byte[arraySize][];
+            for (int i = 0; i < arraySize; i++) {
+                int valueSize = dis.readInt();
+                if (valueSize != 0) {
+                    byte[] value = new byte[valueSize];
+                    dis.readFully(value);
+                    spineArray[i] = value;
+                } else {
+                    spineArray[i] = null;
+                }
+            }
+            return new AtomicReferenceArray<>(spineArray);
+        }
+    }
+
+    static void writeLegacySpine(File spineFile, AtomicReferenceArray<byte[]> spine) throws IOException {
         try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spineFile)))) {
             dos.writeInt(spine.length());
             for (int i = 0; i < spine.length(); i++) {
@@ -91,10 +238,6 @@ public void put(int spineIndex, AtomicReferenceArray<byte[]> spine) {
                     dos.write(value);
                 }
             }
-        } catch (IOException ex) {
-            LOG.error(ex.getLocalizedMessage(), ex);
-        } finally {
-            diskSemaphore.release();
         }
     }
 
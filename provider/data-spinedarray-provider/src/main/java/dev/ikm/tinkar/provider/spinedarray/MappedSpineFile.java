@@ -0,0 +1,430 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * A byte array spine stored as an offset table followed by a contiguous payload, read through a memory mapped
+ * {@link MemorySegment}. Single elements are copied straight out of the mapping, so reading one entity does not
+ * decode the rest of the spine.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int   magic
+ * int   format version
+ * int   slot count
+ * int   reserved
+ * table 0, then table 1, each:
+ *   (long offset, int length) * slot count   length 0 for an empty slot
+ *   long  sequence
+ *   int   CRC32C of the entries and sequence
+ * payload
+ * </pre>
+ * Writes append only the slots whose bytes changed and force them to disk, then write the whole offset table into
+ * the table that is not in use, with the next sequence number, and force it. Opening the file uses the table with
+ * the highest sequence whose checksum matches and whose entries all lie inside the file. A table torn by a crash
+ * fails that check, so the file opens on the previous table, which still points at the previous, complete payload:
+ * superseded bytes are never overwritten. When superseded bytes outgrow the live bytes, the file is compacted into a
+ * new file that atomically replaces the old one. Version 1 files, with a single unchecked table, are still read, and
+ * are rewritten in the current format on their first change.
+ */
+public class MappedSpineFile implements AutoCloseable {
+    static final int MAGIC = 0x544B4D53; // "TKMS"
+    static final int FORMAT_VERSION = 2;
+    static final int SINGLE_TABLE_FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int SLOT_BYTES = 12;
+    /** Table sequence and CRC. */
+    static final int TABLE_TRAILER_BYTES = 12;
+    static final long MIN_COMPACTION_GARBAGE = 1L << 20;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final File file;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private Arena arena;
+    private MemorySegment segment;
+    private int formatVersion;
+    private int slotCount;
+    private long tableOffset;
+    private long tableSequence;
+    private long payloadStart;
+    private long liveBytes;
+
+    private MappedSpineFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens an existing mapped spine file.
+     */
+    public static MappedSpineFile open(File file) throws IOException {
+        MappedSpineFile mappedSpineFile = new MappedSpineFile(file);
+        mappedSpineFile.map();
+        return mappedSpineFile;
+    }
+
+    /**
+     * Writes a new mapped spine file containing the given spine, replacing any file at the same path, and
+     * opens it.
+     */
+    public static MappedSpineFile create(File file, AtomicReferenceArray<byte[]> spine) throws IOException {
+        writeCompact(file, spine);
+        return open(file);
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public int slotCount() {
+        lock.readLock().lock();
+        try {
+            return slotCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the bytes at the slot, or null if the slot is empty
+     */
+    public byte[] get(int indexInSpine) {
+        lock.readLock().lock();
+        try {
+            if (indexInSpine >= slotCount) {
+                return null;
+            }
+            long slotOffset = tableOffset + ((long) indexInSpine * SLOT_BYTES);
+            int length = segment.get(INT, slotOffset + 8);
+            if (length == 0) {
+                return null;
+            }
+            return segment.asSlice(segment.get(LONG, slotOffset), length).toArray(ValueLayout.JAVA_BYTE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return all slots of the spine, each copied out of the mapping
+     */
+    public AtomicReferenceArray<byte[]> getAll() {
+        lock.readLock().lock();
+        try {
+            byte[][] spineArray = new byte[slotCount][];
+            for (int i = 0; i < slotCount; i++) {
+                long slotOffset = tableOffset + ((long) i * SLOT_BYTES);
+                int length = segment.get(INT, slotOffset + 8);
+                if (length != 0) {
+                    spineArray[i] = segment.asSlice(segment.get(LONG, slotOffset), length).toArray(ValueLayout.JAVA_BYTE);
+                }
+            }
+            return new AtomicReferenceArray<>(spineArray);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the file up to date with the spine. Slots whose bytes are unchanged are left alone; changed slots
+     * are appended to the payload, which is forced to disk before the offset table that points at it is written
+     * over the table not in use. The table is forced in turn before returning, so the caller may rely on the spine
+     * being durable.
+     */
+    public void put(AtomicReferenceArray<byte[]> spine) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (spine.length() != slotCount || formatVersion != FORMAT_VERSION) {
+                rewrite(spine);
+                return;
+            }
+            // Snapshot the slots, the spine may be updated concurrently while it is written.
+            byte[][] values = new byte[slotCount][];
+            for (int i = 0; i < slotCount; i++) {
+                values[i] = spine.get(i);
+            }
+            long fileEnd = segment.byteSize();
+            ByteBuffer table = ByteBuffer.allocate(tableBytes(slotCount));
+            MemorySegment.copy(segment, tableOffset, MemorySegment.ofBuffer(table), 0, (long) slotCount * SLOT_BYTES);
+            long appendBytes = 0;
+            long newLiveBytes = 0;
+            boolean changed = false;
+            for (int i = 0; i < slotCount; i++) {
+                byte[] value = values[i];
+                int tablePosition = i * SLOT_BYTES;
+                long offset = table.getLong(tablePosition);
+                int length = table.getInt(tablePosition + 8);
+                if (value == null || value.length == 0) {
+                    if (length != 0) {
+                        table.putLong(tablePosition, 0L);
+                        table.putInt(tablePosition + 8, 0);
+                        changed = true;
+                    }
+                } else {
+                    newLiveBytes += value.length;
+                    if (length != value.length ||
+                            MemorySegment.mismatch(segment, offset, offset + length,
+                                    MemorySegment.ofArray(value), 0, value.length) != -1) {
+                        table.putLong(tablePosition, fileEnd + appendBytes);
+                        table.putInt(tablePosition + 8, value.length);
+                        appendBytes += value.length;
+                        changed = true;
+                    }
+                }
+            }
+            if (!changed) {
+                return;
+            }
+            long garbage = (fileEnd + appendBytes) - payloadStart - newLiveBytes;
+            if (garbage > newLiveBytes && garbage > MIN_COMPACTION_GARBAGE) {
+                rewrite(new AtomicReferenceArray<>(values));
+                return;
+            }
+            if (appendBytes > 0) {
+                ByteBuffer payload = ByteBuffer.allocate(Math.toIntExact(appendBytes));
+                for (int i = 0; i < slotCount; i++) {
+                    int tablePosition = i * SLOT_BYTES;
+                    long offset = table.getLong(tablePosition);
+                    if (offset >= fileEnd) {
+                        payload.position(Math.toIntExact(offset - fileEnd));
+                        payload.put(values[i]);
+                    }
+                }
+                payload.clear();
+                writeFully(channel, payload, fileEnd);
+                channel.force(false);
+            }
+            sealTable(table, slotCount, tableSequence + 1);
+            long unusedTableOffset = tableOffset == tableOffset(slotCount, 0) ?
+                    tableOffset(slotCount, 1) : tableOffset(slotCount, 0);
+            writeFully(channel, table, unusedTableOffset);
+            channel.force(false);
+            unmap();
+            map();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return bytes in the payload no longer referenced by the offset table
+     */
+    public long garbageBytes() {
+        lock.readLock().lock();
+        try {
+            return segment.byteSize() - payloadStart - liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            unmap();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rewrite(AtomicReferenceArray<byte[]> spine) throws IOException {
+        unmap();
+        writeCompact(file, spine);
+        map();
+    }
+
+    private void map() throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Mapped spine file is truncated: " + file);
+            }
+            this.arena = Arena.ofShared();
+            this.segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            if (segment.get(INT, 0) != MAGIC) {
+                throw new IOException("Not a mapped spine file: " + file);
+            }
+            this.formatVersion = segment.get(INT, 4);
+            this.slotCount = segment.get(INT, 8);
+            if (slotCount < 0) {
+                throw new IOException("Mapped spine slot count is negative: " + file);
+            }
+            if (formatVersion == SINGLE_TABLE_FORMAT_VERSION) {
+                this.tableOffset = HEADER_BYTES;
+                this.tableSequence = 0;
+                this.payloadStart = HEADER_BYTES + ((long) slotCount * SLOT_BYTES);
+                if (payloadStart > size) {
+                    throw new IOException("Mapped spine offset table is truncated: " + file);
+                }
+                if (!entriesInBounds(tableOffset)) {
+                    throw new IOException("Mapped spine offset table points outside the file: " + file);
+                }
+            } else if (formatVersion == FORMAT_VERSION) {
+                this.payloadStart = payloadStart(slotCount);
+                if (payloadStart > size) {
+                    throw new IOException("Mapped spine offset table is truncated: " + file);
+                }
+                this.tableOffset = -1;
+                this.tableSequence = -1;
+                for (int table = 0; table < 2; table++) {
+                    long offset = tableOffset(slotCount, table);
+                    long sequence = segment.get(LONG, offset + ((long) slotCount * SLOT_BYTES));
+                    if (sequence > tableSequence && tableValid(offset)) {
+                        this.tableOffset = offset;
+                        this.tableSequence = sequence;
+                    }
+                }
+                if (tableOffset < 0) {
+                    throw new IOException("Mapped spine has no intact offset table: " + file);
+                }
+            } else {
+                throw new IOException("Unsupported mapped spine format version " + formatVersion + ": " + file);
+            }
+            long live = 0;
+            for (int i = 0; i < slotCount; i++) {
+                live += segment.get(INT, tableOffset + ((long) i * SLOT_BYTES) + 8);
+            }
+            this.liveBytes = live;
+        } catch (IOException | RuntimeException e) {
+            unmap();
+            throw e;
+        }
+    }
+
+    private void unmap() throws IOException {
+        if (arena != null) {
+            arena.close();
+            arena = null;
+            segment = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * @return true if the table's checksum matches and every entry lies inside the payload
+     */
+    private boolean tableValid(long offset) {
+        long checkedBytes = ((long) slotCount * SLOT_BYTES) + 8;
+        CRC32C crc = new CRC32C();
+        crc.update(segment.asSlice(offset, checkedBytes).asByteBuffer());
+        return (int) crc.getValue() == segment.get(INT, offset + checkedBytes) && entriesInBounds(offset);
+    }
+
+    private boolean entriesInBounds(long offset) {
+        long size = segment.byteSize();
+        for (int i = 0; i < slotCount; i++) {
+            long slotOffset = offset + ((long) i * SLOT_BYTES);
+            long entryOffset = segment.get(LONG, slotOffset);
+            int length = segment.get(INT, slotOffset + 8);
+            if (length < 0 || (length > 0 && (entryOffset < payloadStart || entryOffset > size - length))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int tableBytes(int slotCount) {
+        return (slotCount * SLOT_BYTES) + TABLE_TRAILER_BYTES;
+    }
+
+    static long tableOffset(int slotCount, int table) {
+        return HEADER_BYTES + (table * (((long) slotCount * SLOT_BYTES) + TABLE_TRAILER_BYTES));
+    }
+
+    private static long payloadStart(int slotCount) {
+        return tableOffset(slotCount, 2);
+    }
+
+    /**
+     * Writes the sequence and checksum after the table's entries and rewinds it for writing.
+     */
+    private static void sealTable(ByteBuffer table, int slotCount, long sequence) {
+        int entryBytes = slotCount * SLOT_BYTES;
+        table.putLong(entryBytes, sequence);
+        CRC32C crc = new CRC32C();
+        crc.update(table.array(), table.arrayOffset(), entryBytes + 8);
+        table.putInt(entryBytes + 8, (int) crc.getValue());
+        table.clear();
+    }
+
+    private static void writeCompact(File file, AtomicReferenceArray<byte[]> spine) throws IOException {
+        int slotCount = spine.length();
+        byte[][] values = new byte[slotCount][];
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.putInt(slotCount);
+        header.putInt(0);
+        header.flip();
+        ByteBuffer table = ByteBuffer.allocate(tableBytes(slotCount));
+        long offset = payloadStart(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            byte[] value = spine.get(i);
+            values[i] = value;
+            int length = value == null ? 0 : value.length;
+            table.putLong(length == 0 ? 0L : offset);
+            table.putInt(length);
+            offset += length;
+        }
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, header, 0);
+            // Both tables start out intact; the first, with the higher sequence, is the one in use.
+            sealTable(table, slotCount, 1);
+            writeFully(out, table, tableOffset(slotCount, 0));
+            sealTable(table, slotCount, 0);
+            writeFully(out, table, tableOffset(slotCount, 1));
+            long position = payloadStart(slotCount);
+            for (byte[] value : values) {
+                if (value != null && value.length > 0) {
+                    writeFully(out, ByteBuffer.wrap(value), position);
+                    position += value.length;
+                }
+            }
+            out.force(false);
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
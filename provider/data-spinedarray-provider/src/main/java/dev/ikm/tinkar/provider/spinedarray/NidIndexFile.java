@@ -0,0 +1,317 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import dev.ikm.tinkar.common.sets.ConcurrentNidSet;
+import org.eclipse.collections.impl.map.mutable.ConcurrentHashMap;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persistent form of the indexes {@link SpinedArrayProvider} otherwise rebuilds by scanning every entity at open:
+ * the UUID to nid map, the concept, semantic, pattern, and stamp nid sets, and the pattern to semantic nid sets.
+ * <p>
+ * The file is written by {@link SpinedArrayProvider#save()} after the spines have been flushed, and deleted before
+ * any spine is rewritten, so an index that is present on disk always describes the spines beside it. A crash
+ * mid-save therefore leaves no index, and the provider falls back to the full scan. As a check on that ordering,
+ * the provider also advances a persisted spine generation before it rewrites spines; an index captured at an
+ * earlier generation is rejected even if its next nid and spine count still match.
+ * <p>
+ * Layout (big-endian, matching the other spine files):
+ * <pre>
+ * int      magic
+ * int      format version
+ * long     spine generation when the index was captured
+ * int      next nid when the index was captured
+ * int      entity spine count
+ * int      uuid count
+ * (long msb, long lsb, int nid) * uuid count, ordered by {@link UUID#compareTo(UUID)}
+ * bitmap   concept nids, semantic nids, pattern nids, stamp nids
+ * int      pattern count
+ * (int patternNid, bitmap semantic nids) * pattern count
+ * long     CRC32 of all preceding bytes
+ * </pre>
+ * Each bitmap is an int byte count followed by a serialized {@link RoaringBitmap}. The UUID section is fixed width
+ * so it can be memory mapped and read without per-entry parsing.
+ */
+public class NidIndexFile {
+    private static final Logger LOG = LoggerFactory.getLogger(NidIndexFile.class);
+    public static final String FILE_NAME = "nidIndex";
+    static final int MAGIC = 0x544B4E49; // "TKNI"
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 4;
+    static final int UUID_ENTRY_BYTES = 8 + 8 + 4;
+    static final int LOAD_BATCH_SIZE = 1 << 16;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Header values identifying the state of the store the index was captured from.
+     */
+    public record Header(long spineGeneration, int nextNid, int spineCount, int uuidCount) {
+    }
+
+    /**
+     * The in-memory indexes the file persists; the same instances the provider reads and updates.
+     */
+    public record Indexes(ConcurrentHashMap<UUID, Integer> uuidToNidMap, ConcurrentNidSet conceptNids,
+                          ConcurrentNidSet semanticNids, ConcurrentNidSet patternNids, ConcurrentNidSet stampNids,
+                          ConcurrentHashMap<Integer, ConcurrentNidSet> patternElementNidsMap) {
+    }
+
+    private final File file;
+
+    public NidIndexFile(File directory) {
+        this.file = new File(directory, FILE_NAME);
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Removes the index from disk. Called before spines are rewritten so a partially completed save cannot leave
+     * an index describing different spines.
+     */
+    public void invalidate() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    /**
+     * Writes the provider's indexes to a temporary file, then atomically replaces the index file.
+     * Entries minted at or after {@code nextNid} (concurrently with the save) are excluded, so the index never
+     * claims nids the persisted next nid does not cover.
+     *
+     * @param indexes         the indexes to write
+     * @param spineGeneration the spine generation persisted with this save
+     * @param nextNid         the next nid persisted with this save
+     * @param spineCount      the entity spine count persisted with this save
+     */
+    public void write(Indexes indexes, long spineGeneration, int nextNid, int spineCount) throws IOException {
+        UUID[] uuids = indexes.uuidToNidMap().keySet().toArray(new UUID[0]);
+        Arrays.parallelSort(uuids);
+        int[] nids = new int[uuids.length];
+        int uuidCount = 0;
+        for (UUID uuid : uuids) {
+            Integer nid = indexes.uuidToNidMap().get(uuid);
+            if (nid != null && nid < nextNid) {
+                uuids[uuidCount] = uuid;
+                nids[uuidCount++] = nid;
+            }
+        }
+
+        File tempFile = new File(file.getParentFile(), FILE_NAME + ".tmp");
+        CRC32 crc32 = new CRC32();
+        try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fos, crc32), 1 << 16));
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            dos.writeLong(spineGeneration);
+            dos.writeInt(nextNid);
+            dos.writeInt(spineCount);
+            dos.writeInt(uuidCount);
+            for (int i = 0; i < uuidCount; i++) {
+                dos.writeLong(uuids[i].getMostSignificantBits());
+                dos.writeLong(uuids[i].getLeastSignificantBits());
+                dos.writeInt(nids[i]);
+            }
+            writeBitmap(dos, toBitmap(indexes.conceptNids(), nextNid));
+            writeBitmap(dos, toBitmap(indexes.semanticNids(), nextNid));
+            writeBitmap(dos, toBitmap(indexes.patternNids(), nextNid));
+            writeBitmap(dos, toBitmap(indexes.stampNids(), nextNid));
+            List<Map.Entry<Integer, ConcurrentNidSet>> patternEntries =
+                    new ArrayList<>(indexes.patternElementNidsMap().entrySet());
+            dos.writeInt(patternEntries.size());
+            for (Map.Entry<Integer, ConcurrentNidSet> patternEntry : patternEntries) {
+                dos.writeInt(patternEntry.getKey());
+                writeBitmap(dos, toBitmap(patternEntry.getValue(), nextNid));
+            }
+            dos.flush();
+            // The checksum itself is written past the checked stream.
+            DataOutputStream trailer = new DataOutputStream(fos);
+            trailer.writeLong(crc32.getValue());
+            trailer.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("Wrote {} with {} uuids at spine generation {}", file.getName(), uuidCount, spineGeneration);
+    }
+
+    /**
+     * Reads the index into the provider's (empty) in-memory indexes. The file is memory mapped and verified
+     * against its checksum and against the persisted store state before any entry is applied.
+     *
+     * @param indexes                 the (empty) indexes to populate
+     * @param expectedNextNid         the next nid read from the store's next nid file
+     * @param expectedSpineCount      the entity spine count read from the store
+     * @param expectedSpineGeneration the spine generation read from the store
+     * @return the header of the loaded index
+     * @throws IOException if the file cannot be read, or does not match the store
+     */
+    public Header load(Indexes indexes, int expectedNextNid, int expectedSpineCount, long expectedSpineGeneration)
+            throws IOException {
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES + 8) {
+                throw new IOException("Index file is truncated: " + fileSize + " bytes");
+            }
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+            long storedChecksum = segment.get(LONG, fileSize - 8);
+            long computedChecksum = checksum(segment, fileSize - 8);
+            if (storedChecksum != computedChecksum) {
+                throw new IOException("Index checksum mismatch");
+            }
+            if (segment.get(INT, 0) != MAGIC) {
+                throw new IOException("Not an index file");
+            }
+            int formatVersion = segment.get(INT, 4);
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported index format version: " + formatVersion);
+            }
+            Header header = new Header(segment.get(LONG, 8), segment.get(INT, 16),
+                    segment.get(INT, 20), segment.get(INT, 24));
+            if (header.nextNid() != expectedNextNid) {
+                throw new IOException("Index next nid " + header.nextNid() +
+                        " does not match store next nid " + expectedNextNid);
+            }
+            if (header.spineCount() != expectedSpineCount) {
+                throw new IOException("Index spine count " + header.spineCount() +
+                        " does not match store spine count " + expectedSpineCount);
+            }
+            if (header.spineGeneration() != expectedSpineGeneration) {
+                throw new IOException("Index spine generation " + header.spineGeneration() +
+                        " does not match store spine generation " + expectedSpineGeneration);
+            }
+
+            loadUuids(indexes.uuidToNidMap(), segment, header.uuidCount());
+
+            long offset = HEADER_BYTES + ((long) header.uuidCount() * UUID_ENTRY_BYTES);
+            RoaringBitmap bitmap = new RoaringBitmap();
+            offset = readBitmap(segment, offset, bitmap);
+            indexes.conceptNids().addAll(bitmap);
+            offset = readBitmap(segment, offset, bitmap);
+            indexes.semanticNids().addAll(bitmap);
+            offset = readBitmap(segment, offset, bitmap);
+            indexes.patternNids().addAll(bitmap);
+            offset = readBitmap(segment, offset, bitmap);
+            indexes.stampNids().addAll(bitmap);
+            int patternCount = segment.get(INT, offset);
+            offset += 4;
+            for (int i = 0; i < patternCount; i++) {
+                int patternNid = segment.get(INT, offset);
+                offset = readBitmap(segment, offset + 4, bitmap);
+                indexes.patternElementNidsMap().put(patternNid, ConcurrentNidSet.of(bitmap));
+            }
+            if (offset != fileSize - 8) {
+                throw new IOException("Index has " + (fileSize - 8 - offset) + " unexpected trailing bytes");
+            }
+            return header;
+        }
+    }
+
+    private static void loadUuids(ConcurrentHashMap<UUID, Integer> uuidToNidMap, MemorySegment segment, int uuidCount)
+            throws IOException {
+        List<Future<?>> futures = new ArrayList<>((uuidCount / LOAD_BATCH_SIZE) + 1);
+        for (int batchStart = 0; batchStart < uuidCount; batchStart += LOAD_BATCH_SIZE) {
+            final int start = batchStart;
+            final int end = Math.min(uuidCount, batchStart + LOAD_BATCH_SIZE);
+            futures.add(TinkExecutor.threadPool().submit(() -> {
+                long entryOffset = HEADER_BYTES + ((long) start * UUID_ENTRY_BYTES);
+                for (int i = start; i < end; i++) {
+                    uuidToNidMap.put(new UUID(segment.get(LONG, entryOffset), segment.get(LONG, entryOffset + 8)),
+                            segment.get(INT, entryOffset + 16));
+                    entryOffset += UUID_ENTRY_BYTES;
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static long checksum(MemorySegment segment, long length) {
+        CRC32 crc32 = new CRC32();
+        long chunkSize = Integer.MAX_VALUE & ~0xFFFL;
+        for (long position = 0; position < length; position += chunkSize) {
+            crc32.update(segment.asSlice(position, Math.min(chunkSize, length - position)).asByteBuffer());
+        }
+        return crc32.getValue();
+    }
+
+    private static RoaringBitmap toBitmap(ConcurrentNidSet nids, int nextNid) {
+        RoaringBitmap bitmap = nids.toBitmap();
+        // The bitmap orders ints as unsigned, so nids at or above nextNid may form two unsigned ranges.
+        if (nextNid < 0) {
+            bitmap.remove(Integer.toUnsignedLong(nextNid), 1L << 32);
+            bitmap.remove(0L, 1L << 31);
+        } else {
+            bitmap.remove(nextNid, 1L << 31);
+        }
+        bitmap.runOptimize();
+        return bitmap;
+    }
+
+    private static void writeBitmap(DataOutputStream dos, RoaringBitmap bitmap) throws IOException {
+        dos.writeInt(bitmap.serializedSizeInBytes());
+        bitmap.serialize(dos);
+    }
+
+    private static long readBitmap(MemorySegment segment, long offset, RoaringBitmap bitmap) throws IOException {
+        int byteCount = segment.get(INT, offset);
+        bitmap.clear();
+        bitmap.deserialize(segment.asSlice(offset + 4, byteCount).asByteBuffer());
+        return offset + 4 + byteCount;
+    }
+}
@@ -23,6 +23,7 @@
 import java.io.IOException;
 import java.util.concurrent.Semaphore;
 
+import static dev.ikm.tinkar.collection.SpineFileUtil.MAPPED_SPINE_PREFIX;
 import static dev.ikm.tinkar.collection.SpineFileUtil.SPINE_PREFIX;
 
 public class SpinedArrayFileStore {
@@ -61,7 +62,8 @@ public final int sizeOnDisk() {
         if (directory == null) {
             return 0;
         }
-        File[] files = directory.listFiles((pathname) -> pathname.getName().startsWith(SPINE_PREFIX));
+        File[] files = directory.listFiles((pathname) -> pathname.getName().startsWith(SPINE_PREFIX) ||
+                pathname.getName().startsWith(MAPPED_SPINE_PREFIX));
         int size = 0;
         for (File spineFile : files) {
             size = (int) (size + spineFile.length());
@@ -16,14 +16,20 @@
 package dev.ikm.tinkar.provider.spinedarray;
 
 import dev.ikm.tinkar.collection.KeyType;
+import dev.ikm.tinkar.collection.SpineFileUtil;
+import dev.ikm.tinkar.collection.SpineResidencyStats;
 import dev.ikm.tinkar.collection.SpinedByteArrayMap;
 import dev.ikm.tinkar.collection.SpinedIntIntMap;
 import dev.ikm.tinkar.collection.SpinedIntLongArrayMap;
 import dev.ikm.tinkar.common.alert.AlertStreams;
 import dev.ikm.tinkar.common.id.PublicId;
+import dev.ikm.tinkar.common.jfr.GetBytesEvent;
+import dev.ikm.tinkar.common.jfr.MergeEvent;
+import dev.ikm.tinkar.common.metrics.MetricsRegistry;
+import dev.ikm.tinkar.common.metrics.MetricsSource;
 import dev.ikm.tinkar.common.service.*;
 import dev.ikm.tinkar.provider.search.DataStoreLockProbe;
-import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
+import dev.ikm.tinkar.common.sets.ConcurrentNidSet;
 import dev.ikm.tinkar.common.util.ints2long.IntsInLong;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
 import dev.ikm.tinkar.common.util.uuid.UuidUtil;
@@ -37,20 +43,15 @@
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.factory.Maps;
 import org.eclipse.collections.api.factory.Sets;
-import org.eclipse.collections.api.factory.primitive.LongSets;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
-import org.eclipse.collections.api.list.primitive.MutableIntList;
-import org.eclipse.collections.api.list.primitive.MutableLongList;
 import org.eclipse.collections.api.map.ImmutableMap;
 import org.eclipse.collections.api.map.MutableMap;
 import org.eclipse.collections.api.set.MutableSet;
 import org.eclipse.collections.api.set.primitive.IntSet;
-import org.eclipse.collections.api.set.primitive.MutableLongSet;
-import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
 import org.eclipse.collections.impl.factory.primitive.IntSets;
-import org.eclipse.collections.impl.factory.primitive.LongLists;
 import org.eclipse.collections.impl.map.mutable.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +61,7 @@
 import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.nio.file.Files;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -69,10 +71,15 @@
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
 import java.util.function.ObjIntConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
 
 /**
  * Maybe a hybrid of SpinedArrayProvider and MVStoreProvider is worth considering.
@@ -83,6 +90,10 @@
 public class SpinedArrayProvider implements PrimitiveDataService, NidGenerator, PrimitiveDataRepair {
     private static final Logger LOG = LoggerFactory.getLogger(SpinedArrayProvider.class);
     protected static final File defaultDataDirectory = new File("target/spinedarrays/");
+    /** Default longest time a merge outside a transaction commit stays unforced in the write-ahead log. */
+    public static final Duration DEFAULT_WAL_SYNC_INTERVAL = Duration.ofSeconds(1);
+    /** Default write-ahead log size that triggers a save. */
+    public static final long DEFAULT_WAL_CHECKPOINT_BYTES = 256L * 1024 * 1024;
 
     public enum Lifecycle {
         UNINITIALIZED, STARTING, RUNNING, STOPPING, STOPPED
@@ -113,11 +124,13 @@ public static SpinedArrayProvider get() {
     final AtomicInteger nextNid = new AtomicInteger(PrimitiveDataService.FIRST_NID);
 
     final ConcurrentHashMap<UUID, Integer> uuidToNidMap = ConcurrentHashMap.newMap();
-    final ConcurrentHashSet<Integer> patternNids = new ConcurrentHashSet();
-    final ConcurrentHashSet<Integer> conceptNids = new ConcurrentHashSet();
-    final ConcurrentHashSet<Integer> semanticNids = new ConcurrentHashSet();
-    final ConcurrentHashSet<Integer> stampNids = new ConcurrentHashSet();
-    final ConcurrentHashMap<Integer, ConcurrentHashSet<Integer>> patternElementNidsMap = ConcurrentHashMap.newMap();
+    final ConcurrentNidSet patternNids = new ConcurrentNidSet();
+    final ConcurrentNidSet conceptNids = new ConcurrentNidSet();
+    final ConcurrentNidSet semanticNids = new ConcurrentNidSet();
+    final ConcurrentNidSet stampNids = new ConcurrentNidSet();
+    final ConcurrentHashMap<Integer, ConcurrentNidSet> patternElementNidsMap = ConcurrentHashMap.newMap();
+    final NidIndexFile.Indexes nidIndexes = new NidIndexFile.Indexes(uuidToNidMap, conceptNids, semanticNids,
+            patternNids, stampNids, patternElementNidsMap);
 
     final SpinedByteArrayMap entityToBytesMap;
     final SpinedIntIntMap nidToPatternNidMap;
@@ -125,13 +138,48 @@ public static SpinedArrayProvider get() {
      * Using "citing" instead of "referencing" to make the field names more distinct.
      */
     final SpinedIntLongArrayMap nidToCitingComponentsNidMap;
+    /**
+     * Citation postings over {@link #nidToCitingComponentsNidMap}; hubs are flushed back to it on save.
+     */
+    final CitationIndex citationIndex;
+    /**
+     * Not persisted; built from the entity bytes when first used.
+     */
+    final StampPostingsIndex stampPostingsIndex = new StampPostingsIndex();
 
     final File nidToPatternNidMapDirectory;
     final File nidToByteArrayMapDirectory;
     final File nidToCitingComponentNidMapDirectory;
     final File nextNidKeyFile;
+    final NidIndexFile nidIndexFile;
+    /**
+     * Holds the spine generation, advanced and written before spines are rewritten after the index was captured,
+     * so an index left behind by a missed invalidation is recognized as stale.
+     */
+    final File spineGenerationFile;
+    private volatile long spineGeneration = 0;
+    /**
+     * The write sequence and next nid captured by the index file on disk, used by {@link #save()} to skip
+     * rewriting an index that is already current. Reset when entities are put or erased outside of merge.
+     */
+    private volatile long indexedWriteSequence = -1;
+    private volatile int indexedNextNid = Integer.MIN_VALUE;
+    /**
+     * True once an evicted spine has been written back since the last save started; the index is already removed
+     * and the spine generation advanced, so later write-backs in the same period only need to cover the next nid.
+     */
+    private volatile boolean spineWriteBackPrepared = false;
+    private volatile int writtenBackNextNid = Integer.MIN_VALUE;
     final StableValue<SearchService> searchService = StableValue.of();
     private volatile boolean loadPhase = false;
+    /**
+     * Logs merges between saves; {@code null} when disabled by {@link ServiceKeys#DATA_STORE_WRITE_AHEAD_LOG}.
+     */
+    final WriteAheadLog writeAheadLog;
+    private final long walCheckpointBytes;
+    private ScheduledFuture<?> walSyncTask;
+    /** Serializes saves, each of which is a write-ahead log checkpoint. */
+    private final Object saveLock = new Object();
     final String name;
     final ImmutableList<ChangeSetWriterService> changeSetWriterServices;
 
@@ -155,37 +203,80 @@ private SpinedArrayProvider() throws IOException, ExecutionException, Interrupte
         this.nidToCitingComponentNidMapDirectory = new File(configuredRoot, "nidToCitingComponentNidMap");
         this.nidToCitingComponentNidMapDirectory.mkdirs();
         this.nextNidKeyFile = new File(configuredRoot, "nextNidKeyFile");
+        this.nidIndexFile = new NidIndexFile(configuredRoot);
+        this.spineGenerationFile = new File(configuredRoot, "spineGeneration");
 
-        this.entityToBytesMap = new SpinedByteArrayMap(new ByteArrayFileStore(nidToByteArrayMapDirectory));
+        int maxResidentSpines = ServiceProperties.get(ServiceKeys.DATA_STORE_MAX_RESIDENT_SPINES, 0);
+        this.entityToBytesMap = new SpinedByteArrayMap(new ByteArrayFileStore(nidToByteArrayMapDirectory), maxResidentSpines);
+        this.entityToBytesMap.setBeforeWriteBack(this::prepareForSpineWriteBack);
+        if (maxResidentSpines > 0) {
+            LOG.info("Entity spine residency bounded to {} spines", maxResidentSpines);
+        }
         this.nidToPatternNidMap = new SpinedIntIntMap(KeyType.NID_KEY);
         this.nidToPatternNidMap.read(this.nidToPatternNidMapDirectory);
         this.nidToCitingComponentsNidMap = new SpinedIntLongArrayMap(new IntLongArrayFileStore(nidToCitingComponentNidMapDirectory));
+        this.citationIndex = new CitationIndex(new CitationIndex.Store() {
+            @Override
+            public long[] get(int componentNid) {
+                return nidToCitingComponentsNidMap.get(componentNid);
+            }
+
+            @Override
+            public long[] accumulateAndGet(int componentNid, long[] citations, BinaryOperator<long[]> accumulator) {
+                return nidToCitingComponentsNidMap.accumulateAndGet(componentNid, citations, accumulator);
+            }
+
+            @Override
+            public void put(int componentNid, long[] citations) {
+                nidToCitingComponentsNidMap.put(componentNid, citations);
+            }
+        });
 
         if (nextNidKeyFile.exists()) {
             String nextNidString = Files.readString(this.nextNidKeyFile.toPath());
             nextNid.set(Integer.valueOf(nextNidString));
         }
+        if (spineGenerationFile.exists()) {
+            this.spineGeneration = Long.parseLong(Files.readString(this.spineGenerationFile.toPath()).trim());
+        }
+        Number walCheckpointBytes = ServiceProperties.get(ServiceKeys.DATA_STORE_WAL_CHECKPOINT_BYTES,
+                DEFAULT_WAL_CHECKPOINT_BYTES);
+        this.walCheckpointBytes = walCheckpointBytes.longValue();
+        MutableIntSet replayedNids = IntSets.mutable.empty();
+        if (ServiceProperties.get(ServiceKeys.DATA_STORE_WRITE_AHEAD_LOG, Boolean.TRUE)) {
+            this.writeAheadLog = new WriteAheadLog(new File(configuredRoot, "writeAheadLog"));
+            // Before the indexes are loaded, so that they are rebuilt over the replayed entities.
+            replayWriteAheadLog(replayedNids);
+        } else {
+            this.writeAheadLog = null;
+        }
         LOG.info("Submitting UUID loading task to thread pool...");
         try {
             TinkExecutor.threadPool().submit(() -> {
-                Stopwatch uuidNidMapFromEntitiesStopwatch = new Stopwatch();
-                LOG.info("Starting UUID strategy 2 on thread: {}", Thread.currentThread().getName());
-                UuidNidCollector uuidNidCollector = new UuidNidCollector(uuidToNidMap,
-                        patternNids, conceptNids, semanticNids, stampNids, patternElementNidsMap);
-                try {
-                    LOG.info("Executing entityToBytesMap.forEachParallel...");
-                    this.entityToBytesMap.forEachParallel(uuidNidCollector);
-                    LOG.info("Completed entityToBytesMap.forEachParallel, counting down latch");
+                if (loadNidIndex()) {
                     this.uuidsLoadedLatch.countDown();
-                } catch (ExecutionException | InterruptedException e) {
-                    LOG.error("Error during UUID loading: " + e.getLocalizedMessage(), e);
-                } finally {
-                    uuidNidMapFromEntitiesStopwatch.stop();
-                    LOG.info("Finished UUID strategy 2 in: " + uuidNidMapFromEntitiesStopwatch.durationString());
-                    LOG.info(uuidNidCollector.report());
+                } else {
+                    // Recovery path: rebuild the indexes from the entity bytes. The next save persists them.
+                    Stopwatch uuidNidMapFromEntitiesStopwatch = new Stopwatch();
+                    LOG.info("Starting UUID strategy 2 on thread: {}", Thread.currentThread().getName());
+                    UuidNidCollector uuidNidCollector = new UuidNidCollector(uuidToNidMap,
+                            patternNids, conceptNids, semanticNids, stampNids, patternElementNidsMap);
+                    try {
+                        LOG.info("Executing entityToBytesMap.forEachParallel...");
+                        this.entityToBytesMap.forEachParallel(uuidNidCollector);
+                        trimNidSets();
+                        LOG.info("Completed entityToBytesMap.forEachParallel, counting down latch");
+                        this.uuidsLoadedLatch.countDown();
+                    } catch (ExecutionException | InterruptedException e) {
+                        LOG.error("Error during UUID loading: " + e.getLocalizedMessage(), e);
+                    } finally {
+                        uuidNidMapFromEntitiesStopwatch.stop();
+                        LOG.info("Finished UUID strategy 2 in: " + uuidNidMapFromEntitiesStopwatch.durationString());
+                        LOG.info(uuidNidCollector.report());
+                    }
                 }
                 LOG.info("Starting virtual thread for listAndCancelUncommittedStamps");
-                int[] sortedStampNids = stampNids.stream().sorted().mapToInt(value -> (int) value).toArray();
+                int[] sortedStampNids = stampNids.toArray();
                 Thread.ofVirtual().name("cancel-uncommitted-stamps").start(() -> {
                     // EntityService starts in ENTITIES phase, after DATA_STORAGE where this provider starts.
                     // Wait for it to become available rather than failing immediately.
@@ -240,6 +331,13 @@ private SpinedArrayProvider() throws IOException, ExecutionException, Interrupte
             LOG.info("ChangeSetWriterService(s): ", changeSetWriters);
         }
 
+        if (replayedNids.notEmpty()) {
+            // Persist the replayed merges, truncating the log, and index them once search is running.
+            save();
+            indexReplayedWhenSearchRuns(replayedNids.toArray());
+        }
+        startWalSync();
+
         // Index recreation is now handled by SearchProvider in INDEXING phase
         stopwatch.stop();
         LOG.info("Opened SpinedArrayProvider in: " + stopwatch.durationString());
@@ -247,6 +345,160 @@ private SpinedArrayProvider() throws IOException, ExecutionException, Interrupte
 
     }
 
+    /**
+     * Re-applies the merges logged since the last save. Runs before the nid indexes are loaded; the persisted
+     * index does not cover the replayed entities, so it is removed and the indexes are rebuilt from the entities.
+     */
+    private void replayWriteAheadLog(MutableIntSet replayedNids) throws IOException {
+        Stopwatch stopwatch = new Stopwatch();
+        long replayed = this.writeAheadLog.replay((nid, patternNid, referencedComponentNid, bytes) -> {
+            applyMerge(nid, patternNid, referencedComponentNid, bytes, null);
+            replayedNids.add(nid);
+            nextNid.accumulateAndGet(nid + 1, Math::max);
+        });
+        if (replayed > 0) {
+            this.nidIndexFile.invalidate();
+            stopwatch.stop();
+            LOG.info("Replayed {} write-ahead log records for {} entities in: {}", replayed, replayedNids.size(),
+                    stopwatch.durationString());
+        }
+    }
+
+    /**
+     * The search index may have lost replayed entities that it had not committed. Index them again once the
+     * search service is running; indexing is idempotent.
+     */
+    private void indexReplayedWhenSearchRuns(int[] replayedNids) {
+        Thread.ofVirtual().name("index-replayed-entities").start(() -> {
+            ServiceLifecycleManager lifecycleManager = ServiceLifecycleManager.get();
+            int maxAttempts = 120;
+            for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+                if (!lifecycleManager.isStartupActive()
+                        && lifecycleManager.getRunningService(SearchService.class).isEmpty()) {
+                    LOG.info("Search service did not start; skipping indexing of replayed entities");
+                    return;
+                }
+                Optional<SearchService> searchServiceOpt = lifecycleManager.getRunningService(SearchService.class);
+                if (searchServiceOpt.isPresent()) {
+                    for (int nid : replayedNids) {
+                        Entity<?> entity = Entity.provider().getEntityFast(nid);
+                        if (entity != null) {
+                            searchServiceOpt.get().index(entity);
+                        }
+                    }
+                    LOG.info("Indexed {} entities replayed from the write-ahead log", replayedNids.length);
+                    return;
+                }
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            LOG.warn("SearchService not available after {}s, skipping indexing of replayed entities", maxAttempts / 2);
+        });
+    }
+
+    private void startWalSync() {
+        if (this.writeAheadLog == null) {
+            return;
+        }
+        Number syncIntervalMillis = ServiceProperties.get(ServiceKeys.DATA_STORE_WAL_SYNC_INTERVAL_MILLIS,
+                DEFAULT_WAL_SYNC_INTERVAL.toMillis());
+        long intervalMillis = syncIntervalMillis.longValue();
+        if (intervalMillis > 0) {
+            this.walSyncTask = TinkExecutor.scheduled().scheduleWithFixedDelay(() -> {
+                try {
+                    this.writeAheadLog.sync();
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Scheduled write-ahead log sync failed", e);
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return sync latency percentiles of the write-ahead log by group commit size; empty when there is no log
+     */
+    public List<WalCommitLatency> walCommitLatencies() {
+        return this.writeAheadLog == null ? List.of() : this.writeAheadLog.commitLatencies();
+    }
+
+    /**
+     * Populates the in-memory indexes from the persisted {@link NidIndexFile}, if one exists and matches the
+     * store's next nid, spine count, and spine generation.
+     *
+     * @return true if the indexes were loaded, false if they must be rebuilt by scanning the entities
+     */
+    private boolean loadNidIndex() {
+        if (!nidIndexFile.exists()) {
+            LOG.info("No persisted nid index found, rebuilding indexes from entities");
+            return false;
+        }
+        Stopwatch stopwatch = new Stopwatch();
+        try {
+            NidIndexFile.Header header = nidIndexFile.load(this.nidIndexes, nextNid.get(),
+                    entityToBytesMap.getSpineCount(), this.spineGeneration);
+            this.indexedWriteSequence = writeSequence();
+            this.indexedNextNid = header.nextNid();
+            stopwatch.stop();
+            LOG.info("Loaded persisted nid index with {} uuids in: {}", header.uuidCount(), stopwatch.durationString());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Persisted nid index is not usable, rebuilding indexes from entities: {}", e.getLocalizedMessage());
+            this.uuidToNidMap.clear();
+            this.conceptNids.clear();
+            this.semanticNids.clear();
+            this.patternNids.clear();
+            this.stampNids.clear();
+            this.patternElementNidsMap.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Called before an evicted entity spine is written back between saves. The first write-back after a save
+     * starts removes the persisted nid index, which no longer matches the spine files, and advances the spine
+     * generation; every write-back advances the next nid file, if needed, to cover every nid the written spine
+     * may contain.
+     */
+    private synchronized void prepareForSpineWriteBack() {
+        try {
+            if (!this.spineWriteBackPrepared) {
+                // Set before the sequence is reset, so a save that misses the flag cannot overwrite the reset.
+                this.spineWriteBackPrepared = true;
+                this.indexedWriteSequence = -1;
+                this.nidIndexFile.invalidate();
+                advanceSpineGeneration();
+            }
+            int nextNidNow = nextNid.get();
+            if (nextNidNow != this.writtenBackNextNid) {
+                Files.writeString(this.nextNidKeyFile.toPath(), Integer.toString(nextNidNow));
+                this.writtenBackNextNid = nextNidNow;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized long startSpineWriteBackPeriod() {
+        this.spineWriteBackPrepared = false;
+        return this.spineGeneration;
+    }
+
+    private synchronized void advanceSpineGeneration() throws IOException {
+        this.spineGeneration++;
+        Files.writeString(this.spineGenerationFile.toPath(), Long.toString(this.spineGeneration));
+    }
+
+    /**
+     * @return resident spine, page-in, and eviction counts for the entity byte store
+     */
+    public SpineResidencyStats entityResidencyStats() {
+        return this.entityToBytesMap.residencyStats();
+    }
+
     private static void assertEmptyDataRoot(File configuredRoot) {
         if (!configuredRoot.exists()) {
             return;
@@ -284,19 +536,33 @@ public void close() {
             LOG.info("Closing SpinedArrayProvider");
             try {
                 this.changeSetWriterServices.forEach(ChangeSetWriterService::shutdown);
+                if (this.walSyncTask != null) {
+                    this.walSyncTask.cancel(false);
+                }
                 save();
 
                 // Check for uncommitted stamps using EntityProvider while EntityService is still available
                 // This must happen before data provider shutdown since EntityProvider needs access to entities
                 try {
                     EntityService.get().listAndCancelUncommittedStamps(
-                        stampNids.stream().sorted().mapToInt(value -> (int) value).toArray()
+                        stampNids.toArray()
                     );
                 } catch (java.util.NoSuchElementException e) {
                     LOG.warn("EntityService not available during shutdown, skipping uncommitted stamp check");
                 }
 
                 entityToBytesMap.close();
+                if (this.writeAheadLog != null) {
+                    this.writeAheadLog.close();
+                    LOG.info("Write-ahead log: {} records, {} forces", this.writeAheadLog.records(),
+                            this.writeAheadLog.forces());
+                    for (WalCommitLatency latency : this.writeAheadLog.commitLatencies()) {
+                        if (latency.syncs() > 0) {
+                            LOG.info("Write-ahead log syncs sharing a force with {}-{} syncs: {}", latency.minGroupSize(),
+                                    latency.maxGroupSize(), latency);
+                        }
+                    }
+                }
             } catch (Exception e) {
                 LOG.error("Error closing SpinedArrayProvider", e);
             } finally {
@@ -309,16 +575,68 @@ public void close() {
         }
     }
 
+    /**
+     * Writes every changed spine and index, then truncates the write-ahead log. Merges logged before the
+     * log rotates are applied before the spines are written, so the discarded segments are covered.
+     */
     public void save() {
+        synchronized (this.saveLock) {
+            if (this.writeAheadLog == null) {
+                saveChanges();
+                return;
+            }
+            long retainedSegment;
+            try {
+                retainedSegment = this.writeAheadLog.rotate();
+            } catch (IOException e) {
+                LOG.error("Error rotating write-ahead log; saving without truncating it", e);
+                saveChanges();
+                return;
+            }
+            if (saveChanges()) {
+                this.writeAheadLog.deleteSegmentsBefore(retainedSegment);
+            }
+        }
+    }
+
+    /**
+     * @return true if every change was written
+     */
+    private boolean saveChanges() {
         Stopwatch stopwatch = new Stopwatch();
         LOG.info("Saving SpinedArrayProvider");
         try {
-            Files.writeString(this.nextNidKeyFile.toPath(), Integer.toString(nextNid.get()));
+            boolean indexCurrent = writeSequence() == this.indexedWriteSequence && nextNid.get() == this.indexedNextNid;
+            if (!indexCurrent) {
+                // Remove the index before any spine changes, so a crash mid-save falls back to a full scan.
+                this.nidIndexFile.invalidate();
+                advanceSpineGeneration();
+            }
+            // A write-back from here on may hold entities the index below does not, so it must advance the
+            // generation past the one the index is written with.
+            long generationToIndex = startSpineWriteBackPeriod();
             nidToPatternNidMap.write(this.nidToPatternNidMapDirectory);
             this.entityToBytesMap.write();
+            this.citationIndex.flush();
             this.nidToCitingComponentsNidMap.write();
+            // Captured after the spines, so the persisted next nid covers every entity written above.
+            long sequenceToIndex = writeSequence();
+            int nextNidToSave = nextNid.get();
+            Files.writeString(this.nextNidKeyFile.toPath(), Integer.toString(nextNidToSave));
+            if (!indexCurrent || sequenceToIndex != this.indexedWriteSequence || nextNidToSave != this.indexedNextNid) {
+                this.nidIndexFile.write(this.nidIndexes, generationToIndex, nextNidToSave,
+                        SpineFileUtil.readSpineCount(this.nidToByteArrayMapDirectory));
+                this.indexedWriteSequence = sequenceToIndex;
+                this.indexedNextNid = nextNidToSave;
+                if (this.spineWriteBackPrepared) {
+                    // A spine was written back during the save, so the index just written is already stale.
+                    this.indexedWriteSequence = -1;
+                }
+            }
+            return true;
         } catch (Exception e) {
             LOG.error("Error saving SpinedArrayProvider", e);
+            return false;
         } finally {
             stopwatch.stop();
             LOG.info("Save SpinedArrayProvider in: " + stopwatch.durationString());
@@ -442,21 +760,127 @@ public void forEach(ImmutableIntList nids, ObjIntConsumer<byte[]> action) {
 
     @Override
     public byte[] getBytes(int nid) {
-        return this.entityToBytesMap.get(nid);
+        GetBytesEvent event = new GetBytesEvent();
+        event.begin();
+        byte[] bytes = this.entityToBytesMap.getWithoutPageIn(nid);
+        if (event.shouldCommit()) {
+            event.provider = name();
+            event.nid = nid;
+            event.size = bytes == null ? -1 : bytes.length;
+            event.commit();
+        }
+        return bytes;
     }
 
     @Override
     public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject, DataActivity activity) {
+        MergeEvent event = new MergeEvent();
+        event.begin();
+        byte[] mergedBytes = mergeBytes(nid, patternNid, referencedComponentNid, value, sourceObject);
+        this.changeSetWriterServices.forEach(writerService -> writerService.writeToChangeSet((Entity) sourceObject, activity));
+
+        // Delegate indexing to SearchProvider.
+        //
+        // TODO(temp): During loadPhase, live-index up to LoadPhaseSearchPolicy's
+        // threshold; once exceeded, skip the rest and fall back to a full
+        // recreate at endLoadPhase. Replace this two-mode shim with touched-nid
+        // notification + per-nid catch-up when the proper design lands.
+        // See LoadPhaseSearchPolicy javadoc for the full picture.
+        if (!loadPhase
+                || dev.ikm.tinkar.entity.EntityService.get().loadPhaseSearchPolicy().shouldIndexLive()) {
+            try {
+                getSearchService().index(sourceObject);
+            } catch (Exception e) {
+                // Search service may not be available yet during startup
+                LOG.debug("SearchService not available for indexing", e);
+            }
+        }
+        commitMergeEvent(event, nid, mergedBytes, activity);
+        return mergedBytes;
+    }
+
+    /**
+     * Merges the batch in parallel, then hands it to the change set writers and the search index at once. The merge
+     * events of a batch cover the store writes only.
+     */
+    @Override
+    public byte[][] mergeAll(int[] nids, int[] patternNids, int[] referencedComponentNids, byte[][] values,
+                             Object[] sourceObjects, DataActivity activity) {
+        byte[][] mergedValues = new byte[nids.length][];
+        IntStream.range(0, nids.length).parallel().forEach(i -> {
+            MergeEvent event = new MergeEvent();
+            event.begin();
+            mergedValues[i] = mergeBytes(nids[i], patternNids[i], referencedComponentNids[i], values[i], sourceObjects[i]);
+            commitMergeEvent(event, nids[i], mergedValues[i], activity);
+        });
+        List<Entity> entities = new ArrayList<>(sourceObjects.length);
+        for (Object sourceObject : sourceObjects) {
+            entities.add((Entity) sourceObject);
+        }
+        this.changeSetWriterServices.forEach(writerService -> writerService.writeAllToChangeSet(entities, activity));
+
+        // See the loadPhase note in merge().
+        if (!loadPhase
+                || dev.ikm.tinkar.entity.EntityService.get().loadPhaseSearchPolicy().shouldIndexLive(nids.length)) {
+            try {
+                getSearchService().indexAll(entities);
+            } catch (Exception e) {
+                // Search service may not be available yet during startup
+                LOG.debug("SearchService not available for indexing", e);
+            }
+        }
+        return mergedValues;
+    }
+
+    private void commitMergeEvent(MergeEvent event, int nid, byte[] mergedBytes, DataActivity activity) {
+        if (event.shouldCommit()) {
+            event.provider = name();
+            event.nid = nid;
+            event.size = mergedBytes.length;
+            event.activity = activity.name();
+            event.commit();
+        }
+    }
+
+    /**
+     * Logs and applies a merge, leaving the change sets and the search index to the caller.
+     */
+    private byte[] mergeBytes(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject) {
         if (nid == Integer.MIN_VALUE) {
             LOG.error("NID should not be Integer.MIN_VALUE");
             throw new IllegalStateException("NID should not be Integer.MIN_VALUE");
         }
-        if (!this.entityToBytesMap.containsKey(nid)) {
+        if (this.writeAheadLog == null) {
+            return applyMerge(nid, patternNid, referencedComponentNid, value, sourceObject);
+        }
+        byte[] mergedBytes = this.writeAheadLog.log(nid, patternNid, referencedComponentNid, value,
+                () -> applyMerge(nid, patternNid, referencedComponentNid, value, sourceObject));
+        if (this.writeAheadLog.claimCheckpoint(this.walCheckpointBytes)) {
+            TinkExecutor.ioThreadPool().execute(this::save);
+        }
+        return mergedBytes;
+    }
+
+    /**
+     * Applies a merge to the entity spines and the in-memory indexes. Also replays the write-ahead log, where
+     * {@code sourceObject} is {@code null}; the nid sets are then rebuilt by scanning the entities.
+     * <p>
+     * The bytes are merged with a compare-and-set, so that of concurrent merges of a new nid, as in
+     * {@link #mergeAll}, exactly the one that stores the first bytes adds the nid to the indexes. Canceled stamps
+     * are tested against this provider rather than {@link PrimitiveData#get()}, which is not yet available while the
+     * constructor replays the write-ahead log.
+     */
+    private byte[] applyMerge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject) {
+        byte[] currentBytes;
+        byte[] mergedBytes;
+        do {
+            currentBytes = this.entityToBytesMap.get(nid);
+            mergedBytes = PrimitiveDataService.merge(currentBytes, value, this::isCanceledStampNid);
+        } while (!this.entityToBytesMap.compareAndSet(nid, currentBytes, mergedBytes));
+        if (currentBytes == null) {
             this.nidToPatternNidMap.put(nid, patternNid);
             if (patternNid != Integer.MAX_VALUE) {
-                long citationLong = IntsInLong.ints2Long(nid, patternNid);
-                this.nidToCitingComponentsNidMap.accumulateAndGet(referencedComponentNid, new long[]{citationLong},
-                        PrimitiveDataService::mergeCitations);
+                this.citationIndex.add(referencedComponentNid, nid, patternNid);
                 addToPatternElementSet(patternNid, nid);
             }
             if (sourceObject instanceof ConceptEntity concept) {
@@ -469,28 +893,20 @@ public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[]
                 this.stampNids.add(stampEntity.nid());
             }
         }
-        byte[] mergedBytes = this.entityToBytesMap.accumulateAndGet(nid, value, PrimitiveDataService::merge);
+        this.stampPostingsIndex.index(nid, value);
         this.writeSequence.increment();
-        this.changeSetWriterServices.forEach(writerService -> writerService.writeToChangeSet((Entity) sourceObject, activity));
+        return mergedBytes;
+    }
 
-        // Delegate indexing to SearchProvider.
-        //
-        // TODO(temp): During loadPhase, live-index up to LoadPhaseSearchPolicy's
-        // threshold; once exceeded, skip the rest and fall back to a full
-        // recreate at endLoadPhase. Replace this two-mode shim with touched-nid
-        // notification + per-nid catch-up when the proper design lands.
-        // See LoadPhaseSearchPolicy javadoc for the full picture.
-        if (!loadPhase
-                || dev.ikm.tinkar.entity.EntityService.get().loadPhaseSearchPolicy().shouldIndexLive()) {
+    @Override
+    public void sync() {
+        if (this.writeAheadLog != null) {
             try {
-                getSearchService().index(sourceObject);
-            } catch (Exception e) {
-                // Search service may not be available yet during startup
-                LOG.debug("SearchService not available for indexing", e);
+                this.writeAheadLog.sync();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
-
-        return mergedBytes;
     }
 
     private SearchService getSearchService() {
@@ -501,9 +917,17 @@ private SearchService getSearchService() {
         );
     }
 
+    private void trimNidSets() {
+        conceptNids.trim();
+        semanticNids.trim();
+        patternNids.trim();
+        stampNids.trim();
+        patternElementNidsMap.forEachValue(ConcurrentNidSet::trim);
+    }
+
     public boolean addToPatternElementSet(int patternNid, int elementNid) {
 
-        return patternElementNidsMap.getIfAbsentPut(patternNid, integer -> new ConcurrentHashSet())
+        return patternElementNidsMap.getIfAbsentPut(patternNid, integer -> new ConcurrentNidSet())
                 .add(elementNid);
     }
 
@@ -512,6 +936,16 @@ public PrimitiveDataSearchResult[] search(String query, int maxResultSize) throw
         return getSearchService().search(query, maxResultSize);
     }
 
+    @Override
+    public PrimitiveDataSearchResult[] search(String query, int maxResultSize, SearchFilter filter) throws Exception {
+        return getSearchService().search(query, maxResultSize, filter);
+    }
+
+    @Override
+    public PrimitiveDataSearchResult[] suggest(String prefix, int maxResultSize, SearchFilter filter) throws Exception {
+        return getSearchService().suggest(prefix, maxResultSize, filter);
+    }
+
     @Override
     public String highlight(String query, String text) throws Exception {
         return getSearchService().highlight(query, text);
@@ -529,18 +963,17 @@ public CompletableFuture<Void> recreateLuceneIndex() {
 
     @Override
     public int[] semanticNidsOfPattern(int patternNid) {
-        IntSet elementNids = getElementNidsForPatternNid(patternNid);
-        if (elementNids.notEmpty()) {
-            MutableIntList elementNidList = IntLists.mutable.withInitialCapacity(elementNids.size());
-            elementNids.forEach(integer -> elementNidList.add(integer));
-            return elementNidList.toArray();
+        ConcurrentNidSet elementNids = patternElementNidsMap.get(patternNid);
+        if (elementNids != null) {
+            return elementNids.toArray();
         }
         return new int[0];
     }
 
     public IntSet getElementNidsForPatternNid(int patternNid) {
-        if (patternElementNidsMap.containsKey(patternNid)) {
-            return IntSets.immutable.ofAll(patternElementNidsMap.get(patternNid).stream().mapToInt(value -> (int) value));
+        ConcurrentNidSet elementNids = patternElementNidsMap.get(patternNid);
+        if (elementNids != null) {
+            return IntSets.immutable.of(elementNids.toArray());
         }
         return IntSets.immutable.empty();
     }
@@ -549,16 +982,8 @@ public IntSet getElementNidsForPatternNid(int patternNid) {
     public void forEachSemanticNidOfPattern(int patternNid, IntProcedure procedure) {
         EntityHandle.get(patternNid).expectPattern("Trying to iterate elements for entity that is not a pattern: ");
 
-        IntSet elementNids;
-        if (LOG.isTraceEnabled()) {
-            Stopwatch sw = new Stopwatch();
-            elementNids = getElementNidsForPatternNid(patternNid);
-            LOG.atTrace().log("getElementNidsForPatternNid " + PrimitiveData.text(patternNid) +
-                    " time: " + sw.durationString());
-        } else {
-            elementNids = getElementNidsForPatternNid(patternNid);
-        }
-        if (elementNids.notEmpty()) {
+        ConcurrentNidSet elementNids = patternElementNidsMap.get(patternNid);
+        if (elementNids != null) {
             elementNids.forEach(procedure);
         }
     }
@@ -567,7 +992,7 @@ public void forEachSemanticNidOfPattern(int patternNid, IntProcedure procedure)
     public void forEachPatternNid(IntProcedure procedure) {
         try {
             this.uuidsLoadedLatch.await();
-            this.patternNids.forEach(patternNid -> procedure.accept(patternNid));
+            this.patternNids.forEach(procedure);
         } catch (InterruptedException e) {
             LOG.error(e.getLocalizedMessage(), e);
             throw new RuntimeException(e);
@@ -578,7 +1003,7 @@ public void forEachPatternNid(IntProcedure procedure) {
     public void forEachConceptNid(IntProcedure procedure) {
         try {
             this.uuidsLoadedLatch.await();
-            this.conceptNids.forEach(conceptNid -> procedure.accept(conceptNid));
+            this.conceptNids.forEach(procedure);
         } catch (InterruptedException e) {
             LOG.error(e.getLocalizedMessage(), e);
             throw new RuntimeException(e);
@@ -589,7 +1014,7 @@ public void forEachConceptNid(IntProcedure procedure) {
     public void forEachStampNid(IntProcedure procedure) {
         try {
             this.uuidsLoadedLatch.await();
-            this.stampNids.forEach(stampNid -> procedure.accept(stampNid));
+            this.stampNids.forEach(procedure);
         } catch (InterruptedException e) {
             LOG.error(e.getLocalizedMessage(), e);
             throw new RuntimeException(e);
@@ -600,7 +1025,7 @@ public void forEachStampNid(IntProcedure procedure) {
     public void forEachSemanticNid(IntProcedure procedure) {
         try {
             this.uuidsLoadedLatch.await();
-            this.semanticNids.forEach(semanticNid -> procedure.accept(semanticNid));
+            this.semanticNids.forEach(procedure);
         } catch (InterruptedException e) {
             LOG.error(e.getLocalizedMessage(), e);
             throw new RuntimeException(e);
@@ -609,27 +1034,18 @@ public void forEachSemanticNid(IntProcedure procedure) {
 
     @Override
     public void forEachSemanticNidForComponent(int componentNid, IntProcedure procedure) {
-        long[] citationLongs = this.nidToCitingComponentsNidMap.get(componentNid);
-        if (citationLongs != null) {
-            for (long citationLong : citationLongs) {
-                int citingComponentNid = (int) (citationLong >> 32);
-                procedure.accept(citingComponentNid);
-            }
-        }
+        this.citationIndex.forEachCiting(componentNid, procedure);
     }
 
     @Override
     public void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure) {
-        long[] citationLongs = this.nidToCitingComponentsNidMap.get(componentNid);
-        if (citationLongs != null) {
-            for (long citationLong : citationLongs) {
-                int citingComponentNid = (int) (citationLong >> 32);
-                int citingComponentPatternNid = (int) citationLong;
-                if (patternNid == citingComponentPatternNid) {
-                    procedure.accept(citingComponentNid);
-                }
-            }
-        }
+        this.citationIndex.forEachCitingOfPattern(componentNid, patternNid, procedure);
+    }
+
+    @Override
+    public Optional<StampPostingsIndex> stampPostingsIndex() {
+        stampPostingsIndex.ensureBuilt(this::forEachParallel);
+        return Optional.of(stampPostingsIndex);
     }
 
     @Override
@@ -639,29 +1055,34 @@ public String name() {
 
     @Override
     public void erase(int nid) {
+        this.indexedWriteSequence = -1;
+        // The citation of a semantic is found from its pattern and referenced component, read before the erase.
+        int patternNid = this.nidToPatternNidMap.get(nid);
+        int referencedComponentNid = CitationIndex.semanticReferencedComponentNid(this.entityToBytesMap.get(nid));
         this.entityToBytesMap.put(nid, null);
         this.nidToPatternNidMap.put(nid, Integer.MAX_VALUE);
-        this.nidToCitingComponentsNidMap.put(nid, null);
+        this.citationIndex.removeAll(nid);
         this.conceptNids.remove(nid);
         this.semanticNids.remove(nid);
         this.patternNids.remove(nid);
         this.stampNids.remove(nid);
-        this.nidToCitingComponentsNidMap.forEach((nidPatternsCitingComponent, referencedComponentNid) -> {
-            MutableLongList nidPatternInLongToRemove = LongLists.mutable.withInitialCapacity(2);
-            for (long nidPatternInLong : nidPatternsCitingComponent) {
-                // The longs contain int nid, int patternNid in each long
-                int nidCitingComponent = IntsInLong.int1FromLong(nidPatternInLong);
-                if (nidCitingComponent == nid) {
-                    nidPatternInLongToRemove.add(nidPatternInLong);
+        if (patternNid == Integer.MAX_VALUE) {
+            // Only semantics cite other components.
+            return;
+        }
+        if (referencedComponentNid != Integer.MAX_VALUE) {
+            this.citationIndex.remove(referencedComponentNid, nid, patternNid);
+            return;
+        }
+        // Without the entity bytes, look for the citation in every component.
+        this.citationIndex.flush();
+        this.nidToCitingComponentsNidMap.forEach((citations, citedComponentNid) -> {
+            for (long citation : citations) {
+                if (IntsInLong.int1FromLong(citation) == nid) {
+                    this.citationIndex.remove(citedComponentNid, nid, IntsInLong.int2FromLong(citation));
                 }
             }
-            if (nidPatternInLongToRemove.notEmpty()) {
-                MutableLongSet longSet = LongSets.mutable.of(nidPatternsCitingComponent);
-                longSet.removeAll(nidPatternInLongToRemove);
-                this.nidToCitingComponentsNidMap.put(referencedComponentNid, longSet.toArray());
-            }
         });
-
     }
 
     @Override
@@ -772,6 +1193,7 @@ ImmutableList<UUID> getUuidsFromBytes(ByteBuf readBuf) {
 
     @Override
     public void put(int nid, byte[] bytesToOverwrite) {
+        this.indexedWriteSequence = -1;
         this.entityToBytesMap.put(nid, bytesToOverwrite);
     }
 
@@ -1067,4 +1489,34 @@ private static boolean isEmptyDirectory(File dir) {
             return entries == null || entries.length == 0;
         }
     }
+
+    /**
+     * Registers the spine counts and residency of the entity byte store. The gauges read 0 unless the running
+     * data service is a spined array store.
+     */
+    public static class MetricsProvider implements MetricsSource {
+        @Override
+        public void registerMetrics(MetricsRegistry registry) {
+            registry.gauge("spinedArray.entity.spines",
+                    () -> running(provider -> provider.entityToBytesMap.getSpineCount()));
+            registry.gauge("spinedArray.entity.residentSpines",
+                    () -> running(provider -> provider.entityResidencyStats().residentSpines()));
+            registry.gauge("spinedArray.entity.maxResidentSpines",
+                    () -> running(provider -> provider.entityResidencyStats().maxResidentSpines()));
+            registry.gauge("spinedArray.entity.pageIns",
+                    () -> running(provider -> provider.entityResidencyStats().pageIns()));
+            registry.gauge("spinedArray.entity.evictions",
+                    () -> running(provider -> provider.entityResidencyStats().evictions()));
+            registry.gauge("spinedArray.entity.writeBacks",
+                    () -> running(provider -> provider.entityResidencyStats().writeBacks()));
+        }
+
+        private static double running(ToDoubleFunction<SpinedArrayProvider> value) {
+            if (PrimitiveData.running() && PrimitiveData.get() instanceof SpinedArrayProvider provider
+                    && lifecycle.get() == Lifecycle.RUNNING) {
+                return value.applyAsDouble(provider);
+            }
+            return 0;
+        }
+    }
 }
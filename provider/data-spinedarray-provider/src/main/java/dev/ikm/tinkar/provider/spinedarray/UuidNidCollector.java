@@ -15,7 +15,7 @@
  */
 package dev.ikm.tinkar.provider.spinedarray;
 
-import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
+import dev.ikm.tinkar.common.sets.ConcurrentNidSet;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
 import dev.ikm.tinkar.component.FieldDataType;
 import dev.ikm.tinkar.entity.EntityRecordFactory;
@@ -30,11 +30,11 @@
 public class UuidNidCollector implements ObjIntConsumer<byte[]> {
     private static final Logger LOG = LoggerFactory.getLogger(UuidNidCollector.class);
     final ConcurrentHashMap<UUID, Integer> uuidToNidMap;
-    final ConcurrentHashSet<Integer> patternNids;
-    final ConcurrentHashSet<Integer> conceptNids;
-    final ConcurrentHashSet<Integer> semanticNids;
-    final ConcurrentHashSet<Integer> stampNids;
-    final ConcurrentHashMap<Integer, ConcurrentHashSet<Integer>> patternElementNidsMap;
+    final ConcurrentNidSet patternNids;
+    final ConcurrentNidSet conceptNids;
+    final ConcurrentNidSet semanticNids;
+    final ConcurrentNidSet stampNids;
+    final ConcurrentHashMap<Integer, ConcurrentNidSet> patternElementNidsMap;
 
 
     AtomicInteger totalCount = new AtomicInteger();
@@ -46,11 +46,11 @@ public class UuidNidCollector implements ObjIntConsumer<byte[]> {
     Stopwatch stopwatch = new Stopwatch();
 
     public UuidNidCollector(ConcurrentHashMap<UUID, Integer> uuidToNidMap,
-                            ConcurrentHashSet<Integer> patternNids,
-                            ConcurrentHashSet<Integer> conceptNids,
-                            ConcurrentHashSet<Integer> semanticNids,
-                            ConcurrentHashSet<Integer> stampNids,
-                            ConcurrentHashMap<Integer, ConcurrentHashSet<Integer>> patternElementNidsMap) {
+                            ConcurrentNidSet patternNids,
+                            ConcurrentNidSet conceptNids,
+                            ConcurrentNidSet semanticNids,
+                            ConcurrentNidSet stampNids,
+                            ConcurrentHashMap<Integer, ConcurrentNidSet> patternElementNidsMap) {
         this.uuidToNidMap = uuidToNidMap;
         this.patternNids = patternNids;
         this.conceptNids = conceptNids;
@@ -101,7 +101,7 @@ public void accept(byte[] bytes, int nid) {
             /*
             Entity<?> entity = EntityRecordFactory.make(bytes);
             if (entity instanceof SemanticEntity semanticEntity) {
-                patternElementNidsMap.getIfAbsentPut(semanticEntity.patternNid(), integer -> new ConcurrentHashSet())
+                patternElementNidsMap.getIfAbsentPut(semanticEntity.patternNid(), integer -> new ConcurrentNidSet())
                         .add(semanticEntity.nid());
             }
             for (UUID uuid : entity.asUuidArray()) {
@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import java.time.Duration;
+
+/**
+ * Latency of write-ahead log syncs whose force was shared by a number of syncs in the given range,
+ * over the most recent syncs of that range.
+ *
+ * @param minGroupSize the smallest number of syncs sharing a force
+ * @param maxGroupSize the largest number of syncs sharing a force
+ * @param syncs        the number of syncs in the range since the log was opened
+ * @param p50          median sync latency
+ * @param p90          90th percentile sync latency
+ * @param p99          99th percentile sync latency
+ * @param max          longest sync latency
+ */
+public record WalCommitLatency(int minGroupSize, int maxGroupSize, long syncs,
+                               Duration p50, Duration p90, Duration p99, Duration max) {
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of entity merges, so that merges made since the last save survive a crash.
+ *
+ * <p>Each record holds the arguments of one merge — nid, pattern nid, referenced component nid
+ * and entity bytes — framed by its length and a CRC32C of its content. Records are buffered and
+ * written to the current segment file; {@link #sync()} forces them to disk. Concurrent callers of
+ * {@code sync()} share one force: while one forces, the others queue behind it and return at once
+ * if that force covered their records (group commit).
+ *
+ * <p>A checkpoint {@linkplain #rotate() rotates} to a new segment, waiting for merges logged to the
+ * old segments to be applied, then saves the spines, then {@linkplain #deleteSegmentsBefore(long)
+ * deletes} the old segments. On open, existing segments are {@linkplain #replay(Replay) replayed};
+ * replay stops at the first torn or corrupt record, which can only be the tail of the log.
+ */
+final class WriteAheadLog implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    /** Payload length and CRC. */
+    private static final int HEADER_BYTES = 8;
+    /** Nid, pattern nid, and referenced component nid. */
+    private static final int FIXED_PAYLOAD_BYTES = 12;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int[] GROUP_SIZE_LIMITS = {1, 3, 7, 15, Integer.MAX_VALUE};
+
+    /**
+     * Receives the records of a replayed log.
+     */
+    @FunctionalInterface
+    interface Replay {
+        void record(int nid, int patternNid, int referencedComponentNid, byte[] bytes);
+    }
+
+    private final File directory;
+    private final Object appendLock = new Object();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    /** Held shared while a merge is logged and applied, and exclusively to rotate. */
+    private final StampedLock rotationLock = new StampedLock();
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private final AtomicBoolean checkpointClaimed = new AtomicBoolean();
+
+    private FileChannel channel;
+    private long segment;
+    /** Log position after the last appended record, over all segments. */
+    private long appendedPosition;
+    private long segmentStartPosition;
+    /** Log position up to which records are on disk. */
+    private volatile long syncedPosition;
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder syncRequests = new LongAdder();
+    private long syncRequestsAtLastForce;
+    private volatile int lastGroupSize;
+    private long forces;
+    private final LatencyReservoir[] latencies = new LatencyReservoir[GROUP_SIZE_LIMITS.length];
+
+    /**
+     * Opens the log in a directory, starting a segment after any existing ones. Existing
+     * segments are kept for {@link #replay(Replay)} until a checkpoint deletes them.
+     *
+     * @param directory the log directory; created if absent
+     * @throws IOException if the new segment cannot be created
+     */
+    WriteAheadLog(File directory) throws IOException {
+        this.directory = directory;
+        directory.mkdirs();
+        long[] existing = segments();
+        this.segment = existing.length == 0 ? 0 : existing[existing.length - 1] + 1;
+        this.channel = openSegment(segment);
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyReservoir();
+        }
+    }
+
+    /**
+     * Replays the records of the segments that existed when the log was opened, oldest first.
+     *
+     * @param replay receives each intact record
+     * @return the number of records replayed
+     * @throws IOException if a segment cannot be read
+     */
+    long replay(Replay replay) throws IOException {
+        long replayed = 0;
+        for (long existing : segments()) {
+            if (existing >= segment) {
+                break;
+            }
+            File file = segmentFile(existing);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                CRC32C check = new CRC32C();
+                while (true) {
+                    int payloadLength;
+                    try {
+                        payloadLength = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    byte[] payload;
+                    int expectedCrc;
+                    try {
+                        expectedCrc = in.readInt();
+                        if (payloadLength < FIXED_PAYLOAD_BYTES) {
+                            throw new IOException("Invalid record length " + payloadLength);
+                        }
+                        payload = in.readNBytes(payloadLength);
+                        if (payload.length < payloadLength) {
+                            throw new EOFException();
+                        }
+                    } catch (IOException e) {
+                        LOG.warn("Write-ahead log {} ends with a torn record after {} records", file, replayed);
+                        return replayed;
+                    }
+                    check.reset();
+                    check.update(payload);
+                    if ((int) check.getValue() != expectedCrc) {
+                        LOG.warn("Write-ahead log {} has a corrupt record after {} records; ignoring the rest",
+                                file, replayed);
+                        return replayed;
+                    }
+                    ByteBuffer record = ByteBuffer.wrap(payload);
+                    int nid = record.getInt();
+                    int patternNid = record.getInt();
+                    int referencedComponentNid = record.getInt();
+                    replay.record(nid, patternNid, referencedComponentNid,
+                            Arrays.copyOfRange(payload, FIXED_PAYLOAD_BYTES, payload.length));
+                    replayed++;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Logs a merge, then applies it, without letting a rotation separate the two: a checkpoint
+     * that rotated past this record also saves its effect.
+     *
+     * @param nid                    the merged nid
+     * @param patternNid             the pattern nid of the entity
+     * @param referencedComponentNid the referenced component nid of a semantic
+     * @param bytes                  the merged bytes
+     * @param apply                  applies the merge
+     * @return the result of {@code apply}
+     */
+    <T> T log(int nid, int patternNid, int referencedComponentNid, byte[] bytes, Supplier<T> apply) {
+        long stamp = rotationLock.readLock();
+        try {
+            append(nid, patternNid, referencedComponentNid, bytes);
+            return apply.get();
+        } finally {
+            rotationLock.unlockRead(stamp);
+        }
+    }
+
+    private void append(int nid, int patternNid, int referencedComponentNid, byte[] bytes) {
+        int payloadLength = FIXED_PAYLOAD_BYTES + bytes.length;
+        synchronized (appendLock) {
+            try {
+                crc.reset();
+                ByteBuffer fixed = ByteBuffer.allocate(FIXED_PAYLOAD_BYTES)
+                        .putInt(nid).putInt(patternNid).putInt(referencedComponentNid);
+                crc.update(fixed.array());
+                crc.update(bytes);
+                if (buffer.remaining() < HEADER_BYTES + payloadLength) {
+                    drainBuffer();
+                }
+                if (buffer.remaining() >= HEADER_BYTES + payloadLength) {
+                    buffer.putInt(payloadLength).putInt((int) crc.getValue()).put(fixed.array()).put(bytes);
+                } else {
+                    // Larger than the buffer; written directly after the drained buffer.
+                    ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payloadLength);
+                    record.putInt(payloadLength).putInt((int) crc.getValue()).put(fixed.array()).put(bytes);
+                    writeFully(record.flip());
+                }
+                appendedPosition += HEADER_BYTES + payloadLength;
+                records.increment();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Makes every record appended before this call durable, sharing a force with concurrent callers.
+     *
+     * @throws IOException if the records cannot be written or forced
+     */
+    void sync() throws IOException {
+        long start = System.nanoTime();
+        long target;
+        synchronized (appendLock) {
+            target = appendedPosition;
+        }
+        if (target <= syncedPosition) {
+            return;
+        }
+        syncRequests.increment();
+        syncLock.lock();
+        try {
+            if (syncedPosition < target) {
+                FileChannel forcing;
+                long upTo;
+                synchronized (appendLock) {
+                    drainBuffer();
+                    forcing = channel;
+                    upTo = appendedPosition;
+                }
+                long requests = syncRequests.sum();
+                forcing.force(false);
+                lastGroupSize = (int) Math.max(1, requests - syncRequestsAtLastForce);
+                syncRequestsAtLastForce = requests;
+                forces++;
+                syncedPosition = upTo;
+            }
+        } finally {
+            syncLock.unlock();
+        }
+        latencies[groupClass(lastGroupSize)].add(System.nanoTime() - start);
+    }
+
+    /**
+     * Claims the checkpoint for a segment that has grown past a size, so that only one caller
+     * starts it. The claim is released by the next {@link #rotate()}.
+     *
+     * @param segmentBytes the segment size that calls for a checkpoint; 0 never does
+     * @return true if the caller should checkpoint
+     */
+    boolean claimCheckpoint(long segmentBytes) {
+        if (segmentBytes <= 0) {
+            return false;
+        }
+        long written;
+        synchronized (appendLock) {
+            written = appendedPosition - segmentStartPosition;
+        }
+        return written >= segmentBytes && checkpointClaimed.compareAndSet(false, true);
+    }
+
+    /**
+     * Starts a new segment once the merges logged to the current one are applied, and makes the
+     * current one durable.
+     *
+     * @return the new segment, before which segments may be deleted once the spines are saved
+     * @throws IOException if the current segment cannot be forced or the new one created
+     */
+    long rotate() throws IOException {
+        long stamp = rotationLock.writeLock();
+        try {
+            syncLock.lock();
+            try {
+                synchronized (appendLock) {
+                    drainBuffer();
+                    channel.force(false);
+                    channel.close();
+                    segment++;
+                    channel = openSegment(segment);
+                    segmentStartPosition = appendedPosition;
+                    syncedPosition = appendedPosition;
+                }
+            } finally {
+                syncLock.unlock();
+            }
+            checkpointClaimed.set(false);
+            return segment;
+        } finally {
+            rotationLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Deletes the segments before a segment returned by {@link #rotate()}.
+     *
+     * @param retainedSegment the first segment to keep
+     */
+    void deleteSegmentsBefore(long retainedSegment) {
+        for (long existing : segments()) {
+            if (existing < retainedSegment) {
+                File file = segmentFile(existing);
+                if (!file.delete() && file.exists()) {
+                    LOG.warn("Unable to delete write-ahead log segment {}", file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces and closes the current segment, deleting it when it is empty.
+     */
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            synchronized (appendLock) {
+                drainBuffer();
+                channel.force(false);
+                channel.close();
+                syncedPosition = appendedPosition;
+                if (appendedPosition == segmentStartPosition) {
+                    segmentFile(segment).delete();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    long records() {
+        return records.sum();
+    }
+
+    long forces() {
+        syncLock.lock();
+        try {
+            return forces;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * @return sync latency percentiles, by the number of syncs that shared a force
+     */
+    List<WalCommitLatency> commitLatencies() {
+        List<WalCommitLatency> result = new ArrayList<>(GROUP_SIZE_LIMITS.length);
+        for (int i = 0; i < GROUP_SIZE_LIMITS.length; i++) {
+            int minGroupSize = i == 0 ? 1 : GROUP_SIZE_LIMITS[i - 1] + 1;
+            result.add(latencies[i].summarize(minGroupSize, GROUP_SIZE_LIMITS[i]));
+        }
+        return result;
+    }
+
+    private static int groupClass(int groupSize) {
+        int i = 0;
+        while (groupSize > GROUP_SIZE_LIMITS[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private void drainBuffer() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private FileChannel openSegment(long segmentNumber) throws IOException {
+        return FileChannel.open(segmentFile(segmentNumber).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private File segmentFile(long segmentNumber) {
+        return new File(directory, SEGMENT_PREFIX + segmentNumber + SEGMENT_SUFFIX);
+    }
+
+    private long[] segments() {
+        String[] names = directory.list((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (names == null) {
+            return new long[0];
+        }
+        long[] numbers = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            try {
+                numbers[count] = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                count++;
+            } catch (NumberFormatException e) {
+                LOG.warn("Ignoring unexpected file {} in write-ahead log directory", name);
+            }
+        }
+        long[] sorted = Arrays.copyOf(numbers, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * The most recent sync latencies of one group size class.
+     */
+    private static final class LatencyReservoir {
+        private static final int CAPACITY = 4096;
+        private final long[] nanos = new long[CAPACITY];
+        private long count;
+
+        synchronized void add(long latencyNanos) {
+            nanos[(int) (count % CAPACITY)] = latencyNanos;
+            count++;
+        }
+
+        synchronized WalCommitLatency summarize(int minGroupSize, int maxGroupSize) {
+            long[] sorted = Arrays.copyOf(nanos, (int) Math.min(count, CAPACITY));
+            Arrays.sort(sorted);
+            return new WalCommitLatency(minGroupSize, maxGroupSize, count,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    sorted.length == 0 ? Duration.ZERO : Duration.ofNanos(sorted[sorted.length - 1]));
+        }
+
+        private static Duration percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return Duration.ZERO;
+            }
+            return Duration.ofNanos(sorted[(int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1)]);
+        }
+    }
+}
@@ -20,6 +20,7 @@
  */
 
 
+import dev.ikm.tinkar.common.metrics.MetricsSource;
 import dev.ikm.tinkar.common.service.DataServiceController;
 import dev.ikm.tinkar.common.service.LoadDataFromFileController;
 import dev.ikm.tinkar.common.service.ServiceLifecycle;
@@ -38,6 +39,7 @@
     requires org.eclipse.collections.api;
     requires org.eclipse.collections.impl;
     requires dev.ikm.jpms.activej.bytebuf;
+    requires roaringbitmap;
 
     exports dev.ikm.tinkar.provider.spinedarray;
     exports dev.ikm.tinkar.provider.spinedarray.constants;
@@ -46,6 +48,8 @@
             with SpinedArrayProvider.OpenController, SpinedArrayProvider.NewController;
     provides ServiceLifecycle
             with SpinedArrayProvider.OpenController, SpinedArrayProvider.NewController;
+    provides MetricsSource
+            with SpinedArrayProvider.MetricsProvider;
 
     uses LoadDataFromFileController;
     uses ChangeSetWriterService;
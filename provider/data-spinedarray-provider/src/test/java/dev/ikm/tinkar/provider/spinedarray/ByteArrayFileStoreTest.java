@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static dev.ikm.tinkar.collection.SpineFileUtil.MAPPED_SPINE_PREFIX;
+import static dev.ikm.tinkar.collection.SpineFileUtil.SPINE_PREFIX;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteArrayFileStoreTest {
+    private static final int SPINE_SIZE = 10240;
+
+    @TempDir
+    File directory;
+
+    @Test
+    void unchangedSlotsAreNotRewritten() throws IOException {
+        AtomicReferenceArray<byte[]> spine = randomSpine(new Random(1), 64);
+        File file = new File(directory, MAPPED_SPINE_PREFIX + 0);
+        try (MappedSpineFile mappedSpine = MappedSpineFile.create(file, spine)) {
+            long initialLength = file.length();
+            mappedSpine.put(spine);
+            assertEquals(initialLength, file.length());
+
+            spine.set(7, new byte[]{1, 2, 3});
+            spine.set(9, null);
+            mappedSpine.put(spine);
+            assertEquals(initialLength + 3, file.length());
+            assertArrayEquals(new byte[]{1, 2, 3}, mappedSpine.get(7));
+            assertNull(mappedSpine.get(9));
+            assertSpinesEqual(spine, mappedSpine.getAll());
+        }
+        try (MappedSpineFile reopened = MappedSpineFile.open(file)) {
+            assertSpinesEqual(spine, reopened.getAll());
+        }
+    }
+
+    @Test
+    void tornTableWriteOpensOnThePreviousTable() throws IOException {
+        int slotCount = 64;
+        AtomicReferenceArray<byte[]> spine = randomSpine(new Random(6), slotCount);
+        AtomicReferenceArray<byte[]> previous = copyOf(spine);
+        File file = new File(directory, MAPPED_SPINE_PREFIX + 0);
+        try (MappedSpineFile mappedSpine = MappedSpineFile.create(file, spine)) {
+            spine.set(7, new byte[]{1, 2, 3});
+            mappedSpine.put(spine);
+        }
+        // The put wrote the second table; damage it as a crash part way through that write would.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long position = MappedSpineFile.tableOffset(slotCount, 1) + (7L * MappedSpineFile.SLOT_BYTES) + 3;
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        }
+        try (MappedSpineFile reopened = MappedSpineFile.open(file)) {
+            assertSpinesEqual(previous, reopened.getAll());
+            reopened.put(spine);
+        }
+        try (MappedSpineFile reopened = MappedSpineFile.open(file)) {
+            assertSpinesEqual(spine, reopened.getAll());
+        }
+    }
+
+    @Test
+    void tablesPointingPastTheEndAreRejected() throws IOException {
+        File file = new File(directory, MAPPED_SPINE_PREFIX + 0);
+        MappedSpineFile.create(file, randomSpine(new Random(7), 64)).close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        assertThrows(IOException.class, () -> MappedSpineFile.open(file));
+    }
+
+    @Test
+    void legacySpinesMigrateOnFirstElementRead() throws IOException {
+        AtomicReferenceArray<byte[]> spine = randomSpine(new Random(2), SPINE_SIZE);
+        ByteArrayFileStore.writeLegacySpine(new File(directory, SPINE_PREFIX + 3), spine);
+
+        ByteArrayFileStore store = new ByteArrayFileStore(directory);
+        try {
+            assertSpinesEqual(spine, store.get(3).orElseThrow());
+            assertArrayEquals(spine.get(42), store.getElement(3, 42));
+            assertFalse(new File(directory, SPINE_PREFIX + 3).exists());
+            assertTrue(new File(directory, MAPPED_SPINE_PREFIX + 3).exists());
+            assertSpinesEqual(spine, store.get(3).orElseThrow());
+            assertNull(store.getElement(4, 0));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void migrateLegacySpinesConvertsEverySpine() throws IOException {
+        int spineCount = 4;
+        Random random = new Random(3);
+        List<AtomicReferenceArray<byte[]>> spines = new ArrayList<>();
+        for (int spineIndex = 0; spineIndex < spineCount; spineIndex++) {
+            spines.add(randomSpine(random, 256));
+            ByteArrayFileStore.writeLegacySpine(new File(directory, SPINE_PREFIX + spineIndex), spines.get(spineIndex));
+        }
+        ByteArrayFileStore store = new ByteArrayFileStore(directory);
+        try {
+            assertEquals(spineCount, store.migrateLegacySpines());
+            for (int spineIndex = 0; spineIndex < spineCount; spineIndex++) {
+                assertFalse(new File(directory, SPINE_PREFIX + spineIndex).exists());
+                assertSpinesEqual(spines.get(spineIndex), store.get(spineIndex).orElseThrow());
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void legacySpineReadsDuringMigrationSeeTheSpine() throws Exception {
+        AtomicReferenceArray<byte[]> spine = randomSpine(new Random(5), SPINE_SIZE);
+        ByteArrayFileStore.writeLegacySpine(new File(directory, SPINE_PREFIX + 0), spine);
+        ByteArrayFileStore store = new ByteArrayFileStore(directory);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < SPINE_SIZE; i += 97) {
+                        assertArrayEquals(spine.get(i), store.getElement(0, i));
+                        if (i % 5 == 0) {
+                            assertSpinesEqual(spine, store.get(0).orElseThrow());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertFalse(new File(directory, SPINE_PREFIX + 0).exists());
+        } finally {
+            executor.shutdownNow();
+            store.close();
+        }
+    }
+
+    private static AtomicReferenceArray<byte[]> randomSpine(Random random, int size) {
+        AtomicReferenceArray<byte[]> spine = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(10) != 0) {
+                byte[] value = new byte[16 + random.nextInt(256)];
+                random.nextBytes(value);
+                spine.set(i, value);
+            }
+        }
+        return spine;
+    }
+
+    private static AtomicReferenceArray<byte[]> copyOf(AtomicReferenceArray<byte[]> spine) {
+        AtomicReferenceArray<byte[]> copy = new AtomicReferenceArray<>(spine.length());
+        for (int i = 0; i < spine.length(); i++) {
+            copy.set(i, spine.get(i));
+        }
+        return copy;
+    }
+
+    private static void assertSpinesEqual(AtomicReferenceArray<byte[]> expected, AtomicReferenceArray<byte[]> actual) {
+        assertEquals(expected.length(), actual.length());
+        for (int i = 0; i < expected.length(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i), "slot " + i);
+        }
+    }
+}
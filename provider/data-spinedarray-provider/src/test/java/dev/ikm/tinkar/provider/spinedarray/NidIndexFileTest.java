@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import dev.ikm.tinkar.common.sets.ConcurrentNidSet;
+import org.eclipse.collections.impl.map.mutable.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NidIndexFileTest {
+    private static final int FIRST_NID = Integer.MIN_VALUE + 1;
+    private static final int ENTITY_COUNT = 5_000;
+    private static final int NEXT_NID = FIRST_NID + ENTITY_COUNT;
+    private static final int SPINE_COUNT = 5;
+    private static final long SPINE_GENERATION = 3;
+    private static final int PATTERN_NID = FIRST_NID;
+
+    @TempDir
+    File directory;
+
+    @Test
+    void roundTripRestoresIndexes() throws IOException {
+        NidIndexFile.Indexes written = populatedIndexes();
+        NidIndexFile indexFile = new NidIndexFile(directory);
+        indexFile.write(written, SPINE_GENERATION, NEXT_NID, SPINE_COUNT);
+        assertTrue(indexFile.exists());
+
+        NidIndexFile.Indexes loaded = emptyIndexes();
+        NidIndexFile.Header header = indexFile.load(loaded, NEXT_NID, SPINE_COUNT, SPINE_GENERATION);
+        assertEquals(new NidIndexFile.Header(SPINE_GENERATION, NEXT_NID, SPINE_COUNT, ENTITY_COUNT), header);
+        assertEquals(written.uuidToNidMap(), loaded.uuidToNidMap());
+        assertArrayEquals(written.conceptNids().toArray(), loaded.conceptNids().toArray());
+        assertArrayEquals(written.semanticNids().toArray(), loaded.semanticNids().toArray());
+        assertArrayEquals(written.patternNids().toArray(), loaded.patternNids().toArray());
+        assertArrayEquals(written.stampNids().toArray(), loaded.stampNids().toArray());
+        assertEquals(written.patternElementNidsMap().keySet(), loaded.patternElementNidsMap().keySet());
+        assertArrayEquals(written.patternElementNidsMap().get(PATTERN_NID).toArray(),
+                loaded.patternElementNidsMap().get(PATTERN_NID).toArray());
+    }
+
+    @Test
+    void entriesAtOrAfterNextNidAreExcluded() throws IOException {
+        NidIndexFile.Indexes written = populatedIndexes();
+        int lateNid = NEXT_NID;
+        written.uuidToNidMap().put(UUID.randomUUID(), lateNid);
+        written.conceptNids().add(lateNid);
+        NidIndexFile indexFile = new NidIndexFile(directory);
+        indexFile.write(written, SPINE_GENERATION, NEXT_NID, SPINE_COUNT);
+
+        NidIndexFile.Indexes loaded = emptyIndexes();
+        indexFile.load(loaded, NEXT_NID, SPINE_COUNT, SPINE_GENERATION);
+        assertEquals(ENTITY_COUNT, loaded.uuidToNidMap().size());
+        assertFalse(loaded.conceptNids().contains(lateNid));
+    }
+
+    @Test
+    void corruptedIndexFailsChecksum() throws IOException {
+        NidIndexFile indexFile = new NidIndexFile(directory);
+        indexFile.write(populatedIndexes(), SPINE_GENERATION, NEXT_NID, SPINE_COUNT);
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile.file(), "rw")) {
+            long position = NidIndexFile.HEADER_BYTES + 3;
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        }
+        IOException e = assertThrows(IOException.class,
+                () -> indexFile.load(emptyIndexes(), NEXT_NID, SPINE_COUNT, SPINE_GENERATION));
+        assertEquals("Index checksum mismatch", e.getMessage());
+    }
+
+    @Test
+    void truncatedIndexIsRejected() throws IOException {
+        NidIndexFile indexFile = new NidIndexFile(directory);
+        indexFile.write(populatedIndexes(), SPINE_GENERATION, NEXT_NID, SPINE_COUNT);
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile.file(), "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        assertThrows(IOException.class,
+                () -> indexFile.load(emptyIndexes(), NEXT_NID, SPINE_COUNT, SPINE_GENERATION));
+    }
+
+    @Test
+    void indexFromAnotherStoreStateIsRejected() throws IOException {
+        NidIndexFile indexFile = new NidIndexFile(directory);
+        indexFile.write(populatedIndexes(), SPINE_GENERATION, NEXT_NID, SPINE_COUNT);
+        assertThrows(IOException.class,
+                () -> indexFile.load(emptyIndexes(), NEXT_NID + 1, SPINE_COUNT, SPINE_GENERATION));
+        assertThrows(IOException.class,
+                () -> indexFile.load(emptyIndexes(), NEXT_NID, SPINE_COUNT + 1, SPINE_GENERATION));
+        IOException e = assertThrows(IOException.class,
+                () -> indexFile.load(emptyIndexes(), NEXT_NID, SPINE_COUNT, SPINE_GENERATION + 1));
+        assertTrue(e.getMessage().contains("spine generation"), e.getMessage());
+    }
+
+    @Test
+    void invalidateRemovesIndex() throws IOException {
+        NidIndexFile indexFile = new NidIndexFile(directory);
+        indexFile.write(populatedIndexes(), SPINE_GENERATION, NEXT_NID, SPINE_COUNT);
+        indexFile.invalidate();
+        assertFalse(indexFile.exists());
+    }
+
+    private static NidIndexFile.Indexes emptyIndexes() {
+        return new NidIndexFile.Indexes(new ConcurrentHashMap<>(), new ConcurrentNidSet(), new ConcurrentNidSet(),
+                new ConcurrentNidSet(), new ConcurrentNidSet(), new ConcurrentHashMap<>());
+    }
+
+    private static NidIndexFile.Indexes populatedIndexes() {
+        NidIndexFile.Indexes indexes = emptyIndexes();
+        ConcurrentNidSet patternElements = new ConcurrentNidSet();
+        indexes.patternElementNidsMap().put(PATTERN_NID, patternElements);
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            int nid = FIRST_NID + i;
+            indexes.uuidToNidMap().put(UUID.nameUUIDFromBytes(Integer.toString(nid).getBytes()), nid);
+            switch (i % 4) {
+                case 0 -> indexes.conceptNids().add(nid);
+                case 1 -> {
+                    indexes.semanticNids().add(nid);
+                    patternElements.add(nid);
+                }
+                case 2 -> indexes.stampNids().add(nid);
+                default -> indexes.patternNids().add(nid);
+            }
+        }
+        return indexes;
+    }
+}
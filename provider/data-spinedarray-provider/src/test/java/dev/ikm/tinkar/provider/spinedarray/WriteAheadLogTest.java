@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.spinedarray;
+
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.list.primitive.IntInterval;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+    private static final Logger LOG = LoggerFactory.getLogger(WriteAheadLogTest.class);
+
+    @TempDir
+    File directory;
+
+    @Test
+    void replaysRecordsLoggedBeforeReopen() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory)) {
+            for (int nid = 1; nid <= 100; nid++) {
+                log.log(nid, nid + 1000, nid + 2000, bytes(nid), () -> null);
+            }
+            log.sync();
+        }
+        MutableIntList replayedNids = IntLists.mutable.empty();
+        try (WriteAheadLog log = new WriteAheadLog(directory)) {
+            long replayed = log.replay((nid, patternNid, referencedComponentNid, bytes) -> {
+                assertEquals(nid + 1000, patternNid);
+                assertEquals(nid + 2000, referencedComponentNid);
+                assertArrayEquals(bytes(nid), bytes);
+                replayedNids.add(nid);
+            });
+            assertEquals(100, replayed);
+        }
+        assertEquals(IntLists.mutable.withAll(IntInterval.oneTo(100)), replayedNids);
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory)) {
+            for (int nid = 1; nid <= 10; nid++) {
+                log.log(nid, nid, nid, bytes(nid), () -> null);
+            }
+        }
+        // As if killed part way through writing the last record.
+        File[] segments = directory.listFiles();
+        assertEquals(1, segments.length);
+        try (RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        try (WriteAheadLog log = new WriteAheadLog(directory)) {
+            assertEquals(9, log.replay((nid, patternNid, referencedComponentNid, bytes) ->
+                    assertArrayEquals(bytes(nid), bytes)));
+        }
+    }
+
+    @Test
+    void rotatedSegmentsAreNotReplayedOnceDeleted() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory)) {
+            log.log(1, 1, 1, bytes(1), () -> null);
+            long retained = log.rotate();
+            log.log(2, 2, 2, bytes(2), () -> null);
+            log.deleteSegmentsBefore(retained);
+        }
+        MutableIntList replayedNids = IntLists.mutable.empty();
+        try (WriteAheadLog log = new WriteAheadLog(directory)) {
+            log.replay((nid, patternNid, referencedComponentNid, bytes) -> replayedNids.add(nid));
+        }
+        assertEquals(IntLists.mutable.with(2), replayedNids);
+    }
+
+    /**
+     * Commits from concurrent writers, each logging a record and syncing. Latency percentiles by group size
+     * are logged rather than asserted, as they depend on the machine and file system.
+     */
+    @Test
+    void groupCommitSharesForces() throws Exception {
+        int commitsPerWriter = 200;
+        for (int writers : new int[]{1, 4, 16}) {
+            File writerDirectory = new File(directory, "writers-" + writers);
+            try (WriteAheadLog log = new WriteAheadLog(writerDirectory);
+                 ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int writer = 0; writer < writers; writer++) {
+                    int firstNid = writer * commitsPerWriter;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < commitsPerWriter; i++) {
+                            log.log(firstNid + i, 0, 0, bytes(i), () -> null);
+                            log.sync();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                long syncs = (long) writers * commitsPerWriter;
+                assertEquals(syncs, log.records());
+                assertTrue(log.forces() <= syncs, "forces " + log.forces() + " > syncs " + syncs);
+                LOG.info("{} writers: {} syncs, {} forces", writers, syncs, log.forces());
+                for (WalCommitLatency latency : log.commitLatencies()) {
+                    if (latency.syncs() > 0) {
+                        LOG.info("{} writers, groups of {}-{}: {}", writers, latency.minGroupSize(),
+                                latency.maxGroupSize(), latency);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writers that each log a record and then sync together share one force per round: the first sync forces
+     * every record logged before it, and the others find their records already durable.
+     */
+    @Test
+    void concurrentSyncsShareOneForce() throws Exception {
+        int writers = 8;
+        int rounds = 50;
+        try (WriteAheadLog log = new WriteAheadLog(directory);
+             ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+            CyclicBarrier logged = new CyclicBarrier(writers);
+            CyclicBarrier synced = new CyclicBarrier(writers);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                int firstNid = writer * rounds;
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < rounds; round++) {
+                        log.log(firstNid + round, 0, 0, bytes(round), () -> null);
+                        logged.await();
+                        log.sync();
+                        synced.await();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long syncs = (long) writers * rounds;
+            assertEquals(syncs, log.records());
+            assertEquals(rounds, log.forces());
+            assertTrue(log.forces() < syncs, "forces " + log.forces() + " >= syncs " + syncs);
+        }
+    }
+
+    private static byte[] bytes(int nid) {
+        byte[] bytes = new byte[8 + nid % 32];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (nid + i);
+        }
+        return bytes;
+    }
+}
@@ -22,7 +22,6 @@
 import dev.ikm.tinkar.common.validation.ValidationSeverity;
 import dev.ikm.tinkar.entity.EntityService;
 import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
 import io.activej.eventloop.Eventloop;
 import io.activej.http.AsyncHttpClient;
 import io.activej.http.HttpRequest;
@@ -32,6 +31,7 @@
 import io.activej.inject.annotation.Provides;
 import io.activej.inject.module.Module;
 import io.activej.launcher.Launcher;
+import io.activej.promise.Promise;
 import io.activej.service.ServiceGraphModule;
 import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
 import org.eclipse.collections.api.factory.Lists;
@@ -45,36 +45,82 @@
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.ObjIntConsumer;
-
+import java.util.stream.IntStream;
+
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations.RESPONSE_CHUNK;
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations.RESPONSE_COMPLETE;
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations.RESPONSE_ERROR;
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations.STREAM_WINDOW;
+
+/**
+ * A {@link PrimitiveDataService} that reads and writes through a {@code DataProviderWebsocketServer}, using the
+ * protocol described by {@link RemoteOperations}.
+ * <p>
+ * All requests share one websocket. Each request carries a correlation id, so any number of threads may have
+ * requests outstanding at once, and the asynchronous and batch methods let a single thread do the same.
+ */
 public class DataProviderWebsocketClient
         extends Launcher
         implements PrimitiveDataService {
     private static final Logger LOG = LoggerFactory.getLogger(DataProviderWebsocketClient.class);
-    private static final Integer wsKey = Integer.valueOf(1);
+    private static final int NIDS_PER_BATCH = 1024;
     private final URI uri;
+    /**
+     * Writes requests in place of the websocket, when not null.
+     */
+    private final Consumer<ByteBuf> transport;
     @Inject
     AsyncHttpClient httpClient;
     @Inject
     Eventloop eventloop;
-    ConcurrentHashMap<Integer, WebSocket> wsMap = new ConcurrentHashMap<>();
+    private final AtomicInteger correlationIds = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, CompletableFuture<ByteBuf>> pendingRequests = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, BlockingQueue<StreamItem>> pendingStreams = new ConcurrentHashMap<>();
+    private final CompletableFuture<Void> started = new CompletableFuture<>();
+    private final CompletableFuture<Void> closed = new CompletableFuture<>();
+    private volatile WebSocket webSocket;
+    private volatile boolean open;
+    // Only used on the eventloop thread.
+    private Promise<Void> writes = Promise.complete();
 
     public DataProviderWebsocketClient(URI uri) {
         this.uri = uri;
+        this.transport = null;
+    }
+
+    /**
+     * A client that writes its requests to the transport rather than a websocket, and reads the responses handed to
+     * {@link #received(ByteBuf)}. The client is open at once, and is not launched.
+     */
+    DataProviderWebsocketClient(URI uri, Consumer<ByteBuf> transport) {
+        this.uri = uri;
+        this.transport = transport;
+        this.open = true;
     }
 
     public static void main(String[] args) throws Exception {
-        DataProviderWebsocketClient client = new DataProviderWebsocketClient(new URI("ws://127.0.0.1:8080/"));
-        client.launch(args);
+        DataProviderWebsocketClient client = new DataProviderWebsocketClient(
+                new URI(args.length != 0 ? args[0] : "ws://127.0.0.1:8080/"));
+        client.start();
+        try {
+            LOG.info("Received: " + EntityService.get().unmarshalChronology(client.getBytes(PrimitiveDataService.FIRST_NID)));
+        } finally {
+            client.close();
+        }
     }
 
     @Provides
@@ -92,185 +138,462 @@ protected Module getModule() {
         return ServiceGraphModule.create();
     }
 
+    /**
+     * Launches the client on its own thread, and returns once it is connected.
+     */
+    public void start() throws ExecutionException, InterruptedException {
+        Thread.ofPlatform().daemon().name("websocket-client " + uri).start(() -> {
+            try {
+                launch(new String[]{});
+            } catch (Exception e) {
+                started.completeExceptionally(e);
+            } finally {
+                started.completeExceptionally(new IllegalStateException("Client stopped: " + uri));
+            }
+        });
+        started.get();
+    }
+
+    /**
+     * Connects, and then keeps the launcher's services running until the connection is closed.
+     */
     @Override
     protected void run() throws ExecutionException, InterruptedException {
-        String url = args.length != 0 ? args[0] : "ws://127.0.0.1:8080/";
-        LOG.info("\nWeb Socket request: " + url);
-        CompletableFuture<?> future = eventloop.submit(() -> {
-            getEntity(url, PrimitiveDataService.FIRST_NID);
+        LOG.info("Web Socket connecting: " + uri);
+        CompletableFuture<WebSocket> connected = new CompletableFuture<>();
+        eventloop.execute(() -> httpClient.webSocketRequest(HttpRequest.get(uri.toString()))
+                .whenComplete((ws, e) -> {
+                    if (e != null) {
+                        connected.completeExceptionally(e);
+                    } else {
+                        readNext(ws);
+                        connected.complete(ws);
+                    }
+                }));
+        try {
+            this.webSocket = connected.get();
+        } catch (ExecutionException e) {
+            started.completeExceptionally(e.getCause());
+            throw e;
+        }
+        this.open = true;
+        started.complete(null);
+        closed.get();
+    }
+
+    private void readNext(WebSocket ws) {
+        ws.readMessage().whenComplete((message, e) -> {
+            if (e != null || message == null) {
+                connectionClosed();
+                return;
+            }
+            try {
+                received(message.getBuf());
+            } catch (RuntimeException ex) {
+                LOG.error("Unreadable response", ex);
+            }
+            readNext(ws);
+        });
+    }
+
+    void received(ByteBuf buf) {
+        int correlationId = buf.readInt();
+        byte status = buf.readByte();
+        BlockingQueue<StreamItem> stream = pendingStreams.get(correlationId);
+        if (stream != null) {
+            if (status != RESPONSE_CHUNK) {
+                pendingStreams.remove(correlationId);
+            }
+            stream.add(new StreamItem(status, buf));
+            return;
+        }
+        CompletableFuture<ByteBuf> response = pendingRequests.remove(correlationId);
+        if (response == null) {
+            // A chunk of a stream that was canceled.
+            return;
+        }
+        if (status == RESPONSE_ERROR) {
+            response.completeExceptionally(new IllegalStateException(RemoteMessages.readString(buf)));
+        } else {
+            response.complete(buf);
+        }
+    }
+
+    private void connectionClosed() {
+        open = false;
+        IllegalStateException closedException = closedException();
+        pendingRequests.keySet().forEach(correlationId -> {
+            CompletableFuture<ByteBuf> response = pendingRequests.remove(correlationId);
+            if (response != null) {
+                response.completeExceptionally(closedException);
+            }
+        });
+        pendingStreams.keySet().forEach(correlationId -> {
+            BlockingQueue<StreamItem> stream = pendingStreams.remove(correlationId);
+            if (stream != null) {
+                stream.add(new StreamItem(RESPONSE_ERROR, null));
+            }
+        });
+        closed.complete(null);
+    }
+
+    private IllegalStateException closedException() {
+        return new IllegalStateException("Connection closed: " + uri);
+    }
+
+    private void send(ByteBuf message) {
+        if (transport != null) {
+            transport.accept(message);
+            return;
+        }
+        WebSocket ws = webSocket;
+        eventloop.execute(() -> writes = writes
+                .then($ -> ws.writeMessage(Message.binary(message)))
+                .whenException(e -> LOG.warn("Request not written: " + e.getMessage())));
+    }
+
+    private CompletableFuture<ByteBuf> requestAsync(RemoteOperations operation, RemoteMessages.Writer arguments) {
+        int correlationId = correlationIds.incrementAndGet();
+        CompletableFuture<ByteBuf> response = new CompletableFuture<>();
+        pendingRequests.put(correlationId, response);
+        if (!open) {
+            pendingRequests.remove(correlationId);
+            response.completeExceptionally(closedException());
+            return response;
+        }
+        send(RemoteMessages.request(operation, correlationId, arguments));
+        return response;
+    }
+
+    private ByteBuf request(RemoteOperations operation, RemoteMessages.Writer arguments) {
+        return join(requestAsync(operation, arguments));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Runs a streaming operation, handing each chunk to the consumer on the calling thread. Credit for another
+     * chunk is returned once a chunk is consumed, and the stream is canceled if the consumer throws.
+     */
+    private void stream(RemoteOperations operation, RemoteMessages.Writer arguments, Consumer<ByteBuf> chunkConsumer) {
+        int correlationId = correlationIds.incrementAndGet();
+        BlockingQueue<StreamItem> items = new LinkedBlockingQueue<>();
+        pendingStreams.put(correlationId, items);
+        if (!open) {
+            pendingStreams.remove(correlationId);
+            throw closedException();
+        }
+        send(RemoteMessages.request(operation, correlationId, arguments));
+        boolean finished = false;
+        try {
+            while (true) {
+                StreamItem item = items.take();
+                switch (item.status()) {
+                    case RESPONSE_CHUNK -> {
+                        chunkConsumer.accept(item.buf());
+                        send(RemoteMessages.request(RemoteOperations.STREAM_CREDIT, correlationId, out -> out.writeInt(1)));
+                    }
+                    case RESPONSE_COMPLETE -> {
+                        finished = true;
+                        return;
+                    }
+                    default -> {
+                        finished = true;
+                        throw item.buf() == null ? closedException()
+                                : new IllegalStateException(RemoteMessages.readString(item.buf()));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            if (!finished) {
+                pendingStreams.remove(correlationId);
+                if (open) {
+                    send(RemoteMessages.request(RemoteOperations.STREAM_CANCEL, correlationId, out -> {
+                    }));
+                }
+            }
+        }
+    }
+
+    private void streamNids(RemoteOperations operation, RemoteMessages.Writer arguments, IntProcedure procedure) {
+        stream(operation, arguments, buf -> {
+            int count = buf.readInt();
+            for (int i = 0; i < count; i++) {
+                procedure.value(buf.readInt());
+            }
         });
-        future.get();
-        future = eventloop.submit(() -> {
-            getEntity(url, PrimitiveDataService.FIRST_NID + 1);
+    }
+
+    private void streamEntities(boolean parallel, ObjIntConsumer<byte[]> action) {
+        stream(RemoteOperations.FOR_EACH_ENTITY, out -> {
+        }, buf -> {
+            int count = buf.readInt();
+            int[] nids = new int[count];
+            byte[][] values = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                nids[i] = buf.readInt();
+                values[i] = RemoteMessages.readBytes(buf);
+            }
+            accept(nids, values, parallel, action);
         });
-        future.get();
-    }
-
-    private void getEntity(String url, int nid) {
-        LOG.info("Sending nid: " + nid);
-        ByteBuf buf = ByteBufPool.allocate(32);
-        buf.writeByte(RemoteOperations.GET_BYTES.token);
-        buf.writeInt(nid);
-        httpClient.webSocketRequest(HttpRequest.get(url))
-                .then(webSocket -> webSocket.writeMessage(Message.binary(buf))
-                        .then(webSocket::readMessage)
-                        .whenResult(message -> {
-                            ByteBuf readBuf = message.getBuf();
-                            int length = readBuf.readInt();
-                            byte[] readData = new byte[length];
-                            readBuf.read(readData);
-                            LOG.info("Received: " + EntityService.get().unmarshalChronology(readData));
-                        })
-                        .whenComplete(webSocket::close));
+    }
+
+    private static void accept(int[] nids, byte[][] values, boolean parallel, ObjIntConsumer<byte[]> action) {
+        if (parallel) {
+            IntStream.range(0, nids.length).parallel().forEach(i -> action.accept(values[i], nids[i]));
+        } else {
+            for (int i = 0; i < nids.length; i++) {
+                action.accept(values[i], nids[i]);
+            }
+        }
+    }
+
+    /**
+     * Fetches the nids in batches, keeping up to {@link RemoteOperations#STREAM_WINDOW} batches in flight while
+     * earlier ones are handed to the action.
+     */
+    private void forEachOf(ImmutableIntList nids, boolean parallel, ObjIntConsumer<byte[]> action) {
+        int[] nidArray = nids.toArray();
+        ArrayDeque<Batch> inFlight = new ArrayDeque<>();
+        int next = 0;
+        while (next < nidArray.length || !inFlight.isEmpty()) {
+            while (next < nidArray.length && inFlight.size() < STREAM_WINDOW) {
+                int[] batchNids = Arrays.copyOfRange(nidArray, next, Math.min(next + NIDS_PER_BATCH, nidArray.length));
+                inFlight.add(new Batch(batchNids, getBytesAsync(batchNids)));
+                next += batchNids.length;
+            }
+            Batch batch = inFlight.remove();
+            accept(batch.nids(), join(batch.values()), parallel, action);
+        }
+    }
+
+    /**
+     * Asynchronously gets the bytes of an entity.
+     *
+     * @param nid the entity's nid
+     * @return a future of the bytes, or of null if there is no entity with the nid
+     */
+    public CompletableFuture<byte[]> getBytesAsync(int nid) {
+        return requestAsync(RemoteOperations.GET_BYTES, out -> out.writeInt(nid))
+                .thenApply(RemoteMessages::readBytes);
+    }
+
+    /**
+     * Asynchronously gets the bytes of several entities with one request.
+     *
+     * @param nids the entities' nids
+     * @return a future of the bytes of each entity, in the order of the nids
+     */
+    public CompletableFuture<byte[][]> getBytesAsync(int[] nids) {
+        return requestAsync(RemoteOperations.GET_BYTES_MULTI, out -> {
+            out.writeInt(nids.length);
+            for (int nid : nids) {
+                out.writeInt(nid);
+            }
+        }).thenApply(buf -> {
+            byte[][] values = new byte[buf.readInt()][];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = RemoteMessages.readBytes(buf);
+            }
+            return values;
+        });
+    }
+
+    public byte[][] getBytes(int[] nids) {
+        return join(getBytesAsync(nids));
+    }
+
+    /**
+     * Gets the nids of several UUID lists with one request, assigning nids to those that have none.
+     *
+     * @param uuidLists the UUIDs of each component
+     * @return the nid of each component, in the order of the lists
+     */
+    public int[] nidsForUuids(List<UUID[]> uuidLists) {
+        return RemoteMessages.readNids(request(RemoteOperations.NIDS_FOR_UUIDS_MULTI, out -> {
+            out.writeInt(uuidLists.size());
+            for (UUID[] uuids : uuidLists) {
+                RemoteMessages.writeUuidParts(out, UuidUtil.asArray(uuids));
+            }
+        }));
     }
 
     @Override
     public long writeSequence() {
-        throw new UnsupportedOperationException();
+        return request(RemoteOperations.WRITE_SEQUENCE, out -> {
+        }).readLong();
     }
 
     @Override
     public void close() {
-        WebSocket ws = wsMap.remove(wsKey);
-        if (ws != null) {
-            ws.close();
+        WebSocket ws = webSocket;
+        if (ws != null && open) {
+            open = false;
+            eventloop.execute(ws::close);
         }
+        open = false;
+        connectionClosed();
     }
 
     @Override
     public int nidForUuids(UUID... uuids) {
-        try {
-            return nidForLongArray(UuidUtil.asArray(uuids));
-        } catch (ExecutionException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        return nidForLongArray(UuidUtil.asArray(uuids));
     }
 
     @Override
     public int nidForUuids(ImmutableList<UUID> uuidList) {
-        try {
-            return nidForLongArray(UuidUtil.asArray(uuidList));
-        } catch (ExecutionException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        return nidForLongArray(UuidUtil.asArray(uuidList));
     }
 
     @Override
     public boolean hasUuid(UUID uuid) {
-        throw new UnsupportedOperationException();
+        return request(RemoteOperations.HAS_UUID, out -> {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }).readBoolean();
     }
 
     @Override
     public boolean hasPublicId(PublicId publicId) {
-        throw new UnsupportedOperationException();
+        return request(RemoteOperations.HAS_PUBLIC_ID,
+                out -> RemoteMessages.writeUuidParts(out, UuidUtil.asArray(publicId.asUuidArray()))).readBoolean();
     }
 
     @Override
     public void forEach(ObjIntConsumer<byte[]> action) {
-        throw new UnsupportedOperationException();
+        streamEntities(false, action);
     }
 
     @Override
     public void forEachParallel(ObjIntConsumer<byte[]> action) {
-        throw new UnsupportedOperationException();
+        streamEntities(true, action);
     }
 
     @Override
     public void forEachParallel(ImmutableIntList nids, ObjIntConsumer<byte[]> action) {
-        throw new UnsupportedOperationException();
+        forEachOf(nids, true, action);
     }
 
     @Override
     public void forEach(ImmutableIntList nids, ObjIntConsumer<byte[]> action) {
-        throw new UnsupportedOperationException();
+        forEachOf(nids, false, action);
     }
 
     @Override
     public byte[] getBytes(int nid) {
-
-        ByteBuf buf = ByteBufPool.allocate(32);
-        buf.writeByte(RemoteOperations.GET_BYTES.token);
-        buf.writeInt(nid);
-        AtomicReference<byte[]> readDataReference = new AtomicReference<>();
-        final WebSocket ws = webSocket();
-
-        CompletableFuture<?> future = eventloop.submit(() -> {
-            ws.writeMessage(Message.binary(buf))
-                    .then(ws::readMessage)
-                    .whenResult(message -> {
-                        ByteBuf readBuf = message.getBuf();
-                        int length = readBuf.readInt();
-                        byte[] readData = new byte[length];
-                        readBuf.read(readData);
-                        readDataReference.set(readData);
-                        LOG.info("Received: " + EntityService.get().unmarshalChronology(readData));
-
-                    });
-        });
-
-        try {
-            future.get();
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
-
-        return readDataReference.get();
+        return join(getBytesAsync(nid));
     }
 
+    /**
+     * Merges on the server. The source object is not sent: the server decodes it from the value, which is the
+     * entity's bytes.
+     */
     @Override
     public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject, DataActivity activity) {
-        throw new UnsupportedOperationException();
+        return RemoteMessages.readBytes(request(RemoteOperations.MERGE, out -> {
+            out.writeInt(nid);
+            out.writeInt(patternNid);
+            out.writeInt(referencedComponentNid);
+            RemoteMessages.writeBytes(out, value);
+            out.writeByte(activity.ordinal());
+        }));
     }
 
     @Override
     public PrimitiveDataSearchResult[] search(String query, int maxResultSize) throws Exception {
-        throw new UnsupportedOperationException();
+        return RemoteMessages.readSearchResults(request(RemoteOperations.SEARCH, out -> {
+            RemoteMessages.writeString(out, query);
+            out.writeInt(maxResultSize);
+        }));
+    }
+
+    @Override
+    public PrimitiveDataSearchResult[] search(String query, int maxResultSize, SearchFilter filter) throws Exception {
+        if (filter == null || filter.isEmpty()) {
+            return search(query, maxResultSize);
+        }
+        return RemoteMessages.readSearchResults(request(RemoteOperations.SEARCH_FILTERED, out -> {
+            RemoteMessages.writeString(out, query);
+            out.writeInt(maxResultSize);
+            RemoteMessages.writeSearchFilter(out, filter);
+        }));
+    }
+
+    @Override
+    public PrimitiveDataSearchResult[] suggest(String prefix, int maxResultSize, SearchFilter filter) throws Exception {
+        return RemoteMessages.readSearchResults(request(RemoteOperations.SUGGEST, out -> {
+            RemoteMessages.writeString(out, prefix);
+            out.writeInt(maxResultSize);
+            RemoteMessages.writeSearchFilter(out, filter);
+        }));
     }
 
     @Override
     public String highlight(String query, String text) throws Exception {
-        throw new UnsupportedOperationException();
+        return RemoteMessages.readString(request(RemoteOperations.HIGHLIGHT, out -> {
+            RemoteMessages.writeString(out, query);
+            RemoteMessages.writeString(out, text);
+        }));
     }
 
     @Override
     public CompletableFuture<Void> recreateLuceneIndex() throws Exception {
-        throw new UnsupportedOperationException();
+        return requestAsync(RemoteOperations.RECREATE_LUCENE_INDEX, out -> {
+        }).thenApply(buf -> null);
     }
 
     @Override
     public void forEachSemanticNidOfPattern(int patternNid, IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_SEMANTIC_NID_OF_PATTERN, out -> out.writeInt(patternNid), procedure);
     }
 
     @Override
     public void forEachPatternNid(IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_PATTERN_NID, out -> {
+        }, procedure);
     }
 
     @Override
     public void forEachConceptNid(IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_CONCEPT_NID, out -> {
+        }, procedure);
     }
 
     @Override
     public void forEachStampNid(IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_STAMP_NID, out -> {
+        }, procedure);
     }
 
     @Override
     public void forEachSemanticNid(IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_SEMANTIC_NID, out -> {
+        }, procedure);
     }
 
     @Override
     public void forEachSemanticNidForComponent(int componentNid, IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_SEMANTIC_NID_FOR_COMPONENT, out -> out.writeInt(componentNid), procedure);
     }
 
     @Override
     public void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure) {
-        throw new UnsupportedOperationException();
+        streamNids(RemoteOperations.FOR_EACH_SEMANTIC_NID_FOR_COMPONENT_OF_PATTERN, out -> {
+            out.writeInt(componentNid);
+            out.writeInt(patternNid);
+        }, procedure);
     }
 
     @Override
@@ -278,38 +601,17 @@ public String name() {
         return uri.toString();
     }
 
-    private int nidForLongArray(long[] uuidParts) throws ExecutionException, InterruptedException {
-        ByteBuf buf = ByteBufPool.allocate(32);
-        buf.writeByte(RemoteOperations.NID_FOR_UUIDS.token);
-        buf.writeInt(uuidParts.length);
-        for (long part : uuidParts) {
-            buf.writeLong(part);
-        }
-        AtomicInteger nid = new AtomicInteger();
-        final WebSocket ws = webSocket();
-        CompletableFuture<?> future = eventloop.submit(() -> {
-            ws.writeMessage(Message.binary(buf))
-                    .then(ws::readMessage)
-                    .whenResult(message -> {
-                        ByteBuf readBuf = message.getBuf();
-                        nid.set(readBuf.readInt());
-                    });
-        });
-        future.get();
-        return nid.get();
-    }
-
-    WebSocket webSocket() {
-        return wsMap.computeIfAbsent(wsKey, (Integer key) ->
-                {
-                    try {
-                        return httpClient.webSocketRequest(HttpRequest.get(uri.toString())).toCompletableFuture().get();
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        throw new RuntimeException(e);
-                    }
-                }
-        );
+    private int nidForLongArray(long[] uuidParts) {
+        return request(RemoteOperations.NID_FOR_UUIDS, out -> RemoteMessages.writeUuidParts(out, uuidParts)).readInt();
+    }
+
+    /**
+     * A response to a streaming request; a null buf means the connection closed.
+     */
+    private record StreamItem(byte status, ByteBuf buf) {
+    }
+
+    private record Batch(int[] nids, CompletableFuture<byte[][]> values) {
     }
 
     /**
@@ -343,12 +645,12 @@ protected DataProviderWebsocketClient createProvider() throws Exception {
 
         @Override
         protected void startProvider(DataProviderWebsocketClient provider) throws Exception {
-            provider.launch(new String[]{});
+            provider.start();
         }
 
         @Override
         protected void stopProvider(DataProviderWebsocketClient provider) {
-            // Websocket client cleanup
+            provider.close();
         }
 
         @Override
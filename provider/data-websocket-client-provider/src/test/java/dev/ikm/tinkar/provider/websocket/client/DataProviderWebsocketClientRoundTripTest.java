@@ -0,0 +1,444 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.client;
+
+import dev.ikm.tinkar.common.id.PublicId;
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.common.service.PrimitiveDataSearchResult;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.common.service.SearchFilter;
+import dev.ikm.tinkar.entity.ConceptRecord;
+import dev.ikm.tinkar.entity.ConceptVersionRecord;
+import dev.ikm.tinkar.entity.RecordListBuilder;
+import dev.ikm.tinkar.provider.websocket.server.RemoteRequestHandler;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.primitive.ImmutableIntList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips of each message of the remote data protocol, from {@link DataProviderWebsocketClient} through a
+ * {@link RemoteRequestHandler} to a recording data service and back. The client and handler are connected directly,
+ * so no websocket or port is needed.
+ */
+class DataProviderWebsocketClientRoundTripTest {
+    private static final int MISSING_NID = -99;
+    private static final int FAILING_NID = -98;
+    private static final int STREAMED_NIDS = 50_000;
+
+    private final RecordingDataService dataService = new RecordingDataService();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private DataProviderWebsocketClient client;
+
+    @BeforeEach
+    void connect() throws Exception {
+        RemoteRequestHandler[] handler = new RemoteRequestHandler[1];
+        client = new DataProviderWebsocketClient(new URI("ws://loopback/"), request -> handler[0].received(request));
+        handler[0] = new RemoteRequestHandler(dataService, executor, response -> client.received(response));
+    }
+
+    @AfterEach
+    void close() {
+        client.close();
+        executor.shutdownNow();
+    }
+
+    private static byte[] bytes(int nid) {
+        return ("entity " + nid).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void nidForUuids() {
+        assertEquals(-7, client.nidForUuids(new UUID(1, 7)));
+        assertEquals(-7, client.nidForUuids(Lists.immutable.of(new UUID(1, 7), new UUID(1, 8))));
+        assertArrayEquals(new int[]{-3, -4}, client.nidsForUuids(List.of(
+                new UUID[]{new UUID(1, 3)}, new UUID[]{new UUID(1, 4), new UUID(1, 5)})));
+        assertArrayEquals(new int[0], client.nidsForUuids(List.of()));
+    }
+
+    @Test
+    void getBytes() {
+        assertArrayEquals(bytes(-5), client.getBytes(-5));
+        assertNull(client.getBytes(MISSING_NID));
+        byte[][] values = client.getBytes(new int[]{-1, MISSING_NID, -2});
+        assertEquals(3, values.length);
+        assertArrayEquals(bytes(-1), values[0]);
+        assertNull(values[1]);
+        assertArrayEquals(bytes(-2), values[2]);
+    }
+
+    @Test
+    void mergeSendsTheActivityAndDecodesTheEntity() {
+        RecordListBuilder<ConceptVersionRecord> versions = RecordListBuilder.make();
+        ConceptRecord concept = new ConceptRecord(11L, 12L, null, -13, versions);
+        versions.add(new ConceptVersionRecord(concept, -14));
+        versions.build();
+        byte[] value = concept.getBytes();
+
+        byte[] merged = client.merge(concept.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE, value, concept,
+                DataActivity.LOADING_CHANGE_SET);
+        assertArrayEquals(value, merged);
+
+        Merge merge = dataService.merges.getFirst();
+        assertEquals(concept.nid(), merge.nid());
+        assertEquals(Integer.MAX_VALUE, merge.patternNid());
+        assertEquals(Integer.MAX_VALUE, merge.referencedComponentNid());
+        assertArrayEquals(value, merge.value());
+        assertEquals(DataActivity.LOADING_CHANGE_SET, merge.activity());
+        ConceptRecord sourceObject = assertInstanceOf(ConceptRecord.class, merge.sourceObject());
+        assertEquals(concept.nid(), sourceObject.nid());
+        assertEquals(-14, sourceObject.versions().getOnly().stampNid());
+
+        for (DataActivity activity : DataActivity.values()) {
+            client.merge(concept.nid(), Integer.MAX_VALUE, Integer.MAX_VALUE, value, concept, activity);
+            assertEquals(activity, dataService.merges.getLast().activity());
+        }
+    }
+
+    @Test
+    void uuidQueries() {
+        assertTrue(client.hasUuid(new UUID(1, 2)));
+        assertFalse(client.hasUuid(new UUID(1, 3)));
+        assertTrue(client.hasPublicId(PublicIds.of(new UUID(1, 2), new UUID(1, 3))));
+        assertFalse(client.hasPublicId(PublicIds.of(new UUID(1, 2))));
+    }
+
+    @Test
+    void writeSequence() {
+        dataService.writeSequence = 1234567890123L;
+        assertEquals(1234567890123L, client.writeSequence());
+    }
+
+    @Test
+    void search() throws Exception {
+        PrimitiveDataSearchResult[] results = client.search("heart", 5);
+        assertArrayEquals(new PrimitiveDataSearchResult[]{new PrimitiveDataSearchResult(-1, 5, 1.5f, "<B>heart</B>")},
+                results);
+        assertNull(dataService.lastFilter);
+    }
+
+    @Test
+    void filteredSearchSendsTheFilter() throws Exception {
+        SearchFilter filter = new SearchFilter(new int[]{-20, -21}, new int[]{-22},
+                new SearchFilter.StampRestriction(new int[]{-23}, new int[]{-24, -25}, new int[]{-26}, 99L));
+        PrimitiveDataSearchResult[] results = client.search("heart", 7, filter);
+        assertEquals(new PrimitiveDataSearchResult(-2, 7, 2.5f, "<B>heart</B>"), results[0]);
+        assertEquals(filter, dataService.lastFilter);
+
+        SearchFilter stampOnly = SearchFilter.of(new SearchFilter.StampRestriction(null, new int[]{-24}, null,
+                Long.MAX_VALUE));
+        client.search("heart", 7, stampOnly);
+        assertEquals(stampOnly, dataService.lastFilter);
+
+        dataService.lastFilter = null;
+        client.search("heart", 7, SearchFilter.NONE);
+        assertNull(dataService.lastFilter);
+    }
+
+    @Test
+    void suggestSendsTheFilter() throws Exception {
+        SearchFilter filter = SearchFilter.ofPatterns(-30);
+        PrimitiveDataSearchResult[] results = client.suggest("hea", 3, filter);
+        assertEquals(new PrimitiveDataSearchResult(-3, 3, 3.5f, "hea"), results[0]);
+        assertEquals(filter, dataService.lastFilter);
+        client.suggest("hea", 3, null);
+        assertEquals(SearchFilter.NONE, dataService.lastFilter);
+    }
+
+    @Test
+    void highlightAndRecreateIndex() throws Exception {
+        assertEquals("<B>heart attack</B>", client.highlight("heart", "heart attack"));
+        assertNull(client.highlight("heart", null));
+        client.recreateLuceneIndex().get(10, TimeUnit.SECONDS);
+        assertEquals(1, dataService.indexRecreations.get());
+    }
+
+    @Test
+    void forEachEntityStreamsEveryEntity() {
+        List<Integer> nids = new ArrayList<>();
+        client.forEach((bytes, nid) -> {
+            assertArrayEquals(bytes(nid), bytes);
+            nids.add(nid);
+        });
+        assertEquals(IntStream.rangeClosed(1, RecordingDataService.ENTITY_COUNT).map(i -> -i).boxed().toList(), nids);
+
+        AtomicInteger parallelCount = new AtomicInteger();
+        client.forEachParallel((bytes, nid) -> parallelCount.incrementAndGet());
+        assertEquals(RecordingDataService.ENTITY_COUNT, parallelCount.get());
+    }
+
+    @Test
+    void forEachOfNidsBatchesGetBytes() {
+        int[] requested = IntStream.rangeClosed(1, 5_000).map(i -> -i).toArray();
+        MutableIntList seen = IntLists.mutable.empty();
+        client.forEach(IntLists.immutable.of(requested), (bytes, nid) -> {
+            assertArrayEquals(bytes(nid), bytes);
+            seen.add(nid);
+        });
+        assertArrayEquals(requested, seen.toArray());
+    }
+
+    @Test
+    void nidStreamsPassTheirArguments() {
+        assertArrayEquals(new int[]{-100, -101}, collect(client::forEachConceptNid));
+        assertArrayEquals(new int[]{-200}, collect(client::forEachPatternNid));
+        assertArrayEquals(new int[]{-300, -301, -302}, collect(client::forEachStampNid));
+        assertArrayEquals(new int[]{-41}, collect(procedure -> client.forEachSemanticNidOfPattern(-40, procedure)));
+        assertArrayEquals(new int[]{-51}, collect(procedure -> client.forEachSemanticNidForComponent(-50, procedure)));
+        assertArrayEquals(new int[]{-60, -61},
+                collect(procedure -> client.forEachSemanticNidForComponentOfPattern(-60, -61, procedure)));
+    }
+
+    @Test
+    void longStreamsAreFlowControlledByCredit() {
+        // Many more chunks than the stream window, so the server waits for credit.
+        int[] nids = collect(client::forEachSemanticNid);
+        assertEquals(STREAMED_NIDS, nids.length);
+        for (int i = 0; i < nids.length; i++) {
+            assertEquals(-1 - i, nids[i]);
+        }
+    }
+
+    @Test
+    void failingConsumerCancelsTheStream() throws Exception {
+        AtomicInteger seen = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> client.forEachSemanticNid(nid -> {
+            if (seen.incrementAndGet() == 10) {
+                throw new IllegalStateException("stop");
+            }
+        }));
+        assertTrue(dataService.semanticStreamEnded.await(10, TimeUnit.SECONDS), "server stream not stopped");
+        assertTrue(dataService.semanticNidsOffered.get() < STREAMED_NIDS);
+        // The connection is still usable.
+        assertArrayEquals(bytes(-5), client.getBytes(-5));
+    }
+
+    @Test
+    void serverErrorsReachTheCaller() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> client.getBytes(FAILING_NID));
+        assertTrue(e.getMessage().contains("no entity " + FAILING_NID), e.getMessage());
+        assertArrayEquals(bytes(-5), client.getBytes(-5));
+    }
+
+    @Test
+    void closedClientRejectsRequests() {
+        client.close();
+        assertThrows(IllegalStateException.class, () -> client.getBytes(-5));
+        assertThrows(IllegalStateException.class, () -> client.forEachConceptNid(nid -> {
+        }));
+    }
+
+    private interface NidStream {
+        void forEach(IntProcedure procedure);
+    }
+
+    private static int[] collect(NidStream stream) {
+        MutableIntList nids = IntLists.mutable.empty();
+        stream.forEach(nids::add);
+        return nids.toArray();
+    }
+
+    private record Merge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject,
+                         DataActivity activity) {
+    }
+
+    /**
+     * Answers each request with values derived from its arguments, and records merges and search filters.
+     */
+    private static final class RecordingDataService implements PrimitiveDataService {
+        static final int ENTITY_COUNT = 2_000;
+        final List<Merge> merges = new java.util.concurrent.CopyOnWriteArrayList<>();
+        final AtomicInteger indexRecreations = new AtomicInteger();
+        final AtomicInteger semanticNidsOffered = new AtomicInteger();
+        final CountDownLatch semanticStreamEnded = new CountDownLatch(1);
+        volatile SearchFilter lastFilter;
+        volatile long writeSequence;
+
+        @Override
+        public long writeSequence() {
+            return writeSequence;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public int nidForUuids(UUID... uuids) {
+            return (int) -uuids[0].getLeastSignificantBits();
+        }
+
+        @Override
+        public int nidForUuids(ImmutableList<UUID> uuidList) {
+            return nidForUuids(uuidList.toArray(new UUID[0]));
+        }
+
+        @Override
+        public boolean hasUuid(UUID uuid) {
+            return uuid.getLeastSignificantBits() % 2 == 0;
+        }
+
+        @Override
+        public boolean hasPublicId(PublicId publicId) {
+            return publicId.uuidCount() == 2;
+        }
+
+        @Override
+        public void forEach(ObjIntConsumer<byte[]> action) {
+            for (int i = 1; i <= ENTITY_COUNT; i++) {
+                action.accept(bytes(-i), -i);
+            }
+        }
+
+        @Override
+        public void forEachParallel(ObjIntConsumer<byte[]> action) {
+            forEach(action);
+        }
+
+        @Override
+        public void forEach(ImmutableIntList nids, ObjIntConsumer<byte[]> action) {
+            nids.forEach(nid -> action.accept(getBytes(nid), nid));
+        }
+
+        @Override
+        public void forEachParallel(ImmutableIntList nids, ObjIntConsumer<byte[]> action) {
+            forEach(nids, action);
+        }
+
+        @Override
+        public byte[] getBytes(int nid) {
+            if (nid == FAILING_NID) {
+                throw new IllegalArgumentException("no entity " + nid);
+            }
+            return nid == MISSING_NID ? null : bytes(nid);
+        }
+
+        @Override
+        public byte[] merge(int nid, int patternNid, int referencedComponentNid, byte[] value, Object sourceObject,
+                            DataActivity activity) {
+            merges.add(new Merge(nid, patternNid, referencedComponentNid, value, sourceObject, activity));
+            return value;
+        }
+
+        @Override
+        public PrimitiveDataSearchResult[] search(String query, int maxResultSize) {
+            return new PrimitiveDataSearchResult[]{new PrimitiveDataSearchResult(-1, maxResultSize, 1.5f,
+                    "<B>" + query + "</B>")};
+        }
+
+        @Override
+        public PrimitiveDataSearchResult[] search(String query, int maxResultSize, SearchFilter filter) {
+            lastFilter = filter;
+            return new PrimitiveDataSearchResult[]{new PrimitiveDataSearchResult(-2, maxResultSize, 2.5f,
+                    "<B>" + query + "</B>")};
+        }
+
+        @Override
+        public PrimitiveDataSearchResult[] suggest(String prefix, int maxResultSize, SearchFilter filter) {
+            lastFilter = filter;
+            return new PrimitiveDataSearchResult[]{new PrimitiveDataSearchResult(-3, maxResultSize, 3.5f, prefix)};
+        }
+
+        @Override
+        public String highlight(String query, String text) {
+            return text == null ? null : "<B>" + text + "</B>";
+        }
+
+        @Override
+        public CompletableFuture<Void> recreateLuceneIndex() {
+            indexRecreations.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void forEachSemanticNidOfPattern(int patternNid, IntProcedure procedure) {
+            procedure.value(patternNid - 1);
+        }
+
+        @Override
+        public void forEachPatternNid(IntProcedure procedure) {
+            procedure.value(-200);
+        }
+
+        @Override
+        public void forEachConceptNid(IntProcedure procedure) {
+            procedure.value(-100);
+            procedure.value(-101);
+        }
+
+        @Override
+        public void forEachStampNid(IntProcedure procedure) {
+            Arrays.stream(new int[]{-300, -301, -302}).forEach(procedure::value);
+        }
+
+        @Override
+        public void forEachSemanticNid(IntProcedure procedure) {
+            try {
+                for (int i = 0; i < STREAMED_NIDS; i++) {
+                    semanticNidsOffered.incrementAndGet();
+                    procedure.value(-1 - i);
+                }
+            } finally {
+                semanticStreamEnded.countDown();
+            }
+        }
+
+        @Override
+        public void forEachSemanticNidForComponent(int componentNid, IntProcedure procedure) {
+            procedure.value(componentNid - 1);
+        }
+
+        @Override
+        public void forEachSemanticNidForComponentOfPattern(int componentNid, int patternNid, IntProcedure procedure) {
+            procedure.value(componentNid);
+            procedure.value(patternNid);
+        }
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+    }
+}
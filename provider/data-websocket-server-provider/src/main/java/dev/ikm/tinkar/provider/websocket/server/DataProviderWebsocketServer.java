@@ -17,23 +17,35 @@
 
 import dev.ikm.tinkar.common.service.PluggableService;
 import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations;
 import io.activej.bytebuf.ByteBuf;
-import io.activej.bytebuf.ByteBufPool;
+import io.activej.eventloop.Eventloop;
 import io.activej.http.AsyncServlet;
 import io.activej.http.RoutingServlet;
+import io.activej.http.WebSocket;
 import io.activej.http.WebSocket.Message;
 import io.activej.inject.annotation.Provides;
 import io.activej.launchers.http.MultithreadedHttpServerLauncher;
+import io.activej.promise.Promise;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ServiceLoader;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Serves a {@link PrimitiveDataService} over websockets, using the protocol described by {@link RemoteOperations}.
+ * <p>
+ * Messages are read on the connection's eventloop, and each request is answered on its own virtual thread by the
+ * connection's {@link RemoteRequestHandler}, so a slow request does not hold up the others on the connection.
+ * Responses are written in the order they are ready.
+ */
 public class DataProviderWebsocketServer extends MultithreadedHttpServerLauncher {
     private static final Logger LOG = LoggerFactory.getLogger(DataProviderWebsocketServer.class);
     private final ServiceLoader<PrimitiveDataService> serviceLoader;
     private final PrimitiveDataService dataService;
+    private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public DataProviderWebsocketServer() {
         this.serviceLoader = PluggableService.load(PrimitiveDataService.class);
@@ -47,22 +59,42 @@ public static void main(String[] args) throws Exception {
 
     @Provides
     AsyncServlet servlet() {
-        AtomicInteger nid = new AtomicInteger();
         return RoutingServlet.create()
-                .mapWebSocket("/", webSocket -> webSocket.readMessage()
-                        .whenResult(message -> {
-                            ByteBuf buf = message.getBuf();
-                            PrimitiveDataService.RemoteOperations operation = PrimitiveDataService.RemoteOperations.fromToken(buf.readByte());
-                            nid.set(buf.readInt());
-                            LOG.info("Received: " + operation + " for: " + nid);
-                        })
-                        .then(() -> {
+                .mapWebSocket("/", webSocket -> new Connection(webSocket, Eventloop.getCurrentEventloop()).readNext());
+    }
+
+    private final class Connection {
+        private final WebSocket webSocket;
+        private final Eventloop eventloop;
+        private final RemoteRequestHandler handler;
+        // Only used on the eventloop thread.
+        private Promise<Void> writes = Promise.complete();
+
+        Connection(WebSocket webSocket, Eventloop eventloop) {
+            this.webSocket = webSocket;
+            this.eventloop = eventloop;
+            this.handler = new RemoteRequestHandler(dataService, requestExecutor, this::send);
+        }
+
+        void readNext() {
+            webSocket.readMessage().whenComplete((message, e) -> {
+                if (e != null || message == null) {
+                    handler.closed();
+                    return;
+                }
+                try {
+                    handler.received(message.getBuf());
+                } catch (RuntimeException ex) {
+                    LOG.error("Unreadable request", ex);
+                }
+                readNext();
+            });
+        }
 
-                            byte[] data = dataService.getBytes(nid.get());
-                            ByteBuf buf = ByteBufPool.allocate(data.length);
-                            buf.writeInt(data.length);
-                            buf.write(data);
-                            return webSocket.writeMessage(Message.binary(buf));
-                        }));
+        private void send(ByteBuf message) {
+            eventloop.execute(() -> writes = writes
+                    .then($ -> webSocket.writeMessage(Message.binary(message)))
+                    .whenException(e -> LOG.warn("Response not written: " + e.getMessage())));
+        }
     }
 }
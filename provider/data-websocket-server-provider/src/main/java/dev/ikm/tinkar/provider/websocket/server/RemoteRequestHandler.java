@@ -0,0 +1,365 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.websocket.server;
+
+import dev.ikm.tinkar.common.id.PublicIds;
+import dev.ikm.tinkar.common.service.DataActivity;
+import dev.ikm.tinkar.common.service.PrimitiveDataSearchResult;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
+import dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations;
+import dev.ikm.tinkar.common.service.RemoteMessages;
+import dev.ikm.tinkar.common.util.uuid.UuidUtil;
+import dev.ikm.tinkar.entity.EntityRecordFactory;
+import io.activej.bytebuf.ByteBuf;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations.RESPONSE_CHUNK;
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations.RESPONSE_COMPLETE;
+import static dev.ikm.tinkar.common.service.PrimitiveDataService.RemoteOperations.STREAM_WINDOW;
+
+/**
+ * Answers the requests of one connection of the protocol described by {@link RemoteOperations}, from a
+ * {@link PrimitiveDataService}. The handler is independent of the transport: requests are handed to
+ * {@link #received(ByteBuf)} in the order they arrive, and responses are handed to the sender in the order they are
+ * ready. Each request is answered on the executor, so a slow request does not hold up the others.
+ */
+public final class RemoteRequestHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(RemoteRequestHandler.class);
+    private static final int NIDS_PER_CHUNK = 4096;
+    private static final int BYTES_PER_CHUNK = 256 * 1024;
+    private static final DataActivity[] ACTIVITIES = DataActivity.values();
+
+    private final PrimitiveDataService dataService;
+    private final Executor requestExecutor;
+    private final Consumer<ByteBuf> sender;
+    /**
+     * Credits of the open streams, by correlation id. A stream is canceled by removing its credits.
+     */
+    private final ConcurrentHashMap<Integer, Semaphore> streamCredits = new ConcurrentHashMap<>();
+
+    /**
+     * @param dataService     the data service that answers the requests
+     * @param requestExecutor runs each request
+     * @param sender          writes a response to the connection; called from the executor's threads
+     */
+    public RemoteRequestHandler(PrimitiveDataService dataService, Executor requestExecutor, Consumer<ByteBuf> sender) {
+        this.dataService = dataService;
+        this.requestExecutor = requestExecutor;
+        this.sender = sender;
+    }
+
+    private static boolean isStream(RemoteOperations operation) {
+        return switch (operation) {
+            case FOR_EACH_ENTITY, FOR_EACH_CONCEPT_NID, FOR_EACH_PATTERN_NID, FOR_EACH_SEMANTIC_NID,
+                 FOR_EACH_STAMP_NID, FOR_EACH_SEMANTIC_NID_OF_PATTERN, FOR_EACH_SEMANTIC_NID_FOR_COMPONENT,
+                 FOR_EACH_SEMANTIC_NID_FOR_COMPONENT_OF_PATTERN -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Handles a request message. Stream credit and cancel messages are handled at once; other requests are
+     * answered on the executor.
+     */
+    public void received(ByteBuf buf) {
+        RemoteOperations operation = RemoteOperations.fromToken(buf.readByte());
+        int correlationId = buf.readInt();
+        switch (operation) {
+            case STREAM_CREDIT -> {
+                Semaphore credits = streamCredits.get(correlationId);
+                if (credits != null) {
+                    credits.release(buf.readInt());
+                }
+            }
+            case STREAM_CANCEL -> cancel(correlationId);
+            default -> {
+                if (isStream(operation)) {
+                    streamCredits.put(correlationId, new Semaphore(STREAM_WINDOW));
+                }
+                requestExecutor.execute(() -> answer(operation, correlationId, buf));
+            }
+        }
+    }
+
+    /**
+     * Cancels the open streams, once the connection has closed.
+     */
+    public void closed() {
+        streamCredits.keySet().forEach(this::cancel);
+    }
+
+    private void cancel(int correlationId) {
+        Semaphore credits = streamCredits.remove(correlationId);
+        if (credits != null) {
+            // Wake the stream, which then sees that it was canceled.
+            credits.release(STREAM_WINDOW);
+        }
+    }
+
+    private void complete(int correlationId, RemoteMessages.Writer results) {
+        sender.accept(RemoteMessages.response(correlationId, RESPONSE_COMPLETE, results));
+    }
+
+    private void answer(RemoteOperations operation, int correlationId, ByteBuf buf) {
+        try {
+            switch (operation) {
+                case NID_FOR_UUIDS -> {
+                    int nid = dataService.nidForUuids(UuidUtil.toArray(RemoteMessages.readUuidParts(buf)));
+                    complete(correlationId, out -> out.writeInt(nid));
+                }
+                case NIDS_FOR_UUIDS_MULTI -> {
+                    int[] nids = new int[buf.readInt()];
+                    for (int i = 0; i < nids.length; i++) {
+                        nids[i] = dataService.nidForUuids(UuidUtil.toArray(RemoteMessages.readUuidParts(buf)));
+                    }
+                    complete(correlationId, out -> RemoteMessages.writeNids(out, nids));
+                }
+                case GET_BYTES -> {
+                    byte[] bytes = dataService.getBytes(buf.readInt());
+                    complete(correlationId, out -> RemoteMessages.writeBytes(out, bytes));
+                }
+                case GET_BYTES_MULTI -> {
+                    byte[][] values = new byte[buf.readInt()][];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = dataService.getBytes(buf.readInt());
+                    }
+                    complete(correlationId, out -> {
+                        out.writeInt(values.length);
+                        for (byte[] bytes : values) {
+                            RemoteMessages.writeBytes(out, bytes);
+                        }
+                    });
+                }
+                case MERGE -> {
+                    int nid = buf.readInt();
+                    int patternNid = buf.readInt();
+                    int referencedComponentNid = buf.readInt();
+                    byte[] value = RemoteMessages.readBytes(buf);
+                    DataActivity activity = ACTIVITIES[buf.readByte()];
+                    // The source object is the entity, as a local merge would pass, for the search index and
+                    // the change set writers.
+                    byte[] merged = dataService.merge(nid, patternNid, referencedComponentNid, value,
+                            value == null ? null : EntityRecordFactory.make(value), activity);
+                    complete(correlationId, out -> RemoteMessages.writeBytes(out, merged));
+                }
+                case HAS_UUID -> {
+                    boolean hasUuid = dataService.hasUuid(new UUID(buf.readLong(), buf.readLong()));
+                    complete(correlationId, out -> out.writeBoolean(hasUuid));
+                }
+                case HAS_PUBLIC_ID -> {
+                    boolean hasPublicId = dataService.hasPublicId(PublicIds.of(RemoteMessages.readUuidParts(buf)));
+                    complete(correlationId, out -> out.writeBoolean(hasPublicId));
+                }
+                case WRITE_SEQUENCE -> {
+                    long writeSequence = dataService.writeSequence();
+                    complete(correlationId, out -> out.writeLong(writeSequence));
+                }
+                case SEARCH -> {
+                    String query = RemoteMessages.readString(buf);
+                    PrimitiveDataSearchResult[] results = dataService.search(query, buf.readInt());
+                    complete(correlationId, out -> RemoteMessages.writeSearchResults(out, results));
+                }
+                case SEARCH_FILTERED -> {
+                    String query = RemoteMessages.readString(buf);
+                    int maxResultSize = buf.readInt();
+                    PrimitiveDataSearchResult[] results = dataService.search(query, maxResultSize,
+                            RemoteMessages.readSearchFilter(buf));
+                    complete(correlationId, out -> RemoteMessages.writeSearchResults(out, results));
+                }
+                case SUGGEST -> {
+                    String prefix = RemoteMessages.readString(buf);
+                    int maxResultSize = buf.readInt();
+                    PrimitiveDataSearchResult[] results = dataService.suggest(prefix, maxResultSize,
+                            RemoteMessages.readSearchFilter(buf));
+                    complete(correlationId, out -> RemoteMessages.writeSearchResults(out, results));
+                }
+                case HIGHLIGHT -> {
+                    String query = RemoteMessages.readString(buf);
+                    String highlighted = dataService.highlight(query, RemoteMessages.readString(buf));
+                    complete(correlationId, out -> RemoteMessages.writeString(out, highlighted));
+                }
+                case RECREATE_LUCENE_INDEX -> {
+                    dataService.recreateLuceneIndex().get();
+                    complete(correlationId, out -> {
+                    });
+                }
+                case FOR_EACH_ENTITY -> {
+                    EntityStream stream = new EntityStream(correlationId);
+                    dataService.forEach(stream::accept);
+                    stream.finish();
+                }
+                case FOR_EACH_CONCEPT_NID -> streamNids(correlationId, dataService::forEachConceptNid);
+                case FOR_EACH_PATTERN_NID -> streamNids(correlationId, dataService::forEachPatternNid);
+                case FOR_EACH_SEMANTIC_NID -> streamNids(correlationId, dataService::forEachSemanticNid);
+                case FOR_EACH_STAMP_NID -> streamNids(correlationId, dataService::forEachStampNid);
+                case FOR_EACH_SEMANTIC_NID_OF_PATTERN -> {
+                    int patternNid = buf.readInt();
+                    streamNids(correlationId, procedure -> dataService.forEachSemanticNidOfPattern(patternNid, procedure));
+                }
+                case FOR_EACH_SEMANTIC_NID_FOR_COMPONENT -> {
+                    int componentNid = buf.readInt();
+                    streamNids(correlationId, procedure -> dataService.forEachSemanticNidForComponent(componentNid, procedure));
+                }
+                case FOR_EACH_SEMANTIC_NID_FOR_COMPONENT_OF_PATTERN -> {
+                    int componentNid = buf.readInt();
+                    int patternNid = buf.readInt();
+                    streamNids(correlationId, procedure ->
+                            dataService.forEachSemanticNidForComponentOfPattern(componentNid, patternNid, procedure));
+                }
+                default -> throw new UnsupportedOperationException("Can't handle operation: " + operation);
+            }
+        } catch (StreamCanceledException e) {
+            LOG.debug("Stream {} canceled", correlationId);
+        } catch (Throwable e) {
+            LOG.error("Failed " + operation + " request " + correlationId, e);
+            sender.accept(RemoteMessages.error(correlationId, e));
+        } finally {
+            streamCredits.remove(correlationId);
+        }
+    }
+
+    private void streamNids(int correlationId, Consumer<IntProcedure> forEach) {
+        NidStream stream = new NidStream(correlationId);
+        forEach.accept(stream);
+        stream.finish();
+    }
+
+    /**
+     * Waits for credit to send another chunk of the stream.
+     *
+     * @throws StreamCanceledException if the stream was canceled, or the connection closed
+     */
+    private void awaitCredit(int correlationId) {
+        Semaphore credits = streamCredits.get(correlationId);
+        if (credits == null) {
+            throw new StreamCanceledException();
+        }
+        try {
+            credits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StreamCanceledException();
+        }
+        if (streamCredits.get(correlationId) != credits) {
+            throw new StreamCanceledException();
+        }
+    }
+
+    /**
+     * Sends nids in chunks of up to {@link #NIDS_PER_CHUNK}.
+     */
+    private final class NidStream implements IntProcedure {
+        private final int correlationId;
+        private final int[] nids = new int[NIDS_PER_CHUNK];
+        private int count = 0;
+
+        NidStream(int correlationId) {
+            this.correlationId = correlationId;
+        }
+
+        @Override
+        public synchronized void value(int nid) {
+            nids[count++] = nid;
+            if (count == nids.length) {
+                sendChunk();
+            }
+        }
+
+        private void sendChunk() {
+            awaitCredit(correlationId);
+            int chunkCount = count;
+            int[] chunk = nids.clone();
+            sender.accept(RemoteMessages.response(correlationId, RESPONSE_CHUNK, out -> {
+                out.writeInt(chunkCount);
+                for (int i = 0; i < chunkCount; i++) {
+                    out.writeInt(chunk[i]);
+                }
+            }));
+            count = 0;
+        }
+
+        synchronized void finish() {
+            if (count > 0) {
+                sendChunk();
+            }
+            complete(correlationId, out -> {
+            });
+        }
+    }
+
+    /**
+     * Sends entities in chunks of about {@link #BYTES_PER_CHUNK}.
+     */
+    private final class EntityStream {
+        private final int correlationId;
+        private ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream(BYTES_PER_CHUNK + 4096);
+        private DataOutputStream chunk = new DataOutputStream(chunkBytes);
+        private int count = 0;
+
+        EntityStream(int correlationId) {
+            this.correlationId = correlationId;
+        }
+
+        synchronized void accept(byte[] bytes, int nid) {
+            try {
+                chunk.writeInt(nid);
+                RemoteMessages.writeBytes(chunk, bytes);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            count++;
+            if (chunkBytes.size() >= BYTES_PER_CHUNK) {
+                sendChunk();
+            }
+        }
+
+        private void sendChunk() {
+            awaitCredit(correlationId);
+            int chunkCount = count;
+            byte[] entries = chunkBytes.toByteArray();
+            sender.accept(RemoteMessages.response(correlationId, RESPONSE_CHUNK, out -> {
+                out.writeInt(chunkCount);
+                out.write(entries);
+            }));
+            chunkBytes = new ByteArrayOutputStream(BYTES_PER_CHUNK + 4096);
+            chunk = new DataOutputStream(chunkBytes);
+            count = 0;
+        }
+
+        synchronized void finish() {
+            if (count > 0) {
+                sendChunk();
+            }
+            complete(correlationId, out -> {
+            });
+        }
+    }
+
+    private static final class StreamCanceledException extends CancellationException {
+    }
+}
@@ -26,15 +26,18 @@
 module dev.ikm.tinkar.provider.websocket.server {
     requires org.slf4j;
     requires dev.ikm.jpms.activej.bytebuf;
+    requires io.activej.eventloop;
     requires io.activej.http;
     requires io.activej.inject;
     requires io.activej.launchers.http;
     requires io.activej.promise;
+    requires org.eclipse.collections.api;
     requires java.base;
     requires dev.ikm.tinkar.common;
     requires dev.ikm.tinkar.component;
     requires dev.ikm.tinkar.entity;
     uses PrimitiveDataService;
+    exports dev.ikm.tinkar.provider.websocket.server;
     opens dev.ikm.tinkar.provider.websocket.server
             to io.activej.inject;
 }
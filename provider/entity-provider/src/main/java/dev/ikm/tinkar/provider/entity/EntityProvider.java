@@ -17,22 +17,28 @@
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import dev.ikm.tinkar.common.alert.AlertObject;
 import dev.ikm.tinkar.common.alert.AlertStreams;
 import dev.ikm.tinkar.common.id.PublicId;
+import dev.ikm.tinkar.common.metrics.MetricsRegistry;
+import dev.ikm.tinkar.common.metrics.MetricsSource;
+import dev.ikm.tinkar.common.service.CacheStatistics;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.DataActivity;
 import dev.ikm.tinkar.common.service.DefaultDescriptionForNidService;
 import dev.ikm.tinkar.common.service.PluggableService;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.PrimitiveDataRepair;
+import dev.ikm.tinkar.common.service.PrimitiveDataService;
 import dev.ikm.tinkar.common.service.ProviderController;
 import dev.ikm.tinkar.common.service.PublicIdService;
 import dev.ikm.tinkar.common.service.ServiceExclusionGroup;
+import dev.ikm.tinkar.common.service.ServiceKeys;
 import dev.ikm.tinkar.common.service.ServiceLifecyclePhase;
+import dev.ikm.tinkar.common.service.ServiceProperties;
 import dev.ikm.tinkar.common.service.TinkExecutor;
-import dev.ikm.tinkar.common.util.broadcast.Broadcaster;
-import dev.ikm.tinkar.common.util.broadcast.SimpleBroadcaster;
+import dev.ikm.tinkar.common.util.broadcast.CoalescingNidBroadcaster;
 import dev.ikm.tinkar.common.util.broadcast.Subscriber;
 import dev.ikm.tinkar.common.util.uuid.UuidUtil;
 import dev.ikm.tinkar.component.Chronology;
@@ -49,15 +55,22 @@
 import org.eclipse.collections.api.list.primitive.ImmutableLongList;
 import org.eclipse.collections.api.set.MutableSet;
 import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
 
 import static dev.ikm.tinkar.terms.TinkarTerm.DESCRIPTION_PATTERN;
 
@@ -65,14 +78,33 @@
 public class EntityProvider implements EntityService, PublicIdService, DefaultDescriptionForNidService, EntityDataRepair {
 
     private static final Logger LOG = LoggerFactory.getLogger(EntityProvider.class);
-    private static final Cache<Integer, String> STRING_CACHE = Caffeine.newBuilder().maximumSize(1024).build();
-    private static final Cache<Integer, Entity> ENTITY_CACHE = Caffeine.newBuilder().maximumSize(10240).build();
-    private static final Cache<Integer, StampEntity> STAMP_CACHE = Caffeine.newBuilder().maximumSize(1024).build();
+    public static final int DEFAULT_ENTITY_CACHE_MAX_ENTRIES = 10240;
+    public static final int DEFAULT_STRING_CACHE_MAX_ENTRIES = 1024;
+    // Sized from ServiceProperties when an EntityProvider is constructed.
+    private static volatile Cache<Integer, String> STRING_CACHE = Caffeine.newBuilder()
+            .maximumSize(DEFAULT_STRING_CACHE_MAX_ENTRIES).recordStats().build();
+    private static volatile Cache<Integer, CachedEntity> ENTITY_CACHE = Caffeine.newBuilder()
+            .maximumSize(DEFAULT_ENTITY_CACHE_MAX_ENTRIES).recordStats().build();
+    private static volatile long ENTITY_CACHE_CAPACITY = DEFAULT_ENTITY_CACHE_MAX_ENTRIES;
+    private static volatile long STRING_CACHE_CAPACITY = DEFAULT_STRING_CACHE_MAX_ENTRIES;
+    // Committed stamps are kept, without eviction, in StampTable.current(), shared with the stamp calculators.
+
+    /**
+     * An entity in the entity cache, with the size of its serialized form for caches bounded by weight.
+     */
+    record CachedEntity(Entity entity, int byteSize) {
+        static CachedEntity make(byte[] bytes) {
+            return new CachedEntity(EntityRecordFactory.make(bytes), bytes.length);
+        }
+    }
 
 
     //Multi<Entity<? extends EntityVersion>> chronologyBroadcaster = BroadcastProcessor.create().toHotStream();
     //  <T extends Entity<? extends EntityVersion>>
-    final Broadcaster<Integer> processor;
+    /**
+     * Changed nids are coalesced over {@link ServiceKeys#INVALIDATION_BATCH_MILLIS}, and flushed on commit.
+     */
+    final CoalescingNidBroadcaster processor;
 
     private boolean loadPhase = false;
 
@@ -84,7 +116,55 @@ public class EntityProvider implements EntityService, PublicIdService, DefaultDe
      */
     public EntityProvider() {
         LOG.info("Constructing EntityProvider");
-        this.processor = new SimpleBroadcaster<>();
+        Number batchMillis = ServiceProperties.get(ServiceKeys.INVALIDATION_BATCH_MILLIS,
+                CoalescingNidBroadcaster.DEFAULT_TIME_SLICE.toMillis());
+        this.processor = new CoalescingNidBroadcaster(Duration.ofMillis(batchMillis.longValue()),
+                CoalescingNidBroadcaster.DEFAULT_MAX_BATCH_SIZE);
+        configureCaches();
+    }
+
+    /**
+     * Sizes the entity and string caches from {@link ServiceKeys#ENTITY_CACHE_MAX_BYTES},
+     * {@link ServiceKeys#ENTITY_CACHE_MAX_ENTRIES}, and {@link ServiceKeys#STRING_CACHE_MAX_ENTRIES}.
+     * The caches are replaced, so their contents and statistics start over.
+     */
+    static void configureCaches() {
+        Number maxEntityBytes = ServiceProperties.get(ServiceKeys.ENTITY_CACHE_MAX_BYTES, null);
+        if (maxEntityBytes != null) {
+            ENTITY_CACHE = Caffeine.newBuilder().maximumWeight(maxEntityBytes.longValue())
+                    .<Integer, CachedEntity>weigher((nid, cachedEntity) -> cachedEntity.byteSize())
+                    .recordStats().build();
+            ENTITY_CACHE_CAPACITY = maxEntityBytes.longValue();
+            LOG.info("Entity cache bounded to {} serialized bytes", maxEntityBytes);
+        } else {
+            Number maxEntities = ServiceProperties.get(ServiceKeys.ENTITY_CACHE_MAX_ENTRIES, DEFAULT_ENTITY_CACHE_MAX_ENTRIES);
+            ENTITY_CACHE = Caffeine.newBuilder().maximumSize(maxEntities.longValue()).recordStats().build();
+            ENTITY_CACHE_CAPACITY = maxEntities.longValue();
+            LOG.info("Entity cache bounded to {} entities", maxEntities);
+        }
+        Number maxStrings = ServiceProperties.get(ServiceKeys.STRING_CACHE_MAX_ENTRIES, DEFAULT_STRING_CACHE_MAX_ENTRIES);
+        STRING_CACHE = Caffeine.newBuilder().maximumSize(maxStrings.longValue()).recordStats().build();
+        STRING_CACHE_CAPACITY = maxStrings.longValue();
+        StampTable.reset();
+    }
+
+    static Cache<Integer, CachedEntity> entityCache() {
+        return ENTITY_CACHE;
+    }
+
+    /**
+     * @return the statistics of the entity, stamp, and string caches
+     */
+    public static List<CacheStatistics> cacheStatistics() {
+        return List.of(statistics("Entity cache", ENTITY_CACHE, ENTITY_CACHE_CAPACITY),
+                StampTable.current().statistics("Stamp table"),
+                statistics("String cache", STRING_CACHE, STRING_CACHE_CAPACITY));
+    }
+
+    private static CacheStatistics statistics(String name, Cache<Integer, ?> cache, long capacity) {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(name, cache.estimatedSize(), capacity, stats.hitCount(), stats.missCount(),
+                stats.evictionCount());
     }
 
     @Override
@@ -224,13 +304,14 @@ public int nidForPublicId(PublicId publicId) {
      */
     @Deprecated(since = "Current", forRemoval = true)
     public <T extends Entity<V>, V extends EntityVersion> T getEntityFast(int nid) {
-        return (T) ENTITY_CACHE.get(nid, entityNid -> {
+        CachedEntity cachedEntity = ENTITY_CACHE.get(nid, entityNid -> {
             byte[] bytes = PrimitiveData.get().getBytes(nid);
             if (bytes == null) {
                 return null;
             }
-            return EntityRecordFactory.make(bytes);
+            return CachedEntity.make(bytes);
         });
+        return cachedEntity == null ? null : (T) cachedEntity.entity();
     }
 
     @Override
@@ -240,12 +321,23 @@ public int nidForUuids(ImmutableList<UUID> uuidList) {
 
     @Override
     public StampEntity getStampFast(int nid) {
-        return STAMP_CACHE.get(nid, stampNid -> {
-                    byte[] bytes = PrimitiveData.get().getBytes(nid);
+        return StampTable.current().get(nid, stampNid -> {
+                    // Uncommitted stamps are not kept in the stamp table; they are cached with the other entities,
+                    // which a write of the committed stamp replaces.
+                    CachedEntity cachedEntity = ENTITY_CACHE.getIfPresent(stampNid);
+                    if (cachedEntity != null) {
+                        return (StampEntity) cachedEntity.entity();
+                    }
+                    byte[] bytes = PrimitiveData.get().getBytes(stampNid);
                     if (bytes == null) {
                         return null;
                     }
-                    return EntityRecordFactory.make(bytes);
+                    cachedEntity = CachedEntity.make(bytes);
+                    StampEntity stamp = (StampEntity) cachedEntity.entity();
+                    if (stamp.time() == Long.MAX_VALUE) {
+                        ENTITY_CACHE.put(stampNid, cachedEntity);
+                    }
+                    return stamp;
                 }
         );
     }
@@ -299,7 +391,7 @@ private void putEntity(Entity entity, DataActivity activity, boolean dispatch, b
         };
 
         if (addToCache) {
-            ENTITY_CACHE.put(entity.nid(),  EntityRecordFactory.make(mergedEntityBytes));
+            ENTITY_CACHE.put(entity.nid(), CachedEntity.make(mergedEntityBytes));
         }
         if (dispatch) {
             processor.dispatch(entity.nid());
@@ -309,6 +401,93 @@ private void putEntity(Entity entity, DataActivity activity, boolean dispatch, b
         }
     }
 
+    @Override
+    public void putEntities(Collection<? extends Entity> entities, DataActivity activity) {
+        putEntities(entities, activity, true);
+    }
+
+    @Override
+    public void putEntitiesNoCache(Collection<? extends Entity> entities, DataActivity activity) {
+        putEntities(entities, activity, false);
+    }
+
+    /**
+     * Puts a batch as one unit of work: the caches are invalidated once per affected nid, the merges are
+     * handed to the data store together in nid order, and subscribers receive the changed nids as one batch.
+     * Entities of the batch that share a nid are merged into one write, whose source object is made from the merged
+     * bytes, so the change sets receive every version of the batch and the store and the cache end as they would
+     * after putting the entities one at a time.
+     */
+    private void putEntities(Collection<? extends Entity> entities, DataActivity activity, boolean addToCache) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        Entity[] sorted = entities.toArray(new Entity[0]);
+        // Nid order keeps merges into the same spine together; the sort is stable, so duplicates keep batch order.
+        Arrays.sort(sorted, Comparator.comparingInt(Entity::nid));
+        int[] nids = new int[sorted.length];
+        int[] patternNids = new int[sorted.length];
+        int[] referencedComponentNids = new int[sorted.length];
+        byte[][] values = new byte[sorted.length][];
+        RoaringBitmap invalidNids = new RoaringBitmap();
+        RoaringBitmap invalidStringNids = new RoaringBitmap();
+        RoaringBitmap changedNids = new RoaringBitmap();
+        int count = 0;
+        for (Entity entity : sorted) {
+            invalidateCaches(entity, invalidNids::add, invalidStringNids::checkedAdd);
+            if (entity instanceof StampEntity stampEntity
+                    && stampEntity.lastVersion().stateNid() == State.CANCELED.nid()) {
+                PrimitiveData.get().addCanceledStampNid(stampEntity.nid());
+            }
+            if (count > 0 && nids[count - 1] == entity.nid()) {
+                values[count - 1] = PrimitiveDataService.merge(values[count - 1], entity.getBytes());
+                sorted[count - 1] = EntityRecordFactory.make(values[count - 1]);
+                continue;
+            }
+            int i = count++;
+            sorted[i] = entity;
+            nids[i] = entity.nid();
+            patternNids[i] = Integer.MAX_VALUE;
+            referencedComponentNids[i] = Integer.MAX_VALUE;
+            changedNids.add(entity.nid());
+            if (entity instanceof SemanticEntity semanticEntity) {
+                patternNids[i] = semanticEntity.patternNid();
+                referencedComponentNids[i] = semanticEntity.referencedComponentNid();
+                changedNids.add(semanticEntity.referencedComponentNid());
+            }
+            values[i] = entity.getBytes();
+        }
+        invalidNids.forEach((int nid) -> invalidateCaches(nid));
+        invalidStringNids.forEach((int nid) -> STRING_CACHE.invalidate(nid));
+        if (count < sorted.length) {
+            sorted = Arrays.copyOf(sorted, count);
+            nids = Arrays.copyOf(nids, count);
+            patternNids = Arrays.copyOf(patternNids, count);
+            referencedComponentNids = Arrays.copyOf(referencedComponentNids, count);
+            values = Arrays.copyOf(values, count);
+        }
+        for (Entity entity : sorted) {
+            switch (entity) {
+                case ConceptEntity conceptEntity -> STRING_CACHE.put(conceptEntity.nid(), conceptEntity.asUuidList().toString());
+                case PatternEntity patternEntity -> STRING_CACHE.put(patternEntity.nid(), patternEntity.asUuidList().toString());
+                case SemanticEntity semanticEntity -> STRING_CACHE.put(semanticEntity.nid(), semanticEntity.asUuidList().toString());
+                case StampEntity stampEntity -> {
+                }
+                default -> throw new IllegalStateException("Unexpected value: " + entity);
+            }
+        }
+
+        byte[][] mergedEntityBytes = PrimitiveData.get().mergeAll(nids, patternNids, referencedComponentNids, values,
+                sorted, activity);
+
+        if (addToCache) {
+            for (int i = 0; i < count; i++) {
+                ENTITY_CACHE.put(nids[i], CachedEntity.make(mergedEntityBytes[i]));
+            }
+        }
+        processor.dispatchAll(changedNids);
+    }
+
     @Override
     public void putStamp(StampEntity stampEntity) {
         putEntity(stampEntity);
@@ -316,31 +495,46 @@ public void putStamp(StampEntity stampEntity) {
 
     @Override
     public void invalidateCaches(Entity entity) {
-        invalidateCaches(entity.nid());
+        invalidateCaches(entity, nid -> invalidateCaches(nid), nid -> {
+            STRING_CACHE.invalidate(nid);
+            return true;
+        });
+    }
+
+    /**
+     * Finds the cache entries a write of the entity invalidates.
+     *
+     * @param invalidateNid    invalidates every cache entry of a nid
+     * @param invalidateString invalidates the string cache entry of a nid; returns false if the nid was already
+     *                         invalidated, along with its parents, which ends the walk up the parents
+     */
+    private void invalidateCaches(Entity entity, IntConsumer invalidateNid, IntPredicate invalidateString) {
+        invalidateNid.accept(entity.nid());
         if (entity instanceof SemanticEntity semanticEntity) {
-            invalidateCaches(semanticEntity.referencedComponentNid(), semanticEntity.patternNid());
+            invalidateNid.accept(semanticEntity.referencedComponentNid());
+            invalidateNid.accept(semanticEntity.patternNid());
             Entity parent = getEntityFast(semanticEntity.referencedComponentNid());
             while (parent != null) {
                 switch (parent) {
                     case ConceptEntity conceptEntity -> {
                         parent = null;
-                        STRING_CACHE.invalidate(conceptEntity.nid());
+                        invalidateString.test(conceptEntity.nid());
                     }
                     case PatternEntity patternEntity -> {
                         parent = null;
-                        STRING_CACHE.invalidate(patternEntity.nid());
+                        invalidateString.test(patternEntity.nid());
                     }
                     case SemanticEntity semantic -> {
                         // If semantic is a dialect, might invalidate preferred description,
                         // so need to go up to concept or pattern to invalidate strings in cache.
-                        parent = getEntityFast(semantic.referencedComponentNid());
-                        STRING_CACHE.invalidate(semantic.nid());
+                        parent = invalidateString.test(semantic.nid())
+                                ? getEntityFast(semantic.referencedComponentNid()) : null;
                     }
                     case StampEntity stampEntity -> {
                         // A semantic can reference a STAMP (e.g. a commit-provenance comment); terminate the
                         // walk and invalidate the stamp's string cache, like the concept/pattern cases (ike-issues#757).
                         parent = null;
-                        STRING_CACHE.invalidate(stampEntity.nid());
+                        invalidateString.test(stampEntity.nid());
                     }
                     default -> throw new IllegalStateException("Unexpected value: " + parent);
                 }
@@ -353,7 +547,7 @@ public void invalidateCaches(int... nids) {
         for (int nid : nids) {
             STRING_CACHE.invalidate(nid);
             ENTITY_CACHE.invalidate(nid);
-            STAMP_CACHE.invalidate(nid);
+            StampTable.current().invalidate(nid);
         }
     }
 
@@ -398,6 +592,12 @@ public void notifyRefreshRequired(Transaction transaction) {
             EntityHandle.get(nid).ifPresent(entity -> invalidateCaches(entity));
             this.processor.dispatch(nid);
         });
+        this.processor.flush();
+    }
+
+    @Override
+    public void flushInvalidations() {
+        this.processor.flush();
     }
 
     @Override
@@ -426,14 +626,28 @@ public <T extends Chronology<V>, V extends Version> Optional<T> getChronology(Pu
         return Optional.of((T) entity);
     }
 
-    public static class CacheProvider implements CachingService {
+    public static class CacheProvider implements CachingService, MetricsSource {
 
         @Override
         public void reset() {
             LOG.info("Resetting Entity Caches");
             STRING_CACHE.invalidateAll();
             ENTITY_CACHE.invalidateAll();
-            STAMP_CACHE.invalidateAll();
+            StampTable.reset();
+        }
+
+        @Override
+        public List<CacheStatistics> statistics() {
+            return cacheStatistics();
+        }
+
+        @Override
+        public void registerMetrics(MetricsRegistry registry) {
+            registry.cache("entity.cache", () ->
+                    EntityProvider.statistics("Entity cache", ENTITY_CACHE, ENTITY_CACHE_CAPACITY));
+            registry.cache("entity.stampTable", () -> StampTable.current().statistics("Stamp table"));
+            registry.cache("entity.stringCache", () ->
+                    EntityProvider.statistics("String cache", STRING_CACHE, STRING_CACHE_CAPACITY));
         }
     }
 
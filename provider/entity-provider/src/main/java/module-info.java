@@ -14,6 +14,7 @@
  * limitations under the License.
  */
 
+import dev.ikm.tinkar.common.metrics.MetricsSource;
 import dev.ikm.tinkar.common.service.CachingService;
 import dev.ikm.tinkar.common.service.DefaultDescriptionForNidService;
 import dev.ikm.tinkar.common.service.PrimitiveDataService;
@@ -34,9 +35,11 @@
     requires dev.ikm.tinkar.common;
     requires dev.ikm.tinkar.provider.search;
     requires org.slf4j;
+    requires roaringbitmap;
     requires dev.ikm.tinkar.terms;
 
     provides CachingService with EntityProvider.CacheProvider;
+    provides MetricsSource with EntityProvider.CacheProvider;
     provides ServiceLifecycle with EntityProvider.Controller, StampProvider.Controller;
 
 	uses PrimitiveDataService;
@@ -15,5 +15,79 @@
  */
 package dev.ikm.tinkar.provider.entity;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import dev.ikm.tinkar.common.service.CacheStatistics;
+import dev.ikm.tinkar.common.service.ServiceKeys;
+import dev.ikm.tinkar.common.service.ServiceProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class EntityProviderTest {
+
+    @AfterEach
+    void resetProperties() {
+        new ServiceProperties.CacheProvider().reset();
+        EntityProvider.configureCaches();
+    }
+
+    private static CacheStatistics statistics(String name) {
+        List<CacheStatistics> statistics = EntityProvider.cacheStatistics();
+        return statistics.stream().filter(cacheStatistics -> cacheStatistics.name().equals(name)).findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void cachesDefaultToEntryBounds() {
+        EntityProvider.configureCaches();
+        assertEquals(EntityProvider.DEFAULT_ENTITY_CACHE_MAX_ENTRIES, statistics("Entity cache").capacity());
+        assertEquals(EntityProvider.DEFAULT_STRING_CACHE_MAX_ENTRIES, statistics("String cache").capacity());
+        assertFalse(EntityProvider.entityCache().policy().eviction().orElseThrow().isWeighted());
+    }
+
+    @Test
+    void entryBoundsComeFromServiceProperties() {
+        ServiceProperties.set(ServiceKeys.ENTITY_CACHE_MAX_ENTRIES, 5);
+        ServiceProperties.set(ServiceKeys.STRING_CACHE_MAX_ENTRIES, 7);
+        EntityProvider.configureCaches();
+        assertEquals(5, statistics("Entity cache").capacity());
+        assertEquals(7, statistics("String cache").capacity());
+
+        Cache<Integer, EntityProvider.CachedEntity> cache = EntityProvider.entityCache();
+        for (int nid = 1; nid <= 50; nid++) {
+            cache.put(-nid, new EntityProvider.CachedEntity(null, 1_000));
+        }
+        cache.cleanUp();
+        assertTrue(cache.estimatedSize() <= 5, "size " + cache.estimatedSize());
+    }
+
+    @Test
+    void byteBoundWeighsEntitiesBySerializedSize() {
+        ServiceProperties.set(ServiceKeys.ENTITY_CACHE_MAX_ENTRIES, 5);
+        ServiceProperties.set(ServiceKeys.ENTITY_CACHE_MAX_BYTES, 10_000L);
+        EntityProvider.configureCaches();
+        // The byte bound takes precedence over the entry bound.
+        assertEquals(10_000L, statistics("Entity cache").capacity());
+
+        Cache<Integer, EntityProvider.CachedEntity> cache = EntityProvider.entityCache();
+        assertTrue(cache.policy().eviction().orElseThrow().isWeighted());
+        for (int nid = 1; nid <= 50; nid++) {
+            cache.put(-nid, new EntityProvider.CachedEntity(null, 100));
+        }
+        cache.cleanUp();
+        // Fifty small entities fit within the bytes, though not within five entries.
+        assertEquals(50, cache.estimatedSize());
+        assertEquals(5_000L, cache.policy().eviction().orElseThrow().weightedSize().orElseThrow());
+
+        for (int nid = 51; nid <= 100; nid++) {
+            cache.put(-nid, new EntityProvider.CachedEntity(null, 1_000));
+        }
+        cache.cleanUp();
+        assertTrue(cache.policy().eviction().orElseThrow().weightedSize().orElseThrow() <= 10_000L);
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.search;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+
+import java.io.IOException;
+
+/**
+ * Replaces each token with its leading prefixes ("edge n-grams") from
+ * {@code minLength} to {@code maxLength} characters, all at the token's
+ * position. {@code "aspirin"} with lengths 1–4 becomes {@code a}, {@code as},
+ * {@code asp}, {@code aspi}. A type-ahead prefix then matches with a single
+ * term lookup instead of a prefix or wildcard expansion over the term
+ * dictionary. Tokens shorter than {@code minLength} are kept whole.
+ *
+ * <p>The equivalent filter in {@code lucene-analysis-common} is not used so
+ * that the search provider keeps depending on Lucene core modules only.
+ */
+final class EdgePrefixFilter extends TokenFilter {
+    private final int minLength;
+    private final int maxLength;
+    private final CharTermAttribute termAttribute = addAttribute(CharTermAttribute.class);
+    private final PositionIncrementAttribute positionIncrementAttribute = addAttribute(PositionIncrementAttribute.class);
+    private char[] token = new char[16];
+    private int tokenLength;
+    private int nextPrefixLength;
+    private int lastPrefixLength;
+    private State tokenState;
+
+    EdgePrefixFilter(TokenStream input, int minLength, int maxLength) {
+        super(input);
+        if (minLength < 1 || maxLength < minLength) {
+            throw new IllegalArgumentException("Invalid prefix lengths " + minLength + ".." + maxLength);
+        }
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (tokenState == null || nextPrefixLength > lastPrefixLength) {
+            if (!input.incrementToken()) {
+                return false;
+            }
+            tokenLength = termAttribute.length();
+            if (token.length < tokenLength) {
+                token = new char[tokenLength];
+            }
+            System.arraycopy(termAttribute.buffer(), 0, token, 0, tokenLength);
+            tokenState = captureState();
+            nextPrefixLength = Math.min(minLength, tokenLength);
+            lastPrefixLength = Math.min(maxLength, tokenLength);
+        } else {
+            restoreState(tokenState);
+            positionIncrementAttribute.setPositionIncrement(0);
+        }
+        termAttribute.copyBuffer(token, 0, nextPrefixLength);
+        nextPrefixLength++;
+        return true;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        tokenState = null;
+    }
+}
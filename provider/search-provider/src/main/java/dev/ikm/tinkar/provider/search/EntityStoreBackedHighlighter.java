@@ -110,7 +110,7 @@ protected List<CharSequence[]> loadFieldValues(String[] fields,
      *                     stored {@code fieldOrdinal} field)
      * @return the rehydrated text, never {@code null}
      */
-    private static String rehydrate(int nid, int fieldOrdinal) {
+    static String rehydrate(int nid, int fieldOrdinal) {
         Entity<?> entity = EntityService.get().getEntityFast(nid);
         if (!(entity instanceof SemanticEntity<?> semantic)) {
             LOG.debug("rehydrate: nid {} is not a SemanticEntity (was {})",
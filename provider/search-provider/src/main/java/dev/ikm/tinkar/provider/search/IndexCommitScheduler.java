@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.search;
+
+import dev.ikm.tinkar.common.service.TinkExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Commits the Lucene index once writes have been uncommitted for a configured
+ * interval, or once a configured number of documents is uncommitted, so a
+ * crash loses a bounded amount of index work without a commit per write.
+ *
+ * <p>Commits are durability only: searches see uncommitted documents through
+ * the NRT searcher that {@link Searcher} refreshes. Each commit runs on the
+ * scheduled or I/O executor, never on the writing thread.
+ */
+final class IndexCommitScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexCommitScheduler.class);
+
+    /** Default longest time writes stay uncommitted. */
+    static final Duration DEFAULT_COMMIT_INTERVAL = Duration.ofSeconds(60);
+
+    /** Default number of uncommitted documents that triggers a commit. */
+    static final long DEFAULT_COMMIT_MAX_DOCS = 100_000;
+
+    private final Indexer indexer;
+    private final long intervalNanos;
+    private final long maxDocs;
+    private final ScheduledFuture<?> intervalCheck;
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final AtomicBoolean commitQueued = new AtomicBoolean();
+    private final AtomicLong uncommittedDocs = new AtomicLong();
+    /** {@link System#nanoTime()} of the first write since the last commit; 0 when none. */
+    private final AtomicLong firstUncommittedNanos = new AtomicLong();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder commitNanos = new LongAdder();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+
+    /**
+     * @param indexer  the indexer to commit
+     * @param interval longest time writes stay uncommitted; zero to commit only on request
+     * @param maxDocs  uncommitted documents that trigger a commit; zero for no limit
+     */
+    IndexCommitScheduler(Indexer indexer, Duration interval, long maxDocs) {
+        this.indexer = indexer;
+        this.intervalNanos = interval.toNanos();
+        this.maxDocs = maxDocs;
+        if (intervalNanos > 0) {
+            // Check at a quarter of the interval, so writes stay uncommitted at most 1.25 intervals.
+            long checkNanos = Math.max(intervalNanos / 4, TimeUnit.MILLISECONDS.toNanos(10));
+            this.intervalCheck = TinkExecutor.scheduled().scheduleWithFixedDelay(this::commitIfDue,
+                    checkNanos, checkNanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.intervalCheck = null;
+        }
+    }
+
+    /**
+     * Records documents added to the writer, and queues a commit if the
+     * document limit is reached.
+     *
+     * @param count the number of documents added
+     */
+    void docsAdded(int count) {
+        if (count == 0) {
+            return;
+        }
+        firstUncommittedNanos.compareAndSet(0, System.nanoTime());
+        long pending = uncommittedDocs.addAndGet(count);
+        if (maxDocs > 0 && pending >= maxDocs && commitQueued.compareAndSet(false, true)) {
+            TinkExecutor.ioThreadPool().execute(this::commitQuietly);
+        }
+    }
+
+    /**
+     * Commits the index now, whether or not a commit is due.
+     *
+     * @throws IOException if the commit fails
+     */
+    void commit() throws IOException {
+        commitLock.lock();
+        try {
+            commitQueued.set(false);
+            long committing = uncommittedDocs.get();
+            firstUncommittedNanos.set(0);
+            long start = System.nanoTime();
+            indexer.commit();
+            long elapsed = System.nanoTime() - start;
+            uncommittedDocs.addAndGet(-committing);
+            commits.increment();
+            commitNanos.add(elapsed);
+            maxCommitNanos.accumulateAndGet(elapsed, Math::max);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void commitIfDue() {
+        long first = firstUncommittedNanos.get();
+        if (first != 0 && System.nanoTime() - first >= intervalNanos) {
+            commitQuietly();
+        }
+    }
+
+    private void commitQuietly() {
+        if (Indexer.indexWriter() == null) {
+            return;
+        }
+        try {
+            commit();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Scheduled commit of the Lucene index failed", e);
+        }
+    }
+
+    long uncommittedDocs() {
+        return uncommittedDocs.get();
+    }
+
+    long commits() {
+        return commits.sum();
+    }
+
+    Duration meanCommit() {
+        long count = commits.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(commitNanos.sum() / count);
+    }
+
+    Duration maxCommit() {
+        return Duration.ofNanos(maxCommitNanos.get());
+    }
+
+    /**
+     * Stops scheduled commits. Does not commit; the owner commits before
+     * closing the writer.
+     */
+    void stop() {
+        if (intervalCheck != null) {
+            intervalCheck.cancel(false);
+        }
+    }
+}
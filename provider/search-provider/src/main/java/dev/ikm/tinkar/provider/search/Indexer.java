@@ -15,9 +15,14 @@
  */
 package dev.ikm.tinkar.provider.search;
 
+import dev.ikm.tinkar.common.jfr.IndexEvent;
+import dev.ikm.tinkar.common.sets.ConcurrentNidSet;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
+import dev.ikm.tinkar.entity.EntityHandle;
 import dev.ikm.tinkar.entity.SemanticEntity;
 import dev.ikm.tinkar.entity.SemanticEntityVersion;
+import dev.ikm.tinkar.entity.StampEntity;
+import dev.ikm.tinkar.terms.TinkarTerm;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
@@ -25,17 +30,26 @@
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 public class Indexer {
@@ -45,6 +59,8 @@ public class Indexer {
     private static Directory indexDirectory;
     private static Analyzer analyzer;
     private static IndexWriter indexWriter;
+    /** Nids indexed live while a rebuild runs; {@code null} when no rebuild is running. */
+    private static volatile ConcurrentNidSet rebuildJournal;
     private final Path indexPath;
 
     public Indexer() throws IOException {
@@ -103,14 +119,45 @@ public static Indexer wrapActiveState() {
     private static final double RAM_BUFFER_SIZE_MB =
             Double.parseDouble(System.getProperty("lucene.index.ram.buffer.mb", "256"));
 
+    /**
+     * Nids per delete query in {@link #indexAll(List)}; bounds the size of each
+     * buffered set query.
+     */
+    static final int DELETE_BATCH_SIZE = 4096;
+
     private static IndexWriter getIndexWriter() throws IOException {
         //Create the indexer
-        IndexWriterConfig config = new IndexWriterConfig(analyzer());
+        IndexWriterConfig config = new IndexWriterConfig(IndexerSchema.indexAnalyzer(analyzer()));
         config.setCommitOnClose(true);
         config.setRAMBufferSizeMB(RAM_BUFFER_SIZE_MB);
         return new IndexWriter(indexDirectory(), config);
     }
 
+    /**
+     * @return the configured RAM buffer size in MB, shared between the shards of a rebuild
+     */
+    static double ramBufferSizeMb() {
+        return RAM_BUFFER_SIZE_MB;
+    }
+
+    /**
+     * Opens a writer over an empty shard directory for {@link RecreateIndex}.
+     * Configured like the live writer, so the shard's segments can be added to
+     * it unchanged.
+     *
+     * @param directory       the shard's directory; its content is replaced
+     * @param ramBufferSizeMb the shard's RAM buffer in MB
+     * @return the shard writer
+     * @throws IOException if the writer cannot be opened
+     */
+    static IndexWriter newShardWriter(Directory directory, double ramBufferSizeMb) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(IndexerSchema.indexAnalyzer(analyzer()));
+        config.setOpenMode(OpenMode.CREATE);
+        config.setCommitOnClose(true);
+        config.setRAMBufferSizeMB(ramBufferSizeMb);
+        return new IndexWriter(directory, config);
+    }
+
     public static Analyzer analyzer() {
         return analyzer;
     }
@@ -124,6 +171,15 @@ public static DirectoryReader indexReader() {
         return indexReader;
     }
 
+    /**
+     * @return the sequence number of the writer's latest completed operation,
+     *         usable as a search generation token; 0 when no index is open
+     */
+    public static long generation() {
+        IndexWriter writer = indexWriter;
+        return writer == null ? 0 : writer.getMaxCompletedSequenceNumber();
+    }
+
     public Indexer(Path indexPath) throws IOException {
         Stopwatch stopwatch = new Stopwatch();
         LOG.info("Opening lucene indexer");
@@ -138,11 +194,60 @@ public Indexer(Path indexPath) throws IOException {
     }
 
     public void commit() throws IOException {
-        Stopwatch stopwatch = new Stopwatch();
-        LOG.info("Committing lucene index");
-        indexWriter.commit();
-        stopwatch.stop();
-        LOG.info("Committed lucene index in: {}", stopwatch.durationString());
+        // Serialized with replaceContents(), so no commit persists a half-swapped index.
+        synchronized (Indexer.class) {
+            Stopwatch stopwatch = new Stopwatch();
+            LOG.info("Committing lucene index");
+            indexWriter.commit();
+            stopwatch.stop();
+            LOG.info("Committed lucene index in: {}", stopwatch.durationString());
+        }
+    }
+
+    /**
+     * Starts recording the nids passed to {@link #index(SemanticEntity)}, so
+     * that {@link #replaceContents(Directory...)} can re-index semantics written
+     * while a rebuild walked the entity store.
+     */
+    static void beginRebuild() {
+        rebuildJournal = new ConcurrentNidSet();
+    }
+
+    /**
+     * Stops recording live writes for a rebuild that will not be swapped in.
+     */
+    static void abandonRebuild() {
+        rebuildJournal = null;
+    }
+
+    /**
+     * Replaces every document of the live index with the documents of the
+     * given shards, re-indexes the semantics written since
+     * {@link #beginRebuild()}, and commits. Searches keep their current view
+     * until they are refreshed, so a caller holding the refresh back (see
+     * {@link Searcher#holdRefresh()}) makes the swap appear atomic.
+     *
+     * @param shards the directories of closed shard writers
+     * @return the number of live writes re-indexed after the shards were added
+     * @throws IOException if the swap or the commit fails
+     */
+    int replaceContents(Directory... shards) throws IOException {
+        synchronized (Indexer.class) {
+            indexWriter.deleteAll();
+            indexWriter.addIndexes(shards);
+            ConcurrentNidSet journal = rebuildJournal;
+            rebuildJournal = null;
+            int reindexed = 0;
+            if (journal != null) {
+                // Re-index through index() so the shard's copy, possibly older, is replaced.
+                for (int nid : journal.toArray()) {
+                    EntityHandle.get(nid).ifSemantic(this::index);
+                    reindexed++;
+                }
+            }
+            commit();
+            return reindexed;
+        }
     }
 
     public void close() throws IOException {
@@ -186,11 +291,16 @@ public void close() throws IOException {
      * producing O(n²) work that can multiply rebuild time by orders of
      * magnitude. Use {@link #indexFresh(SemanticEntity)} for the recreate path.
      *
-     * <p>Each emitted document carries three single-valued fields:
+     * <p>Each emitted document carries the single-valued fields
      * {@link IndexerSchema#NID}, {@link IndexerSchema#INDEXED_FIELD_ORDINAL},
-     * and {@link IndexerSchema#TEXT}. Doc-per-position guarantees every hit has
-     * unambiguous text/ordinal/highlight — the ambiguity that v1's
-     * multi-valued fields had at read time is gone by construction.
+     * {@link IndexerSchema#TEXT}, and the unstored filter fields
+     * {@link IndexerSchema#PATTERN_NID} and
+     * {@link IndexerSchema#REFERENCED_COMPONENT_NID}. Doc-per-position
+     * guarantees every hit has unambiguous text/ordinal/highlight — the
+     * ambiguity that v1's multi-valued fields had at read time is gone by
+     * construction. The only multi-valued fields are the unstored stamp
+     * filter fields, which hold the stamps of every version and are never
+     * read back.
      *
      * <p>Concept, pattern, and stamp entities are filtered out one level up
      * (in {@code SearchProvider.index} and {@code RecreateIndex.compute}) —
@@ -208,6 +318,12 @@ public void close() throws IOException {
      *         when the semantic has no indexable text or on I/O error
      */
     public int index(SemanticEntity<?> semanticEntity) {
+        IndexEvent event = new IndexEvent();
+        event.begin();
+        ConcurrentNidSet journal = rebuildJournal;
+        if (journal != null) {
+            journal.add(semanticEntity.nid());
+        }
         try {
             // Replace any prior docs for this nid. Cheap as a single live-write
             // operation; pathological in a tight loop — see indexFresh().
@@ -217,7 +333,73 @@ public int index(SemanticEntity<?> semanticEntity) {
             LOG.error("Exception buffering delete-by-nid for entity {}", semanticEntity, e);
             return 0;
         }
-        return indexInternal(semanticEntity);
+        int docsAdded = indexInternal(indexWriter, semanticEntity);
+        commitIndexEvent(event, 1, docsAdded);
+        return docsAdded;
+    }
+
+    /**
+     * Index a batch of semantics, replacing their prior docs. The deletes are
+     * buffered as one set query per {@link #DELETE_BATCH_SIZE} nids rather than
+     * one query per nid, which dominates {@link #index(SemanticEntity)} in a
+     * tight loop. A delete does not reach docs added after it, so when a nid
+     * occurs more than once only its last occurrence is indexed.
+     *
+     * @param semanticEntities the semantics to index
+     * @return the number of Lucene documents added to the writer
+     */
+    public int indexAll(List<? extends SemanticEntity<?>> semanticEntities) {
+        IndexEvent event = new IndexEvent();
+        event.begin();
+        semanticEntities = lastPerNid(semanticEntities);
+        ConcurrentNidSet journal = rebuildJournal;
+        int docsAdded = 0;
+        for (int start = 0; start < semanticEntities.size(); start += DELETE_BATCH_SIZE) {
+            List<? extends SemanticEntity<?>> batch =
+                    semanticEntities.subList(start, Math.min(start + DELETE_BATCH_SIZE, semanticEntities.size()));
+            int[] nids = new int[batch.size()];
+            for (int i = 0; i < nids.length; i++) {
+                nids[i] = batch.get(i).nid();
+                if (journal != null) {
+                    journal.add(nids[i]);
+                }
+            }
+            try {
+                indexWriter.deleteDocuments(IntField.newSetQuery(IndexerSchema.NID.name(), nids));
+            } catch (IOException e) {
+                LOG.error("Exception buffering delete-by-nid for {} entities", nids.length, e);
+                continue;
+            }
+            for (SemanticEntity<?> semanticEntity : batch) {
+                docsAdded += indexInternal(indexWriter, semanticEntity);
+            }
+        }
+        commitIndexEvent(event, semanticEntities.size(), docsAdded);
+        return docsAdded;
+    }
+
+    private static List<? extends SemanticEntity<?>> lastPerNid(List<? extends SemanticEntity<?>> semanticEntities) {
+        MutableIntSet seenNids = IntSets.mutable.empty();
+        ArrayList<SemanticEntity<?>> distinct = new ArrayList<>(semanticEntities.size());
+        for (int i = semanticEntities.size() - 1; i >= 0; i--) {
+            SemanticEntity<?> semanticEntity = semanticEntities.get(i);
+            if (seenNids.add(semanticEntity.nid())) {
+                distinct.add(semanticEntity);
+            }
+        }
+        if (distinct.size() == semanticEntities.size()) {
+            return semanticEntities;
+        }
+        Collections.reverse(distinct);
+        return distinct;
+    }
+
+    private static void commitIndexEvent(IndexEvent event, int semanticCount, int documentCount) {
+        if (event.shouldCommit()) {
+            event.semanticCount = semanticCount;
+            event.documentCount = documentCount;
+            event.commit();
+        }
     }
 
     /**
@@ -237,7 +419,19 @@ public int index(SemanticEntity<?> semanticEntity) {
      *         when the semantic has no indexable text or on I/O error
      */
     public int indexFresh(SemanticEntity<?> semanticEntity) {
-        return indexInternal(semanticEntity);
+        return indexInternal(indexWriter, semanticEntity);
+    }
+
+    /**
+     * Index a semantic into a rebuild shard writer, without a delete-by-NID.
+     * Same per-doc shape as {@link #indexFresh(SemanticEntity)}.
+     *
+     * @param shardWriter    a writer from {@link #newShardWriter(Directory, double)}
+     * @param semanticEntity the semantic to index; must not be {@code null}
+     * @return the number of Lucene documents added to the shard
+     */
+    int indexFresh(IndexWriter shardWriter, SemanticEntity<?> semanticEntity) {
+        return indexInternal(shardWriter, semanticEntity);
     }
 
     /**
@@ -245,8 +439,10 @@ public int indexFresh(SemanticEntity<?> semanticEntity) {
      * here; the only difference between them is whether they buffer a
      * delete-by-NID before calling this method.
      */
-    private int indexInternal(SemanticEntity<?> semanticEntity) {
+    private int indexInternal(IndexWriter writer, SemanticEntity<?> semanticEntity) {
         Set<String> seenTexts = new HashSet<>();
+        StampValues stampValues = null;
+        boolean description = semanticEntity.patternNid() == TinkarTerm.DESCRIPTION_PATTERN.nid();
         int docsAdded = 0;
         try {
             for (SemanticEntityVersion version : ((SemanticEntity<SemanticEntityVersion>) semanticEntity).versions()) {
@@ -264,8 +460,17 @@ private int indexInternal(SemanticEntity<?> semanticEntity) {
                     Document doc = new Document();
                     doc.add(IndexerSchema.NID.make(semanticEntity.nid()));
                     doc.add(IndexerSchema.INDEXED_FIELD_ORDINAL.make(i));
+                    doc.add(IndexerSchema.PATTERN_NID.make(semanticEntity.patternNid()));
+                    doc.add(IndexerSchema.REFERENCED_COMPONENT_NID.make(semanticEntity.referencedComponentNid()));
+                    if (stampValues == null) {
+                        stampValues = StampValues.of(semanticEntity);
+                    }
+                    stampValues.addTo(doc);
                     doc.add(IndexerSchema.TEXT.make(text));
-                    indexWriter.addDocument(doc);
+                    if (description) {
+                        doc.add(IndexerSchema.SUGGEST.make(text));
+                    }
+                    writer.addDocument(doc);
                     docsAdded++;
                     LOG.debug("Indexing semantic nid={} fieldOrdinal={} text='{}'",
                             semanticEntity.nid(), i, text);
@@ -276,4 +481,48 @@ private int indexInternal(SemanticEntity<?> semanticEntity) {
         }
         return docsAdded;
     }
+
+    /**
+     * Distinct stamp attributes over all versions of one semantic, added to
+     * each of its documents. Read once per semantic, and only when the
+     * semantic has indexable text.
+     */
+    private static final class StampValues {
+        private final MutableIntSet stampNids = IntSets.mutable.empty();
+        private final MutableIntSet stateNids = IntSets.mutable.empty();
+        private final MutableIntSet moduleNids = IntSets.mutable.empty();
+        private final MutableIntSet pathNids = IntSets.mutable.empty();
+        private final MutableLongSet times = LongSets.mutable.empty();
+        private boolean unresolved;
+
+        static StampValues of(SemanticEntity<?> semanticEntity) {
+            StampValues values = new StampValues();
+            for (SemanticEntityVersion version : ((SemanticEntity<SemanticEntityVersion>) semanticEntity).versions()) {
+                values.stampNids.add(version.stampNid());
+                Optional<StampEntity> stamp = EntityHandle.get(version.stampNid()).asStamp();
+                if (stamp.isEmpty()) {
+                    values.unresolved = true;
+                    continue;
+                }
+                values.stateNids.add(stamp.get().stateNid());
+                values.moduleNids.add(stamp.get().moduleNid());
+                values.pathNids.add(stamp.get().pathNid());
+                long time = stamp.get().time();
+                // Uncommitted: the commit time is not known yet. See IndexerSchema.STAMP_TIME.
+                values.times.add(time == Long.MAX_VALUE ? Long.MIN_VALUE : time);
+            }
+            return values;
+        }
+
+        void addTo(Document doc) {
+            stampNids.forEach(nid -> doc.add(IndexerSchema.STAMP_NID.make(nid)));
+            stateNids.forEach(nid -> doc.add(IndexerSchema.STAMP_STATE_NID.make(nid)));
+            moduleNids.forEach(nid -> doc.add(IndexerSchema.STAMP_MODULE_NID.make(nid)));
+            pathNids.forEach(nid -> doc.add(IndexerSchema.STAMP_PATH_NID.make(nid)));
+            times.forEach(time -> doc.add(IndexerSchema.STAMP_TIME.make(time)));
+            if (unresolved) {
+                doc.add(IndexerSchema.STAMPS_UNRESOLVED.make(1));
+            }
+        }
+    }
 }
@@ -15,13 +15,20 @@
  */
 package dev.ikm.tinkar.provider.search;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.DelegatingAnalyzerWrapper;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.store.Directory;
 
 import java.io.IOException;
@@ -56,7 +63,26 @@ public final class IndexerSchema {
      * change to document shape (field names, field types, doc granularity,
      * stored vs. indexed-only).
      *
-     * <p>v4 (this build): the per-position int field is renamed on the wire
+     * <p>v7 (this build): documents from description semantics also carry
+     * {@code suggest}, the text indexed as lower-cased edge n-grams (prefixes
+     * of each word, see {@link #indexAnalyzer(Analyzer)}), so type-ahead
+     * prefixes are single term lookups. Otherwise identical to v6.
+     *
+     * <p>v6 (deprecated): each document also carries, for every version of the
+     * source semantic, the version's {@code stampNid}, {@code stampStateNid},
+     * {@code stampModuleNid}, {@code stampPathNid} and {@code stampTime}
+     * as multi-valued, unstored point/doc-value fields, plus a
+     * {@code stampsUnresolved} marker when a stamp could not be read at index
+     * time. {@link Searcher} compiles a stamp coordinate's restriction into
+     * filter clauses over them. Otherwise identical to v5.
+     *
+     * <p>v5 (deprecated): each document also carries the source semantic's
+     * {@code patternNid} and {@code referencedComponentNid} as indexed,
+     * unstored {@link IntField}s, so {@link Searcher} can restrict a query by
+     * pattern or referenced component with filter clauses instead of
+     * over-fetching and decoding entities. Otherwise identical to v4.
+     *
+     * <p>v4 (deprecated): the per-position int field is renamed on the wire
      * from {@code "fieldIndex"} to {@code "fieldOrdinal"} for clarity —
      * "ordinal" is the canonical term for "position in an ordered sequence"
      * and disambiguates from the unrelated MVVM property key
@@ -75,11 +101,11 @@ public final class IndexerSchema {
      * {@code text}/{@code fieldIndex}, plus dead {@code rcNid},
      * {@code patternNid}, and {@code nidPoint} fields.
      *
-     * <p>Indexes at v0 (legacy, no version key), v1, v2, or v3 are
-     * auto-recreated against v4 on next startup via the trigger in
+     * <p>Indexes at v0 (legacy, no version key) through v6 are
+     * auto-recreated against v7 on next startup via the trigger in
      * {@code SearchProvider}.
      */
-    public static final int VERSION = 4;
+    public static final int VERSION = 7;
 
     /** Lucene commit-user-data key under which {@link #VERSION} is stored. */
     public static final String VERSION_KEY = "ike.indexer.schemaVersion";
@@ -108,6 +134,39 @@ public final class IndexerSchema {
      *  {@code komet/kview}. */
     public static final IntDescriptor INDEXED_FIELD_ORDINAL = new IntDescriptor("fieldOrdinal");
 
+    /** Indexed (BKD point + doc-values) but not stored {@code int} nid of the
+     *  source semantic's pattern. Used only as a filter clause; never read back
+     *  from hits. */
+    public static final IntDescriptor PATTERN_NID = new IntDescriptor("patternNid", Field.Store.NO);
+
+    /** Indexed (BKD point + doc-values) but not stored {@code int} nid of the
+     *  component the source semantic references. Used only as a filter clause;
+     *  never read back from hits. */
+    public static final IntDescriptor REFERENCED_COMPONENT_NID = new IntDescriptor("referencedComponentNid", Field.Store.NO);
+
+    /** Multi-valued, unstored stamp nids of every version of the source semantic. */
+    public static final IntDescriptor STAMP_NID = new IntDescriptor("stampNid", Field.Store.NO);
+
+    /** Multi-valued, unstored state nids of every version of the source semantic. */
+    public static final IntDescriptor STAMP_STATE_NID = new IntDescriptor("stampStateNid", Field.Store.NO);
+
+    /** Multi-valued, unstored module nids of every version of the source semantic. */
+    public static final IntDescriptor STAMP_MODULE_NID = new IntDescriptor("stampModuleNid", Field.Store.NO);
+
+    /** Multi-valued, unstored path nids of every version of the source semantic. */
+    public static final IntDescriptor STAMP_PATH_NID = new IntDescriptor("stampPathNid", Field.Store.NO);
+
+    /** Multi-valued, unstored commit times of every version of the source semantic.
+     *  Uncommitted versions are indexed at {@link Long#MIN_VALUE}: their time is
+     *  assigned when the transaction commits, which does not rewrite the
+     *  semantic, so the index must not exclude them by a time cutoff. */
+    public static final LongDescriptor STAMP_TIME = new LongDescriptor("stampTime", Field.Store.NO);
+
+    /** Present (with value {@code 1}) when the stamp of some version could not
+     *  be read at index time — e.g. a semantic loaded ahead of its stamps. Such
+     *  documents bypass the stamp filter and are resolved at search time. */
+    public static final IntDescriptor STAMPS_UNRESOLVED = new IntDescriptor("stampsUnresolved", Field.Store.NO);
+
     /** Analyzed full-text content for the (nid, fieldIndex) tuple. v3 indexes
      *  but does not store the text — rehydrated from the entity binary store
      *  at search time via {@code UnifiedHighlighter}'s re-analysis offset
@@ -115,6 +174,20 @@ public final class IndexerSchema {
      *  on v3 documents; only the field name is consulted on the read side. */
     public static final TextDescriptor TEXT = new TextDescriptor("text");
 
+    /** Type-ahead content for description semantics: the same text as
+     *  {@link #TEXT}, indexed-only through the edge n-gram analyzer that
+     *  {@link #indexAnalyzer(Analyzer)} assigns to this field. A query prefix
+     *  word of up to {@link #SUGGEST_MAX_PREFIX} characters matches as one
+     *  term. */
+    public static final TextDescriptor SUGGEST = new TextDescriptor("suggest");
+
+    /** Shortest word prefix indexed in {@link #SUGGEST}. */
+    public static final int SUGGEST_MIN_PREFIX = 1;
+
+    /** Longest word prefix indexed in {@link #SUGGEST}; longer query words are
+     *  truncated to it. */
+    public static final int SUGGEST_MAX_PREFIX = 20;
+
     /**
      * The set of field names that {@link Searcher#search(String, int)} must
      * load when materializing a hit. Used as the {@code fieldsToLoad} argument
@@ -133,6 +206,31 @@ public final class IndexerSchema {
     private IndexerSchema() {
     }
 
+    /**
+     * The analyzer for the {@link IndexWriter}: {@link #SUGGEST} is analyzed
+     * into lower-cased word prefixes, every other field by {@code textAnalyzer}.
+     *
+     * @param textAnalyzer the analyzer for {@link #TEXT}, also used to parse queries
+     * @return the per-field index analyzer
+     */
+    public static Analyzer indexAnalyzer(Analyzer textAnalyzer) {
+        Analyzer suggestAnalyzer = new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                StandardTokenizer tokenizer = new StandardTokenizer();
+                TokenStream prefixes = new EdgePrefixFilter(new LowerCaseFilter(tokenizer),
+                        SUGGEST_MIN_PREFIX, SUGGEST_MAX_PREFIX);
+                return new TokenStreamComponents(tokenizer, prefixes);
+            }
+        };
+        return new DelegatingAnalyzerWrapper(Analyzer.PER_FIELD_REUSE_STRATEGY) {
+            @Override
+            protected Analyzer getWrappedAnalyzer(String fieldName) {
+                return SUGGEST.name().equals(fieldName) ? suggestAnalyzer : textAnalyzer;
+            }
+        };
+    }
+
     /**
      * Attach {@link #VERSION} to the writer's live commit data so every
      * subsequent commit persists the current schema version.
@@ -190,7 +288,7 @@ public static int readVersion(Directory directory) throws IOException {
      *
      * @param <T> the Java type returned by {@link #read(Document)}
      */
-    public sealed interface Descriptor<T> permits IntDescriptor, TextDescriptor {
+    public sealed interface Descriptor<T> permits IntDescriptor, LongDescriptor, TextDescriptor {
         /**
          * @return the Lucene field name this descriptor reads and writes
          */
@@ -219,16 +317,34 @@ public static int readVersion(Directory directory) throws IOException {
 
     /**
      * Descriptor for an {@link IntField}: indexed as a BKD point, exposed as
-     * doc-values, and stored. Reads via {@link IndexableField#numericValue()}.
+     * doc-values, and stored unless {@code store} is {@link Field.Store#NO}.
+     * Reads via {@link IndexableField#numericValue()}.
      */
-    public record IntDescriptor(String name) implements Descriptor<Integer> {
+    public record IntDescriptor(String name, Field.Store store) implements Descriptor<Integer> {
+        /**
+         * A stored int field.
+         *
+         * @param name the Lucene field name
+         */
+        public IntDescriptor(String name) {
+            this(name, Field.Store.YES);
+        }
+
         /**
          * @param value the int value (auto-unboxed)
-         * @return a fresh {@link IntField} with {@link Field.Store#YES}
+         * @return a fresh {@link IntField} with this descriptor's {@link Field.Store}
          */
         @Override
         public IndexableField make(Integer value) {
-            return new IntField(name, value, Field.Store.YES);
+            return new IntField(name, value, store);
+        }
+
+        /**
+         * @param values the accepted values
+         * @return a constant-score query matching documents whose field holds any of {@code values}
+         */
+        public Query newSetQuery(int... values) {
+            return IntField.newSetQuery(name, values);
         }
 
         /**
@@ -242,6 +358,40 @@ public Integer read(Document doc) {
         }
     }
 
+    /**
+     * Descriptor for a {@link LongField}: indexed as a BKD point, exposed as
+     * doc-values, and stored unless {@code store} is {@link Field.Store#NO}.
+     */
+    public record LongDescriptor(String name, Field.Store store) implements Descriptor<Long> {
+        /**
+         * @param value the long value (auto-unboxed)
+         * @return a fresh {@link LongField} with this descriptor's {@link Field.Store}
+         */
+        @Override
+        public IndexableField make(Long value) {
+            return new LongField(name, value, store);
+        }
+
+        /**
+         * @param lowerValue the inclusive lower bound
+         * @param upperValue the inclusive upper bound
+         * @return a constant-score query matching documents with a value in the range
+         */
+        public Query newRangeQuery(long lowerValue, long upperValue) {
+            return LongField.newRangeQuery(name, lowerValue, upperValue);
+        }
+
+        /**
+         * @param doc the hit document
+         * @return the stored long as a {@link Long}, or {@code null} if absent
+         */
+        @Override
+        public Long read(Document doc) {
+            IndexableField field = doc.getField(name);
+            return field == null ? null : field.numericValue().longValue();
+        }
+    }
+
     /**
      * Descriptor for an analyzed-but-not-stored {@link TextField}: the term
      * stream is indexed for inverted-index lookup, but the text itself is
@@ -4,15 +4,26 @@
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.ServiceLifecycleManager;
 import dev.ikm.tinkar.common.service.TrackingCallable;
+import dev.ikm.tinkar.common.util.time.Stopwatch;
 import dev.ikm.tinkar.entity.Entity;
 import dev.ikm.tinkar.entity.EntityRecordFactory;
 import dev.ikm.tinkar.entity.EntityService;
 import dev.ikm.tinkar.entity.SemanticEntity;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 /**
  * The {@code RecreateIndex} class is responsible for rebuilding a Lucene index.
@@ -29,14 +40,24 @@
  * <p> - {@link #compute()}:
  * <p>   Executes the index rebuilding task, including:
  * <p>   - Initializing load phases through {@link EntityService}.
- * <p>   - Counting and indexing entities in a parallelized manner.
- * <p>   - Committing the changes to the index.
+ * <p>   - Counting entities, then indexing them in parallel into per-thread
+ * <p>     shard writers over temporary directories.
+ * <p>   - Swapping the shards into the live index with {@code addIndexes} and
+ * <p>     committing; searches see the old index until the swap completes.
  * <p>   - Building the "Type Ahead" search suggester.
  * <p>   - Logging and updating task completion status.
  */
 public class RecreateIndex extends TrackingCallable<Void> {
     private static final Logger LOG = LoggerFactory.getLogger(RecreateIndex.class);
+    /**
+     * Number of shard writers a rebuild indexes into. Defaults to the processor
+     * count, capped at 8; override via system property.
+     */
+    private static final String SHARDS_PROPERTY = "lucene.index.rebuild.shards";
+    private static final int MAX_DEFAULT_SHARDS = 8;
+    private static final double MIN_SHARD_RAM_BUFFER_MB = 16;
     private final Indexer indexer;
+    private final Searcher searcher;
     private final RecreateReason reason;
 
     /**
@@ -45,12 +66,14 @@ public class RecreateIndex extends TrackingCallable<Void> {
      * {@link SearchProvider} so the progress dialog tells the right story
      * (post-upgrade rebuild vs. first-time build vs. user-requested, etc.).
      *
-     * @param indexer the {@link Indexer} owning the writer to rebuild against
-     * @param reason  why this recreate run was triggered; never {@code null}
+     * @param indexer  the {@link Indexer} owning the writer to rebuild against
+     * @param searcher the {@link Searcher} whose refreshes are held during the swap
+     * @param reason   why this recreate run was triggered; never {@code null}
      */
-    public RecreateIndex(Indexer indexer, RecreateReason reason) {
+    public RecreateIndex(Indexer indexer, Searcher searcher, RecreateReason reason) {
         super(false, true);
         this.indexer = indexer;
+        this.searcher = searcher;
         this.reason = reason;
         this.updateTitle(reason.title());
         this.updateMessage(reason.description());
@@ -59,13 +82,14 @@ public RecreateIndex(Indexer indexer, RecreateReason reason) {
 
     /**
      * Back-compat constructor — defaults the reason to
-     * {@link RecreateReason#USER_REQUESTED}. Prefer the two-arg form so the
+     * {@link RecreateReason#USER_REQUESTED}. Prefer the three-arg form so the
      * dialog can explain why the rebuild is running.
      *
-     * @param indexer the {@link Indexer} owning the writer to rebuild against
+     * @param indexer  the {@link Indexer} owning the writer to rebuild against
+     * @param searcher the {@link Searcher} whose refreshes are held during the swap
      */
-    public RecreateIndex(Indexer indexer) {
-        this(indexer, RecreateReason.USER_REQUESTED);
+    public RecreateIndex(Indexer indexer, Searcher searcher) {
+        this(indexer, searcher, RecreateReason.USER_REQUESTED);
     }
 
     /**
@@ -117,6 +141,83 @@ private String getStopReason() {
         }
         return "Unknown reason";
     }
+
+    private static int shardCount() {
+        int defaultCount = Math.min(Runtime.getRuntime().availableProcessors(), MAX_DEFAULT_SHARDS);
+        return Math.max(1, Integer.getInteger(SHARDS_PROPERTY, defaultCount));
+    }
+
+    /**
+     * One rebuild shard: a writer over a temporary directory, beside the live
+     * index when it is on disk so that {@code addIndexes} copies within one
+     * file system, and in memory otherwise.
+     */
+    private static final class Shard {
+        private final Path path;
+        private final Directory directory;
+        private final IndexWriter writer;
+        private final LongAdder docs = new LongAdder();
+
+        private Shard(Path path, Directory directory, double ramBufferSizeMb) throws IOException {
+            this.path = path;
+            this.directory = directory;
+            this.writer = Indexer.newShardWriter(directory, ramBufferSizeMb);
+        }
+    }
+
+    private static Shard[] openShards(int shardCount, double ramBufferSizeMb) throws IOException {
+        Shard[] shards = new Shard[shardCount];
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                if (Indexer.indexDirectory() instanceof FSDirectory live) {
+                    Path path = Files.createTempDirectory(live.getDirectory().toAbsolutePath().getParent(),
+                            "lucene-rebuild-");
+                    shards[i] = new Shard(path, FSDirectory.open(path), ramBufferSizeMb);
+                } else {
+                    shards[i] = new Shard(null, new ByteBuffersDirectory(), ramBufferSizeMb);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            discardShards(shards);
+            throw e;
+        }
+        return shards;
+    }
+
+    private static Directory[] directories(Shard[] shards) {
+        Directory[] directories = new Directory[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            directories[i] = shards[i].directory;
+        }
+        return directories;
+    }
+
+    /**
+     * Closes every shard, discarding the documents of shards that were not
+     * closed normally, and deletes their temporary directories.
+     */
+    private static void discardShards(Shard[] shards) {
+        for (Shard shard : shards) {
+            if (shard == null) {
+                continue;
+            }
+            try {
+                if (shard.writer.isOpen()) {
+                    shard.writer.rollback();
+                }
+                shard.directory.close();
+                if (shard.path != null) {
+                    try (Stream<Path> paths = Files.walk(shard.path)) {
+                        for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                            Files.deleteIfExists(path);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn("Unable to discard rebuild shard {}", shard.path, e);
+            }
+        }
+    }
     @Override
     protected Void compute() throws Exception {
         // Title was set in the constructor from the reason; keep it so the
@@ -148,95 +249,100 @@ protected Void compute() throws Exception {
             updateMessage("Generating Lucene Indexes...");
             updateProgress(0, totalCount + 1);
 
-            // Wipe the existing index before rebuilding. Without this, every call
-            // to recreateIndex() appends a fresh full copy of every entity on top
-            // of whatever was already in the index — Indexer.index() does not
-            // delete prior versions (see Indexer#deleteDocumentIfExists, deliberately
-            // disabled for the append-only chronology design). Repeated invocations
-            // — notably from LoadEntitiesFromProtobufFile.commitSearchIndexIfAvailable()
-            // after every import / sync / pull — therefore produced geometric
-            // duplicate-document growth. The recreate path is now honest: the index
-            // is genuinely emptied here before the parallel walk repopulates it.
+            // Build the new index beside the live one rather than wiping it first:
+            // semantics are partitioned across per-thread shard writers over
+            // temporary directories, and the shards replace the live index's
+            // documents in one swap at the end. Until then searches keep
+            // answering from the old index, and a cancelled run leaves it intact.
             //
-            // The startup callers in SearchProvider (codec-mismatch, missing index,
-            // empty index) only invoke recreateIndex() against an already-empty
-            // index, so the deleteAll() is a no-op for them.
-            LOG.info("Wiping existing Lucene index before recreation");
-            synchronized (this.indexer) {
-                Indexer.indexWriter().deleteAll();
-                this.indexer.commit();
-            }
+            // Shard writers take only adds — no delete-by-NID (see
+            // Indexer#indexFresh) and no periodic commits. Each has its share of
+            // the RAM buffer (see Indexer.RAM_BUFFER_SIZE_MB) and flushes and
+            // merges independently, so indexing is not capped by one writer.
+            int shardCount = shardCount();
+            double shardRamBufferMb = Math.max(MIN_SHARD_RAM_BUFFER_MB, Indexer.ramBufferSizeMb() / shardCount);
+            LOG.info("Rebuilding Lucene index in {} shards with {} MB RAM buffer each", shardCount, shardRamBufferMb);
+            Indexer.beginRebuild();
+            Shard[] shards = openShards(shardCount, shardRamBufferMb);
+            boolean swapped = false;
+            try {
+                AtomicInteger nextShard = new AtomicInteger();
+                ThreadLocal<Shard> threadShard = ThreadLocal.withInitial(
+                        () -> shards[Math.floorMod(nextShard.getAndIncrement(), shards.length)]);
+                LongAdder docsAdded = new LongAdder();
+                long walkStart = System.nanoTime();
 
-            // Track docs added so the end-of-run log carries useful diagnostics.
-            // No periodic commits during the walk — Lucene's RAM buffer auto-flushes
-            // to disk segments as it fills (default 256 MB; see
-            // Indexer.RAM_BUFFER_SIZE_MB), and TieredMergePolicy compacts segments
-            // in the background. A single commit at the end persists everything.
-            // Forcing periodic commits during the walk caused a "commit storm"
-            // where the modulo gate tripped on stretches of non-text-bearing
-            // semantics that had nothing to flush — hundreds of empty commits
-            // in tight succession.
-            LongAdder docsAdded = new LongAdder();
+                PrimitiveData.get().forEachParallel((bytes, nid) -> {
+                    // Check for cancellation periodically
+                    if (shouldStop()) {
+                        return;
+                    }
 
-            PrimitiveData.get().forEachParallel((bytes, nid) -> {
-                // Check for cancellation periodically
-                if (shouldStop()) {
-                    return;
-                }
+                    // Only process non-null entities. Lucene indexing applies to
+                    // semantics only — concept/pattern/stamp content reaches the index
+                    // through their description semantics.
+                    if (bytes != null && bytes.length > 0) {
+                        Entity<?> entity = EntityRecordFactory.make(bytes);
+                        if (entity instanceof SemanticEntity<?> semantic) {
+                            Shard shard = threadShard.get();
+                            int added = this.indexer.indexFresh(shard.writer, semantic);
+                            shard.docs.add(added);
+                            docsAdded.add(added);
+                            indexedEntities.increment();
+                        }
+                    }
 
-                // Only process non-null entities. Lucene indexing applies to
-                // semantics only — concept/pattern/stamp content reaches the index
-                // through their description semantics.
-                if (bytes != null && bytes.length > 0) {
-                    Entity<?> entity = EntityRecordFactory.make(bytes);
-                    if (entity instanceof SemanticEntity<?> semantic) {
-                        // indexFresh skips the per-call delete-by-NID. The
-                        // writer was deleteAll()'d at the start of this run
-                        // (see above), so the delete would resolve to a
-                        // no-match query against an initially-empty writer
-                        // and accumulate tens of millions of buffered
-                        // PointRangeQuery entries that turn flush-time work
-                        // O(n²). Live writes through SearchProvider.index
-                        // still go through index(), preserving idempotent
-                        // delete-then-add for evolving entities.
-                        int added = this.indexer.indexFresh(semantic);
-                        docsAdded.add(added);
-                        indexedEntities.increment();
+                    // Increment processed for ACTUAL entities only
+                    long processed = indexedEntities.longValue();
+                    if (updateIntervalElapsed() && totalCount > 0) {
+                        updateProgress(processed, totalCount);
+                        updateMessage(String.format("Indexed %,d / %,d entities (%d%%)",
+                                processed,
+                                totalCount,
+                                (int)(100.0 * processed / totalCount)));
                     }
-                }
+                });
 
-                // Increment processed for ACTUAL entities only
-                long processed = indexedEntities.longValue();
-                if (updateIntervalElapsed() && totalCount > 0) {
-                    updateProgress(processed, totalCount);
-                    updateMessage(String.format("Indexed %,d / %,d entities (%d%%)",
-                            processed,
-                            totalCount,
-                            (int)(100.0 * processed / totalCount)));
+                // Check before the swap
+                if (shouldStop()) {
+                    String stopReason = getStopReason();
+                    LOG.info("Lucene index recreation cancelled before swap: {}", stopReason);
+                    LOG.info("Processed {} of {} entities ({} docs added) before cancellation; live index unchanged",
+                            indexedEntities.longValue(), totalCount, docsAdded.longValue());
+                    return null;
                 }
-            });
 
-            // Check before final commit
-            if (shouldStop()) {
-                String stopReason = getStopReason();
-                LOG.info("Lucene index recreation cancelled before final commit: {}", stopReason);
-                LOG.info("Processed {} of {} entities ({} docs added) before cancellation",
-                        indexedEntities.longValue(), totalCount, docsAdded.longValue());
-                return null;
-            }
+                updateMessage("Merging Lucene index shards...");
+                for (int i = 0; i < shards.length; i++) {
+                    // Closing commits the shard, flushing its remaining buffered docs.
+                    shards[i].writer.close();
+                    long elapsedNanos = Math.max(1, System.nanoTime() - walkStart);
+                    LOG.info("Shard {}: {} docs in {} ({} docs/sec)", i,
+                            String.format("%,d", shards[i].docs.longValue()),
+                            Duration.ofNanos(elapsedNanos),
+                            String.format("%,.0f", shards[i].docs.longValue() * 1e9 / elapsedNanos));
+                }
 
-            // Final commit — guard with hasUncommittedChanges() so a recreate
-            // that produced zero indexable content (extreme edge case: no
-            // text-bearing semantics in the entity store) doesn't pay for an
-            // empty commit.
-            if (Indexer.indexWriter().hasUncommittedChanges()) {
-                this.indexer.commit();
-                LOG.info("Final commit completed — indexed {} entities ({} docs)",
+                Stopwatch swapStopwatch = new Stopwatch();
+                int reindexed;
+                Searcher.holdRefresh();
+                try {
+                    reindexed = this.indexer.replaceContents(directories(shards));
+                    swapped = true;
+                } finally {
+                    searcher.releaseRefresh();
+                }
+                swapStopwatch.stop();
+                LOG.info("Swapped in rebuilt index in {} — indexed {} entities ({} docs), re-indexed {} live writes",
+                        swapStopwatch.durationString(),
                         String.format("%,d", indexedEntities.longValue()),
-                        String.format("%,d", docsAdded.longValue()));
-            } else {
-                LOG.info("Nothing to commit at end — {} entities walked produced no indexable docs",
-                        String.format("%,d", indexedEntities.longValue()));
+                        String.format("%,d", docsAdded.longValue()),
+                        reindexed);
+            } finally {
+                if (!swapped) {
+                    Indexer.abandonRebuild();
+                }
+                discardShards(shards);
             }
 
         } finally {
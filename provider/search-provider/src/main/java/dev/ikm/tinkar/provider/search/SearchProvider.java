@@ -32,6 +32,10 @@
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -52,6 +56,7 @@ public class SearchProvider implements dev.ikm.tinkar.common.service.SearchServi
 
     private final Indexer indexer;
     private final Searcher searcher;
+    private final IndexCommitScheduler commitScheduler;
     private final Path indexPath;
     private final String name;
     private final AtomicBoolean closed = new AtomicBoolean(false);
@@ -156,11 +161,22 @@ private SearchProvider(File datastoreRoot) {
         }
         this.indexer = tempIndexer;
 
+        Number maxStaleMillis = ServiceProperties.get(ServiceKeys.SEARCH_MAX_STALE_MILLIS,
+                Searcher.DEFAULT_MAX_STALE.toMillis());
+        Number minStaleMillis = ServiceProperties.get(ServiceKeys.SEARCH_MIN_STALE_MILLIS,
+                Searcher.DEFAULT_MIN_STALE.toMillis());
         try {
-            this.searcher = new Searcher();
+            this.searcher = new Searcher(Duration.ofMillis(maxStaleMillis.longValue()),
+                    Duration.ofMillis(minStaleMillis.longValue()));
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialize searcher", e);
         }
+        Number commitIntervalMillis = ServiceProperties.get(ServiceKeys.SEARCH_COMMIT_INTERVAL_MILLIS,
+                IndexCommitScheduler.DEFAULT_COMMIT_INTERVAL.toMillis());
+        Number commitMaxDocs = ServiceProperties.get(ServiceKeys.SEARCH_COMMIT_MAX_DOCS,
+                IndexCommitScheduler.DEFAULT_COMMIT_MAX_DOCS);
+        this.commitScheduler = new IndexCommitScheduler(this.indexer,
+                Duration.ofMillis(commitIntervalMillis.longValue()), commitMaxDocs.longValue());
 
         // Check if we need to recreate the index (data exists but index doesn't)
         // Look for any data provider directories (rocks, spinedarrays, mvstore.dat, etc.)
@@ -233,9 +249,26 @@ public void index(Object object) {
         // Lucene full-text indexing only applies to semantics — concept/pattern/stamp
         // names live in description semantics and reach the index via their semantics.
         if (object instanceof SemanticEntity<?> semanticEntity) {
-            indexer.index(semanticEntity);
-            // Ensure the NRT searcher sees the new document immediately.
-            Searcher.refreshAfterIndex();
+            // Visible to searches within the max staleness; a writer that needs
+            // it sooner waits for indexGeneration(), as Transaction.commit() does.
+            commitScheduler.docsAdded(indexer.index(semanticEntity));
+        }
+    }
+
+    @Override
+    public void indexAll(Collection<?> objects) {
+        if (closed.get()) {
+            LOG.debug("SearchProvider is closed, skipping index operation");
+            return;
+        }
+        List<SemanticEntity<?>> semanticEntities = new ArrayList<>(objects.size());
+        for (Object object : objects) {
+            if (object instanceof SemanticEntity<?> semanticEntity) {
+                semanticEntities.add(semanticEntity);
+            }
+        }
+        if (!semanticEntities.isEmpty()) {
+            commitScheduler.docsAdded(indexer.indexAll(semanticEntities));
         }
     }
 
@@ -245,7 +278,41 @@ public void commit() throws IOException {
             LOG.debug("SearchProvider is closed, skipping commit");
             return;
         }
-        indexer.commit();
+        commitScheduler.commit();
+        makeSearchable();
+    }
+
+    @Override
+    public long indexGeneration() {
+        return closed.get() ? 0 : Indexer.generation();
+    }
+
+    @Override
+    public void waitForGeneration(long generation) throws InterruptedException {
+        if (closed.get()) {
+            return;
+        }
+        searcher.waitForGeneration(generation);
+    }
+
+    @Override
+    public Optional<SearchIndexStatistics> statistics() {
+        return Optional.of(new SearchIndexStatistics(Indexer.generation(), Searcher.searchableGeneration(),
+                Searcher.refreshes(), Searcher.meanRefresh(), Searcher.maxRefresh(),
+                commitScheduler.uncommittedDocs(), commitScheduler.commits(),
+                commitScheduler.meanCommit(), commitScheduler.maxCommit()));
+    }
+
+    /**
+     * Waits until searches see every write made so far — after a commit or a
+     * recreate, whose callers expect their results to be searchable.
+     */
+    private void makeSearchable() {
+        try {
+            searcher.waitForGeneration(Indexer.generation());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
@@ -260,6 +327,27 @@ public PrimitiveDataSearchResult[] search(String query, int maxResultSize) throw
         return results;
     }
 
+    @Override
+    public PrimitiveDataSearchResult[] search(String query, int maxResultSize, SearchFilter filter) throws Exception {
+        LOG.debug("SearchProvider.search() called with query='{}', maxResultSize={}, filter={}", query, maxResultSize, filter);
+        if (closed.get()) {
+            LOG.error("SearchProvider is closed, cannot perform search");
+            throw new IllegalStateException("SearchProvider is closed");
+        }
+        PrimitiveDataSearchResult[] results = searcher.search(query, maxResultSize, filter);
+        LOG.debug("SearchProvider.search() returning {} results", results != null ? results.length : 0);
+        return results;
+    }
+
+    @Override
+    public PrimitiveDataSearchResult[] suggest(String prefix, int maxResultSize, SearchFilter filter) throws Exception {
+        if (closed.get()) {
+            LOG.error("SearchProvider is closed, cannot perform suggest");
+            throw new IllegalStateException("SearchProvider is closed");
+        }
+        return searcher.suggest(prefix, maxResultSize, filter);
+    }
+
     @Override
     public String highlight(String query, String text) throws Exception {
         if (closed.get()) {
@@ -289,7 +377,9 @@ public CompletableFuture<Void> recreateIndex() {
     private CompletableFuture<Void> recreateIndexFor(RecreateReason reason) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                return TinkExecutor.ioThreadPool().submit(new RecreateIndex(this.indexer, reason)).get();
+                Void result = TinkExecutor.ioThreadPool().submit(new RecreateIndex(this.indexer, this.searcher, reason)).get();
+                makeSearchable();
+                return result;
             } catch (InterruptedException | ExecutionException ex) {
                 AlertStreams.dispatchToRoot(new CompletionException("Error encountered while creating Lucene indexes. " +
                         "Search and Type Ahead Suggestions may not function as expected.", ex));
@@ -358,8 +448,9 @@ public void close() throws IOException {
 
         LOG.info("Closing SearchProvider...");
 
+        commitScheduler.stop();
         try {
-            indexer.commit();
+            commitScheduler.commit();
         } catch (IOException e) {
             LOG.warn("Error committing index during close", e);
         }
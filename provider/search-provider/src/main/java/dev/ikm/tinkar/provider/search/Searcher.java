@@ -17,8 +17,10 @@
 
 import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.PublicId;
+import dev.ikm.tinkar.common.jfr.SearchEvent;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.PrimitiveDataSearchResult;
+import dev.ikm.tinkar.common.service.SearchFilter;
 import dev.ikm.tinkar.common.util.time.Stopwatch;
 import dev.ikm.tinkar.component.Component;
 import dev.ikm.tinkar.coordinate.Calculators;
@@ -38,27 +40,39 @@
 import dev.ikm.tinkar.entity.SemanticEntityVersion;
 import dev.ikm.tinkar.terms.EntityProxy;
 import dev.ikm.tinkar.terms.TinkarTerm;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
 import org.apache.lucene.queryparser.flexible.standard.QueryParserUtil;
 import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
 import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.eclipse.collections.impl.factory.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Searcher {
     private static final Logger LOG = LoggerFactory.getLogger(Searcher.class);
@@ -67,30 +81,110 @@ public class Searcher {
     public static final EntityProxy.Pattern QUANTITATIVE_ALLOWED_RESULT_SET_PATTERN = EntityProxy.Pattern.make(null, UUID.fromString("9d40d06b-7776-5a56-97e4-0c27f5d574c7"));
     public static final EntityProxy.Pattern QUALITATIVE_ALLOWED_RESULT_SET_PATTERN = EntityProxy.Pattern.make(null, UUID.fromString("160a63a6-3cba-510e-83d1-235822045885"));
     StandardQueryParser parser;
+    /** Longest time an unawaited write stays invisible to this searcher's refreshes. */
+    private final Duration maxStale;
+    /** Time within which an awaited write becomes searchable. */
+    private final Duration minStale;
     private static SearcherManager searcherManager;
     private static boolean searcherManagerFromWriter = false;
 
-    static void refreshAfterIndex() {
+    /** Default longest time an unawaited write stays invisible to search. */
+    public static final Duration DEFAULT_MAX_STALE = Duration.ofSeconds(1);
+    /** Default time within which an awaited write becomes searchable. */
+    public static final Duration DEFAULT_MIN_STALE = Duration.ofMillis(25);
+
+    private static ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    /** While set, searches keep their current view; see {@link #holdRefresh()}. */
+    private static boolean refreshHeld;
+    private static final LongAdder refreshes = new LongAdder();
+    private static final LongAdder refreshNanos = new LongAdder();
+    private static final AtomicLong maxRefreshNanos = new AtomicLong();
+
+    /**
+     * Times the refreshes of the shared {@link SearcherManager}. Lucene calls
+     * the listener on the refreshing thread, under the manager's refresh lock,
+     * so one start time suffices.
+     */
+    private static final ReferenceManager.RefreshListener REFRESH_TIMER = new ReferenceManager.RefreshListener() {
+        private long refreshStart;
+
+        @Override
+        public void beforeRefresh() {
+            refreshStart = System.nanoTime();
+        }
+
+        @Override
+        public void afterRefresh(boolean didRefresh) {
+            if (didRefresh) {
+                long elapsed = System.nanoTime() - refreshStart;
+                refreshes.increment();
+                refreshNanos.add(elapsed);
+                maxRefreshNanos.accumulateAndGet(elapsed, Math::max);
+            }
+        }
+    };
+
+    /**
+     * Waits until searches see every index write up to {@code generation},
+     * asking the reopen thread to refresh within the minimum staleness.
+     *
+     * @param generation a sequence number of the live {@code IndexWriter}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void waitForGeneration(long generation) throws InterruptedException {
+        ControlledRealTimeReopenThread<IndexSearcher> thread;
         SearcherManager mgr;
-        try {
-            mgr = ensureSearcherManager();
-        } catch (IOException e) {
-            LOG.warn("Unable to (re)initialize searcher before refresh", e);
-            return;
+        synchronized (Searcher.class) {
+            try {
+                mgr = ensureSearcherManager();
+            } catch (IOException e) {
+                LOG.warn("Unable to (re)initialize searcher before waiting for generation {}", generation, e);
+                return;
+            }
+            thread = reopenThread;
         }
-        if (mgr == null) {
-            LOG.info("refreshAfterIndex: no live IndexWriter yet; skipping refresh");
+        if (mgr == null || generation <= 0 || thread == null) {
+            // No thread while refresh is held; releaseRefresh() makes the write searchable.
             return;
         }
+        boolean reached;
         try {
-            // Block to ensure the next search sees newly indexed docs.
-            mgr.maybeRefreshBlocking();
-            LOG.debug("Refreshed SearcherManager after indexing");
-        } catch (IOException e) {
-            LOG.warn("Unable to refresh searcher after indexing", e);
+            // Bounded, so a reopen thread closed by a concurrent close() cannot leave the caller waiting.
+            reached = thread.waitForGeneration(generation, (int) Math.min(Integer.MAX_VALUE, 2 * maxStale.toMillis() + 1));
+        } catch (IllegalArgumentException e) {
+            // The token predates the current writer (the index was reopened), so
+            // the reopen thread never saw it.
+            reached = false;
+        }
+        if (!reached) {
+            try {
+                mgr.maybeRefreshBlocking();
+            } catch (IOException | AlreadyClosedException e) {
+                LOG.warn("Unable to refresh searcher for generation {}", generation, e);
+            }
         }
     }
 
+    /**
+     * @return the writer generation visible to searches; 0 when no index is open
+     */
+    static synchronized long searchableGeneration() {
+        return reopenThread == null ? 0 : reopenThread.getSearchingGen();
+    }
+
+    static long refreshes() {
+        return refreshes.sum();
+    }
+
+    static Duration meanRefresh() {
+        long count = refreshes.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(refreshNanos.sum() / count);
+    }
+
+    static Duration maxRefresh() {
+        return Duration.ofNanos(maxRefreshNanos.get());
+    }
+
     /**
      * Returns the shared NRT {@link SearcherManager}, building it against the
      * live {@link Indexer#indexWriter()} if it is not already open.
@@ -107,11 +201,20 @@ static void refreshAfterIndex() {
      * removes the fragile "Indexer-then-Searcher, exactly once" ordering
      * dependency.
      *
+     * <p>A reopen thread started here refreshes within this searcher's
+     * staleness bounds.
+     *
      * @return the live SearcherManager, or {@code null} if no IndexWriter is
      *         open yet (no index to search)
      * @throws IOException if a new SearcherManager cannot be opened
      */
-    private static synchronized SearcherManager ensureSearcherManager() throws IOException {
+    private SearcherManager ensureSearcherManager() throws IOException {
+        synchronized (Searcher.class) {
+            return ensureSearcherManager(maxStale, minStale);
+        }
+    }
+
+    private static synchronized SearcherManager ensureSearcherManager(Duration maxStale, Duration minStale) throws IOException {
         if (searcherManager != null && searcherManagerFromWriter) {
             return searcherManager;
         }
@@ -125,18 +228,78 @@ private static synchronized SearcherManager ensureSearcherManager() throws IOExc
         if (searcherManager != null) {
             // Manager exists but was built from a stale reader/writer; replace it.
             LOG.info("Rebuilding SearcherManager to use current IndexWriter (NRT)");
+            closeReopenThread();
             searcherManager.close();
             searcherManager = null;
             searcherManagerFromWriter = false;
         }
         // NRT: tie the SearcherManager to the live IndexWriter so refresh picks up new docs without commits.
         searcherManager = new SearcherManager(Indexer.indexWriter(), null);
+        searcherManager.addListener(REFRESH_TIMER);
         searcherManagerFromWriter = true;
-        LOG.info("Created SearcherManager with IndexWriter (NRT)");
+        if (!refreshHeld) {
+            startReopenThread(maxStale, minStale);
+        }
+        LOG.info("Created SearcherManager with IndexWriter (NRT), max staleness {}, min staleness {}",
+                maxStale, minStale);
         return searcherManager;
     }
 
+    private static void startReopenThread(Duration maxStale, Duration minStale) {
+        // Refresh in the background rather than inline on the query path: at least every maxStale, and within
+        // minStale when a writer waits for a generation.
+        reopenThread = new ControlledRealTimeReopenThread<>(Indexer.indexWriter(), searcherManager,
+                maxStale.toNanos() / 1e9, minStale.toNanos() / 1e9);
+        reopenThread.setName("lucene-nrt-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+    }
+
+    /**
+     * Stops refreshing the shared searcher, so searches keep seeing the index
+     * as it is now while the live writer is rewritten underneath them. Used by
+     * {@link RecreateIndex} around its swap; always pair with
+     * {@link #releaseRefresh()}.
+     */
+    static synchronized void holdRefresh() {
+        refreshHeld = true;
+        closeReopenThread();
+    }
+
+    /**
+     * Resumes background refreshes after {@link #holdRefresh()} and refreshes
+     * once, so searches see every write made while refresh was held.
+     */
+    void releaseRefresh() {
+        SearcherManager mgr;
+        synchronized (Searcher.class) {
+            refreshHeld = false;
+            mgr = searcherManager;
+            if (mgr != null && reopenThread == null) {
+                startReopenThread(maxStale, minStale);
+            }
+        }
+        if (mgr != null) {
+            try {
+                mgr.maybeRefreshBlocking();
+            } catch (IOException | AlreadyClosedException e) {
+                LOG.warn("Unable to refresh searcher after releasing refresh", e);
+            }
+        }
+    }
+
     public Searcher() throws IOException {
+        this(DEFAULT_MAX_STALE, DEFAULT_MIN_STALE);
+    }
+
+    /**
+     * @param maxStale longest time an index write stays invisible to searches when no one waits for it
+     * @param minStale time within which a write becomes searchable when a writer waits for its generation
+     * @throws IOException if the searcher cannot be opened
+     */
+    public Searcher(Duration maxStale, Duration minStale) throws IOException {
+        this.maxStale = maxStale;
+        this.minStale = minStale;
         Stopwatch stopwatch = new Stopwatch();
         LOG.info("Opening lucene searcher");
         this.parser = new StandardQueryParser();
@@ -210,9 +373,40 @@ public String highlight(String queryString, String text) throws IOException {
     }
 
     public PrimitiveDataSearchResult[] search(String queryString, int maxResultSize) throws IOException {
-        LOG.debug("Searcher.search() called with queryString='{}', maxResultSize={}", queryString, maxResultSize);
+        return search(queryString, maxResultSize, SearchFilter.NONE);
+    }
 
-        Optional<Query> query = parseQuery(queryString);
+    /**
+     * Search restricted to semantics of the filter's patterns and referenced components.
+     *
+     * <p>The text query is the only scoring clause; the restrictions are added as
+     * {@link BooleanClause.Occur#FILTER} clauses over the {@code patternNid} and
+     * {@code referencedComponentNid} point fields, so Lucene collects exactly the
+     * top {@code maxResultSize} hits among the documents that pass the filter.
+     *
+     * @param queryString   the user query
+     * @param maxResultSize the number of hits to return
+     * @param filter        the restrictions; {@link SearchFilter#NONE} searches everything
+     * @return the hits, best first
+     * @throws IOException if the index cannot be read
+     */
+    public PrimitiveDataSearchResult[] search(String queryString, int maxResultSize, SearchFilter filter) throws IOException {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        PrimitiveDataSearchResult[] results = searchIndex(queryString, maxResultSize, filter);
+        if (event.shouldCommit()) {
+            event.query = queryString;
+            event.maxResultSize = maxResultSize;
+            event.resultCount = results.length;
+            event.commit();
+        }
+        return results;
+    }
+
+    private PrimitiveDataSearchResult[] searchIndex(String queryString, int maxResultSize, SearchFilter filter) throws IOException {
+        LOG.debug("Searcher.search() called with queryString='{}', maxResultSize={}, filter={}", queryString, maxResultSize, filter);
+
+        Optional<Query> query = parseQuery(queryString).map(textQuery -> filtered(textQuery, filter));
         if (query.isEmpty()) {
             LOG.debug("Searcher.search() - Query string is empty or invalid, returning empty results");
             return new PrimitiveDataSearchResult[0];
@@ -225,8 +419,7 @@ public PrimitiveDataSearchResult[] search(String queryString, int maxResultSize)
             return new PrimitiveDataSearchResult[0];
         }
 
-        boolean refreshOutcome = mgr.maybeRefresh();
-        LOG.debug("Searcher.search() - Index Reader refresh outcome = {}", refreshOutcome);
+        // No refresh here: the reopen thread keeps the searcher within the configured staleness.
         IndexSearcher indexSearcher = mgr.acquire();
         LOG.debug("Searcher.search() - Acquired IndexSearcher");
         try {
@@ -265,11 +458,148 @@ public PrimitiveDataSearchResult[] search(String queryString, int maxResultSize)
         }
     }
 
+    /**
+     * Type-ahead completion over description semantics.
+     *
+     * <p>Each word of {@code prefix} is analyzed like the indexed text and
+     * looked up as a single term in the {@link IndexerSchema#SUGGEST} edge
+     * n-gram field, so every word must begin a word of the description; the
+     * last word may be partial. No query parsing, wildcard expansion, or
+     * highlighting is done. BM25 length normalization ranks short
+     * descriptions first among equal matches.
+     *
+     * @param prefix        the text typed so far
+     * @param maxResultSize the number of completions to return
+     * @param filter        restrictions applied as in {@link #search(String, int, SearchFilter)}
+     * @return the completions, best first, each carrying the plain description
+     *         text as its {@code highlightedString}
+     * @throws IOException if the index cannot be read
+     */
+    public PrimitiveDataSearchResult[] suggest(String prefix, int maxResultSize, SearchFilter filter) throws IOException {
+        Optional<Query> query = suggestQuery(prefix).map(prefixQuery -> filtered(prefixQuery, filter));
+        if (query.isEmpty() || maxResultSize <= 0) {
+            return new PrimitiveDataSearchResult[0];
+        }
+        SearcherManager mgr = ensureSearcherManager();
+        if (mgr == null) {
+            LOG.error("Searcher.suggest() - no open Lucene index (IndexWriter is null); returning no results");
+            return new PrimitiveDataSearchResult[0];
+        }
+        IndexSearcher indexSearcher = mgr.acquire();
+        try {
+            ScoreDoc[] hits = indexSearcher.search(query.get(), maxResultSize).scoreDocs;
+            PrimitiveDataSearchResult[] results = new PrimitiveDataSearchResult[hits.length];
+            for (int i = 0; i < hits.length; i++) {
+                Document hitDoc = indexSearcher.storedFields().document(hits[i].doc, IndexerSchema.FIELDS_TO_LOAD);
+                int nid = IndexerSchema.NID.read(hitDoc);
+                int fieldOrdinal = IndexerSchema.INDEXED_FIELD_ORDINAL.read(hitDoc);
+                results[i] = new PrimitiveDataSearchResult(nid, fieldOrdinal, hits[i].score,
+                        EntityStoreBackedHighlighter.rehydrate(nid, fieldOrdinal));
+            }
+            return results;
+        } finally {
+            mgr.release(indexSearcher);
+        }
+    }
+
+    private static Optional<Query> suggestQuery(String prefix) throws IOException {
+        if (prefix == null || prefix.isBlank()) {
+            return Optional.empty();
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        int words = 0;
+        try (TokenStream tokens = Indexer.analyzer().tokenStream(IndexerSchema.TEXT.name(), prefix)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                int length = Math.min(term.length(), IndexerSchema.SUGGEST_MAX_PREFIX);
+                builder.add(new TermQuery(new Term(IndexerSchema.SUGGEST.name(), new String(term.buffer(), 0, length))),
+                        BooleanClause.Occur.MUST);
+                words++;
+            }
+            tokens.end();
+        }
+        return words == 0 ? Optional.empty() : Optional.of(builder.build());
+    }
+
+    private static Query filtered(Query textQuery, SearchFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return textQuery;
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST);
+        int[] patternNids = filter.patternNids();
+        if (patternNids.length > 0) {
+            builder.add(IndexerSchema.PATTERN_NID.newSetQuery(patternNids), BooleanClause.Occur.FILTER);
+        }
+        int[] referencedComponentNids = filter.referencedComponentNids();
+        if (referencedComponentNids.length > 0) {
+            builder.add(IndexerSchema.REFERENCED_COMPONENT_NID.newSetQuery(referencedComponentNids), BooleanClause.Occur.FILTER);
+        }
+        if (!filter.stampRestriction().isEmpty()) {
+            builder.add(stampFilter(filter.stampRestriction()), BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Compiles a stamp restriction into a query over the per-version stamp
+     * fields. Each dimension matches if any version of the semantic matches,
+     * so the query admits every semantic that could have a visible latest
+     * version, and some that do not; callers resolve the hits they keep.
+     * Documents whose stamps were not readable at index time always pass.
+     */
+    private static Query stampFilter(SearchFilter.StampRestriction restriction) {
+        BooleanQuery.Builder stamps = new BooleanQuery.Builder();
+        int[] stateNids = restriction.stateNids();
+        if (stateNids.length > 0) {
+            stamps.add(IndexerSchema.STAMP_STATE_NID.newSetQuery(stateNids), BooleanClause.Occur.FILTER);
+        }
+        int[] moduleNids = restriction.moduleNids();
+        if (moduleNids.length > 0) {
+            stamps.add(IndexerSchema.STAMP_MODULE_NID.newSetQuery(moduleNids), BooleanClause.Occur.FILTER);
+        }
+        int[] pathNids = restriction.pathNids();
+        if (pathNids.length > 0) {
+            stamps.add(IndexerSchema.STAMP_PATH_NID.newSetQuery(pathNids), BooleanClause.Occur.FILTER);
+        }
+        if (restriction.maxTime() != Long.MAX_VALUE) {
+            stamps.add(IndexerSchema.STAMP_TIME.newRangeQuery(Long.MIN_VALUE, restriction.maxTime()), BooleanClause.Occur.FILTER);
+        }
+        return new BooleanQuery.Builder()
+                .add(stamps.build(), BooleanClause.Occur.SHOULD)
+                .add(IndexerSchema.STAMPS_UNRESOLVED.newSetQuery(1), BooleanClause.Occur.SHOULD)
+                .setMinimumNumberShouldMatch(1)
+                .build();
+    }
+
+    Duration maxStale() {
+        return maxStale;
+    }
+
+    Duration minStale() {
+        return minStale;
+    }
+
     /**
      * Closes the SearcherManager and releases resources.
      * Should be called when SearchProvider is closed.
      */
     public void close() throws IOException {
+        synchronized (Searcher.class) {
+            closeReopenThread();
+            closeSearcherManager();
+        }
+    }
+
+    private static void closeReopenThread() {
+        if (reopenThread != null) {
+            reopenThread.close();
+            reopenThread = null;
+        }
+    }
+
+    private static void closeSearcherManager() throws IOException {
         if (searcherManager != null) {
             searcherManager.close();
             searcherManager = null;
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EdgePrefixFilterTest {
+
+    @Test
+    void suggestFieldIsIndexedAsWordPrefixes() throws IOException {
+        Analyzer analyzer = IndexerSchema.indexAnalyzer(new StandardAnalyzer());
+        assertEquals(List.of("a", "as", "asp", "b", "ba", "bay", "baye", "bayer"),
+                terms(analyzer, IndexerSchema.SUGGEST.name(), "Asp Bayer"));
+        // The prefixes of a word share its position.
+        assertEquals(2, positions(analyzer, IndexerSchema.SUGGEST.name(), "Asp Bayer"));
+        // Other fields keep the text analyzer.
+        assertEquals(List.of("asp", "bayer"), terms(analyzer, IndexerSchema.TEXT.name(), "Asp Bayer"));
+    }
+
+    @Test
+    void longWordsAreCutAtMaxPrefix() throws IOException {
+        Analyzer analyzer = IndexerSchema.indexAnalyzer(new StandardAnalyzer());
+        String word = "pneumonoultramicroscopicsilicovolcanoconiosis";
+        List<String> terms = terms(analyzer, IndexerSchema.SUGGEST.name(), word);
+        assertEquals(IndexerSchema.SUGGEST_MAX_PREFIX - IndexerSchema.SUGGEST_MIN_PREFIX + 1, terms.size());
+        assertEquals(word.substring(0, IndexerSchema.SUGGEST_MAX_PREFIX), terms.getLast());
+    }
+
+    private static List<String> terms(Analyzer analyzer, String field, String text) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream tokens = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                terms.add(term.toString());
+            }
+            tokens.end();
+        }
+        return terms;
+    }
+
+    private static int positions(Analyzer analyzer, String field, String text) throws IOException {
+        int positions = 0;
+        try (TokenStream tokens = analyzer.tokenStream(field, text)) {
+            PositionIncrementAttribute increment = tokens.addAttribute(PositionIncrementAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                positions += increment.getPositionIncrement();
+            }
+            tokens.end();
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2015 Integrated Knowledge Management (support@ikm.dev)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.ikm.tinkar.provider.search;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearcherRefreshTest {
+    private Indexer indexer;
+    private Searcher searcher;
+
+    @BeforeEach
+    void open() throws IOException {
+        indexer = new Indexer();
+        // A max staleness far beyond the test, so only waiting for a generation makes writes visible.
+        searcher = new Searcher(Duration.ofMinutes(10), Duration.ofMillis(5));
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        searcher.close();
+        indexer.close();
+    }
+
+    @Test
+    void waitingForGenerationMakesWriteSearchable() throws Exception {
+        Indexer.indexWriter().addDocument(document(1));
+        long generation = Indexer.generation();
+        searcher.waitForGeneration(generation);
+        assertTrue(Searcher.searchableGeneration() >= generation);
+        assertTrue(Searcher.refreshes() > 0);
+    }
+
+    @Test
+    void stalenessBelongsToEachSearcher() throws Exception {
+        new Searcher(Duration.ofSeconds(1), Duration.ofMillis(50));
+        assertEquals(Duration.ofMinutes(10), searcher.maxStale());
+        assertEquals(Duration.ofMillis(5), searcher.minStale());
+    }
+
+    @Test
+    void documentLimitTriggersCommit() throws Exception {
+        IndexCommitScheduler scheduler = new IndexCommitScheduler(indexer, Duration.ZERO, 2);
+        try {
+            Indexer.indexWriter().addDocument(document(1));
+            scheduler.docsAdded(1);
+            assertEquals(1, scheduler.uncommittedDocs());
+            Indexer.indexWriter().addDocument(document(2));
+            scheduler.docsAdded(1);
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (scheduler.commits() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, scheduler.commits());
+            assertEquals(0, scheduler.uncommittedDocs());
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    void heldRefreshHidesSwapUntilReleased() throws Exception {
+        Indexer.indexWriter().addDocument(document(1));
+        searcher.waitForGeneration(Indexer.generation());
+        try (Directory shard = new ByteBuffersDirectory()) {
+            try (IndexWriter shardWriter = Indexer.newShardWriter(shard, 16)) {
+                shardWriter.addDocument(document(2));
+                shardWriter.addDocument(document(3));
+            }
+            Searcher.holdRefresh();
+            long refreshesBeforeSwap;
+            try {
+                refreshesBeforeSwap = Searcher.refreshes();
+                assertEquals(0, indexer.replaceContents(shard));
+                // Waiting does not refresh while held.
+                searcher.waitForGeneration(Indexer.generation());
+                assertEquals(refreshesBeforeSwap, Searcher.refreshes());
+            } finally {
+                searcher.releaseRefresh();
+            }
+            assertTrue(Searcher.refreshes() > refreshesBeforeSwap);
+        }
+        try (DirectoryReader reader = DirectoryReader.open(Indexer.indexWriter())) {
+            assertEquals(2, reader.numDocs());
+        }
+    }
+
+    private static Document document(int nid) {
+        Document doc = new Document();
+        doc.add(IndexerSchema.NID.make(nid));
+        doc.add(IndexerSchema.INDEXED_FIELD_ORDINAL.make(0));
+        doc.add(IndexerSchema.TEXT.make("text " + nid));
+        return doc;
+    }
+}
@@ -2,6 +2,7 @@
 
 import dev.ikm.tinkar.common.id.IntIdSet;
 import dev.ikm.tinkar.common.id.IntIds;
+import dev.ikm.tinkar.common.service.DataActivity;
 import dev.ikm.tinkar.common.service.PrimitiveData;
 import dev.ikm.tinkar.common.service.TrackingCallable;
 import dev.ikm.tinkar.common.sets.ConcurrentHashSet;
@@ -30,10 +31,13 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -52,6 +56,11 @@ public class InferredResultsWriter {
 	private static final ScopedValue<AtomicInteger> PROCESSED_COUNT = ScopedValue.newInstance();
 	private static final ScopedValue<Integer> TOTAL_COUNT = ScopedValue.newInstance();
 
+	/**
+	 * Semantics are written in batches of this size through {@link EntityService#putEntitiesNoCache}.
+	 */
+	private static final int WRITE_BATCH_SIZE = 4096;
+
 	private ReasonerService rs;
 
 	private Transaction updateTransaction;
@@ -72,6 +81,9 @@ public class InferredResultsWriter {
 
 	private final TrackingCallable<?> progressUpdater;
 
+	private final ConcurrentLinkedQueue<Entity<? extends EntityVersion>> pendingWrites = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingWriteCount = new AtomicInteger();
+
 	public InferredResultsWriter(ReasonerService rs, TrackingCallable<?> progressUpdater) {
 		super();
 		this.rs = rs;
@@ -124,7 +136,22 @@ private String formatDuration(long millis) {
 
 	private void processSemantic(Entity<? extends EntityVersion> entity) {
 		updateTransaction.addComponent(entity);
-		Entity.provider().putEntityNoCache(entity);
+		pendingWrites.add(entity);
+		if (pendingWriteCount.incrementAndGet() % WRITE_BATCH_SIZE == 0) {
+			writePending();
+		}
+	}
+
+	/**
+	 * Writes up to a batch of the queued semantics.
+	 */
+	private void writePending() {
+		List<Entity<? extends EntityVersion>> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+		Entity<? extends EntityVersion> entity;
+		while (batch.size() < WRITE_BATCH_SIZE && (entity = pendingWrites.poll()) != null) {
+			batch.add(entity);
+		}
+		Entity.provider().putEntitiesNoCache(batch, DataActivity.SYNCHRONIZABLE_EDIT);
 	}
 
 	private StructuredTaskScope.Joiner<MutableIntList, Void> createAccumulatingJoiner(MutableIntList accumulator) {
@@ -177,6 +204,9 @@ private MutableIntList processEntitiesInScope(
 			}
 			scope.join();
 		}
+		while (!pendingWrites.isEmpty()) {
+			writePending();
+		}
 		return changedConcepts;
 	}
 	public ClassifierResults write() {